@@ -0,0 +1,125 @@
+package com.leo.cse.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.leo.cse.backend.ByteUtils;
+
+/**
+ * Benchmarks {@link ByteUtils}' flag and number codecs on the profile fixture.
+ *
+ * @author Leo
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteUtilsBenchmark {
+
+	/**
+	 * Position of the flags in a profile.
+	 */
+	private static final int FLAGS_PTR = 0x21C;
+	/**
+	 * Number of flags in a profile.
+	 */
+	private static final int FLAGS_COUNT = 8000;
+
+	private byte[] data;
+	private boolean[] flags;
+	private int[] ints;
+	private short[] shorts;
+
+	@Setup
+	public void setup() throws IOException {
+		data = Fixtures.read(Fixtures.PROFILE);
+		flags = new boolean[FLAGS_COUNT];
+		ByteUtils.readFlags(data, FLAGS_PTR, flags);
+		// set every third flag so writes don't just store zeroes
+		for (int i = 0; i < flags.length; i += 3)
+			flags[i] = true;
+		ints = new int[data.length / Integer.BYTES];
+		shorts = new short[data.length / Short.BYTES];
+	}
+
+	@Benchmark
+	public boolean[] readFlags() {
+		ByteUtils.readFlags(data, FLAGS_PTR, flags);
+		return flags;
+	}
+
+	@Benchmark
+	public byte[] writeFlags() {
+		ByteUtils.writeFlags(data, FLAGS_PTR, flags);
+		return data;
+	}
+
+	@Benchmark
+	public int readInt() {
+		int sum = 0;
+		for (int ptr = 0; ptr + Integer.BYTES <= data.length; ptr += Integer.BYTES)
+			sum += ByteUtils.readInt(data, ptr);
+		return sum;
+	}
+
+	@Benchmark
+	public byte[] writeInt() {
+		for (int ptr = 0; ptr + Integer.BYTES <= data.length; ptr += Integer.BYTES)
+			ByteUtils.writeInt(data, ptr, ptr);
+		return data;
+	}
+
+	@Benchmark
+	public int[] readInts() {
+		ByteUtils.readInts(data, 0, 0, ints);
+		return ints;
+	}
+
+	@Benchmark
+	public byte[] writeInts() {
+		ByteUtils.writeInts(data, 0, 0, ints);
+		return data;
+	}
+
+	@Benchmark
+	public int readShort() {
+		int sum = 0;
+		for (int ptr = 0; ptr + Short.BYTES <= data.length; ptr += Short.BYTES)
+			sum += ByteUtils.readShort(data, ptr);
+		return sum;
+	}
+
+	@Benchmark
+	public byte[] writeShort() {
+		for (int ptr = 0; ptr + Short.BYTES <= data.length; ptr += Short.BYTES)
+			ByteUtils.writeShort(data, ptr, (short) ptr);
+		return data;
+	}
+
+	@Benchmark
+	public short[] readShorts() {
+		ByteUtils.readShorts(data, 0, 0, shorts);
+		return shorts;
+	}
+
+	@Benchmark
+	public byte[] writeShorts() {
+		ByteUtils.writeShorts(data, 0, 0, shorts);
+		return data;
+	}
+
+}
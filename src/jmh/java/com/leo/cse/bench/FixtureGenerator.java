@@ -0,0 +1,417 @@
+package com.leo.cse.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import com.leo.cse.backend.profile.ProfileSession;
+
+/**
+ * Generates the synthetic fixtures the benchmarks run against. All data is
+ * derived from a fixed seed, so the output is the same every time.<br />
+ * The generated files are checked in - this only needs to be run again if the
+ * fixtures themselves change. Usage:
+ * <code>FixtureGenerator [output directory]</code>
+ *
+ * @author Leo
+ *
+ */
+public class FixtureGenerator {
+
+	private FixtureGenerator() {
+	}
+
+	/**
+	 * Seed for all generated data.
+	 */
+	private static final long SEED = 0x0C5E_BE4CL;
+	/**
+	 * Number of maps in the map data fixtures (same as the vanilla game).
+	 */
+	public static final int MAP_COUNT = 95;
+	/**
+	 * Number of entries in the "npc.tbl" fixture (same as the vanilla game).
+	 */
+	public static final int NPC_COUNT = 361;
+	/**
+	 * Width of the benchmark map.
+	 */
+	public static final int MAP_WIDTH = 160;
+	/**
+	 * Height of the benchmark map.
+	 */
+	public static final int MAP_HEIGHT = 120;
+	/**
+	 * Number of entities on the benchmark map.
+	 */
+	public static final int ENTITY_COUNT = 200;
+	/**
+	 * Number of events in the benchmark map's script.
+	 */
+	public static final int EVENT_COUNT = 200;
+
+	/**
+	 * Size of the executable's headers.
+	 */
+	public static final int EXE_HEADERS = 0x1000;
+	/**
+	 * Position of the NT headers in the executable.
+	 */
+	private static final int EXE_NT_HEADERS = 0x80;
+	/**
+	 * Size of the executable's optional header.
+	 */
+	private static final int EXE_OPT_HEADER_SIZE = 0xE0;
+	/**
+	 * Section and file alignment of the executable.
+	 */
+	private static final int EXE_ALIGNMENT = 0x1000;
+
+	public static void main(String[] args) throws IOException {
+		File dir = new File(args.length > 0 ? args[0] : Fixtures.DEFAULT_DIR);
+		File stageDir = new File(dir, Fixtures.PLUS_DIR + "/Stage");
+		if (!stageDir.exists() && !stageDir.mkdirs())
+			throw new IOException("Could not create directory: " + stageDir);
+		Random rng = new Random(SEED);
+		write(dir, Fixtures.EXE, makeExe(rng));
+		write(dir, Fixtures.MAPDATA_STANDARD, makeMapdata(false));
+		write(dir, Fixtures.MAPDATA_PLUS, makeMapdata(true));
+		write(dir, Fixtures.PLUS_DIR + "/npc.tbl", makeNpcTbl(rng));
+		write(dir, Fixtures.PLUS_DIR + "/Stage/" + Fixtures.MAP_NAME + ".pxa", makePxa(rng));
+		write(dir, Fixtures.PLUS_DIR + "/Stage/" + Fixtures.MAP_NAME + ".pxm", makePxm(rng));
+		write(dir, Fixtures.PLUS_DIR + "/Stage/" + Fixtures.MAP_NAME + ".pxe", makePxe(rng));
+		write(dir, Fixtures.TSC, makeTsc());
+		ProfileSession session = new ProfileSession();
+		session.create();
+		session.save(new File(dir, Fixtures.PROFILE));
+		System.out.println("Fixtures written to " + dir.getAbsolutePath());
+	}
+
+	private static void write(File dir, String name, byte[] data) throws IOException {
+		Files.write(new File(dir, name).toPath(), data);
+	}
+
+	private static ByteBuffer allocate(int size) {
+		ByteBuffer bb = ByteBuffer.allocate(size);
+		bb.order(ByteOrder.LITTLE_ENDIAN);
+		return bb;
+	}
+
+	private static void putString(ByteBuffer bb, String s, int length) {
+		byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+		bb.put(b, 0, Math.min(b.length, length - 1));
+		for (int i = Math.min(b.length, length - 1); i < length; i++)
+			bb.put((byte) 0);
+	}
+
+	/**
+	 * Creates an executable with <code>.text</code>, <code>.rdata</code> and
+	 * <code>.rsrc</code> sections. Sections are linearized (file address = RVA),
+	 * like they are in the vanilla executable.
+	 */
+	private static byte[] makeExe(Random rng) {
+		byte[] text = new byte[0x8000];
+		rng.nextBytes(text);
+		byte[] rdata = new byte[0x4000];
+		rng.nextBytes(rdata);
+		int rsrcRVA = EXE_HEADERS + text.length + rdata.length;
+		byte[] rsrc = makeRsrc(rng, rsrcRVA);
+		int rsrcSize = align(rsrc.length, EXE_ALIGNMENT);
+		ByteBuffer bb = allocate(rsrcRVA + rsrcSize);
+		// DOS header
+		bb.put(0, (byte) 'M');
+		bb.put(1, (byte) 'Z');
+		bb.putInt(0x3C, EXE_NT_HEADERS);
+		// NT headers
+		bb.position(EXE_NT_HEADERS);
+		bb.putInt(0x00004550); // "PE\0\0"
+		bb.putShort((short) 0x014C); // i386
+		bb.putShort((short) 3); // section count
+		bb.putInt(0); // timestamp
+		bb.putInt(0); // symbol table address
+		bb.putInt(0); // symbol count
+		bb.putShort((short) EXE_OPT_HEADER_SIZE);
+		bb.putShort((short) 0x010F); // characteristics
+		int opt = bb.position();
+		bb.putShort(opt, (short) 0x010B);
+		bb.putInt(opt + 0x20, EXE_ALIGNMENT); // section alignment
+		bb.putInt(opt + 0x24, EXE_ALIGNMENT); // file alignment
+		bb.putInt(opt + 0x38, rsrcRVA + rsrcSize); // size of image
+		bb.putInt(opt + 0x3C, EXE_HEADERS); // size of headers
+		bb.putInt(opt + 0x5C, 16); // data directory count
+		bb.putInt(opt + 0x70, rsrcRVA); // resource directory
+		bb.putInt(opt + 0x74, rsrc.length);
+		// section headers
+		bb.position(opt + EXE_OPT_HEADER_SIZE);
+		putSection(bb, ".text", EXE_HEADERS, text, text.length, 0x60000020);
+		putSection(bb, ".rdata", EXE_HEADERS + text.length, rdata, rdata.length, 0x40000040);
+		putSection(bb, ".rsrc", rsrcRVA, rsrc, rsrcSize, 0x40000040);
+		return bb.array();
+	}
+
+	private static void putSection(ByteBuffer bb, String tag, int rva, byte[] data, int rawSize,
+			int characteristics) {
+		putString(bb, tag, 8);
+		bb.putInt(data.length); // virtual size
+		bb.putInt(rva);
+		bb.putInt(rawSize);
+		bb.putInt(rva); // raw data pointer
+		bb.putInt(0); // relocations
+		bb.putInt(0); // line numbers
+		bb.putShort((short) 0);
+		bb.putShort((short) 0);
+		bb.putInt(characteristics);
+		int saved = bb.position();
+		bb.position(rva);
+		bb.put(data);
+		bb.position(saved);
+	}
+
+	private static int align(int value, int alignment) {
+		return (value + alignment - 1) / alignment * alignment;
+	}
+
+	/**
+	 * A node in a resource directory tree.
+	 */
+	private static class RsrcNode {
+		final String name;
+		final int id;
+		final List<RsrcNode> children;
+		final byte[] data;
+		int offset, nameOffset, dataOffset;
+
+		RsrcNode(String name, int id, byte[] data) {
+			this.name = name;
+			this.id = id;
+			this.data = data;
+			children = data == null ? new ArrayList<>() : null;
+		}
+
+		RsrcNode add(RsrcNode child) {
+			children.add(child);
+			return child;
+		}
+	}
+
+	/**
+	 * Creates a <code>.rsrc</code> section with a bitmap directory (like the one
+	 * holding the vanilla executable's embedded bitmaps) and a raw data
+	 * directory.
+	 */
+	private static byte[] makeRsrc(Random rng, int rva) {
+		RsrcNode root = new RsrcNode(null, 0, null);
+		RsrcNode bitmaps = root.add(new RsrcNode(null, 2, null));
+		bitmaps.add(new RsrcNode("PIXEL", 0, null)).add(new RsrcNode(null, 1041, makeBitmap(rng)));
+		for (int i = 0; i < 16; i++)
+			bitmaps.add(new RsrcNode(String.format("BENCH%02d", i), 0, null))
+					.add(new RsrcNode(null, 1041, makeBitmap(rng)));
+		RsrcNode rcdata = root.add(new RsrcNode(null, 10, null));
+		for (int i = 1; i <= 16; i++) {
+			byte[] data = new byte[256];
+			rng.nextBytes(data);
+			rcdata.add(new RsrcNode(null, i, null)).add(new RsrcNode(null, 1033, data));
+		}
+		// lay out directories (breadth first), then data entries, names and data
+		List<RsrcNode> dirs = new ArrayList<>(), leaves = new ArrayList<>(), named = new ArrayList<>();
+		LinkedList<RsrcNode> queue = new LinkedList<>();
+		queue.add(root);
+		int pos = 0;
+		while (!queue.isEmpty()) {
+			RsrcNode node = queue.removeFirst();
+			if (node.name != null)
+				named.add(node);
+			if (node.data != null) {
+				leaves.add(node);
+				continue;
+			}
+			dirs.add(node);
+			node.offset = pos;
+			pos += 16 + 8 * node.children.size();
+			// named entries come before id entries
+			node.children.sort((a, b) -> (a.name == null ? 1 : 0) - (b.name == null ? 1 : 0));
+			queue.addAll(node.children);
+		}
+		for (RsrcNode leaf : leaves) {
+			leaf.offset = pos;
+			pos += 16;
+		}
+		for (RsrcNode node : named) {
+			node.nameOffset = pos;
+			pos += 2 + 2 * node.name.length();
+		}
+		for (RsrcNode leaf : leaves) {
+			pos = align(pos, 4);
+			leaf.dataOffset = pos;
+			pos += leaf.data.length;
+		}
+		ByteBuffer bb = allocate(align(pos, 4));
+		for (RsrcNode dir : dirs) {
+			bb.position(dir.offset);
+			bb.putInt(0); // characteristics
+			bb.putInt(0); // timestamp
+			bb.putShort((short) 4); // major version
+			bb.putShort((short) 0); // minor version
+			int nameCount = 0;
+			for (RsrcNode child : dir.children)
+				if (child.name != null)
+					nameCount++;
+			bb.putShort((short) nameCount);
+			bb.putShort((short) (dir.children.size() - nameCount));
+			for (RsrcNode child : dir.children) {
+				bb.putInt(child.name == null ? child.id : 0x80000000 | child.nameOffset);
+				bb.putInt(child.data == null ? 0x80000000 | child.offset : child.offset);
+			}
+		}
+		for (RsrcNode leaf : leaves) {
+			bb.position(leaf.offset);
+			bb.putInt(rva + leaf.dataOffset);
+			bb.putInt(leaf.data.length);
+			bb.putInt(0); // codepage
+			bb.putInt(0); // reserved
+			bb.position(leaf.dataOffset);
+			bb.put(leaf.data);
+		}
+		for (RsrcNode node : named) {
+			bb.position(node.nameOffset);
+			bb.putShort((short) node.name.length());
+			for (char c : node.name.toCharArray())
+				bb.putShort((short) c);
+		}
+		return bb.array();
+	}
+
+	/**
+	 * Creates a 16x16 8-bit bitmap, without a file header (as stored in
+	 * <code>.rsrc</code>).
+	 */
+	private static byte[] makeBitmap(Random rng) {
+		final int size = 16;
+		ByteBuffer bb = allocate(40 + 256 * 4 + size * size);
+		bb.putInt(40); // header size
+		bb.putInt(size); // width
+		bb.putInt(size); // height
+		bb.putShort((short) 1); // planes
+		bb.putShort((short) 8); // bits per pixel
+		bb.putInt(0); // compression
+		bb.putInt(size * size); // image size
+		bb.putInt(0); // horizontal resolution
+		bb.putInt(0); // vertical resolution
+		bb.putInt(0); // palette size (0 = 256 colors)
+		bb.putInt(0); // important colors
+		for (int i = 0; i < 256; i++)
+			bb.putInt(rng.nextInt(0x1000000));
+		byte[] pixels = new byte[size * size];
+		rng.nextBytes(pixels);
+		bb.put(pixels);
+		return bb.array();
+	}
+
+	/**
+	 * Creates map data. Map 0 is the benchmark map, the rest refer to files that
+	 * don't exist.
+	 *
+	 * @param plus
+	 *            <code>true</code> for the CS+ format (stage.tbl),
+	 *            <code>false</code> for the vanilla format
+	 */
+	private static byte[] makeMapdata(boolean plus) {
+		ByteBuffer bb = allocate(MAP_COUNT * (plus ? 0xE5 : 0xC8));
+		for (int i = 0; i < MAP_COUNT; i++) {
+			String fileName = i == 0 ? Fixtures.MAP_NAME : String.format("Map%02d", i);
+			putString(bb, fileName, 0x20); // tileset
+			putString(bb, fileName, 0x20);
+			bb.putInt(i % 5); // scroll type
+			putString(bb, String.format("bk%02d", i % 12), 0x20);
+			putString(bb, String.format("Npc1_%02d", i % 20), 0x20);
+			putString(bb, String.format("Npc2_%02d", i % 20), 0x20);
+			bb.put((byte) (i % 10)); // boss
+			if (plus) {
+				putString(bb, String.format("Benchmark Map %d (JP)", i), 0x20);
+				putString(bb, String.format("Benchmark Map %d", i), 0x20);
+			} else
+				putString(bb, String.format("Benchmark Map %d", i), 0x23);
+		}
+		return bb.array();
+	}
+
+	/**
+	 * Creates an "npc.tbl" file.
+	 */
+	private static byte[] makeNpcTbl(Random rng) {
+		byte[] data = new byte[NPC_COUNT * 24];
+		rng.nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Tile types the PXA fixture picks from - a mix of background and foreground
+	 * tiles.
+	 */
+	private static final byte[] TILE_TYPES = { 0x00, 0x01, 0x02, 0x05, 0x20, 0x40, 0x41, 0x43, 0x44, 0x50, 0x51,
+			0x60, 0x61, (byte) 0x80 };
+
+	private static byte[] makePxa(Random rng) {
+		byte[] data = new byte[256];
+		for (int i = 0; i < data.length; i++)
+			data[i] = TILE_TYPES[rng.nextInt(TILE_TYPES.length)];
+		return data;
+	}
+
+	private static byte[] makePxm(Random rng) {
+		ByteBuffer bb = allocate(8 + MAP_WIDTH * MAP_HEIGHT);
+		putString(bb, "PXM", 4);
+		bb.put(3, (byte) 0x10);
+		bb.putShort((short) MAP_WIDTH);
+		bb.putShort((short) MAP_HEIGHT);
+		while (bb.hasRemaining())
+			bb.put((byte) rng.nextInt(256));
+		return bb.array();
+	}
+
+	private static byte[] makePxe(Random rng) {
+		ByteBuffer bb = allocate(8 + ENTITY_COUNT * 12);
+		putString(bb, "PXE", 4);
+		bb.putInt(ENTITY_COUNT);
+		for (int i = 0; i < ENTITY_COUNT; i++) {
+			bb.putShort((short) rng.nextInt(MAP_WIDTH)); // x
+			bb.putShort((short) rng.nextInt(MAP_HEIGHT)); // y
+			bb.putShort((short) rng.nextInt(8000)); // flag ID
+			bb.putShort((short) (100 + i)); // event
+			bb.putShort((short) rng.nextInt(NPC_COUNT)); // type
+			bb.putShort((short) (rng.nextInt(0x10000) & 0xC904)); // flags
+		}
+		return bb.array();
+	}
+
+	/**
+	 * Creates an encrypted script. The middle byte is the key, and every other
+	 * byte is offset by it.
+	 */
+	private static byte[] makeTsc() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < EVENT_COUNT; i++) {
+			sb.append(String.format("#%04d\r\n", 100 + i));
+			sb.append("<KEY<FLJ").append(String.format("%04d:%04d", 1000 + i, 100 + (i + 1) % EVENT_COUNT))
+					.append("<MSG\r\n");
+			sb.append("<FAC0005This is event ").append(i).append(" of the benchmark map.<NOD<CLR\r\n");
+			sb.append("It has a second page of text, so the script isn't trivially short.<NOD<CLO\r\n");
+			sb.append(String.format("<FL+%04d<IT+%04d<END\r\n", 1000 + i, i % 40));
+		}
+		byte[] data = sb.toString().getBytes(StandardCharsets.US_ASCII);
+		int mid = data.length / 2;
+		byte key = data[mid];
+		for (int i = 0; i < data.length; i++)
+			if (i != mid)
+				data[i] += key;
+		return data;
+	}
+
+}
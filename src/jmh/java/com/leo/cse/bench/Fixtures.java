@@ -0,0 +1,98 @@
+package com.leo.cse.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Locates the synthetic fixtures the benchmarks run against.<br />
+ * The fixtures are generated by {@link FixtureGenerator} and checked in under
+ * <code>src/jmh/fixtures</code>, so every build benchmarks the same data.
+ *
+ * @author Leo
+ *
+ */
+public class Fixtures {
+
+	private Fixtures() {
+	}
+
+	/**
+	 * System property that overrides the fixture directory.
+	 */
+	public static final String PROPERTY_DIR = "cse.bench.fixtures";
+	/**
+	 * Default fixture directory, relative to the project root.
+	 */
+	public static final String DEFAULT_DIR = "src/jmh/fixtures";
+
+	/**
+	 * Synthetic executable with <code>.text</code>, <code>.rdata</code> and
+	 * <code>.rsrc</code> sections.
+	 */
+	public static final String EXE = "synthetic.exe";
+	/**
+	 * Map data in the format used by the vanilla executable.
+	 */
+	public static final String MAPDATA_STANDARD = "mapdata.bin";
+	/**
+	 * CS+ mod directory.
+	 */
+	public static final String PLUS_DIR = "plus";
+	/**
+	 * Map data in the format used by CS+.
+	 */
+	public static final String MAPDATA_PLUS = PLUS_DIR + "/stage.tbl";
+	/**
+	 * File name of the map the benchmarks load.
+	 */
+	public static final String MAP_NAME = "Bench";
+	/**
+	 * Encrypted script of the benchmark map.
+	 */
+	public static final String TSC = PLUS_DIR + "/Stage/" + MAP_NAME + ".tsc";
+	/**
+	 * Vanilla profile.
+	 */
+	public static final String PROFILE = "Profile.dat";
+
+	/**
+	 * Gets the fixture directory.
+	 *
+	 * @return fixture directory
+	 */
+	public static File getDir() {
+		return new File(System.getProperty(PROPERTY_DIR, DEFAULT_DIR));
+	}
+
+	/**
+	 * Gets a fixture file.
+	 *
+	 * @param name
+	 *            path to fixture, relative to the fixture directory
+	 * @return fixture file
+	 * @throws IOException
+	 *             if the fixture does not exist.
+	 */
+	public static File get(String name) throws IOException {
+		File file = new File(getDir(), name);
+		if (!file.exists())
+			throw new IOException("Fixture \"" + file.getAbsolutePath()
+					+ "\" does not exist! Run the benchmarks from the project root or set -D" + PROPERTY_DIR);
+		return file;
+	}
+
+	/**
+	 * Reads a fixture file.
+	 *
+	 * @param name
+	 *            path to fixture, relative to the fixture directory
+	 * @return contents of fixture
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public static byte[] read(String name) throws IOException {
+		return Files.readAllBytes(get(name).toPath());
+	}
+
+}
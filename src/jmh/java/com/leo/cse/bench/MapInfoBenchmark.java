@@ -0,0 +1,66 @@
+package com.leo.cse.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.leo.cse.backend.exe.ExeData;
+import com.leo.cse.backend.exe.MapInfo;
+import com.leo.cse.backend.exe.MapTiles;
+
+/**
+ * Benchmarks loading the benchmark map's layout from the CS+ mod fixture.
+ *
+ * @author Leo
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapInfoBenchmark {
+
+	private MapInfo mapInfo;
+
+	@Setup
+	public void setup() throws IOException {
+		// only load what the benchmark needs
+		ExeData.setLazyLoad(true);
+		ExeData.setLoadNpc(false);
+		ExeData.setLoadTSC(false);
+		// measure parsing the PXM file, not reading it back from the mod cache, and
+		// don't leave cache files or watcher threads behind
+		ExeData.setUseModCache(false);
+		ExeData.setWatchFiles(false);
+		ExeData.load(Fixtures.get(Fixtures.MAPDATA_PLUS));
+		if (!ExeData.isLoaded())
+			throw new IOException("Could not load mod fixture!");
+		mapInfo = ExeData.getMapInfo(0);
+		mapInfo.loadPXA();
+	}
+
+	@TearDown
+	public void tearDown() {
+		ExeData.unload();
+	}
+
+	@Benchmark
+	public MapTiles loadMap() {
+		mapInfo.loadMap();
+		return mapInfo.getTiles();
+	}
+
+}
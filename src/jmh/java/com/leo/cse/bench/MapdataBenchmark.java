@@ -0,0 +1,65 @@
+package com.leo.cse.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.leo.cse.backend.exe.ExeData;
+import com.leo.cse.backend.exe.ExeData.ModType;
+import com.leo.cse.backend.exe.Mapdata;
+
+/**
+ * Benchmarks parsing every entry of the map data fixtures, in both formats.
+ *
+ * @author Leo
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapdataBenchmark {
+
+	@Param({ "STANDARD", "PLUS" })
+	public ModType format;
+
+	private byte[] data;
+	private int count;
+
+	@Setup
+	public void setup() throws IOException {
+		if (format == ModType.PLUS) {
+			data = Fixtures.read(Fixtures.MAPDATA_PLUS);
+			count = data.length / 0xE5;
+		} else {
+			data = Fixtures.read(Fixtures.MAPDATA_STANDARD);
+			count = data.length / 0xC8;
+		}
+	}
+
+	@Benchmark
+	public void parse(Blackhole bh) {
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		String encoding = ExeData.getEncoding();
+		for (int i = 0; i < count; i++)
+			bh.consume(new Mapdata(i, buf, format, encoding));
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.leo.cse.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.leo.cse.backend.exe.PEFile;
+
+/**
+ * Benchmarks reading and writing the executable fixture.
+ *
+ * @author Leo
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PEFileBenchmark {
+
+	private File file;
+	private byte[] data;
+	private PEFile peFile;
+
+	@Setup
+	public void setup() throws IOException {
+		file = Fixtures.get(Fixtures.EXE);
+		data = Fixtures.read(Fixtures.EXE);
+		peFile = new PEFile(ByteBuffer.wrap(data), FixtureGenerator.EXE_HEADERS);
+	}
+
+	@Benchmark
+	public PEFile construct() throws IOException {
+		return new PEFile(ByteBuffer.wrap(data), FixtureGenerator.EXE_HEADERS);
+	}
+
+	@Benchmark
+	public PEFile constructShared() throws IOException {
+		return new PEFile(ByteBuffer.wrap(data), FixtureGenerator.EXE_HEADERS, true);
+	}
+
+	@Benchmark
+	public PEFile read() throws IOException {
+		return PEFile.read(file, FixtureGenerator.EXE_HEADERS);
+	}
+
+	@Benchmark
+	public byte[] write() throws IOException {
+		return peFile.write();
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.leo.cse.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.leo.cse.backend.profile.NormalProfile;
+import com.leo.cse.backend.profile.ProfileManager;
+
+/**
+ * Benchmarks reading a profile field and writing a new value back through
+ * {@link ProfileManager}. Every write goes through the undo manager, just like
+ * an edit in the UI.
+ *
+ * @author Leo
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileBenchmark {
+
+	private int flag;
+
+	@Setup
+	public void setup() throws IOException {
+		ProfileManager.load(Fixtures.get(Fixtures.PROFILE));
+		if (!ProfileManager.isLoaded())
+			throw new IOException("Could not load profile fixture!");
+	}
+
+	@TearDown
+	public void tearDown() {
+		ProfileManager.unload();
+	}
+
+	@Benchmark
+	public Object intRoundTrip() {
+		int value = (Integer) ProfileManager.getField(NormalProfile.FIELD_TIME_PLAYED);
+		ProfileManager.setField(NormalProfile.FIELD_TIME_PLAYED, value + 1);
+		return ProfileManager.getField(NormalProfile.FIELD_TIME_PLAYED);
+	}
+
+	@Benchmark
+	public Object shortRoundTrip() {
+		short value = (Short) ProfileManager.getField(NormalProfile.FIELD_X_POSITION);
+		ProfileManager.setField(NormalProfile.FIELD_X_POSITION, (short) (value + 1));
+		return ProfileManager.getField(NormalProfile.FIELD_X_POSITION);
+	}
+
+	@Benchmark
+	public Object indexedRoundTrip() {
+		int index = flag++ % 7;
+		int value = (Integer) ProfileManager.getField(NormalProfile.FIELD_WEAPON_EXP, index);
+		ProfileManager.setField(NormalProfile.FIELD_WEAPON_EXP, index, value + 1);
+		return ProfileManager.getField(NormalProfile.FIELD_WEAPON_EXP, index);
+	}
+
+	@Benchmark
+	public Object flagRoundTrip() {
+		int index = flag++ % 8000;
+		boolean value = (Boolean) ProfileManager.getField(NormalProfile.FIELD_FLAGS, index);
+		ProfileManager.setField(NormalProfile.FIELD_FLAGS, index, !value);
+		return ProfileManager.getField(NormalProfile.FIELD_FLAGS, index);
+	}
+
+}
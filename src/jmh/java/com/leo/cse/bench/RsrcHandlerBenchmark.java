@@ -0,0 +1,58 @@
+package com.leo.cse.bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.leo.cse.backend.exe.PEFile;
+import com.leo.cse.backend.exe.RsrcHandler;
+
+/**
+ * Benchmarks parsing the executable fixture's resource directory.
+ *
+ * @author Leo
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RsrcHandlerBenchmark {
+
+	private PEFile.Section rsrcSection;
+	private RsrcHandler rsrcHandler;
+
+	@Setup
+	public void setup() throws IOException {
+		PEFile peFile = new PEFile(ByteBuffer.wrap(Fixtures.read(Fixtures.EXE)), FixtureGenerator.EXE_HEADERS);
+		int rsrcIndex = peFile.getResourcesIndex();
+		if (rsrcIndex < 0)
+			throw new IOException("Executable fixture has no resource section!");
+		rsrcSection = peFile.sections.get(rsrcIndex);
+		rsrcHandler = new RsrcHandler(rsrcSection);
+	}
+
+	@Benchmark
+	public RsrcHandler parse() {
+		return new RsrcHandler(rsrcSection);
+	}
+
+	@Benchmark
+	public ByteBuffer getBitmapBuffer() {
+		return rsrcHandler.getBitmapBuffer("BENCH15", 1041);
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.leo.cse.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.leo.cse.backend.tsc.TSCFile;
+
+/**
+ * Benchmarks decrypting and decoding the script fixture.
+ *
+ * @author Leo
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TSCFileBenchmark {
+
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		file = Fixtures.get(Fixtures.TSC);
+	}
+
+	@Benchmark
+	public TSCFile decode() throws IOException {
+		return new TSCFile(file);
+	}
+
+}
@@ -1,11 +1,11 @@
 package com.leo.cse.backend;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Vector;
-
 /**
- * Utilities for reading from and writing to byte arrays.
+ * Utilities for reading from and writing to byte arrays. All numbers are
+ * little-endian.<br />
+ * Numbers are assembled with bit shifts directly from/into the array, so no
+ * method here shares any state or allocates anything - they can safely be
+ * called from any number of threads at once.
  *
  * @author Leo
  *
@@ -13,14 +13,20 @@ import java.util.Vector;
 public class ByteUtils {
 
 	/**
-	 * Used for converting bytes to other number types.
+	 * Reads up to <code>size</code> bytes from the start of an array as a
+	 * little-endian number. Missing bytes are treated as 0.
+	 *
+	 * @param data
+	 *            byte array
+	 * @param size
+	 *            maximum amount of bytes to read
+	 * @return number
 	 */
-	private static final ByteBuffer BB;
-
-	// Initialize ByteBuffer
-	static {
-		BB = ByteBuffer.allocate(Long.BYTES);
-		BB.order(ByteOrder.LITTLE_ENDIAN);
+	private static long bytesToNumber(byte[] data, int size) {
+		long value = 0;
+		for (int i = Math.min(size, data.length) - 1; i >= 0; i--)
+			value = (value << 8) | (data[i] & 0xFF);
+		return value;
 	}
 
 	/**
@@ -31,9 +37,7 @@ public class ByteUtils {
 	 * @return converted long
 	 */
 	public static long bytesToLong(byte[] data) {
-		BB.clear();
-		BB.put(data);
-		return BB.getLong(0);
+		return bytesToNumber(data, Long.BYTES);
 	}
 
 	/**
@@ -44,9 +48,7 @@ public class ByteUtils {
 	 * @return converted short
 	 */
 	public static short bytesToShort(byte[] data) {
-		BB.clear();
-		BB.put(data);
-		return BB.getShort(0);
+		return (short) bytesToNumber(data, Short.BYTES);
 	}
 
 	/**
@@ -57,25 +59,7 @@ public class ByteUtils {
 	 * @return converted integer
 	 */
 	public static int bytesToInt(byte[] data) {
-		BB.clear();
-		BB.put(data);
-		return BB.getInt(0);
-	}
-
-	/**
-	 * Writes bytes from an array into {@linkplain #BB the byte buffer}.
-	 *
-	 * @param data
-	 *            byte array
-	 * @param ptr
-	 *            starting position
-	 * @param size
-	 *            amount of bytes to write
-	 */
-	private static void readBytesToBuffer(byte[] data, int ptr, int size) {
-		BB.clear();
-		for (int i = 0; i < size; i++)
-			BB.put(data[ptr + i]);
+		return (int) bytesToNumber(data, Integer.BYTES);
 	}
 
 	/**
@@ -92,26 +76,11 @@ public class ByteUtils {
 	 * @return string
 	 */
 	public static String readString(byte[] data, int ptr, int length, String encoding) {
-		byte[] dc;
-		if (length < 1) {
+		if (length < 1)
 			// length was either not specified or specified but invalid
-			// we're gonna have to guess the string's length
-			Vector<Byte> charVec = new Vector<>();
-			while (ptr < data.length) {
-				// string is (probably) terminated by 0
-				if (data[ptr] == 0)
-					break;
-				charVec.add(data[ptr]);
-				ptr++;
-			}
-			dc = new byte[charVec.size()];
-			for (int i = 0; i < dc.length; i++)
-				dc[i] = charVec.get(i);
-		} else {
-			dc = new byte[length];
-			System.arraycopy(data, ptr, dc, 0, length);
-		}
-		return StrTools.CString(dc, encoding);
+			// string is (probably) terminated by 0, so read up to the end of the array
+			length = data.length - ptr;
+		return StrTools.CString(data, ptr, length, encoding);
 	}
 
 	/**
@@ -162,8 +131,7 @@ public class ByteUtils {
 	 * @return short
 	 */
 	public static short readShort(byte[] data, int ptr) {
-		readBytesToBuffer(data, ptr, Short.BYTES);
-		return BB.getShort(0);
+		return (short) ((data[ptr] & 0xFF) | data[ptr + 1] << 8);
 	}
 
 	/**
@@ -195,8 +163,7 @@ public class ByteUtils {
 	 * @return integer
 	 */
 	public static int readInt(byte[] data, int ptr) {
-		readBytesToBuffer(data, ptr, Integer.BYTES);
-		return BB.getInt(0);
+		return (data[ptr] & 0xFF) | (data[ptr + 1] & 0xFF) << 8 | (data[ptr + 2] & 0xFF) << 16 | data[ptr + 3] << 24;
 	}
 
 	/**
@@ -228,8 +195,7 @@ public class ByteUtils {
 	 * @return integer
 	 */
 	public static long readLong(byte[] data, int ptr) {
-		readBytesToBuffer(data, ptr, Long.BYTES);
-		return BB.getLong(0);
+		return (readInt(data, ptr) & 0xFFFFFFFFL) | (long) readInt(data, ptr + Integer.BYTES) << 32;
 	}
 
 	/**
@@ -275,18 +241,72 @@ public class ByteUtils {
 	}
 
 	/**
-	 * Reads bytes from {@linkplain #BB the byte buffer} into an array.
+	 * Reads a single <code>boolean</code> from a byte array, where every 8 booleans
+	 * take up one byte.
 	 *
 	 * @param data
 	 *            byte array
 	 * @param ptr
 	 *            starting position
-	 * @param size
-	 *            amount of bytes to read
+	 * @param index
+	 *            index of boolean to read
+	 * @return boolean
+	 */
+	public static boolean readFlag(byte[] data, int ptr, int index) {
+		return (data[ptr + (index >> 3)] & (1 << (index & 7))) != 0;
+	}
+
+	/**
+	 * Counts the <code>true</code> booleans in a range of a byte array, where every
+	 * 8 booleans take up one byte.
+	 *
+	 * @param data
+	 *            byte array
+	 * @param ptr
+	 *            starting position
+	 * @param from
+	 *            index of first boolean to count (inclusive)
+	 * @param to
+	 *            index of last boolean to count (exclusive)
+	 * @return number of <code>true</code> booleans
 	 */
-	private static void writeBytesFromBuffer(byte[] data, int ptr, int size) {
-		for (int i = 0; i < size; i++)
-			data[ptr + i] = BB.get(i);
+	public static int countFlags(byte[] data, int ptr, int from, int to) {
+		int ret = 0;
+		while (from < to) {
+			int s = from & 7;
+			int n = Math.min(8 - s, to - from);
+			int mask = ((1 << n) - 1) << s;
+			ret += Integer.bitCount(data[ptr + (from >> 3)] & mask);
+			from += n;
+		}
+		return ret;
+	}
+
+	/**
+	 * Finds the next <code>true</code> boolean in a byte array, where every 8
+	 * booleans take up one byte.
+	 *
+	 * @param data
+	 *            byte array
+	 * @param ptr
+	 *            starting position
+	 * @param from
+	 *            index to start searching from (inclusive)
+	 * @param to
+	 *            index to stop searching at (exclusive)
+	 * @return index of next <code>true</code> boolean, or -1 if there is none
+	 */
+	public static int nextFlag(byte[] data, int ptr, int from, int to) {
+		while (from < to) {
+			int s = from & 7;
+			int v = (data[ptr + (from >> 3)] & 0xFF) >> s;
+			if (v != 0) {
+				int ret = from + Integer.numberOfTrailingZeros(v);
+				return ret < to ? ret : -1;
+			}
+			from += 8 - s;
+		}
+		return -1;
 	}
 
 	/**
@@ -338,9 +358,8 @@ public class ByteUtils {
 	 *            short to write
 	 */
 	public static void writeShort(byte[] data, int ptr, short value) {
-		BB.clear();
-		BB.putShort(value);
-		writeBytesFromBuffer(data, ptr, Short.BYTES);
+		data[ptr] = (byte) value;
+		data[ptr + 1] = (byte) (value >> 8);
 	}
 
 	/**
@@ -373,9 +392,10 @@ public class ByteUtils {
 	 *            integer to write
 	 */
 	public static void writeInt(byte[] data, int ptr, int value) {
-		BB.clear();
-		BB.putInt(value);
-		writeBytesFromBuffer(data, ptr, Integer.BYTES);
+		data[ptr] = (byte) value;
+		data[ptr + 1] = (byte) (value >> 8);
+		data[ptr + 2] = (byte) (value >> 16);
+		data[ptr + 3] = (byte) (value >> 24);
 	}
 
 	/**
@@ -408,9 +428,8 @@ public class ByteUtils {
 	 *            integer to write
 	 */
 	public static void writeLong(byte[] data, int ptr, long value) {
-		BB.clear();
-		BB.putLong(value);
-		writeBytesFromBuffer(data, ptr, Long.BYTES);
+		writeInt(data, ptr, (int) value);
+		writeInt(data, ptr + Integer.BYTES, (int) (value >> 32));
 	}
 
 	/**
@@ -443,21 +462,73 @@ public class ByteUtils {
 	 *            booleans to write
 	 */
 	public static void writeFlags(byte[] data, int ptr, boolean[] value) {
-		byte[] v = new byte[value.length / 8];
-		if (v.length == 0) {
-			v = new byte[1];
+		// whole bytes are assembled and stored at once
+		int full = value.length & ~7;
+		for (int i = 0; i < full; i += 8) {
+			int v = 0;
+			for (int s = 0; s < 8; s++)
+				if (value[i + s])
+					v |= 1 << s;
+			data[ptr++] = (byte) v;
 		}
-		int vi = 0, s = 0;
-		for (int i = 0; i < value.length; i++) {
-			if (value[i])
-				v[vi] |= 1 << s;
-			s++;
-			if (s >= 8) {
-				vi++;
-				s = 0;
+		// trailing booleans that don't fill a byte leave the rest of it untouched
+		for (int i = full; i < value.length; i++)
+			writeFlag(data, ptr, i - full, value[i]);
+	}
+
+	/**
+	 * Writes a single <code>boolean</code> to a byte array, where every 8 booleans
+	 * take up one byte. Other booleans sharing the same byte are left untouched.
+	 *
+	 * @param data
+	 *            byte array
+	 * @param ptr
+	 *            starting position
+	 * @param index
+	 *            index of boolean to write
+	 * @param value
+	 *            boolean to write
+	 */
+	public static void writeFlag(byte[] data, int ptr, int index, boolean value) {
+		int i = ptr + (index >> 3);
+		int mask = 1 << (index & 7);
+		if (value)
+			data[i] |= mask;
+		else
+			data[i] &= ~mask;
+	}
+
+	/**
+	 * Sets a range of booleans in a byte array to the same value, where every 8
+	 * booleans take up one byte. Whole bytes are filled at once.
+	 *
+	 * @param data
+	 *            byte array
+	 * @param ptr
+	 *            starting position
+	 * @param from
+	 *            index of first boolean to write (inclusive)
+	 * @param to
+	 *            index of last boolean to write (exclusive)
+	 * @param value
+	 *            boolean to write
+	 */
+	public static void writeFlags(byte[] data, int ptr, int from, int to, boolean value) {
+		while (from < to) {
+			int s = from & 7;
+			int n = Math.min(8 - s, to - from);
+			int i = ptr + (from >> 3);
+			if (n == 8)
+				data[i] = (byte) (value ? 0xFF : 0);
+			else {
+				int mask = ((1 << n) - 1) << s;
+				if (value)
+					data[i] |= mask;
+				else
+					data[i] &= ~mask;
 			}
+			from += n;
 		}
-		System.arraycopy(v, 0, data, ptr, v.length);
 	}
 
 }
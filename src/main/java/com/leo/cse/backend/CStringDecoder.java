@@ -0,0 +1,236 @@
+package com.leo.cse.backend;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes NUL-terminated strings in a specific encoding.<br />
+ * Strings are decoded straight out of the source array or buffer, without
+ * copying them first. Each thread gets its own {@link CharsetDecoder}, so a
+ * single instance can be shared by any number of threads.<br />
+ * Get instances with {@link #forEncoding(String)}, which caches them by
+ * encoding name.
+ *
+ * @author Leo
+ *
+ */
+public class CStringDecoder {
+
+	/**
+	 * Cached decoders, by encoding name.
+	 */
+	private static final ConcurrentHashMap<String, CStringDecoder> DECODERS = new ConcurrentHashMap<>();
+	/**
+	 * Pool of {@linkplain #decodeName(byte[], int, int) name strings}.
+	 */
+	private static final ConcurrentHashMap<String, String> NAMES = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the decoder for an encoding.
+	 *
+	 * @param encoding
+	 *            encoding name
+	 * @return decoder. If the encoding isn't supported, the decoder returns
+	 *         {@link StrTools#ENCODING_ERROR} for every string.
+	 */
+	public static CStringDecoder forEncoding(String encoding) {
+		return DECODERS.computeIfAbsent(encoding, CStringDecoder::new);
+	}
+
+	/**
+	 * Encoding name.
+	 */
+	private final String encoding;
+	/**
+	 * Charset to decode with, or <code>null</code> if the encoding isn't
+	 * supported.
+	 */
+	private final Charset charset;
+	/**
+	 * Each thread's decoder.
+	 */
+	private final ThreadLocal<CharsetDecoder> decoder;
+	/**
+	 * Each thread's output buffer. Grows as needed.
+	 */
+	private final ThreadLocal<CharBuffer> output;
+
+	private CStringDecoder(String encoding) {
+		this.encoding = encoding;
+		Charset cs = null;
+		try {
+			cs = Charset.forName(encoding);
+		} catch (IllegalArgumentException e) {
+			BackendLogger.error("Unsupported encoding: " + encoding, e);
+		}
+		charset = cs;
+		if (cs == null) {
+			decoder = null;
+			output = null;
+			return;
+		}
+		// same replacement behavior as new String(byte[], String)
+		decoder = ThreadLocal.withInitial(() -> charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE));
+		output = ThreadLocal.withInitial(() -> CharBuffer.allocate(64));
+	}
+
+	/**
+	 * Gets the encoding name.
+	 *
+	 * @return encoding name
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Checks if the encoding is supported.
+	 *
+	 * @return <code>true</code> if supported, <code>false</code> otherwise
+	 */
+	public boolean isSupported() {
+		return charset != null;
+	}
+
+	/**
+	 * Decodes a NUL-terminated string.
+	 *
+	 * @param buf
+	 *            source array
+	 * @param off
+	 *            starting position
+	 * @param len
+	 *            maximum length of string. The string ends at the first NUL or
+	 *            after this many bytes, whichever comes first.
+	 * @return decoded string
+	 */
+	public String decode(byte[] buf, int off, int len) {
+		len = Math.min(len, buf.length - off);
+		int l = 0;
+		while (l < len && buf[off + l] != 0)
+			l++;
+		return decode0(ByteBuffer.wrap(buf, off, l));
+	}
+
+	/**
+	 * Decodes a NUL-terminated string that can take up the rest of the array.
+	 *
+	 * @param buf
+	 *            source array
+	 * @return decoded string
+	 */
+	public String decode(byte[] buf) {
+		return decode(buf, 0, buf.length);
+	}
+
+	/**
+	 * Decodes a NUL-terminated string. The buffer's position and limit are not
+	 * changed.
+	 *
+	 * @param buf
+	 *            source buffer
+	 * @param off
+	 *            absolute starting position
+	 * @param len
+	 *            maximum length of string. The string ends at the first NUL or
+	 *            after this many bytes, whichever comes first.
+	 * @return decoded string
+	 */
+	public String decode(ByteBuffer buf, int off, int len) {
+		if (buf.hasArray())
+			return decode(buf.array(), buf.arrayOffset() + off, len);
+		len = Math.min(len, buf.limit() - off);
+		int l = 0;
+		while (l < len && buf.get(off + l) != 0)
+			l++;
+		ByteBuffer in = buf.duplicate();
+		in.limit(off + l);
+		in.position(off);
+		return decode0(in);
+	}
+
+	/**
+	 * Decodes a NUL-terminated string that's likely to be repeated, such as a map
+	 * or sheet name. Equal names share the same <code>String</code> instance.
+	 *
+	 * @param buf
+	 *            source array
+	 * @param off
+	 *            starting position
+	 * @param len
+	 *            maximum length of string
+	 * @return decoded string
+	 * @see #decode(byte[], int, int)
+	 */
+	public String decodeName(byte[] buf, int off, int len) {
+		return intern(decode(buf, off, len));
+	}
+
+	/**
+	 * Decodes a NUL-terminated string that's likely to be repeated, such as a map
+	 * or sheet name. Equal names share the same <code>String</code> instance.
+	 *
+	 * @param buf
+	 *            source buffer
+	 * @param off
+	 *            absolute starting position
+	 * @param len
+	 *            maximum length of string
+	 * @return decoded string
+	 * @see #decode(ByteBuffer, int, int)
+	 */
+	public String decodeName(ByteBuffer buf, int off, int len) {
+		return intern(decode(buf, off, len));
+	}
+
+	private static String intern(String str) {
+		String pooled = NAMES.putIfAbsent(str, str);
+		return pooled == null ? str : pooled;
+	}
+
+	private String decode0(ByteBuffer in) {
+		if (charset == null)
+			return StrTools.ENCODING_ERROR;
+		if (!in.hasRemaining())
+			return "";
+		int start = in.position();
+		CharsetDecoder dec = decoder.get();
+		CharBuffer out = output.get();
+		int max = (int) Math.ceil(in.remaining() * (double) dec.maxCharsPerByte());
+		if (out.capacity() < max) {
+			out = CharBuffer.allocate(max);
+			output.set(out);
+		}
+		out.clear();
+		dec.reset();
+		CoderResult cr = dec.decode(in, out, true);
+		if (!cr.isUnderflow())
+			return decodeSlow(in, start);
+		cr = dec.flush(out);
+		if (!cr.isUnderflow())
+			return decodeSlow(in, start);
+		out.flip();
+		return out.toString();
+	}
+
+	/**
+	 * Fallback for charsets that output more than they claim to.
+	 */
+	private String decodeSlow(ByteBuffer in, int start) {
+		in.position(start);
+		try {
+			return decoder.get().decode(in).toString();
+		} catch (CharacterCodingException e) {
+			BackendLogger.error("Failed to decode string in " + encoding, e);
+			return StrTools.ENCODING_ERROR;
+		}
+	}
+
+}
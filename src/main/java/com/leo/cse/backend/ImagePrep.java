@@ -0,0 +1,115 @@
+package com.leo.cse.backend;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Prepares images for display: color keys black pixels to transparent and
+ * scales to the editor's resolution in a single pass over the pixels.<br />
+ * The source pixels are read in one bulk call and the result is written in
+ * another, with no intermediate images. Every method only works on its own
+ * arguments, so images can be prepared by any number of threads at once.
+ *
+ * @author Leo
+ *
+ */
+public class ImagePrep {
+
+	/**
+	 * Make sure an instance of this class cannot be created.
+	 */
+	private ImagePrep() {
+	}
+
+	/**
+	 * Color that's turned transparent by color keying.
+	 */
+	private static final int COLOR_KEY = 0xFF000000;
+
+	/**
+	 * Reads and prepares an image.
+	 *
+	 * @param srcFile
+	 *            image file
+	 * @param colorKey
+	 *            <code>true</code> if black pixels should be transparent,
+	 *            <code>false</code> otherwise
+	 * @param scale
+	 *            scale factor
+	 * @return prepared image
+	 * @throws IOException
+	 *             if the file could not be read or is not a supported image.
+	 */
+	public static BufferedImage load(File srcFile, boolean colorKey, double scale) throws IOException {
+		// reading from a File skips ImageIO's stream cache
+		BufferedImage img = ImageIO.read(srcFile);
+		if (img == null)
+			throw new IOException("Unsupported image format: " + srcFile);
+		return prepare(img, colorKey, scale);
+	}
+
+	/**
+	 * Prepares an image.
+	 *
+	 * @param src
+	 *            source image
+	 * @param colorKey
+	 *            <code>true</code> if black pixels should be transparent,
+	 *            <code>false</code> otherwise
+	 * @param scale
+	 *            scale factor. Scaling uses nearest neighbor sampling.
+	 * @return prepared image, in {@link BufferedImage#TYPE_INT_ARGB_PRE} format
+	 */
+	public static BufferedImage prepare(BufferedImage src, boolean colorKey, double scale) {
+		final int sw = src.getWidth(), sh = src.getHeight();
+		final int dw = Math.max(1, (int) (sw * scale)), dh = Math.max(1, (int) (sh * scale));
+		final int[] in = src.getRGB(0, 0, sw, sh, null, 0, sw);
+		final boolean alpha = src.getColorModel().hasAlpha();
+		int[] out;
+		if (dw == sw && dh == sh) {
+			out = in;
+			for (int i = 0; i < out.length; i++)
+				out[i] = convert(in[i], colorKey, alpha);
+		} else {
+			// source column of each destination column, sampled at pixel centers
+			int[] cols = new int[dw];
+			for (int x = 0; x < dw; x++)
+				cols[x] = Math.min(sw - 1, (int) ((x + 0.5) / scale));
+			out = new int[dw * dh];
+			for (int y = 0, o = 0; y < dh; y++) {
+				int row = Math.min(sh - 1, (int) ((y + 0.5) / scale)) * sw;
+				for (int x = 0; x < dw; x++)
+					out[o++] = convert(in[row + cols[x]], colorKey, alpha);
+			}
+		}
+		BufferedImage dest = new BufferedImage(dw, dh, BufferedImage.TYPE_INT_ARGB_PRE);
+		// setDataElements copies the pixels instead of exposing the raster's array,
+		// so the image can still be accelerated
+		dest.getRaster().setDataElements(0, 0, dw, dh, out);
+		return dest;
+	}
+
+	/**
+	 * Converts a pixel from non-premultiplied ARGB to premultiplied ARGB, applying
+	 * the color key.
+	 */
+	private static int convert(int argb, boolean colorKey, boolean alpha) {
+		if (colorKey && argb == COLOR_KEY)
+			return 0;
+		if (!alpha)
+			return argb;
+		int a = argb >>> 24;
+		if (a == 0xFF)
+			return argb;
+		if (a == 0)
+			return 0;
+		int r = ((argb >> 16) & 0xFF) * a / 0xFF;
+		int g = ((argb >> 8) & 0xFF) * a / 0xFF;
+		int b = (argb & 0xFF) * a / 0xFF;
+		return a << 24 | r << 16 | g << 8 | b;
+	}
+
+}
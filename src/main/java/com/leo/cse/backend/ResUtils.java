@@ -1,10 +1,11 @@
 package com.leo.cse.backend;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.leo.cse.backend.exe.ExeData;
 
@@ -30,19 +31,10 @@ public class ResUtils {
 	 * @param src
 	 *            source image
 	 * @return filtered image
+	 * @see ImagePrep#prepare(BufferedImage, boolean, double)
 	 */
 	public static BufferedImage black2Trans(BufferedImage src) {
-		BufferedImage dest = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
-		for (int y = 0; y < src.getHeight(); y++)
-			for (int x = 0; x < src.getWidth(); x++) {
-				int px = src.getRGB(x, y);
-				if (px == Color.black.getRGB())
-					dest.setRGB(x, y, 0);
-				else
-					dest.setRGB(x, y, px);
-			}
-
-		return dest;
+		return ImagePrep.prepare(src, true, 1);
 	}
 
 	/**
@@ -75,64 +67,140 @@ public class ResUtils {
 		return getGraphicsFile("", name);
 	}
 
-	// code from https://stackoverflow.com/a/35325946
 	/**
-	 * Maps lower case strings to their case insensitive File
+	 * Maximum number of directories {@link #dirIndex} holds listings for. When
+	 * this is exceeded, all listings are dropped and rebuilt as needed.
 	 */
-	private static final Map<String, File> insensitiveFileHandlerCache = new HashMap<>();
+	private static final int MAX_INDEXED_DIRS = 1024;
+	/**
+	 * Maximum number of paths {@link #resolved} holds. When this is exceeded, all
+	 * resolved paths are dropped.
+	 */
+	private static final int MAX_RESOLVED_PATHS = 16384;
+	/**
+	 * Directory listings, by the directory's resolved path. Each listing maps
+	 * both the exact and the lower case name of every entry to its file, so exact
+	 * matches win over case insensitive ones.<br />
+	 * Directories are only listed the first time a path inside them is resolved.
+	 */
+	private static final Map<String, Map<String, File>> dirIndex = new ConcurrentHashMap<>();
+	/**
+	 * Paths that have been resolved to an existing file, by the path as it was
+	 * requested.
+	 */
+	private static final Map<String, File> resolved = new ConcurrentHashMap<>();
 
 	/**
-	 * Case insensitive file handler. Cannot return <code>null</code>
+	 * Case insensitive file handler. Each directory in the path is matched against
+	 * a cached listing of its parent, so once those listings exist resolving a
+	 * path doesn't touch the file system. Cannot return <code>null</code>.
+	 *
+	 * @param path
+	 *            path to resolve
+	 * @return the existing file matching the path regardless of case, or a file
+	 *         with the given name (in the resolved parent directory) if there is
+	 *         no such file
+	 * @see #invalidate(File)
 	 */
 	public static File newFile(String path) {
 		if (path == null)
 			return new File(path);
-		path = path.toLowerCase();
-		// First see if it is cached
-		if (insensitiveFileHandlerCache.containsKey(path)) {
-			return insensitiveFileHandlerCache.get(path);
-		} else {
-			// If it is not cached, cache it (the path is lower case)
-			File file = new File(path);
-			insensitiveFileHandlerCache.put(path, file);
-
-			// If the file does not exist, look for the real path
-			if (!file.exists()) {
-
-				// get the directory
-				String parentPath = file.getParent();
-				if (parentPath == null) {
-					// No parent directory? -> Just return the file since we can't find the real
-					// path
-					return file;
-				}
-
-				// Find the real path of the parent directory recursively
-				File dir = newFile(parentPath);
-
-				File[] files = dir.listFiles();
-				if (files == null) {
-					// If it is not a directory
-					insensitiveFileHandlerCache.put(path, file);
-					return file;
-				}
-
-				// Loop through the directory and put everything you find into the cache
-				for (File otherFile : files) {
-					// the path of our file will be updated at this point
-					insensitiveFileHandlerCache.put(otherFile.getPath().toLowerCase(), otherFile);
-				}
-
-				// if you found what was needed, return it
-				if (insensitiveFileHandlerCache.containsKey(path)) {
-					return insensitiveFileHandlerCache.get(path);
-				}
-			}
-			// Did not find it? Return the file with the original path
+		File file = resolved.get(path);
+		if (file != null)
 			return file;
-		}
+		file = new File(path);
+		File parent = file.getParentFile();
+		if (parent == null)
+			return file;
+		parent = resolve(parent);
+		File match = find(parent, file.getName());
+		if (match == null)
+			return new File(parent, file.getName());
+		if (resolved.size() >= MAX_RESOLVED_PATHS)
+			resolved.clear();
+		resolved.put(path, match);
+		return match;
+	}
+
+	/**
+	 * Resolves every part of a path.
+	 *
+	 * @param file
+	 *            path to resolve
+	 * @return resolved path. Parts that don't exist keep their original case.
+	 */
+	private static File resolve(File file) {
+		File parent = file.getParentFile();
+		if (parent == null)
+			return file;
+		parent = resolve(parent);
+		File match = find(parent, file.getName());
+		return match == null ? new File(parent, file.getName()) : match;
+	}
+
+	/**
+	 * Finds an entry in a directory, preferring an exact match.
+	 *
+	 * @param dir
+	 *            resolved directory
+	 * @param name
+	 *            entry name
+	 * @return entry, or <code>null</code> if there is no such entry
+	 */
+	private static File find(File dir, String name) {
+		Map<String, File> listing = getListing(dir);
+		File match = listing.get(name);
+		if (match == null)
+			match = listing.get(name.toLowerCase());
+		return match;
+	}
+
+	private static Map<String, File> getListing(File dir) {
+		String key = dir.getPath();
+		Map<String, File> listing = dirIndex.get(key);
+		if (listing != null)
+			return listing;
+		if (dirIndex.size() >= MAX_INDEXED_DIRS)
+			dirIndex.clear();
+		return dirIndex.computeIfAbsent(key, k -> {
+			File[] files = dir.listFiles();
+			if (files == null)
+				return Collections.emptyMap();
+			Map<String, File> ret = new HashMap<>(files.length * 4);
+			for (File f : files) {
+				ret.put(f.getName(), f);
+				ret.putIfAbsent(f.getName().toLowerCase(), f);
+			}
+			return ret;
+		});
+	}
+
+	/**
+	 * Drops cached information about a file that has been created, changed or
+	 * deleted, so that the next {@link #newFile(String)} call sees it. The
+	 * listings of all of the file's parent directories are dropped, since any of
+	 * them may have been created along with the file.
+	 *
+	 * @param file
+	 *            changed file
+	 */
+	public static void invalidate(File file) {
+		resolved.clear();
+		// listings are keyed by the path the directory was resolved from, which may
+		// or may not have been absolute
+		for (File dir = file; dir != null; dir = dir.getParentFile())
+			dirIndex.remove(dir.getPath());
+		for (File dir = file.getAbsoluteFile(); dir != null; dir = dir.getParentFile())
+			dirIndex.remove(dir.getPath());
+	}
+
+	/**
+	 * Drops all cached directory listings and resolved paths.
+	 */
+	public static void clearCache() {
+		resolved.clear();
+		dirIndex.clear();
 	}
-	// end code from stack overflow
 
 	/**
 	 * Attempts to get CS+'s "base" folder.
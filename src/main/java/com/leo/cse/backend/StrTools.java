@@ -2,9 +2,6 @@ package com.leo.cse.backend;
 
 // Language = Java 6
 // credit to carrotlord for pretty much the entire contents of this file
-import java.io.UnsupportedEncodingException;
-import java.util.Arrays;
-
 /**
  * String utility methods.
  *
@@ -25,16 +22,11 @@ public class StrTools {
 	public static final String ENCODING_ERROR = "encoding_err";
 
 	public static String CString(byte[] buf, String encoding) {
-		int l = 0;
-		while (l < buf.length && buf[l] > 0)
-			l++;
-		byte[] cbuf = Arrays.copyOf(buf, l);
-		try {
-			return new String(cbuf, encoding);
-		} catch (UnsupportedEncodingException e) {
-			BackendLogger.error("Unsupported encoding: " + encoding, e);
-		}
-		return ENCODING_ERROR;
+		return CStringDecoder.forEncoding(encoding).decode(buf);
+	}
+
+	public static String CString(byte[] buf, int off, int len, String encoding) {
+		return CStringDecoder.forEncoding(encoding).decode(buf, off, len);
 	}
 
 	public static String CString(byte[] buf) {
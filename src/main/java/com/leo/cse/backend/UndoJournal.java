@@ -0,0 +1,456 @@
+package com.leo.cse.backend;
+
+import java.util.Arrays;
+
+/**
+ * Undo history for edits to a byte array.<br />
+ * Each step stores the bytes it changed, before and after, in a single binary
+ * log, so undoing or redoing a step only copies the bytes that step changed.
+ * The journal keeps its own copy of the data as of the last recorded change,
+ * and compares it against the data to find out which bytes changed.<br />
+ * Consecutive changes to the same field that are recorded within
+ * {@link #COALESCE_MS} milliseconds of each other are merged into one step, and
+ * changes recorded between {@link #beginCompound()} and {@link #endCompound()}
+ * are undone and redone together. Once the log is bigger than the
+ * {@linkplain #setBudget(int) budget}, the oldest steps are dropped.<br />
+ * Journals aren't thread safe - callers must synchronize access.
+ *
+ * @author Leo
+ *
+ */
+public class UndoJournal {
+
+	/**
+	 * Default budget, in bytes.
+	 */
+	public static final int DEFAULT_BUDGET = 1024 * 1024;
+	/**
+	 * How long after a change another change to the same field is merged into it,
+	 * in milliseconds.
+	 */
+	public static final long COALESCE_MS = 1000;
+
+	/**
+	 * Size of a record's header: tag, index, offset and length.
+	 */
+	private static final int HEADER_SIZE = 16;
+	/**
+	 * Tag used when the last step can't be merged into.
+	 */
+	private static final int NO_TAG = Integer.MIN_VALUE;
+
+	/**
+	 * Notified when a recorded change is undone or redone.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public interface Listener {
+		/**
+		 * Called before a change is undone or redone.
+		 *
+		 * @param tag
+		 *            tag of the change
+		 * @param index
+		 *            index of the change
+		 */
+		public void beforeApply(int tag, int index);
+
+		/**
+		 * Called after a change is undone or redone.
+		 *
+		 * @param tag
+		 *            tag of the change
+		 * @param index
+		 *            index of the change
+		 */
+		public void afterApply(int tag, int index);
+	}
+
+	/**
+	 * The data edits are made to.
+	 */
+	private final byte[] data;
+	/**
+	 * The data as of the last recorded change.
+	 */
+	private final byte[] shadow;
+	/**
+	 * Maximum size of the log, in bytes.
+	 */
+	private int budget;
+
+	/**
+	 * The log. Each step is a list of records, and each record is a header
+	 * (tag, index, offset and length, as <code>int</code>s) followed by the old
+	 * and new bytes.
+	 */
+	private byte[] log = new byte[256];
+	/**
+	 * Start of the first step in {@link #log}.
+	 */
+	private int logStart;
+	/**
+	 * End of the last step in {@link #log}.
+	 */
+	private int logEnd;
+	/**
+	 * Start of each step in {@link #log}.
+	 */
+	private int[] steps = new int[16];
+	/**
+	 * Index of the oldest step in {@link #steps}.
+	 */
+	private int firstStep;
+	/**
+	 * Index after the newest step in {@link #steps}.
+	 */
+	private int stepCount;
+	/**
+	 * Index after the last step that hasn't been undone. Steps from here on can be
+	 * redone.
+	 */
+	private int cursor;
+
+	/**
+	 * Nesting depth of {@link #beginCompound()} calls.
+	 */
+	private int compoundDepth;
+	/**
+	 * <code>true</code> if a step has been started for the current compound.
+	 */
+	private boolean compoundStarted;
+
+	/**
+	 * Tag of the newest step, if it can be merged into. Otherwise,
+	 * {@link #NO_TAG}.
+	 */
+	private int lastTag = NO_TAG;
+	/**
+	 * Index of the newest step, if it can be merged into.
+	 */
+	private int lastIndex;
+	/**
+	 * When the newest step was last changed.
+	 */
+	private long lastTime;
+
+	/**
+	 * Creates a journal.
+	 *
+	 * @param data
+	 *            data edits are made to. Its current contents are what the first
+	 *            change is compared against.
+	 * @param budget
+	 *            maximum size of the log, in bytes
+	 */
+	public UndoJournal(byte[] data, int budget) {
+		this.data = data;
+		shadow = data.clone();
+		this.budget = budget;
+	}
+
+	/**
+	 * Sets the maximum size of the log. The newest step is always kept, even if
+	 * it's bigger than the budget on its own.
+	 *
+	 * @param budget
+	 *            new budget, in bytes
+	 */
+	public void setBudget(int budget) {
+		this.budget = budget;
+		trim();
+	}
+
+	/**
+	 * Gets the size of the log.
+	 *
+	 * @return size, in bytes
+	 */
+	public int getSize() {
+		return logEnd - logStart;
+	}
+
+	/**
+	 * Records a change to the data.
+	 *
+	 * @param tag
+	 *            what was changed, such as a field ID
+	 * @param index
+	 *            index of what was changed
+	 * @param from
+	 *            start of the range that may have changed (inclusive)
+	 * @param to
+	 *            end of the range that may have changed (exclusive)
+	 */
+	public void record(int tag, int index, int from, int to) {
+		from = Math.max(from, 0);
+		to = Math.min(to, data.length);
+		// shrink the range down to the bytes that actually changed
+		while (from < to && data[from] == shadow[from])
+			from++;
+		while (to > from && data[to - 1] == shadow[to - 1])
+			to--;
+		if (from == to)
+			return;
+		if (compoundDepth > 0) {
+			if (!compoundStarted) {
+				startStep();
+				compoundStarted = true;
+			}
+			appendRecord(tag, index, from, to, null, 0);
+		} else if (lastTag == tag && lastIndex == index && cursor == stepCount
+				&& System.currentTimeMillis() - lastTime < COALESCE_MS) {
+			mergeRecord(from, to);
+			lastTime = System.currentTimeMillis();
+		} else {
+			startStep();
+			appendRecord(tag, index, from, to, null, 0);
+			lastTag = tag;
+			lastIndex = index;
+			lastTime = System.currentTimeMillis();
+		}
+		System.arraycopy(data, from, shadow, from, to - from);
+		trim();
+	}
+
+	/**
+	 * Records a change to the data.
+	 *
+	 * @param tag
+	 *            what was changed, such as a field ID
+	 * @param index
+	 *            index of what was changed
+	 */
+	public void record(int tag, int index) {
+		record(tag, index, 0, data.length);
+	}
+
+	/**
+	 * Accepts changes to the data without recording them, so they can't be undone.
+	 *
+	 * @param from
+	 *            start of the range that may have changed (inclusive)
+	 * @param to
+	 *            end of the range that may have changed (exclusive)
+	 */
+	public void sync(int from, int to) {
+		from = Math.max(from, 0);
+		to = Math.min(to, data.length);
+		if (from < to)
+			System.arraycopy(data, from, shadow, from, to - from);
+		lastTag = NO_TAG;
+	}
+
+	/**
+	 * Starts a compound step. All changes recorded until the matching
+	 * {@link #endCompound()} call are undone and redone together. Compound steps
+	 * can be nested.
+	 */
+	public void beginCompound() {
+		if (compoundDepth++ == 0)
+			compoundStarted = false;
+	}
+
+	/**
+	 * Ends a compound step.
+	 */
+	public void endCompound() {
+		if (compoundDepth == 0)
+			return;
+		if (--compoundDepth == 0)
+			lastTag = NO_TAG;
+	}
+
+	/**
+	 * Checks if a step can be undone.
+	 *
+	 * @return <code>true</code> if a step can be undone, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean canUndo() {
+		return cursor > firstStep;
+	}
+
+	/**
+	 * Checks if a step can be redone.
+	 *
+	 * @return <code>true</code> if a step can be redone, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean canRedo() {
+		return cursor < stepCount;
+	}
+
+	/**
+	 * Undoes a step.
+	 *
+	 * @param l
+	 *            notified of each undone change, in reverse order. May be
+	 *            <code>null</code>.
+	 */
+	public void undo(Listener l) {
+		if (!canUndo())
+			return;
+		cursor--;
+		int start = steps[cursor], end = stepEnd(cursor);
+		// records can only be walked forwards, so find where each one starts first
+		int n = 0;
+		for (int p = start; p < end; p += HEADER_SIZE + 2 * readInt(p + 12))
+			n++;
+		int[] recs = new int[n];
+		n = 0;
+		for (int p = start; p < end; p += HEADER_SIZE + 2 * readInt(p + 12))
+			recs[n++] = p;
+		for (int i = n - 1; i >= 0; i--)
+			apply(recs[i], false, l);
+		lastTag = NO_TAG;
+	}
+
+	/**
+	 * Redoes a step.
+	 *
+	 * @param l
+	 *            notified of each redone change. May be <code>null</code>.
+	 */
+	public void redo(Listener l) {
+		if (!canRedo())
+			return;
+		int end = stepEnd(cursor);
+		for (int p = steps[cursor]; p < end; p += HEADER_SIZE + 2 * readInt(p + 12))
+			apply(p, true, l);
+		cursor++;
+		lastTag = NO_TAG;
+	}
+
+	/**
+	 * Copies a record's old or new bytes into the data.
+	 */
+	private void apply(int p, boolean redo, Listener l) {
+		int tag = readInt(p), index = readInt(p + 4);
+		int off = readInt(p + 8), len = readInt(p + 12);
+		if (l != null)
+			l.beforeApply(tag, index);
+		int src = p + HEADER_SIZE + (redo ? len : 0);
+		System.arraycopy(log, src, data, off, len);
+		System.arraycopy(log, src, shadow, off, len);
+		if (l != null)
+			l.afterApply(tag, index);
+	}
+
+	/**
+	 * Gets the end of a step in {@link #log}.
+	 */
+	private int stepEnd(int step) {
+		return step + 1 < stepCount ? steps[step + 1] : logEnd;
+	}
+
+	/**
+	 * Starts a new step, dropping all steps that could be redone.
+	 */
+	private void startStep() {
+		if (cursor < stepCount) {
+			logEnd = steps[cursor];
+			stepCount = cursor;
+		}
+		if (stepCount == steps.length) {
+			if (firstStep > steps.length / 2) {
+				// drop the space used by dropped steps
+				System.arraycopy(steps, firstStep, steps, 0, stepCount - firstStep);
+				stepCount -= firstStep;
+				firstStep = 0;
+			} else
+				steps = Arrays.copyOf(steps, steps.length * 2);
+		}
+		steps[stepCount++] = logEnd;
+		cursor = stepCount;
+	}
+
+	/**
+	 * Appends a record to the newest step.
+	 *
+	 * @param old
+	 *            array to copy the old bytes from, or <code>null</code> to copy
+	 *            them from {@link #shadow}
+	 * @param oldOff
+	 *            offset of <code>from</code> in <code>old</code>
+	 */
+	private void appendRecord(int tag, int index, int from, int to, byte[] old, int oldOff) {
+		int len = to - from;
+		ensureLogCapacity(HEADER_SIZE + 2 * len);
+		writeInt(logEnd, tag);
+		writeInt(logEnd + 4, index);
+		writeInt(logEnd + 8, from);
+		writeInt(logEnd + 12, len);
+		if (old == null)
+			System.arraycopy(shadow, from, log, logEnd + HEADER_SIZE, len);
+		else
+			System.arraycopy(old, oldOff, log, logEnd + HEADER_SIZE, len);
+		System.arraycopy(data, from, log, logEnd + HEADER_SIZE + len, len);
+		logEnd += HEADER_SIZE + 2 * len;
+	}
+
+	/**
+	 * Merges a change into the newest step, which has a single record.
+	 */
+	private void mergeRecord(int from, int to) {
+		int p = steps[stepCount - 1];
+		int tag = readInt(p), index = readInt(p + 4);
+		int oldFrom = readInt(p + 8), oldLen = readInt(p + 12);
+		int newFrom = Math.min(from, oldFrom), newTo = Math.max(to, oldFrom + oldLen);
+		// the bytes before both changes: the step's old bytes where it has them,
+		// the bytes before this change everywhere else
+		byte[] old = Arrays.copyOfRange(shadow, newFrom, newTo);
+		System.arraycopy(log, p + HEADER_SIZE, old, oldFrom - newFrom, oldLen);
+		logEnd = p;
+		boolean same = true;
+		for (int i = newFrom; i < newTo && same; i++)
+			same = old[i - newFrom] == data[i];
+		if (same) {
+			// the changes cancel each other out
+			stepCount--;
+			cursor = stepCount;
+			lastTag = NO_TAG;
+			return;
+		}
+		appendRecord(tag, index, newFrom, newTo, old, 0);
+	}
+
+	/**
+	 * Drops the oldest steps until the log fits in the budget.
+	 */
+	private void trim() {
+		while (logEnd - logStart > budget && firstStep < stepCount - 1 && firstStep < cursor) {
+			firstStep++;
+			logStart = steps[firstStep];
+		}
+		if (firstStep == stepCount) {
+			logStart = logEnd = 0;
+			firstStep = stepCount = cursor = 0;
+		}
+	}
+
+	private void ensureLogCapacity(int extra) {
+		if (logEnd + extra <= log.length)
+			return;
+		if (logStart > 0 && logEnd - logStart + extra <= log.length / 2) {
+			// drop the space used by dropped steps
+			System.arraycopy(log, logStart, log, 0, logEnd - logStart);
+			for (int i = firstStep; i < stepCount; i++)
+				steps[i] -= logStart;
+			logEnd -= logStart;
+			logStart = 0;
+			return;
+		}
+		log = Arrays.copyOf(log, Math.max(log.length * 2, logEnd + extra));
+	}
+
+	private int readInt(int p) {
+		return ByteUtils.readInt(log, p);
+	}
+
+	private void writeInt(int p, int value) {
+		ByteUtils.writeInt(log, p, value);
+	}
+
+}
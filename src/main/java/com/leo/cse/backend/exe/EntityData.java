@@ -3,17 +3,28 @@ package com.leo.cse.backend.exe;
 import java.awt.Rectangle;
 
 /**
- * Stores information for a npc.tbl entry, plus the entity's framerect.
+ * Stores information for a npc.tbl entry, plus the entity's framerect.<br />
+ * This is a view of a single row of an {@link EntityTable}.
  *
  * @author Leo
  *
  */
 public class EntityData {
 
+	/**
+	 * The table this entry is stored in.
+	 */
+	private final EntityTable table;
+
 	/**
 	 * The entity's ID.
 	 */
-	private int entityNum;
+	private final int entityNum;
+
+	/**
+	 * The entity's row in {@link #table}.
+	 */
+	private final int row;
 
 	/**
 	 * Gets the entity's ID.
@@ -24,80 +35,86 @@ public class EntityData {
 		return entityNum;
 	}
 
-	/**
-	 * The entity's HP.
-	 */
-	private int tbl_HP;
-
 	/**
 	 * Gets the entity's HP.
 	 *
 	 * @return entity HP
 	 */
 	public int getHP() {
-		return tbl_HP;
+		return table.hp[row];
 	}
 
-	/**
-	 * The entity's display rectangle.
-	 */
-	private Rectangle tbl_display;
-
 	/**
 	 * Gets the entity's display rectangle.
 	 *
 	 * @return entity display rect
 	 */
 	public Rectangle getDisplay() {
-		return new Rectangle(tbl_display);
+		return table.getDisplay(row, new Rectangle());
 	}
 
 	/**
-	 * The entity's hitbox.
+	 * Gets the left edge of the entity's display rectangle.
+	 *
+	 * @return left edge
 	 */
-	private Rectangle tbl_hitbox;
+	public int getDisplayLeft() {
+		return table.getDisplay(row, EntityTable.BOX_LEFT);
+	}
 
 	/**
-	 * Gets the entity's hitbox.
+	 * Gets the top edge of the entity's display rectangle.
 	 *
-	 * @return entity hitbox
+	 * @return top edge
 	 */
-	public Rectangle getHit() {
-		return new Rectangle(tbl_hitbox);
+	public int getDisplayUp() {
+		return table.getDisplay(row, EntityTable.BOX_UP);
 	}
 
 	/**
-	 * The entity's tileset ID.
+	 * Gets the right edge of the entity's display rectangle.
+	 *
+	 * @return right edge
 	 */
-	private int tbl_tileset;
+	public int getDisplayRight() {
+		return table.getDisplay(row, EntityTable.BOX_RIGHT);
+	}
 
 	/**
-	 * Gets the entity's tileset ID.
+	 * Gets the bottom edge of the entity's display rectangle.
 	 *
-	 * @return entity tileset ID
+	 * @return bottom edge
 	 */
-	public int getTileset() {
-		return tbl_tileset;
+	public int getDisplayDown() {
+		return table.getDisplay(row, EntityTable.BOX_DOWN);
 	}
 
 	/**
-	 * The amount of EXP this entity drops on death.
+	 * Gets the entity's hitbox.
+	 *
+	 * @return entity hitbox
 	 */
-	private int tbl_exp;
+	public Rectangle getHit() {
+		return table.getHit(row, new Rectangle());
+	}
 
 	/**
-	 * Gets the amount of EXP this entity drops on death.
+	 * Gets the entity's tileset ID.
 	 *
-	 * @return entity EXP drops
+	 * @return entity tileset ID
 	 */
-	public int getXP() {
-		return tbl_exp;
+	public int getTileset() {
+		return table.tileset[row];
 	}
 
 	/**
-	 * The amount of damage this entity deals.
+	 * Gets the amount of EXP this entity drops on death.
+	 *
+	 * @return entity EXP drops
 	 */
-	private int tbl_damage;
+	public int getXP() {
+		return table.exp[row];
+	}
 
 	/**
 	 * Gets the amount of damage this entity deals.
@@ -105,63 +122,57 @@ public class EntityData {
 	 * @return entity damage
 	 */
 	public int getDmg() {
-		return tbl_damage;
+		return table.damage[row];
 	}
 
-	/**
-	 * The entity's flags.
-	 */
-	private int tbl_flags;
-
 	/**
 	 * Get the entity's flags.
 	 *
 	 * @return entity flags
 	 */
 	public int getFlags() {
-		return tbl_flags;
+		return table.flags[row];
 	}
 
-	/**
-	 * The entity's "death" sound.
-	 */
-	private int tbl_deathSound;
-
 	/**
 	 * Get the entity's "death" sound.
 	 *
 	 * @return entity death sound
 	 */
 	public int getDeath() {
-		return tbl_deathSound;
+		return table.deathSound[row];
 	}
 
-	/**
-	 * The entity's "hurt" sound.
-	 */
-	private int tbl_hurtSound;
-
 	/**
 	 * Get the entity's "hurt" sound.
 	 *
 	 * @return entity hurt sound
 	 */
 	public int getHurt() {
-		return tbl_hurtSound;
+		return table.hurtSound[row];
 	}
 
-	/**
-	 * The amount of smoke this entity creates on death.
-	 */
-	private int tbl_size;
-
 	/**
 	 * Gets the amount of smoke this entity creates on death.
 	 *
 	 * @return entity smoke amount
 	 */
 	public int getSize() {
-		return tbl_size;
+		return table.size[row];
+	}
+
+	/**
+	 * Creates a view of a table entry.
+	 *
+	 * @param table
+	 *            source table
+	 * @param num
+	 *            entity ID
+	 */
+	EntityData(EntityTable table, int num) {
+		this.table = table;
+		entityNum = num;
+		row = num;
 	}
 
 	/**
@@ -171,9 +182,7 @@ public class EntityData {
 	 *            entity ID
 	 */
 	EntityData(int num) {
-		tbl_hitbox = new Rectangle(4, 4, 4, 4);
-		tbl_display = new Rectangle(8, 8, 8, 8);
-		entityNum = num;
+		this(num, 0, 0, 0, 0, 0, 0, 0, 0, new Rectangle(8, 8, 8, 8), new Rectangle(4, 4, 4, 4));
 	}
 
 	/**
@@ -204,17 +213,19 @@ public class EntityData {
 	 */
 	public EntityData(int num, int dam, int deathSound, int exp, int flags, int hp, int hurt, int size, int tileset,
 			Rectangle display, Rectangle hitbox) {
+		table = new EntityTable(1);
 		entityNum = num;
-		tbl_damage = dam;
-		tbl_deathSound = deathSound;
-		tbl_exp = exp;
-		tbl_flags = flags;
-		tbl_HP = hp;
-		tbl_hurtSound = hurt;
-		tbl_size = size;
-		tbl_tileset = tileset;
-		tbl_display = display;
-		tbl_hitbox = hitbox;
+		row = 0;
+		table.damage[0] = dam;
+		table.deathSound[0] = (byte) deathSound;
+		table.exp[0] = exp;
+		table.flags[0] = (short) flags;
+		table.hp[0] = hp;
+		table.hurtSound[0] = (byte) hurt;
+		table.size[0] = (byte) size;
+		table.tileset[0] = (byte) tileset;
+		setBox(table.display, display);
+		setBox(table.hitbox, hitbox);
 	}
 
 	/**
@@ -224,16 +235,14 @@ public class EntityData {
 	 *            source entry
 	 */
 	EntityData(EntityData other) {
-		entityNum = other.entityNum;
-		tbl_damage = other.tbl_damage;
-		tbl_deathSound = other.tbl_deathSound;
-		tbl_exp = other.tbl_exp;
-		tbl_flags = other.tbl_flags;
-		tbl_HP = other.tbl_HP;
-		tbl_hurtSound = other.tbl_hurtSound;
-		tbl_size = other.tbl_size;
-		tbl_tileset = other.tbl_tileset;
-		tbl_display = new Rectangle(other.tbl_display);
-		tbl_hitbox = new Rectangle(other.tbl_hitbox);
-	}
-}
\ No newline at end of file
+		this(other.entityNum, other.getDmg(), other.getDeath(), other.getXP(), other.getFlags(), other.getHP(),
+				other.getHurt(), other.getSize(), other.getTileset(), other.getDisplay(), other.getHit());
+	}
+
+	private static void setBox(byte[] boxes, Rectangle box) {
+		boxes[EntityTable.BOX_LEFT] = (byte) box.x;
+		boxes[EntityTable.BOX_UP] = (byte) box.y;
+		boxes[EntityTable.BOX_RIGHT] = (byte) box.width;
+		boxes[EntityTable.BOX_DOWN] = (byte) box.height;
+	}
+}
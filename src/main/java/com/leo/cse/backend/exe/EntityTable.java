@@ -0,0 +1,226 @@
+package com.leo.cse.backend.exe;
+
+import java.awt.Rectangle;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stores all npc.tbl entries, one array per field.<br />
+ * This is the same layout npc.tbl itself uses, so the table is read with a
+ * single bulk copy per field. None of the accessors allocate.
+ *
+ * @author Leo
+ * @see EntityData
+ *
+ */
+public class EntityTable {
+
+	/**
+	 * Size of a single entry in npc.tbl, in bytes.
+	 */
+	public static final int ENTRY_SIZE = 24;
+
+	/**
+	 * Index of the left edge in a packed box.
+	 */
+	public static final int BOX_LEFT = 0;
+	/**
+	 * Index of the top edge in a packed box.
+	 */
+	public static final int BOX_UP = 1;
+	/**
+	 * Index of the right edge in a packed box.
+	 */
+	public static final int BOX_RIGHT = 2;
+	/**
+	 * Index of the bottom edge in a packed box.
+	 */
+	public static final int BOX_DOWN = 3;
+
+	/**
+	 * Number of entries.
+	 */
+	private final int count;
+	final short[] flags;
+	final int[] hp;
+	final byte[] tileset;
+	final byte[] deathSound;
+	final byte[] hurtSound;
+	final byte[] size;
+	final int[] exp;
+	final int[] damage;
+	/**
+	 * Hitboxes, 4 bytes per entry.
+	 *
+	 * @see #BOX_LEFT
+	 */
+	final byte[] hitbox;
+	/**
+	 * Display boxes, 4 bytes per entry.
+	 *
+	 * @see #BOX_LEFT
+	 */
+	final byte[] display;
+
+	/**
+	 * Creates a table of blank entries.
+	 *
+	 * @param count
+	 *            number of entries
+	 */
+	EntityTable(int count) {
+		this.count = count;
+		flags = new short[count];
+		hp = new int[count];
+		tileset = new byte[count];
+		deathSound = new byte[count];
+		hurtSound = new byte[count];
+		size = new byte[count];
+		exp = new int[count];
+		damage = new int[count];
+		hitbox = new byte[count * 4];
+		display = new byte[count * 4];
+	}
+
+	/**
+	 * Reads a table in npc.tbl format.
+	 *
+	 * @param buf
+	 *            source buffer. Entries are read from its position to its limit.
+	 * @return table
+	 * @throws BufferUnderflowException
+	 *             if the buffer isn't a whole number of entries long.
+	 */
+	public static EntityTable read(ByteBuffer buf) {
+		if (buf.remaining() % ENTRY_SIZE != 0)
+			throw new BufferUnderflowException();
+		EntityTable t = new EntityTable(buf.remaining() / ENTRY_SIZE);
+		buf = buf.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		buf.asShortBuffer().get(t.flags);
+		buf.position(buf.position() + t.count * 2);
+		for (int i = 0; i < t.count; i++)
+			t.hp[i] = buf.getShort();
+		buf.get(t.tileset);
+		buf.get(t.deathSound);
+		buf.get(t.hurtSound);
+		buf.get(t.size);
+		buf.asIntBuffer().get(t.exp);
+		buf.position(buf.position() + t.count * 4);
+		buf.asIntBuffer().get(t.damage);
+		buf.position(buf.position() + t.count * 4);
+		buf.get(t.hitbox);
+		buf.get(t.display);
+		return t;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return number of entries
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	public int getFlags(int id) {
+		return flags[id];
+	}
+
+	public int getHP(int id) {
+		return hp[id];
+	}
+
+	public int getTileset(int id) {
+		return tileset[id];
+	}
+
+	public int getDeathSound(int id) {
+		return deathSound[id];
+	}
+
+	public int getHurtSound(int id) {
+		return hurtSound[id];
+	}
+
+	public int getSize(int id) {
+		return size[id];
+	}
+
+	public int getXP(int id) {
+		return exp[id];
+	}
+
+	public int getDmg(int id) {
+		return damage[id];
+	}
+
+	/**
+	 * Gets an edge of an entry's hitbox.
+	 *
+	 * @param id
+	 *            entity type
+	 * @param edge
+	 *            edge to get
+	 * @return distance of edge from entity's position
+	 * @see #BOX_LEFT
+	 * @see #BOX_UP
+	 * @see #BOX_RIGHT
+	 * @see #BOX_DOWN
+	 */
+	public int getHit(int id, int edge) {
+		return hitbox[id * 4 + edge];
+	}
+
+	/**
+	 * Gets an edge of an entry's display box.
+	 *
+	 * @param id
+	 *            entity type
+	 * @param edge
+	 *            edge to get
+	 * @return distance of edge from entity's position
+	 * @see #BOX_LEFT
+	 * @see #BOX_UP
+	 * @see #BOX_RIGHT
+	 * @see #BOX_DOWN
+	 */
+	public int getDisplay(int id, int edge) {
+		return display[id * 4 + edge];
+	}
+
+	/**
+	 * Copies an entry's hitbox into a rectangle. The rectangle's fields hold the
+	 * left, top, right and bottom edges, in that order.
+	 *
+	 * @param id
+	 *            entity type
+	 * @param dest
+	 *            destination rectangle
+	 * @return <code>dest</code>
+	 */
+	public Rectangle getHit(int id, Rectangle dest) {
+		return getBox(hitbox, id, dest);
+	}
+
+	/**
+	 * Copies an entry's display box into a rectangle. The rectangle's fields hold
+	 * the left, top, right and bottom edges, in that order.
+	 *
+	 * @param id
+	 *            entity type
+	 * @param dest
+	 *            destination rectangle
+	 * @return <code>dest</code>
+	 */
+	public Rectangle getDisplay(int id, Rectangle dest) {
+		return getBox(display, id, dest);
+	}
+
+	private static Rectangle getBox(byte[] boxes, int id, Rectangle dest) {
+		int p = id * 4;
+		dest.setBounds(boxes[p + BOX_LEFT], boxes[p + BOX_UP], boxes[p + BOX_RIGHT], boxes[p + BOX_DOWN]);
+		return dest;
+	}
+
+}
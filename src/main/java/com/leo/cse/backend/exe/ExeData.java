@@ -1,32 +1,42 @@
 package com.leo.cse.backend.exe;
 
-import java.awt.Rectangle;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import javax.imageio.ImageIO;
 import javax.swing.JOptionPane;
 
 import com.leo.cse.backend.BackendLogger;
+import com.leo.cse.backend.CStringDecoder;
+import com.leo.cse.backend.ImagePrep;
 import com.leo.cse.backend.ResUtils;
 import com.leo.cse.backend.StrTools;
 import com.leo.cse.backend.profile.NormalProfile;
 import com.leo.cse.backend.profile.ProfileManager;
+import com.leo.cse.backend.tsc.TSCFile;
+import com.leo.cse.backend.tsc.TSCIndex;
 import com.leo.cse.frontend.MCI;
 import com.leo.cse.frontend.Main;
 
@@ -133,13 +143,17 @@ public class ExeData {
 	public static final String LOADNAME_MAP_INFO_PXM = "layout file";
 	public static final String LOADNAME_MAP_INFO_PXE = "entities file";
 	public static final String LOADNAME_MAP_INFO_TSC = "script file";
+	public static final String EVENT_TSC_INDEX = "load.tscindex";
+	public static final String EVENT_ASSET_RELOAD = "load.asset";
 
 	public static final String SUBEVENT_IMAGE = "sub.img";
 	public static final String SUBEVENT_PXA = "sub.pxa";
 	public static final String SUBEVENT_END = "sub.end";
 
 	/**
-	 * Notifies all listeners of an event.
+	 * Notifies all listeners of an event.<br />
+	 * <i>NOTE: This may be called from the map loading workers, so listeners are
+	 * notified one event at a time.</i>
 	 *
 	 * @param notifyType
 	 *            event type
@@ -148,7 +162,7 @@ public class ExeData {
 	 * @see #NOTIFY_POSTLOAD
 	 * @see #NOTIFY_UNLOAD
 	 */
-	private static void notifyListeners(boolean sub, String event, String loadName, int loadId, int loadIdMax) {
+	private static synchronized void notifyListeners(boolean sub, String event, String loadName, int loadId, int loadIdMax) {
 		if (listeners == null)
 			return;
 		if (listenersToAdd != null) {
@@ -170,6 +184,10 @@ public class ExeData {
 	 * The encoding to use to read strings from the executable.
 	 */
 	private static String encoding = StrTools.DEFAULT_ENCODING;
+	/**
+	 * Decoder for {@linkplain #encoding the current encoding}.
+	 */
+	private static CStringDecoder decoder = CStringDecoder.forEncoding(encoding);
 
 	/**
 	 * Gets the encoding to use to read strings.
@@ -180,6 +198,15 @@ public class ExeData {
 		return encoding;
 	}
 
+	/**
+	 * Gets the decoder for the encoding to use to read strings.
+	 *
+	 * @return decoder
+	 */
+	public static CStringDecoder getDecoder() {
+		return decoder;
+	}
+
 	/**
 	 * Sets the encoding to use to read strings.
 	 *
@@ -187,6 +214,7 @@ public class ExeData {
 	 *            new encoding
 	 */
 	public static void setEncoding(String encoding) {
+		decoder = CStringDecoder.forEncoding(encoding);
 		ExeData.encoding = encoding;
 	}
 
@@ -641,6 +669,60 @@ public class ExeData {
 		ExeData.loadTSC = loadTSC;
 	}
 
+	/**
+	 * If <code>true</code>, map resources will only be loaded when they are first
+	 * requested from their {@link MapInfo}, otherwise they will all be loaded
+	 * along with the executable.
+	 */
+	private static boolean lazyLoad = false;
+
+	/**
+	 * Checks if map resources will be loaded on demand.
+	 *
+	 * @return <code>true</code> if will be loaded on demand, <code>false</code>
+	 *         otherwise.
+	 */
+	public static boolean doLazyLoad() {
+		return lazyLoad;
+	}
+
+	/**
+	 * Enables or disables loading map resources on demand.
+	 *
+	 * @param lazyLoad
+	 *            <code>true</code> to enable, <code>false</code> to disable.
+	 */
+	public static void setLazyLoad(boolean lazyLoad) {
+		ExeData.lazyLoad = lazyLoad;
+	}
+
+	/**
+	 * Amount of worker threads to use when loading map information. If
+	 * <code>0</code> or less, the amount of available processors will be used.
+	 */
+	private static int loadThreads = 0;
+
+	/**
+	 * Gets the amount of worker threads to use when loading map information.
+	 *
+	 * @return amount of threads, or <code>0</code> to use the amount of available
+	 *         processors
+	 */
+	public static int getLoadThreads() {
+		return loadThreads;
+	}
+
+	/**
+	 * Sets the amount of worker threads to use when loading map information.
+	 *
+	 * @param loadThreads
+	 *            amount of threads. <code>1</code> loads maps serially,
+	 *            <code>0</code> or less uses the amount of available processors.
+	 */
+	public static void setLoadThreads(int loadThreads) {
+		ExeData.loadThreads = loadThreads;
+	}
+
 	/**
 	 * Graphics resolution.
 	 */
@@ -696,11 +778,17 @@ public class ExeData {
 	 */
 	private static File dataDir;
 	/**
-	 * List of npc.tbl entries.
+	 * npc.tbl entries.
+	 *
+	 * @see EntityTable
+	 */
+	private static EntityTable entityTable;
+	/**
+	 * Views of each npc.tbl entry, by entity type.
 	 *
 	 * @see EntityData
 	 */
-	private static Vector<EntityData> entityList;
+	private static EntityData[] entityList;
 	/**
 	 * List of map data.
 	 *
@@ -716,7 +804,11 @@ public class ExeData {
 	/**
 	 * Image repository.
 	 */
-	private static Map<File, BufferedImage> imageMap;
+	private static ImageCache imageCache;
+	/**
+	 * Memory budget for {@linkplain #imageCache the image repository}, in bytes.
+	 */
+	private static long imageCacheBudget = ImageCache.DEFAULT_BUDGET;
 	/**
 	 * PXA file repository.
 	 */
@@ -875,6 +967,9 @@ public class ExeData {
 	 *             if an I/O error occurs.
 	 */
 	private static void load0(File base) throws IOException {
+		// stop indexing the previous load's scripts and forget them
+		tscIndexGeneration.incrementAndGet();
+		tscIndex.clear();
 		ExeData.base = base;
 		String baseExt = base.getName();
 		int dp = baseExt.lastIndexOf('.');
@@ -905,13 +1000,16 @@ public class ExeData {
 			ProfileManager.setHeader(getExeString(STRING_PROFILE_HEADER));
 			ProfileManager.setFlagHeader(getExeString(STRING_PROFILE_FLAGH));
 			dataDir = new File(base.getParent() + getExeString(STRING_DATA_FOLDER));
-			entityList = new Vector<>();
+			modCache = useModCache ? ModCache.open(base) : null;
 			mapdata = new Vector<>();
 			mapInfo = new Vector<>();
-			imageMap = new HashMap<>();
-			pxaMap = new HashMap<>();
+			imageCache = new ImageCache(ExeData::loadImage, imageCacheBudget);
+			pxaMap = new ConcurrentHashMap<>();
 			loadNpcTbl();
-			fillMapdata();
+			if (!loadCachedMapdata()) {
+				fillMapdata();
+				cacheMapdata();
+			}
 			notifyListeners(false, EVENT_LOAD, null, -1, -1);
 			loadGraphics();
 			try {
@@ -922,6 +1020,9 @@ public class ExeData {
 			}
 			loadStartPoint();
 			loadMapInfo();
+			indexScripts();
+			if (modCache != null)
+				modCache.save();
 			notifyListeners(false, EVENT_POSTLOAD, LOADNAME_POSTLOAD_SUCCESS, -1, -1);
 		} catch (Exception e) {
 			loaded = false;
@@ -929,6 +1030,7 @@ public class ExeData {
 			throw e;
 		}
 		loaded = true;
+		startWatcher();
 	}
 
 	/**
@@ -945,18 +1047,24 @@ public class ExeData {
 			ProfileManager.setHeader(getExeString(STRING_PROFILE_HEADER));
 			ProfileManager.setFlagHeader(getExeString(STRING_PROFILE_FLAGH));
 			dataDir = base.getParentFile();
-			entityList = new Vector<>();
+			modCache = useModCache ? ModCache.open(base) : null;
 			mapdata = new Vector<>();
 			mapInfo = new Vector<>();
-			imageMap = new HashMap<>();
-			pxaMap = new HashMap<>();
+			imageCache = new ImageCache(ExeData::loadImage, imageCacheBudget);
+			pxaMap = new ConcurrentHashMap<>();
 			loadNpcTbl();
-			fillMapdataPlus();
+			if (!loadCachedMapdata()) {
+				fillMapdataPlus();
+				cacheMapdata();
+			}
 			notifyListeners(false, EVENT_LOAD, null, -1, -1);
 			loadGraphics();
 			loadGraphicsPlus();
 			initStartPointPlus();
 			loadMapInfo();
+			indexScripts();
+			if (modCache != null)
+				modCache.save();
 			notifyListeners(false, EVENT_POSTLOAD, LOADNAME_POSTLOAD_SUCCESS, -1, -1);
 		} catch (Exception e) {
 			loaded = false;
@@ -964,6 +1072,7 @@ public class ExeData {
 			throw e;
 		}
 		loaded = true;
+		startWatcher();
 	}
 
 	public static File correctFile(File src) {
@@ -987,14 +1096,26 @@ public class ExeData {
 	 * Unloads the currently loaded executable.
 	 */
 	public static void unload() {
+		if (watcher != null)
+			watcher.close();
+		watcher = null;
+		if (modCache != null)
+			modCache.save();
+		modCache = null;
+		tscIndexGeneration.incrementAndGet();
+		tscIndex.clear();
+		ResUtils.clearCache();
 		exeStrings = null;
 		loaded = false;
 		base = null;
 		dataDir = null;
+		entityTable = null;
 		entityList = null;
 		mapdata = null;
 		mapInfo = null;
-		imageMap = null;
+		if (imageCache != null)
+			imageCache.clear();
+		imageCache = null;
 		pxaMap = null;
 		startPoint = null;
 		title = null;
@@ -1026,21 +1147,9 @@ public class ExeData {
 	 *             if an I/O exception occurs.
 	 */
 	private static void locateSections() throws IOException {
-		// setup I/O stuff
-		FileInputStream inStream = new FileInputStream(base);
-		FileChannel chan = inStream.getChannel();
-		long l = chan.size();
-		if (l > 0x7FFFFFFF) {
-			inStream.close();
-			throw new IOException("Too big!");
-		}
-		ByteBuffer bb = ByteBuffer.allocate((int) l);
-		if (chan.read(bb) != l) {
-			inStream.close();
-			throw new IOException("Didn't read whole file.");
-		}
-		inStream.close();
-		peData = new PEFile(bb, 0x1000);
+		// read the executable in one go - sections are only copied if they get
+		// modified
+		peData = PEFile.read(base, 0x1000);
 		// get sections
 		int rdataSecId = peData.getSectionIndexByTag(".rdata");
 		if (rdataSecId == -1)
@@ -1077,18 +1186,11 @@ public class ExeData {
 		if (!"exe".equals(ext))
 			throw new IOException("Base file is not an executable!");
 		// setup I/O stuff
-		ByteBuffer uBuf = ByteBuffer.allocate(2);
-		uBuf.order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer rdata = rdataSection.getData();
 		// read the text
 		exeStrings = new String[STRING_POINTERS.length];
-		byte[] buffer = new byte[0x10];
-		uBuf = ByteBuffer.wrap(buffer);
-		uBuf.order(ByteOrder.LITTLE_ENDIAN);
 		for (int i = 0; i < STRING_POINTERS.length; i++) {
-			uBuf.put(rdataSection.rawData, STRING_POINTERS[i], buffer.length);
-			uBuf.flip();
-			String str = StrTools.CString(buffer, encoding);
-			uBuf.clear();
+			String str = decoder.decode(rdata, STRING_POINTERS[i], 0x10);
 			// backslashes are Windows-only, so replace them with forward slashes
 			str = str.replaceAll("\\\\", "/");
 			setExeString(i, str);
@@ -1144,153 +1246,33 @@ public class ExeData {
 	 */
 	private static void loadNpcTbl() throws IOException {
 		File tblFile = correctFile(ResUtils.newFile(dataDir + "/" + getExeString(STRING_NPC_TBL)));
-		FileChannel inChan;
-		ByteBuffer dBuf;
-		FileInputStream inStream;
-		int calculated_npcs;
 
 		if (tblFile == null || !tblFile.exists())
 			throw new IOException("Could not find \"" + tblFile + "\"!");
 
-		inStream = new FileInputStream(tblFile);
-		calculated_npcs = (int) (tblFile.length() / 24);
-		inChan = inStream.getChannel();
-
-		short[] flagDat;
-		short[] healthDat;
-		byte[] tilesetDat;
-		byte[] deathDat;
-		byte[] hurtDat;
-		byte[] sizeDat;
-		int[] expDat;
-		int[] damageDat;
-		byte[] hitboxDat;
-		byte[] displayDat;
-		// read flags section
-		dBuf = ByteBuffer.allocateDirect(2 * calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		flagDat = new short[calculated_npcs];
-		for (int i = 0; i < flagDat.length; i++) {
-			flagDat[i] = dBuf.getShort();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_FLAGS, i, calculated_npcs - 1);
-		}
-
-		// read health section
-		dBuf = ByteBuffer.allocate(2 * calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		healthDat = new short[calculated_npcs];
-		for (int i = 0; i < healthDat.length; i++) {
-			healthDat[i] = dBuf.getShort();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_HEALTH, i, calculated_npcs - 1);
-		}
-
-		// read tileset section
-		dBuf = ByteBuffer.allocate(calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		tilesetDat = new byte[calculated_npcs];
-		for (int i = 0; i < tilesetDat.length; i++) {
-			tilesetDat[i] = dBuf.get();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_TILESET, i, calculated_npcs - 1);
-		}
-
-		// read death sound section
-		dBuf = ByteBuffer.allocate(calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		deathDat = new byte[calculated_npcs];
-		for (int i = 0; i < deathDat.length; i++) {
-			deathDat[i] = dBuf.get();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_DEATHSND, i, calculated_npcs - 1);
-		}
-
-		// read hurt sound section
-		dBuf = ByteBuffer.allocate(calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		hurtDat = new byte[calculated_npcs];
-		for (int i = 0; i < hurtDat.length; i++) {
-			hurtDat[i] = dBuf.get();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_HURTSND, i, calculated_npcs - 1);
-		}
-
-		// read size section
-		dBuf = ByteBuffer.allocate(calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		sizeDat = new byte[calculated_npcs];
-		for (int i = 0; i < sizeDat.length; i++) {
-			sizeDat[i] = dBuf.get();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_SIZE, i, calculated_npcs - 1);
-		}
-
-		// read experience section
-		dBuf = ByteBuffer.allocate(4 * calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		expDat = new int[calculated_npcs];
-		for (int i = 0; i < expDat.length; i++) {
-			expDat[i] = dBuf.getInt();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_EXP, i, calculated_npcs - 1);
+		// read the whole file at once, dropping any partial entry at the end
+		ByteBuffer dBuf;
+		try (FileInputStream inStream = new FileInputStream(tblFile)) {
+			FileChannel inChan = inStream.getChannel();
+			dBuf = ByteBuffer.allocate((int) (inChan.size() / EntityTable.ENTRY_SIZE * EntityTable.ENTRY_SIZE));
+			while (dBuf.hasRemaining())
+				if (inChan.read(dBuf) < 0)
+					throw new IOException("Unexpected end of file: " + tblFile);
 		}
-
-		// read damage section
-		dBuf = ByteBuffer.allocate(4 * calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
 		dBuf.flip();
-		damageDat = new int[calculated_npcs];
-		for (int i = 0; i < damageDat.length; i++) {
-			damageDat[i] = dBuf.getInt();
-			notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_DAMAGE, i, calculated_npcs - 1);
-		}
+		EntityTable table = EntityTable.read(dBuf);
+		int calculated_npcs = table.getCount();
+		for (String section : new String[] { LOADNAME_NPC_TBL_FLAGS, LOADNAME_NPC_TBL_HEALTH,
+				LOADNAME_NPC_TBL_TILESET, LOADNAME_NPC_TBL_DEATHSND, LOADNAME_NPC_TBL_HURTSND, LOADNAME_NPC_TBL_SIZE,
+				LOADNAME_NPC_TBL_EXP, LOADNAME_NPC_TBL_DAMAGE, LOADNAME_NPC_TBL_HITBOX, LOADNAME_NPC_TBL_DISPLAYBOX })
+			notifyListeners(false, EVENT_NPC_TBL, section, calculated_npcs - 1, calculated_npcs - 1);
 
-		int npcId = 0;
-		// read hitbox section
-		dBuf = ByteBuffer.allocate(4 * calculated_npcs);
-		dBuf.order(ByteOrder.LITTLE_ENDIAN);
-		inChan.read(dBuf);
-		dBuf.flip();
-		hitboxDat = new byte[4 * calculated_npcs];
-		for (int i = 0; i < hitboxDat.length; i++) {
-			hitboxDat[i] = dBuf.get();
-			if (i != 0 && i % 4 == 0)
-				notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_HITBOX, npcId++, calculated_npcs - 1);
-		}
-
-		npcId = 0;
-		// read display box section
-		dBuf.clear();
-		inChan.read(dBuf);
-		dBuf.flip();
-		displayDat = new byte[4 * calculated_npcs];
-		for (int i = 0; i < displayDat.length; i++) {
-			displayDat[i] = dBuf.get();
-			if (i != 0 && i % 4 == 0)
-				notifyListeners(false, EVENT_NPC_TBL, LOADNAME_NPC_TBL_DISPLAYBOX, npcId++, calculated_npcs - 1);
-		}
-		// finished reading file
-		inChan.close();
-		inStream.close();
-
-		// build the master list
-		for (int i = 0; i < calculated_npcs; i++) {
-			EntityData e = new EntityData(i, damageDat[i], deathDat[i], expDat[i], flagDat[i], healthDat[i], hurtDat[i],
-					sizeDat[i], tilesetDat[i],
-					new Rectangle(displayDat[i * 4], displayDat[i * 4 + 1], displayDat[i * 4 + 2],
-							displayDat[i * 4 + 3]),
-					new Rectangle(hitboxDat[i * 4], hitboxDat[i * 4 + 1], hitboxDat[i * 4 + 2], hitboxDat[i * 4 + 3]));
-			entityList.add(i, e);
-		}
+		// build the views
+		EntityData[] list = new EntityData[calculated_npcs];
+		for (int i = 0; i < calculated_npcs; i++)
+			list[i] = new EntityData(table, i);
+		entityTable = table;
+		entityList = list;
 	}
 
 	/**
@@ -1333,8 +1315,8 @@ public class ExeData {
 			}
 			inStream.close();
 		} else { // exe has been edited probably
-			ByteBuffer buf = ByteBuffer.wrap(mapSec.rawData);
-			int numMaps = mapSec.rawData.length / 200;
+			ByteBuffer buf = mapSec.getData();
+			int numMaps = mapSec.getRawDataLength() / 200;
 			if (mapSecTag.contains(".csmap")) {
 				// cave editor/booster's lab
 				for (int i = 0; i < numMaps; i++) {
@@ -1379,34 +1361,408 @@ public class ExeData {
 	}
 
 	/**
-	 * Loads map info.
+	 * Loads map info.<br />
+	 * Each map's resources are loaded by a pool of {@linkplain #loadThreads worker
+	 * threads}. The PXA file is always loaded before the layout file, since tiles
+	 * are sorted into layers using it.<br />
+	 * If {@linkplain #lazyLoad lazy loading} is enabled, only the {@link MapInfo}
+	 * instances are created - each map's resources are loaded when first
+	 * requested.
+	 *
+	 * @throws IOException
+	 *             if a worker failed or was interrupted.
 	 */
-	private static void loadMapInfo() {
-		int mdSize = mapdata.size();
+	private static void loadMapInfo() throws IOException {
+		final int mdSize = mapdata.size();
+		// the settings can change while loading, so every map uses the same snapshot
+		final boolean lazy = lazyLoad, npc = loadNpc, tsc = loadTSC;
 		for (int i = 0; i < mdSize; i++)
-			mapInfo.add(new MapInfo(mapdata.get(i)));
-		for (int i = 0; i < mdSize; i++) {
-			mapInfo.get(i).loadImages();
-			notifyListeners(false, EVENT_MAP_INFO, LOADNAME_MAP_INFO_IMAGES, i, mdSize - 1);
+			mapInfo.add(new MapInfo(mapdata.get(i), lazy, npc, tsc));
+		if (mdSize == 0 || lazy)
+			return;
+		// maps finish in any order, so progress is the number of finished maps
+		final AtomicInteger mapsDone = new AtomicInteger();
+		int threads = loadThreads;
+		if (threads <= 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		threads = Math.max(1, Math.min(threads, mdSize));
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new MapInfoThreadFactory());
+		try {
+			List<Future<?>> tasks = new ArrayList<>(mdSize);
+			for (int i = 0; i < mdSize; i++) {
+				final MapInfo inf = mapInfo.get(i);
+				tasks.add(pool.submit(() -> {
+					inf.loadImages();
+					notifyMapInfoProgress(LOADNAME_MAP_INFO_IMAGES, mapsDone, false, mdSize);
+					inf.loadPXA();
+					notifyMapInfoProgress(LOADNAME_MAP_INFO_PXA, mapsDone, false, mdSize);
+					inf.loadMap();
+					notifyMapInfoProgress(LOADNAME_MAP_INFO_PXM, mapsDone, !npc && !tsc, mdSize);
+					if (npc) {
+						inf.loadEntities();
+						notifyMapInfoProgress(LOADNAME_MAP_INFO_PXE, mapsDone, !tsc, mdSize);
+					}
+					if (tsc) {
+						inf.loadTSC();
+						notifyMapInfoProgress(LOADNAME_MAP_INFO_TSC, mapsDone, true, mdSize);
+					}
+				}));
+			}
+			for (Future<?> task : tasks)
+				task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Map info loading was interrupted!", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException("Failed to load map info!", cause);
+		} finally {
+			pool.shutdownNow();
 		}
-		for (int i = 0; i < mdSize; i++) {
-			mapInfo.get(i).loadPXA();
-			notifyListeners(false, EVENT_MAP_INFO, LOADNAME_MAP_INFO_PXA, i, mdSize - 1);
+	}
+
+	/**
+	 * Fires {@link #EVENT_MAP_INFO} with the number of maps that have finished
+	 * loading. Synchronized along with {@link #notifyListeners}, so the reported
+	 * number never goes down even though maps are loaded on several threads.
+	 *
+	 * @param loadName
+	 *            what was just loaded
+	 * @param mapsDone
+	 *            number of maps that have finished loading
+	 * @param finished
+	 *            <code>true</code> if that was the last thing to load for the
+	 *            map
+	 * @param mdSize
+	 *            total number of maps
+	 */
+	private static synchronized void notifyMapInfoProgress(String loadName, AtomicInteger mapsDone, boolean finished,
+			int mdSize) {
+		int done = finished ? mapsDone.incrementAndGet() : mapsDone.get();
+		notifyListeners(false, EVENT_MAP_INFO, loadName, done, mdSize);
+	}
+
+	/**
+	 * Cache of parsed data for the current mod, or <code>null</code> if the cache
+	 * is disabled.
+	 */
+	private static ModCache modCache;
+	/**
+	 * If <code>true</code>, parsed data is cached on disk.
+	 *
+	 * @see ModCache
+	 */
+	private static boolean useModCache = true;
+
+	/**
+	 * Checks if parsed data is cached on disk.
+	 *
+	 * @return <code>true</code> if the cache is used, <code>false</code>
+	 *         otherwise
+	 */
+	public static boolean doUseModCache() {
+		return useModCache;
+	}
+
+	/**
+	 * Sets if parsed data should be cached on disk. Takes effect the next time a
+	 * mod is loaded.
+	 *
+	 * @param useModCache
+	 *            <code>true</code> to use the cache, <code>false</code> otherwise
+	 */
+	public static void setUseModCache(boolean useModCache) {
+		ExeData.useModCache = useModCache;
+	}
+
+	/**
+	 * Gets the cache of parsed data for the current mod.
+	 *
+	 * @return cache, or <code>null</code> if the cache is disabled
+	 */
+	public static ModCache getModCache() {
+		return modCache;
+	}
+
+	/**
+	 * Loads map data from the cache.
+	 *
+	 * @return <code>true</code> if map data was loaded, <code>false</code> if it
+	 *         wasn't cached or the executable has changed
+	 */
+	private static boolean loadCachedMapdata() {
+		if (modCache == null)
+			return false;
+		ByteBuffer buf = modCache.get(ModCache.KIND_MAPDATA, base);
+		if (buf == null || !encoding.equals(getCacheString(buf)))
+			return false;
+		int numMaps = buf.getInt();
+		for (int i = 0; i < numMaps; i++) {
+			String tileset = getCacheString(buf), fileName = getCacheString(buf);
+			int scrollType = buf.getInt();
+			String bgName = getCacheString(buf), npcSheet1 = getCacheString(buf), npcSheet2 = getCacheString(buf);
+			int bossNum = buf.get();
+			String mapName = getCacheString(buf);
+			byte[] jpName = new byte[0x20];
+			buf.get(jpName);
+			mapdata.add(new Mapdata(i, tileset, fileName, scrollType, bgName, npcSheet1, npcSheet2, bossNum, mapName,
+					jpName));
 		}
-		for (int i = 0; i < mdSize; i++) {
-			mapInfo.get(i).loadMap();
-			notifyListeners(false, EVENT_MAP_INFO, LOADNAME_MAP_INFO_PXM, i, mdSize - 1);
+		notifyListeners(false, EVENT_MAP_DATA, null, numMaps - 1, numMaps - 1);
+		return true;
+	}
+
+	/**
+	 * Adds the loaded map data to the cache.
+	 */
+	private static void cacheMapdata() {
+		if (modCache == null)
+			return;
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		putCacheString(baos, encoding);
+		putCacheInt(baos, mapdata.size());
+		for (Mapdata md : mapdata) {
+			putCacheString(baos, md.getTileset());
+			putCacheString(baos, md.getFileName());
+			putCacheInt(baos, md.getScrollType());
+			putCacheString(baos, md.getBgName());
+			putCacheString(baos, md.getNpcSheet1());
+			putCacheString(baos, md.getNpcSheet2());
+			baos.write(md.getBossNum());
+			putCacheString(baos, md.getMapName());
+			byte[] jpName = md.getJpName();
+			baos.write(jpName, 0, jpName.length);
 		}
-		if (loadNpc)
-			for (int i = 0; i < mdSize; i++) {
-				mapInfo.get(i).loadEntities();
-				notifyListeners(false, EVENT_MAP_INFO, LOADNAME_MAP_INFO_PXE, i, mdSize - 1);
+		modCache.put(ModCache.KIND_MAPDATA, base, baos.toByteArray());
+	}
+
+	private static String getCacheString(ByteBuffer buf) {
+		byte[] b = new byte[buf.getShort() & 0xFFFF];
+		buf.get(b);
+		return new String(b, StandardCharsets.UTF_8).intern();
+	}
+
+	private static void putCacheString(ByteArrayOutputStream out, String s) {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.write(b.length);
+		out.write(b.length >> 8);
+		out.write(b, 0, b.length);
+	}
+
+	private static void putCacheInt(ByteArrayOutputStream out, int v) {
+		for (int i = 0; i < 4; i++)
+			out.write(v >> (i * 8));
+	}
+
+	/**
+	 * Watches the data directory for changed files.
+	 */
+	private static ModWatcher watcher;
+	/**
+	 * If <code>true</code>, changed files are reloaded automatically.
+	 */
+	private static boolean watchFiles = true;
+
+	/**
+	 * Checks if changed files are reloaded automatically.
+	 *
+	 * @return <code>true</code> if changed files are reloaded, <code>false</code>
+	 *         otherwise
+	 */
+	public static boolean doWatchFiles() {
+		return watchFiles;
+	}
+
+	/**
+	 * Sets if changed files should be reloaded automatically.
+	 *
+	 * @param watchFiles
+	 *            <code>true</code> to reload changed files, <code>false</code>
+	 *            otherwise
+	 */
+	public static void setWatchFiles(boolean watchFiles) {
+		ExeData.watchFiles = watchFiles;
+		if (loaded)
+			startWatcher();
+	}
+
+	/**
+	 * Starts watching the data directory for changed files, if
+	 * {@linkplain #watchFiles enabled}.
+	 */
+	private static void startWatcher() {
+		if (watcher != null)
+			watcher.close();
+		watcher = null;
+		if (!watchFiles || dataDir == null)
+			return;
+		try {
+			watcher = new ModWatcher(dataDir, ExeData::reloadAsset);
+		} catch (IOException e) {
+			BackendLogger.warn("Failed to watch data directory for changes: " + dataDir, e);
+		}
+	}
+
+	/**
+	 * Reloads a changed file, if it's been loaded. Only the assets that were
+	 * loaded from the file are reloaded. Deleted files are forgotten by
+	 * {@link ResUtils#newFile(String)} and the image cache, and aren't reloaded
+	 * until they're recreated.<br />
+	 * Fires {@link #EVENT_ASSET_RELOAD} for every reloaded asset, with the file's
+	 * path as the resource name and the ID of the affected map as the resource ID
+	 * (-1 for images and PXA files, which can be shared by any number of maps).
+	 *
+	 * @param file
+	 *            changed file
+	 */
+	public static void reloadAsset(File file) {
+		ResUtils.invalidate(file);
+		if (!loaded)
+			return;
+		file = ResUtils.newFile(file.getAbsolutePath());
+		final int tscModCount = tscIndex.getModCount();
+		if (loadTSC) {
+			if (file.equals(getGlobalScript(STRING_HEAD)))
+				indexGlobalScript(TSCIndex.MAP_HEAD, STRING_HEAD);
+			else if (file.equals(getGlobalScript(STRING_ARMSITEM)))
+				indexGlobalScript(TSCIndex.MAP_ARMS_ITEM, STRING_ARMSITEM);
+		}
+		if (!file.isFile()) {
+			if (tscIndex.getModCount() != tscModCount)
+				notifyListeners(false, EVENT_TSC_INDEX, null, -1, -1);
+			if (!imageCache.isKnown(file))
+				return;
+			// deleted files would otherwise stay in the image cache until the mod is
+			// unloaded. general images are only looked up once, so keep those around
+			if (imageCache.isPinned(file))
+				imageCache.invalidate(file);
+			else
+				imageCache.remove(file);
+			notifyListeners(false, EVENT_ASSET_RELOAD, file.getAbsolutePath(), -1, -1);
+			return;
+		}
+		String path = file.getAbsolutePath();
+		if (imageCache.isKnown(file)) {
+			reloadImage(file);
+			notifyListeners(false, EVENT_ASSET_RELOAD, path, -1, -1);
+		}
+		if (pxaMap.containsKey(file)) {
+			pxaMap.put(file, loadPxa(file));
+			notifyListeners(false, EVENT_ASSET_RELOAD, path, -1, -1);
+		}
+		for (int i = 0; i < mapInfo.size(); i++)
+			if (mapInfo.get(i).reloadFile(file))
+				notifyListeners(false, EVENT_ASSET_RELOAD, path, i, -1);
+		if (tscIndex.getModCount() != tscModCount)
+			notifyListeners(false, EVENT_TSC_INDEX, null, -1, -1);
+	}
+
+	/**
+	 * Index of all loaded scripts.
+	 */
+	private static final TSCIndex tscIndex = new TSCIndex();
+	/**
+	 * Incremented whenever the executable is loaded or unloaded, so a running
+	 * {@linkplain #indexScripts() indexing thread} knows to stop.
+	 */
+	private static final AtomicInteger tscIndexGeneration = new AtomicInteger();
+
+	/**
+	 * Gets the index of all loaded scripts. Scripts are added to it as they are
+	 * loaded, so it's only complete once {@link #EVENT_TSC_INDEX} has been
+	 * fired. The event is fired again whenever a reloaded script changes the
+	 * index.<br />
+	 * Besides every map's script, "Head.tsc" and "ArmsItem.tsc" are indexed
+	 * under {@link TSCIndex#MAP_HEAD} and {@link TSCIndex#MAP_ARMS_ITEM}.
+	 *
+	 * @return script index
+	 */
+	public static TSCIndex getTSCIndex() {
+		return tscIndex;
+	}
+
+	/**
+	 * If {@linkplain #loadTSC TSC loading} is enabled, indexes "Head.tsc" and
+	 * "ArmsItem.tsc" and makes sure every map's script is loaded (and therefore
+	 * indexed) on a background thread, then fires {@link #EVENT_TSC_INDEX}.
+	 */
+	private static void indexScripts() {
+		if (!loadTSC)
+			return;
+		final int generation = tscIndexGeneration.get();
+		final List<MapInfo> maps = new ArrayList<>(mapInfo);
+		Thread t = new Thread(() -> {
+			if (tscIndexGeneration.get() != generation)
+				return;
+			indexGlobalScript(TSCIndex.MAP_HEAD, STRING_HEAD);
+			indexGlobalScript(TSCIndex.MAP_ARMS_ITEM, STRING_ARMSITEM);
+			for (MapInfo inf : maps) {
+				if (tscIndexGeneration.get() != generation)
+					return;
+				inf.getTSC();
 			}
-		if (loadTSC)
-			for (int i = 0; i < mdSize; i++) {
-				mapInfo.get(i).loadTSC();
-				notifyListeners(false, EVENT_MAP_INFO, LOADNAME_MAP_INFO_TSC, i, mdSize - 1);
+			notifyListeners(false, EVENT_TSC_INDEX, null, -1, -1);
+		}, "TSCIndex");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Gets a script that isn't tied to a map.
+	 *
+	 * @param string
+	 *            {@linkplain #getExeString(int) executable string} of the script's
+	 *            name
+	 * @return script file
+	 */
+	private static File getGlobalScript(int string) {
+		return ResUtils.newFile(new File(dataDir, getExeString(string)).getAbsolutePath());
+	}
+
+	/**
+	 * Loads a script that isn't tied to a map and adds it to the index. If it
+	 * can't be loaded, it's removed from the index instead.
+	 *
+	 * @param map
+	 *            ID to index the script under
+	 * @param string
+	 *            {@linkplain #getExeString(int) executable string} of the script's
+	 *            name
+	 */
+	private static void indexGlobalScript(int map, int string) {
+		File file = getGlobalScript(string);
+		TSCFile tsc = null;
+		if (file.isFile())
+			try {
+				tsc = new TSCFile(file);
+			} catch (IOException e) {
+				BackendLogger.error("Failed to load TSC:\n" + file, e);
 			}
+		tscIndex.update(map, tsc);
+	}
+
+	/**
+	 * Creates daemon threads for {@link #loadMapInfo()}.
+	 *
+	 * @author Leo
+	 *
+	 */
+	private static class MapInfoThreadFactory implements ThreadFactory {
+		/**
+		 * Number of the next thread.
+		 */
+		private final AtomicInteger threadNum = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "MapInfoLoad-" + threadNum.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		}
 	}
 
 	/**
@@ -1424,22 +1780,8 @@ public class ExeData {
 	private static BufferedImage loadImage(File srcFile, boolean trans) throws Exception {
 		if (srcFile == null)
 			return null;
-		try (FileInputStream is = new FileInputStream(srcFile)) {
-			BufferedImage img = ImageIO.read(is);
-			if (trans)
-				img = ResUtils.black2Trans(img);
-			if (graphicsResolution == 2)
-				return img;
-			double scale = 2 / (double) graphicsResolution;
-			if (scale == 1)
-				return img;
-			int w = img.getWidth(), h = img.getHeight();
-			BufferedImage after = new BufferedImage((int) (w * scale), (int) (h * scale), BufferedImage.TYPE_INT_ARGB);
-			AffineTransform at = new AffineTransform();
-			at.scale(scale, scale);
-			AffineTransformOp scaleOp = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-			after = scaleOp.filter(img, after);
-			return after;
+		try {
+			return ImagePrep.load(srcFile, trans, 2 / (double) graphicsResolution);
 		} catch (Exception e) {
 			BackendLogger.error("Failed to load image " + srcFile, e);
 			throw e;
@@ -1468,6 +1810,9 @@ public class ExeData {
 	 */
 	private static File loadGraphic(String name) {
 		File ret = correctFile(ResUtils.getGraphicsFile(dataDir.toString(), name));
+		// general images are used by every map, so never evict them
+		if (ret != null)
+			imageCache.pin(ResUtils.newFile(ret.getAbsolutePath()));
 		addImage(ret);
 		return ret;
 	}
@@ -1530,16 +1875,17 @@ public class ExeData {
 	 */
 	private static void loadRsrc() throws IOException {
 		String pixelName = getExeString(STRING_PIXEL);
-		byte[] bmp = rsrcData.getBitmapData(pixelName, 1041);
+		ByteBuffer bmp = rsrcData.getBitmapBuffer(pixelName, 1041);
 		if (bmp == null)
 			throw new IOException("Embedded bitmap \"" + pixelName + "\" was not found!");
+		byte[] bmpData;
 		try {
-			bmp = transformBitmap(bmp);
+			bmpData = transformBitmap(bmp);
 		} catch (IOException e) {
 			throw new IOException("transformBitmap threw exception: " + e.getMessage(), e);
 		}
-		BufferedImage bi = ImageIO.read(new ByteArrayInputStream(bmp));
-		imageMap.put((pixel = new File(pixelName)), bi);
+		BufferedImage bi = ImageIO.read(new ByteArrayInputStream(bmpData));
+		imageCache.put((pixel = new File(pixelName)), bi);
 		notifyListeners(false, EVENT_GRAPHICS_RSRC, null, -1, -1);
 	}
 
@@ -1548,16 +1894,16 @@ public class ExeData {
 	 * {@link ImageIO#read(java.io.InputStream)}.
 	 * 
 	 * @param bytes
-	 *            .rsrc bitmap data
+	 *            .rsrc bitmap data (a view into the .rsrc section)
 	 * @return readable bitmap data (to wrap in a {@link ByteArrayInputStream})
 	 * @throws IOException
 	 *             if the bitmap data cannot be converted.
 	 * @author 20kdc
 	 */
-	private static byte[] transformBitmap(byte[] bytes) throws IOException {
-		byte[] bt = new byte[bytes.length + 14];
+	private static byte[] transformBitmap(ByteBuffer bytes) throws IOException {
+		byte[] bt = new byte[bytes.remaining() + 14];
 		// Input buffer, used to get some details
-		ByteBuffer bb1 = ByteBuffer.wrap(bytes);
+		ByteBuffer bb1 = bytes.duplicate();
 		bb1.order(ByteOrder.LITTLE_ENDIAN);
 		int hdrSize = bb1.getInt(0);
 		if (hdrSize < 40)
@@ -1638,13 +1984,7 @@ public class ExeData {
 			return;
 		srcFile = ResUtils.newFile(srcFile.getAbsolutePath());
 		notifyListeners(true, SUBEVENT_IMAGE, srcFile.getAbsolutePath(), -1, -1);
-		try {
-			if (imageMap.containsKey(srcFile))
-				return;
-			imageMap.put(srcFile, loadImage(srcFile));
-		} catch (Exception e) {
-			BackendLogger.error("Failed to add image " + srcFile, e);
-		}
+		imageCache.add(srcFile);
 		notifyListeners(true, SUBEVENT_END, srcFile.getAbsolutePath(), -1, -1);
 	}
 
@@ -1668,10 +2008,7 @@ public class ExeData {
 		if (srcFile == null)
 			return;
 		srcFile = ResUtils.newFile(srcFile.getAbsolutePath());
-		if (imageMap.containsKey(srcFile)) {
-			imageMap.get(srcFile).flush();
-			imageMap.remove(srcFile);
-		}
+		imageCache.invalidate(srcFile);
 		addImage(srcFile);
 	}
 
@@ -1685,8 +2022,9 @@ public class ExeData {
 	public static java.awt.Graphics getImageGraphics(File key) {
 		if (key == null)
 			return null;
-		if (imageMap.containsKey(key))
-			return imageMap.get(key).getGraphics();
+		BufferedImage img = imageCache.get(key);
+		if (img != null)
+			return img.getGraphics();
 		BackendLogger.error("Key not found for getImageGraphics: " + key);
 		return null;
 	}
@@ -1714,8 +2052,9 @@ public class ExeData {
 			return null;
 		if (key.exists())
 			key = ResUtils.newFile(key.getAbsolutePath());
-		if (imageMap.containsKey(key))
-			return imageMap.get(key);
+		BufferedImage img = imageCache.get(key);
+		if (img != null)
+			return img;
 		BackendLogger.error("Key not found for getImage: " + key);
 		return null;
 	}
@@ -1742,8 +2081,9 @@ public class ExeData {
 		if (key == null)
 			return -1;
 		key = ResUtils.newFile(key.getAbsolutePath());
-		if (imageMap.containsKey(key))
-			return imageMap.get(key).getHeight();
+		BufferedImage img = imageCache.get(key);
+		if (img != null)
+			return img.getHeight();
 		BackendLogger.error("Key not found for getImageHeight: " + key);
 		return -1;
 	}
@@ -1770,8 +2110,9 @@ public class ExeData {
 		if (key == null)
 			return -1;
 		key = ResUtils.newFile(key.getAbsolutePath());
-		if (imageMap.containsKey(key))
-			return imageMap.get(key).getWidth();
+		BufferedImage img = imageCache.get(key);
+		if (img != null)
+			return img.getWidth();
 		BackendLogger.error("Key not found for getImageWidth: " + key);
 		return -1;
 	}
@@ -1796,38 +2137,43 @@ public class ExeData {
 	 */
 	public static byte[] addPxa(File srcFile) {
 		srcFile = ResUtils.newFile(srcFile.getAbsolutePath());
-		FileInputStream inStream = null;
-		if (pxaMap.containsKey(srcFile))
-			return pxaMap.get(srcFile);
-		byte[] pxaArray = null;
-		boolean succ = false;
+		byte[] pxaArray = pxaMap.get(srcFile);
+		if (pxaArray != null)
+			return pxaArray;
 		notifyListeners(true, SUBEVENT_PXA, srcFile.getAbsolutePath(), -1, -1);
-		try {
-			inStream = new FileInputStream(srcFile);
+		// computeIfAbsent makes sure maps sharing a tileset only load it once
+		pxaArray = pxaMap.computeIfAbsent(srcFile, ExeData::loadPxa);
+		notifyListeners(true, SUBEVENT_END, srcFile.getAbsolutePath(), -1, -1);
+		return pxaArray;
+	}
+
+	/**
+	 * Reads a PXA file.
+	 *
+	 * @param srcFile
+	 *            source file
+	 * @return PXA data, or an empty array if the file could not be read
+	 */
+	private static byte[] loadPxa(File srcFile) {
+		ModCache cache = modCache;
+		ByteBuffer cached = cache == null ? null : cache.get(ModCache.KIND_PXA, srcFile);
+		if (cached != null) {
+			byte[] pxa = new byte[256];
+			cached.get(pxa, 0, Math.min(pxa.length, cached.remaining()));
+			return pxa;
+		}
+		try (FileInputStream inStream = new FileInputStream(srcFile)) {
 			FileChannel inChan = inStream.getChannel();
 			ByteBuffer pxaBuf = ByteBuffer.allocate(256);// this is the max size. Indeed, the only size..
 			inChan.read(pxaBuf);
-			inStream.close();
 			pxaBuf.flip();
-			pxaArray = pxaBuf.array();
-			pxaMap.put(srcFile, pxaArray);
-			succ = true;
+			if (cache != null)
+				cache.put(ModCache.KIND_PXA, srcFile, pxaBuf.array());
+			return pxaBuf.array();
 		} catch (Exception e) {
 			BackendLogger.error("Failed to load PXA:\n" + srcFile, e);
-		} finally {
-			if (inStream != null)
-				try {
-					inStream.close();
-				} catch (IOException e) {
-					BackendLogger.warn("failed to close PXA input stream");
-				}
-			if (!succ && srcFile != null) {
-				byte[] dummyArray = new byte[256];
-				pxaMap.put(srcFile, dummyArray);
-			}
+			return new byte[256];
 		}
-		notifyListeners(true, SUBEVENT_END, srcFile.getAbsolutePath(), -1, -1);
-		return pxaArray;
 	}
 
 	/**
@@ -1841,6 +2187,37 @@ public class ExeData {
 		return addPxa(new File(srcFile));
 	}
 
+	/**
+	 * Gets the image repository.
+	 *
+	 * @return image cache, or <code>null</code> if no executable is loaded
+	 */
+	public static ImageCache getImageCache() {
+		return imageCache;
+	}
+
+	/**
+	 * Gets the memory budget for the image repository.
+	 *
+	 * @return budget, in bytes
+	 */
+	public static long getImageCacheBudget() {
+		return imageCacheBudget;
+	}
+
+	/**
+	 * Sets the memory budget for the image repository. Least recently used images
+	 * will be evicted (and reloaded when needed) to stay within it.
+	 *
+	 * @param imageCacheBudget
+	 *            new budget, in bytes
+	 */
+	public static void setImageCacheBudget(long imageCacheBudget) {
+		ExeData.imageCacheBudget = imageCacheBudget;
+		if (imageCache != null)
+			imageCache.setBudget(imageCacheBudget);
+	}
+
 	/**
 	 * Gets PXA data from the repository.
 	 *
@@ -1954,7 +2331,16 @@ public class ExeData {
 	 * @return npc.tbl entry
 	 */
 	public static EntityData getEntityInfo(short entityType) {
-		return entityList.get(entityType);
+		return entityList[entityType];
+	}
+
+	/**
+	 * Gets the table of all npc.tbl entries.
+	 *
+	 * @return npc.tbl entries
+	 */
+	public static EntityTable getEntityTable() {
+		return entityTable;
 	}
 
 	/**
@@ -0,0 +1,426 @@
+package com.leo.cse.backend.exe;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.leo.cse.backend.BackendLogger;
+
+/**
+ * Stores images loaded from files. Once the images take up more memory than the
+ * {@linkplain #budget budget}, the least recently used ones are evicted, and
+ * will be reloaded when next requested.<br />
+ * {@linkplain #pin(File) Pinned} images are never evicted.
+ *
+ * @author Leo
+ *
+ */
+public class ImageCache {
+
+	/**
+	 * Default memory budget, in bytes.
+	 */
+	public static final long DEFAULT_BUDGET = 256L * 1024 * 1024;
+
+	/**
+	 * Loads an image from a file.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public interface ImageLoader {
+		/**
+		 * Loads an image.
+		 *
+		 * @param srcFile
+		 *            source file
+		 * @return loaded image
+		 * @throws Exception
+		 *             if an error occurs.
+		 */
+		public BufferedImage load(File srcFile) throws Exception;
+	}
+
+	/**
+	 * Used to (re)load images.
+	 */
+	private final ImageLoader loader;
+	/**
+	 * Maximum amount of memory unpinned images can take up, in bytes.
+	 */
+	private long budget;
+	/**
+	 * Loaded images, in least recently used order.
+	 */
+	private final LinkedHashMap<File, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+	/**
+	 * Files that have been added to the cache. These will be reloaded if evicted.
+	 */
+	private final Set<File> known = new HashSet<>();
+	/**
+	 * Files whose images should never be evicted.
+	 */
+	private final Set<File> pinned = new HashSet<>();
+	/**
+	 * Files that failed to load. These won't be reloaded until
+	 * {@linkplain #invalidate(File) invalidated}.
+	 */
+	private final Set<File> failed = new HashSet<>();
+	/**
+	 * Images that are currently being loaded. Threads requesting the same file
+	 * will wait for the first load to finish instead of loading it again.<br />
+	 * A load's result is only stored if it's still the pending load for its file
+	 * when it finishes - {@link #invalidate(File)}, {@link #remove(File)},
+	 * {@link #put(File, BufferedImage)} and {@link #clear()} drop pending loads,
+	 * since they might have read the file before it changed.
+	 */
+	private final Map<File, FutureTask<BufferedImage>> pending = new HashMap<>();
+	/**
+	 * Amount of memory used by loaded images, in bytes.
+	 */
+	private long size;
+	/**
+	 * Amount of requests that were answered by a loaded image.
+	 */
+	private long hits;
+	/**
+	 * Amount of requests that required an image to be loaded.
+	 */
+	private long misses;
+	/**
+	 * Amount of images that were evicted.
+	 */
+	private long evictions;
+
+	/**
+	 * Creates a new image cache.
+	 *
+	 * @param loader
+	 *            image loader
+	 * @param budget
+	 *            memory budget, in bytes
+	 */
+	public ImageCache(ImageLoader loader, long budget) {
+		this.loader = loader;
+		this.budget = budget;
+	}
+
+	/**
+	 * Creates a new image cache with the {@linkplain #DEFAULT_BUDGET default
+	 * budget}.
+	 *
+	 * @param loader
+	 *            image loader
+	 */
+	public ImageCache(ImageLoader loader) {
+		this(loader, DEFAULT_BUDGET);
+	}
+
+	/**
+	 * Calculates how much memory an image takes up.
+	 *
+	 * @param img
+	 *            image
+	 * @return size in bytes
+	 */
+	public static long sizeOf(BufferedImage img) {
+		DataBuffer db = img.getRaster().getDataBuffer();
+		return (long) db.getSize() * db.getNumBanks() * (DataBuffer.getDataTypeSize(db.getDataType()) / 8);
+	}
+
+	/**
+	 * Adds a file to the cache, loading its image if it isn't loaded already.
+	 *
+	 * @param srcFile
+	 *            image file
+	 * @return image, or <code>null</code> if it could not be loaded
+	 */
+	public BufferedImage add(File srcFile) {
+		synchronized (this) {
+			known.add(srcFile);
+		}
+		return get(srcFile);
+	}
+
+	/**
+	 * Adds an image that isn't backed by a loadable file. Since it can't be
+	 * reloaded, it is also {@linkplain #pin(File) pinned}.
+	 *
+	 * @param key
+	 *            image key
+	 * @param img
+	 *            image
+	 */
+	public synchronized void put(File key, BufferedImage img) {
+		known.add(key);
+		pinned.add(key);
+		failed.remove(key);
+		pending.remove(key);
+		store(key, img);
+	}
+
+	/**
+	 * Stores an image, replacing the one that was stored for the same file.
+	 *
+	 * @param key
+	 *            image file
+	 * @param img
+	 *            image
+	 */
+	private void store(File key, BufferedImage img) {
+		BufferedImage old = images.put(key, img);
+		if (old != null) {
+			size -= sizeOf(old);
+			if (old != img)
+				old.flush();
+		}
+		size += sizeOf(img);
+	}
+
+	/**
+	 * Gets an image, reloading it if it has been evicted.
+	 *
+	 * @param srcFile
+	 *            image file
+	 * @return image, or <code>null</code> if the file was never
+	 *         {@linkplain #add(File) added} or failed to load
+	 */
+	public BufferedImage get(File srcFile) {
+		FutureTask<BufferedImage> task;
+		boolean owner = false;
+		synchronized (this) {
+			BufferedImage img = images.get(srcFile);
+			if (img != null) {
+				hits++;
+				return img;
+			}
+			if (!known.contains(srcFile) || failed.contains(srcFile))
+				return null;
+			misses++;
+			task = pending.get(srcFile);
+			if (task == null) {
+				task = new FutureTask<>(() -> loader.load(srcFile));
+				pending.put(srcFile, task);
+				owner = true;
+			}
+		}
+		if (owner)
+			task.run();
+		BufferedImage img = null;
+		try {
+			img = task.get();
+		} catch (ExecutionException e) {
+			if (owner)
+				BackendLogger.error("Failed to add image " + srcFile, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (owner)
+			synchronized (this) {
+				// the file was invalidated (or forgotten) while it was loading
+				if (pending.get(srcFile) != task)
+					return img;
+				pending.remove(srcFile);
+				if (img == null)
+					failed.add(srcFile);
+				else {
+					store(srcFile, img);
+					evict(srcFile);
+				}
+			}
+		return img;
+	}
+
+	/**
+	 * Checks if an image is currently loaded.
+	 *
+	 * @param srcFile
+	 *            image file
+	 * @return <code>true</code> if loaded, <code>false</code> otherwise
+	 */
+	public synchronized boolean isLoaded(File srcFile) {
+		return images.containsKey(srcFile);
+	}
+
+	/**
+	 * Checks if a file has been {@linkplain #add(File) added} to the cache, even if
+	 * its image isn't currently loaded.
+	 *
+	 * @param srcFile
+	 *            image file
+	 * @return <code>true</code> if added, <code>false</code> otherwise
+	 */
+	public synchronized boolean isKnown(File srcFile) {
+		return known.contains(srcFile);
+	}
+
+	/**
+	 * Unloads an image and forgets any previous load failure, so it will be loaded
+	 * from its file again when next requested.
+	 *
+	 * @param srcFile
+	 *            image file
+	 */
+	public synchronized void invalidate(File srcFile) {
+		failed.remove(srcFile);
+		pending.remove(srcFile);
+		unload(srcFile);
+	}
+
+	/**
+	 * Unloads an image and forgets its file, so it won't be loaded again until it
+	 * is {@linkplain #add(File) added} again.
+	 *
+	 * @param srcFile
+	 *            image file
+	 */
+	public synchronized void remove(File srcFile) {
+		known.remove(srcFile);
+		pinned.remove(srcFile);
+		failed.remove(srcFile);
+		pending.remove(srcFile);
+		unload(srcFile);
+	}
+
+	private void unload(File srcFile) {
+		BufferedImage img = images.remove(srcFile);
+		if (img != null) {
+			size -= sizeOf(img);
+			img.flush();
+		}
+	}
+
+	/**
+	 * Checks if an image is {@linkplain #pin(File) pinned}.
+	 *
+	 * @param srcFile
+	 *            image file
+	 * @return <code>true</code> if pinned, <code>false</code> otherwise
+	 */
+	public synchronized boolean isPinned(File srcFile) {
+		return pinned.contains(srcFile);
+	}
+
+	/**
+	 * Pins an image, so it will never be evicted.
+	 *
+	 * @param srcFile
+	 *            image file
+	 */
+	public synchronized void pin(File srcFile) {
+		pinned.add(srcFile);
+	}
+
+	/**
+	 * Unpins an image, so it can be evicted again.
+	 *
+	 * @param srcFile
+	 *            image file
+	 */
+	public synchronized void unpin(File srcFile) {
+		pinned.remove(srcFile);
+		evict(null);
+	}
+
+	/**
+	 * Evicts least recently used unpinned images until the cache is within its
+	 * budget.
+	 *
+	 * @param keep
+	 *            image to never evict, since it was just loaded. May be
+	 *            <code>null</code>.
+	 */
+	private void evict(File keep) {
+		Iterator<Map.Entry<File, BufferedImage>> it = images.entrySet().iterator();
+		while (size > budget && it.hasNext()) {
+			Map.Entry<File, BufferedImage> entry = it.next();
+			File key = entry.getKey();
+			if (pinned.contains(key) || key.equals(keep))
+				continue;
+			it.remove();
+			BufferedImage img = entry.getValue();
+			size -= sizeOf(img);
+			img.flush();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Unloads all images and forgets all files.
+	 */
+	public synchronized void clear() {
+		for (BufferedImage img : images.values())
+			img.flush();
+		images.clear();
+		known.clear();
+		pinned.clear();
+		failed.clear();
+		pending.clear();
+		size = 0;
+	}
+
+	/**
+	 * Gets the memory budget.
+	 *
+	 * @return budget, in bytes
+	 */
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the memory budget, evicting images if needed.
+	 *
+	 * @param budget
+	 *            new budget, in bytes
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		evict(null);
+	}
+
+	/**
+	 * Gets the amount of memory used by loaded images.
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the amount of requests that were answered by a loaded image.
+	 *
+	 * @return amount of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the amount of requests that required an image to be loaded.
+	 *
+	 * @return amount of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the amount of images that were evicted.
+	 *
+	 * @return amount of evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+}
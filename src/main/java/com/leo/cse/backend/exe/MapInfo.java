@@ -7,8 +7,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 
 import com.leo.cse.backend.BackendLogger;
 import com.leo.cse.backend.ResUtils;
@@ -28,24 +28,14 @@ public class MapInfo {
 	 * Abstract map data.
 	 */
 	private Mapdata d;
-	/**
-	 * Width of the map, in tiles.
-	 */
-	private int mapX;
-	/**
-	 * Height of the map, in tiles.
-	 */
-	private int mapY;
 	/**
 	 * The map's ID.
 	 */
 	private int mapNumber;
 	/**
-	 * The map tiles. <br \> The first index is the layer: 0 for background, 1 for
-	 * foreground. <br \> The second and third indexes are X and Y positions,
-	 * respectively.
+	 * The map tiles.
 	 */
-	protected int[][][] map;
+	private volatile MapTiles tiles;
 	/**
 	 * The map's tileset file.
 	 *
@@ -89,25 +79,83 @@ public class MapInfo {
 	 */
 	private File pxaFile;
 	/**
-	 * List of the map's entities.
+	 * The map's entities.
 	 *
-	 * @see PxeEntry
+	 * @see PxeStore
 	 */
-	private LinkedList<PxeEntry> pxeList;
+	private PxeStore pxeStore;
 	/**
 	 * Map's TSC script.
 	 * 
 	 * @see TSCFile
 	 */
 	private TSCFile tscFile;
+	/**
+	 * <code>true</code> if this map's images have been loaded.
+	 */
+	private boolean imagesLoaded;
+	/**
+	 * <code>true</code> if this map's PXA file has been loaded.
+	 */
+	private boolean pxaLoaded;
+	/**
+	 * <code>true</code> if this map's layout file has been loaded.
+	 */
+	private boolean mapLoaded;
+	/**
+	 * <code>true</code> if this map's entities have been loaded.
+	 */
+	private boolean entitiesLoaded;
+	/**
+	 * <code>true</code> if this map's TSC file has been loaded.
+	 */
+	private boolean tscLoaded;
+	/**
+	 * <code>true</code> if this map's resources are loaded on demand. Fixed when
+	 * the map is created, so changing the setting only affects the next load.
+	 *
+	 * @see ExeData#doLazyLoad()
+	 */
+	private final boolean lazyLoad;
+	/**
+	 * <code>true</code> if this map's NPC sheets and entities are loaded.
+	 *
+	 * @see ExeData#doLoadNpc()
+	 */
+	private final boolean loadNpc;
+	/**
+	 * <code>true</code> if this map's TSC file is loaded.
+	 *
+	 * @see ExeData#doLoadTSC()
+	 */
+	private final boolean loadTSC;
 
 	/**
-	 * Loads a map and it's resources.
+	 * Loads a map and it's resources, using the current loading settings.
 	 *
 	 * @param d
 	 *            source map data
 	 */
 	public MapInfo(Mapdata d) {
+		this(d, ExeData.doLazyLoad(), ExeData.doLoadNpc(), ExeData.doLoadTSC());
+	}
+
+	/**
+	 * Loads a map and it's resources.
+	 *
+	 * @param d
+	 *            source map data
+	 * @param lazyLoad
+	 *            <code>true</code> if resources are loaded on demand
+	 * @param loadNpc
+	 *            <code>true</code> if entities are loaded
+	 * @param loadTSC
+	 *            <code>true</code> if the TSC file is loaded
+	 */
+	public MapInfo(Mapdata d, boolean lazyLoad, boolean loadNpc, boolean loadTSC) {
+		this.lazyLoad = lazyLoad;
+		this.loadNpc = loadNpc;
+		this.loadTSC = loadTSC;
 		this.d = d;
 		fileName = d.getFileName();
 		scrollType = d.getScrollType();
@@ -122,8 +170,9 @@ public class MapInfo {
 	/**
 	 * Loads the PXA file for this map.
 	 */
-	public void loadPXA() {
+	public synchronized void loadPXA() {
 		ExeData.addPxa(pxaFile);
+		pxaLoaded = true;
 	}
 
 	/**
@@ -143,7 +192,7 @@ public class MapInfo {
 		tileset = ExeData
 				.correctFile(ResUtils.getGraphicsFile(directory.toString(), String.format(prt, stage, d.getTileset())));
 		bgImage = ExeData.correctFile(ResUtils.getGraphicsFile(directory.toString(), d.getBgName()));
-		if (!ExeData.doLoadNpc())
+		if (!loadNpc)
 			return;
 		npcSheet1 = ExeData.correctFile(
 				ResUtils.getGraphicsFile(directory.toString(), String.format(npcP, npc, d.getNpcSheet1())));
@@ -154,10 +203,11 @@ public class MapInfo {
 	/**
 	 * Loads image resources for this map.
 	 */
-	public void loadImages() {
+	public synchronized void loadImages() {
+		imagesLoaded = true;
 		ExeData.addImage(tileset);
 		ExeData.addImage(bgImage);
-		if (!ExeData.doLoadNpc())
+		if (!loadNpc)
 			return;
 		ExeData.addImage(npcSheet1);
 		ExeData.addImage(npcSheet2);
@@ -166,8 +216,10 @@ public class MapInfo {
 	/**
 	 * Loads this map's layout file.
 	 */
-	public void loadMap() {
+	public synchronized void loadMap() {
+		mapLoaded = true;
 		// load the map data
+		int mapX, mapY;
 		ByteBuffer mapBuf;
 		File directory = ExeData.getDataDir();
 		String currentFileName = String.format(ExeData.getExeString(ExeData.STRING_PXM_EXT),
@@ -178,6 +230,15 @@ public class MapInfo {
 			if (!currentFile.exists())
 				throw new IOException("File \"" + currentFile + "\" does not exist!");
 
+			ModCache cache = ExeData.getModCache();
+			ByteBuffer cached = cache == null ? null : cache.get(ModCache.KIND_PXM, currentFile);
+			if (cached != null) {
+				mapX = cached.getShort();
+				mapY = cached.getShort();
+				splitLayers(mapX, mapY, cached);
+				return;
+			}
+
 			FileInputStream inStream = new FileInputStream(currentFile);
 			FileChannel inChan = inStream.getChannel();
 			ByteBuffer hBuf = ByteBuffer.allocate(8);
@@ -201,21 +262,38 @@ public class MapInfo {
 			inChan.close();
 			inStream.close();
 			mapBuf.flip();
+			if (cache != null && mapBuf.remaining() == mapY * mapX) {
+				ByteBuffer entry = ByteBuffer.allocate(4 + mapY * mapX);
+				entry.order(ByteOrder.LITTLE_ENDIAN);
+				entry.putShort((short) mapX);
+				entry.putShort((short) mapY);
+				entry.put(mapBuf.array());
+				cache.put(ModCache.KIND_PXM, currentFile, entry.array());
+			}
 		} catch (IOException e) {
 			BackendLogger.error("Failed to load PXM:\n" + currentFileName, e);
 			mapX = 21;
 			mapY = 16;
 			mapBuf = ByteBuffer.allocate(mapY * mapX);
 		}
-		map = new int[2][mapY][mapX];
-		for (int y = 0; y < mapY; y++)
-			for (int x = 0; x < mapX; x++) {
-				int tile = 0xFF & mapBuf.get();
-				if (calcPxa(tile) > 0x20)
-					map[1][y][x] = tile;
-				else
-					map[0][y][x] = tile;
-			}
+		splitLayers(mapX, mapY, mapBuf);
+	}
+
+	/**
+	 * Stores the map's tiles, along with their types from the PXA file.
+	 *
+	 * @param mapX
+	 *            width of the map
+	 * @param mapY
+	 *            height of the map
+	 * @param mapBuf
+	 *            tiles, row by row. Missing tiles are left as 0.
+	 */
+	private void splitLayers(int mapX, int mapY, ByteBuffer mapBuf) {
+		byte[] data = new byte[mapX * mapY];
+		mapBuf.get(data, 0, Math.min(data.length, mapBuf.remaining()));
+		ensurePXA();
+		tiles = new MapTiles(mapX, mapY, data, ExeData.getPxa(pxaFile));
 	}
 
 	/**
@@ -226,6 +304,7 @@ public class MapInfo {
 	 * @return tile type
 	 */
 	public int calcPxa(int tileNum) {
+		ensurePXA();
 		byte[] pxaData = ExeData.getPxa(pxaFile);
 		int rval = 0;
 		try {
@@ -239,8 +318,8 @@ public class MapInfo {
 	/**
 	 * Loads this map's entities.
 	 */
-	public void loadEntities() {
-		pxeList = new LinkedList<>();
+	public synchronized void loadEntities() {
+		entitiesLoaded = true;
 		File directory = ExeData.getDataDir();
 		String currentFileName = String.format(ExeData.getExeString(ExeData.STRING_PXE_EXT),
 				directory + "/" + ExeData.getExeString(ExeData.STRING_STAGE_FOLDER), d.getFileName());
@@ -249,6 +328,13 @@ public class MapInfo {
 			if (!currentFile.exists())
 				throw new IOException("File \"" + currentFile + "\" does not exist!");
 
+			ModCache cache = ExeData.getModCache();
+			ByteBuffer cached = cache == null ? null : cache.get(ModCache.KIND_PXE, currentFile);
+			if (cached != null) {
+				readEntities(cached, cached.getShort());
+				return;
+			}
+
 			FileInputStream inStream = new FileInputStream(currentFile);
 			FileChannel inChan = inStream.getChannel();
 			ByteBuffer hBuf = ByteBuffer.allocate(6);
@@ -264,28 +350,45 @@ public class MapInfo {
 			inChan.read(eBuf);
 			eBuf.flip();
 			eBuf.getShort(); // discard this value
-			for (int i = 0; i < nEnt; i++) {
-				int pxeX = eBuf.getShort();
-				int pxeY = eBuf.getShort();
-				int pxeFlagID = eBuf.getShort();
-				int pxeEvent = eBuf.getShort();
-				int pxeType = eBuf.getShort();
-				int pxeFlags = eBuf.getShort() & 0xFFFF;
-				PxeEntry p = new PxeEntry(pxeX, pxeY, pxeFlagID, pxeEvent, pxeType, pxeFlags);
-				pxeList.add(p);
-			}
+			readEntities(eBuf, nEnt);
 			inChan.close();
 			inStream.close();
+			if (cache != null) {
+				// reuse the discarded value's slot for the entity count
+				eBuf.putShort(0, (short) nEnt);
+				cache.put(ModCache.KIND_PXE, currentFile, eBuf.array());
+			}
 		} catch (IOException e) {
 			BackendLogger.error("Failed to load PXE:\n" + currentFileName, e);
-			pxeList = null;
+			pxeStore = null;
 		}
 	}
 
+	/**
+	 * Reads entities into {@link #pxeStore}.
+	 *
+	 * @param eBuf
+	 *            buffer positioned at the first entity
+	 * @param nEnt
+	 *            number of entities
+	 */
+	private void readEntities(ByteBuffer eBuf, int nEnt) {
+		// the store's grid covers the map, so it needs the map's size
+		ensureMap();
+		MapTiles t = tiles;
+		PxeStore store = PxeStore.read(eBuf, nEnt, t == null ? 0 : t.getWidth(), t == null ? 0 : t.getHeight());
+		PxeEntry[] entries = new PxeEntry[nEnt];
+		for (int i = 0; i < nEnt; i++)
+			entries[i] = new PxeEntry(store, i);
+		store.entries = entries;
+		pxeStore = store;
+	}
+
 	/**
 	 * Loads this map's TSC file.
 	 */
-	public void loadTSC() {
+	public synchronized void loadTSC() {
+		tscLoaded = true;
 		File directory = ExeData.getDataDir();
 		String currentFileName = String.format(ExeData.getExeString(ExeData.STRING_TSC_EXT),
 				directory + "/" + ExeData.getExeString(ExeData.STRING_STAGE_FOLDER), fileName);
@@ -293,106 +396,186 @@ public class MapInfo {
 			tscFile = new TSCFile(currentFileName);
 		} catch (IOException e) {
 			BackendLogger.error("Failed to load TSC:\n" + currentFileName, e);
+			tscFile = null;
+		}
+		ExeData.getTSCIndex().update(d.getMapNum(), tscFile);
+	}
+
+	/**
+	 * Reloads whatever was loaded from a changed file. Images and PXA files are
+	 * reloaded by {@link ExeData#reloadAsset(File)}, since they can be shared by
+	 * other maps - this method only re-sorts this map's tiles if its PXA file
+	 * changed.
+	 *
+	 * @param file
+	 *            changed file
+	 * @return <code>true</code> if this map uses the file, <code>false</code>
+	 *         otherwise
+	 */
+	public synchronized boolean reloadFile(File file) {
+		file = ResUtils.newFile(file.getAbsolutePath());
+		if (isFile(file, tileset) || isFile(file, bgImage) || isFile(file, npcSheet1) || isFile(file, npcSheet2)) {
+			// the image cache forgets deleted files, so add it again if it was recreated
+			if (imagesLoaded && !ExeData.getImageCache().isKnown(file))
+				ExeData.addImage(file);
+			return true;
+		}
+		if (isFile(file, pxaFile) || isFile(file, getStageFile(ExeData.STRING_PXM_EXT))) {
+			if (mapLoaded)
+				loadMap();
+			return true;
+		}
+		if (isFile(file, getStageFile(ExeData.STRING_PXE_EXT))) {
+			if (entitiesLoaded)
+				loadEntities();
+			return true;
+		}
+		if (isFile(file, getStageFile(ExeData.STRING_TSC_EXT))) {
+			if (tscLoaded)
+				loadTSC();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets one of this map's files in the stage folder.
+	 *
+	 * @param extString
+	 *            {@linkplain ExeData#getExeString(int) executable string} of the
+	 *            file's extension
+	 * @return file
+	 */
+	private File getStageFile(int extString) {
+		return new File(String.format(ExeData.getExeString(extString),
+				ExeData.getDataDir() + "/" + ExeData.getExeString(ExeData.STRING_STAGE_FOLDER), fileName));
+	}
+
+	private static boolean isFile(File normalized, File other) {
+		return other != null && normalized.equals(ResUtils.newFile(other.getAbsolutePath()));
+	}
+
+	/**
+	 * Loads this map's images if {@linkplain #lazyLoad lazy loading} is enabled
+	 * and they haven't been loaded yet.
+	 */
+	private synchronized void ensureImages() {
+		if (!imagesLoaded && lazyLoad)
+			loadImages();
+	}
+
+	/**
+	 * Loads this map's PXA file if {@linkplain #lazyLoad lazy loading} is enabled
+	 * and it hasn't been loaded yet.
+	 */
+	private synchronized void ensurePXA() {
+		if (!pxaLoaded && lazyLoad)
+			loadPXA();
+	}
+
+	/**
+	 * Loads this map's layout file (and the PXA file it depends on) if
+	 * {@linkplain #lazyLoad lazy loading} is enabled and it hasn't been loaded
+	 * yet.
+	 */
+	private synchronized void ensureMap() {
+		if (!mapLoaded && lazyLoad) {
+			ensurePXA();
+			loadMap();
 		}
 	}
 
 	/**
-	 * Stores information about an entity.
+	 * Loads this map's entities if {@linkplain #lazyLoad lazy loading} is enabled,
+	 * NPC loading was enabled when the map was created and they haven't been
+	 * loaded yet.
+	 */
+	private synchronized void ensureEntities() {
+		if (!entitiesLoaded && lazyLoad && loadNpc)
+			loadEntities();
+	}
+
+	/**
+	 * Loads this map's TSC file if {@linkplain #lazyLoad lazy loading} is enabled,
+	 * TSC loading was enabled when the map was created and it hasn't been loaded
+	 * yet.
+	 */
+	private synchronized void ensureTSC() {
+		if (!tscLoaded && lazyLoad && loadTSC)
+			loadTSC();
+	}
+
+	/**
+	 * Stores information about an entity.<br />
+	 * This is a view of a single entity in a {@link PxeStore}.
 	 *
 	 * @author Leo
 	 *
 	 */
 	public class PxeEntry {
 		/**
-		 * The entity's X position, in tiles.
+		 * The store this entity is in.
 		 */
-		private short xTile;
+		private final PxeStore store;
+		/**
+		 * The entity's index in {@link #store}.
+		 */
+		private final int index;
 
+		/**
+		 * Gets the entity's X position.
+		 *
+		 * @return x position, in tiles
+		 */
 		public short getX() {
-			return xTile;
+			return store.x[index];
 		}
 
 		/**
-		 * The entity's Y position, in tiles.
+		 * Gets the entity's Y position.
+		 *
+		 * @return y position, in tiles
 		 */
-		private short yTile;
-
 		public short getY() {
-			return yTile;
+			return store.y[index];
 		}
 
-		/**
-		 * The entity's flag ID.
-		 */
-		private short flagID;
-
 		public short getFlagID() {
-			return flagID;
+			return store.flagID[index];
 		}
 
-		/**
-		 * The entity's event number.
-		 */
-		private short eventNum;
-
 		public short getEvent() {
-			return eventNum;
+			return store.event[index];
 		}
 
-		/**
-		 * The entity's type.
-		 */
-		private short entityType;
-
 		public short getType() {
-			return entityType;
+			return store.type[index];
 		}
 
-		/**
-		 * The entity's flags.
-		 */
-		private short flags;
-
 		public short getFlags() {
-			return flags;
+			return store.flags[index];
 		}
 
 		/**
-		 * The entity's npc.tbl entry.
+		 * Gets the entity's npc.tbl entry.
+		 *
+		 * @return npc.tbl entry
 		 */
-		private EntityData inf;
-
 		public EntityData getInfo() {
-			return inf;
+			return store.info[index];
 		}
 
 		/**
-		 * Creates a new entity.
+		 * Creates a view of an entity.
 		 *
-		 * @param pxeX
-		 *            x position
-		 * @param pxeY
-		 *            y position
-		 * @param pxeFlagID
-		 *            flag ID
-		 * @param pxeEvent
-		 *            event number
-		 * @param pxeType
-		 *            entity type
-		 * @param pxeFlags
-		 *            entity flags
+		 * @param store
+		 *            store the entity is in
+		 * @param index
+		 *            entity index
 		 */
-		PxeEntry(int pxeX, int pxeY, int pxeFlagID, int pxeEvent, int pxeType, int pxeFlags) {
-			xTile = (short) pxeX;
-			yTile = (short) pxeY;
-			flagID = (short) pxeFlagID;
-			eventNum = (short) pxeEvent;
-			entityType = (short) pxeType;
-			flags = (short) pxeFlags;
-
-			inf = ExeData.getEntityInfo(entityType);
-			if (inf == null)
-				throw new NullPointerException("Entity type " + entityType + " is undefined!");
+		PxeEntry(PxeStore store, int index) {
+			this.store = store;
+			this.index = index;
 		}
 
 		/**
@@ -401,29 +584,18 @@ public class MapInfo {
 		 * @return draw area
 		 */
 		public Rectangle getDrawArea() {
-			// Rectangle frameRect = inf.getFramerect();
-			Rectangle offset;
-			if (inf != null) {
-				offset = inf.getDisplay();
-			} else {
-				offset = new Rectangle(16, 16, 16, 16);
-			}
-			// int width = frameRect.width - frameRect.x, height = frameRect.height -
-			// frameRect.y;
-			int offL = offset.x;
-			int offU = offset.y;
-			int offR = offset.width;
-			int offD = offset.height;
-			int destW = offR + offL;
-			destW *= 2;
-			// destW = Math.max(destW, width);
-			int destH = offD + offU;
-			destH *= 2;
-			// destH = Math.max(destH, height);
-			int destX = xTile * 32 - offL * 2;
-			int destY = yTile * 32 - offU * 2;
-			Rectangle area = new Rectangle(destX, destY, destW, destH);
-			return area;
+			return getDrawArea(new Rectangle());
+		}
+
+		/**
+		 * Gets the entity's draw area without allocating.
+		 *
+		 * @param dest
+		 *            rectangle to store the draw area in
+		 * @return <code>dest</code>
+		 */
+		public Rectangle getDrawArea(Rectangle dest) {
+			return store.getDrawArea(index, dest);
 		}
 	}
 
@@ -433,7 +605,9 @@ public class MapInfo {
 	 * @return width
 	 */
 	public int getMapX() {
-		return mapX;
+		ensureMap();
+		MapTiles t = tiles;
+		return t == null ? 0 : t.getWidth();
 	}
 
 	/**
@@ -442,7 +616,9 @@ public class MapInfo {
 	 * @return height
 	 */
 	public int getMapY() {
-		return mapY;
+		ensureMap();
+		MapTiles t = tiles;
+		return t == null ? 0 : t.getHeight();
 	}
 
 	/**
@@ -455,13 +631,14 @@ public class MapInfo {
 	}
 
 	/**
-	 * Gets the map tiles. For indexes, see {@link #map}.
+	 * Gets the map tiles. The returned tiles never change - if the map is
+	 * reloaded, this method returns a new instance.
 	 *
 	 * @return map tiles
-	 * @see #map
 	 */
-	public int[][][] getMap() {
-		return map.clone();
+	public MapTiles getTiles() {
+		ensureMap();
+		return tiles;
 	}
 
 	/**
@@ -470,6 +647,7 @@ public class MapInfo {
 	 * @return tileset
 	 */
 	public File getTileset() {
+		ensureImages();
 		return tileset;
 	}
 
@@ -479,6 +657,7 @@ public class MapInfo {
 	 * @return background image
 	 */
 	public File getBgImage() {
+		ensureImages();
 		return bgImage;
 	}
 
@@ -506,6 +685,7 @@ public class MapInfo {
 	 * @return 1st NPC sheet
 	 */
 	public File getNpcSheet1() {
+		ensureImages();
 		return npcSheet1;
 	}
 
@@ -515,6 +695,7 @@ public class MapInfo {
 	 * @return 2nd NPC sheet
 	 */
 	public File getNpcSheet2() {
+		ensureImages();
 		return npcSheet2;
 	}
 
@@ -540,12 +721,24 @@ public class MapInfo {
 	 * Gets an iterator over the map's entities.
 	 *
 	 * @return iterator over elements of entity list
-	 * @see #pxeList
+	 * @see #getPxeStore()
 	 */
 	public Iterator<PxeEntry> getPxeIterator() {
-		if (pxeList == null)
+		ensureEntities();
+		PxeStore store = pxeStore;
+		if (store == null)
 			return null;
-		return pxeList.iterator();
+		return Arrays.asList(store.entries).iterator();
+	}
+
+	/**
+	 * Gets the map's entities.
+	 *
+	 * @return entities, or <code>null</code> if they couldn't be loaded
+	 */
+	public PxeStore getPxeStore() {
+		ensureEntities();
+		return pxeStore;
 	}
 
 	/**
@@ -555,6 +748,7 @@ public class MapInfo {
 	 * @see com.leo.cse.backend.tsc.TSCFile
 	 */
 	public TSCFile getTSC() {
+		ensureTSC();
 		return tscFile;
 	}
 
@@ -565,9 +759,12 @@ public class MapInfo {
 	 *         otherwise.
 	 */
 	public boolean hasMissingAssets() {
-		return map == null || ExeData.getImage(tileset) == null || ExeData.getImage(bgImage) == null || ExeData
-				.doLoadNpc()
-				&& (ExeData.getImage(npcSheet1) == null || ExeData.getImage(npcSheet2) == null || pxeList == null);
+		ensureImages();
+		ensureMap();
+		ensureEntities();
+		return tiles == null || ExeData.getImage(tileset) == null || ExeData.getImage(bgImage) == null
+				|| loadNpc && (ExeData.getImage(npcSheet1) == null || ExeData.getImage(npcSheet2) == null
+						|| pxeStore == null);
 	}
 
 	/**
@@ -587,12 +784,12 @@ public class MapInfo {
 				"NPC sheet 2",
 				"PXE file" };
 		final boolean[] assetStat = new boolean[] {
-				map == null,
+				tiles == null,
 				ExeData.getImage(tileset) == null,
 				ExeData.getImage(bgImage) == null,
-				ExeData.doLoadNpc() && ExeData.getImage(npcSheet1) == null,
-				ExeData.doLoadNpc() && ExeData.getImage(npcSheet2) == null,
-				ExeData.doLoadNpc() && pxeList == null };
+				loadNpc && ExeData.getImage(npcSheet1) == null,
+				loadNpc && ExeData.getImage(npcSheet2) == null,
+				loadNpc && pxeStore == null };
 		assert (assetName.length == assetStat.length);
 		String ret = "";
 		for (int i = 0; i < assetStat.length; i++)
@@ -0,0 +1,196 @@
+package com.leo.cse.backend.exe;
+
+import java.nio.ByteBuffer;
+
+import com.leo.cse.backend.BackendLogger;
+
+/**
+ * A map's tiles, along with each tile's type from the map's PXA file.<br />
+ * Tiles are stored row by row, one byte each, exactly like they are in the PXM
+ * file. Instances never change after they're created, so they can be shared
+ * freely - when a map is reloaded, it gets a new instance instead.
+ *
+ * @author Leo
+ * @see MapInfo#getTiles()
+ *
+ */
+public class MapTiles {
+
+	/**
+	 * Background layer.
+	 */
+	public static final int LAYER_BACK = 0;
+	/**
+	 * Foreground layer.
+	 */
+	public static final int LAYER_FORE = 1;
+
+	/**
+	 * Tiles with a type above this are in the foreground layer.
+	 */
+	private static final int FOREGROUND_TYPE = 0x20;
+
+	/**
+	 * Width of the map, in tiles.
+	 */
+	private final int width;
+	/**
+	 * Height of the map, in tiles.
+	 */
+	private final int height;
+	/**
+	 * Tiles, row by row.
+	 */
+	private final byte[] tiles;
+	/**
+	 * Type of each tile in {@link #tiles}.
+	 */
+	private final byte[] types;
+	/**
+	 * Type of tile 0, which fills the parts of each layer that belong to the other
+	 * layer.
+	 */
+	private final int emptyType;
+
+	/**
+	 * Creates a map's tiles.
+	 *
+	 * @param width
+	 *            width of the map
+	 * @param height
+	 *            height of the map
+	 * @param tiles
+	 *            tiles, row by row. This array is used directly, not copied.
+	 * @param pxa
+	 *            tile types, or <code>null</code> if the PXA file couldn't be
+	 *            loaded
+	 */
+	MapTiles(int width, int height, byte[] tiles, byte[] pxa) {
+		this.width = width;
+		this.height = height;
+		this.tiles = tiles;
+		types = new byte[tiles.length];
+		int bad = -1;
+		for (int i = 0; i < tiles.length; i++) {
+			int tile = tiles[i] & 0xFF;
+			if (pxa != null && tile < pxa.length)
+				types[i] = pxa[tile];
+			else
+				bad = tile;
+		}
+		if (bad >= 0)
+			BackendLogger.error("Could not get tile " + bad + " in PXA (length is "
+					+ (pxa == null ? "unknown" : Integer.toString(pxa.length)) + ")");
+		emptyType = pxa == null || pxa.length == 0 ? 0 : pxa[0] & 0xFF;
+	}
+
+	/**
+	 * Gets the width of the map.
+	 *
+	 * @return width, in tiles
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the map.
+	 *
+	 * @return height, in tiles
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets a tile.
+	 *
+	 * @param x
+	 *            x position
+	 * @param y
+	 *            y position
+	 * @return tile ID
+	 */
+	public int getTile(int x, int y) {
+		return tiles[y * width + x] & 0xFF;
+	}
+
+	/**
+	 * Gets a tile's type.
+	 *
+	 * @param x
+	 *            x position
+	 * @param y
+	 *            y position
+	 * @return tile type
+	 */
+	public int getType(int x, int y) {
+		return types[y * width + x] & 0xFF;
+	}
+
+	/**
+	 * Gets the layer a tile is in.
+	 *
+	 * @param x
+	 *            x position
+	 * @param y
+	 *            y position
+	 * @return {@link #LAYER_BACK} or {@link #LAYER_FORE}
+	 */
+	public int getLayer(int x, int y) {
+		return getType(x, y) > FOREGROUND_TYPE ? LAYER_FORE : LAYER_BACK;
+	}
+
+	/**
+	 * Gets a tile in a layer.
+	 *
+	 * @param layer
+	 *            {@link #LAYER_BACK} or {@link #LAYER_FORE}
+	 * @param x
+	 *            x position
+	 * @param y
+	 *            y position
+	 * @return tile ID, or 0 if the tile at this position is in the other layer
+	 */
+	public int getTile(int layer, int x, int y) {
+		return getLayer(x, y) == layer ? getTile(x, y) : 0;
+	}
+
+	/**
+	 * Gets the type of a tile in a layer.
+	 *
+	 * @param layer
+	 *            {@link #LAYER_BACK} or {@link #LAYER_FORE}
+	 * @param x
+	 *            x position
+	 * @param y
+	 *            y position
+	 * @return tile type, or the type of tile 0 if the tile at this position is in
+	 *         the other layer
+	 */
+	public int getType(int layer, int x, int y) {
+		int type = getType(x, y);
+		if ((type > FOREGROUND_TYPE ? LAYER_FORE : LAYER_BACK) != layer)
+			return emptyType;
+		return type;
+	}
+
+	/**
+	 * Gets all tiles, row by row.
+	 *
+	 * @return read-only view of the tiles
+	 */
+	public ByteBuffer getTiles() {
+		return ByteBuffer.wrap(tiles).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the types of all tiles, row by row.
+	 *
+	 * @return read-only view of the tile types
+	 */
+	public ByteBuffer getTypes() {
+		return ByteBuffer.wrap(types).asReadOnlyBuffer();
+	}
+
+}
@@ -1,8 +1,9 @@
 package com.leo.cse.backend.exe;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 
-import com.leo.cse.backend.StrTools;
+import com.leo.cse.backend.CStringDecoder;
 import com.leo.cse.backend.exe.ExeData.ModType;
 
 // credit to Noxid for making Booster's Lab open source so I could steal code
@@ -60,6 +61,9 @@ public class Mapdata {
 
 	public Mapdata(int num, ByteBuffer buf, ModType format, String charEncoding) {
 		mapNum = num;
+		// strings are decoded in place, without copying them out of the buffer first
+		CStringDecoder dec = CStringDecoder.forEncoding(charEncoding);
+		int p;
 		switch (format) {
 		case STANDARD: // from exe
 			/*
@@ -74,21 +78,18 @@ public class Mapdata {
 				   char mapName[35];
 				}nMapData;
 				*/
-			byte[] buffer = new byte[0x23];
-			buf.get(buffer, 0, 0x20);
-			tileset = StrTools.CString(buffer, charEncoding);
-			buf.get(buffer, 0, 0x20);
-			fileName = StrTools.CString(buffer, charEncoding);
-			scrollType = buf.getInt() & 0xFF;
-			buf.get(buffer, 0, 0x20);
-			bgName = StrTools.CString(buffer, charEncoding);
-			buf.get(buffer, 0, 0x20);
-			npcSheet1 = StrTools.CString(buffer, charEncoding);
-			buf.get(buffer, 0, 0x20);
-			npcSheet2 = StrTools.CString(buffer, charEncoding);
-			bossNum = buf.get();
-			buf.get(buffer, 0, 0x23);
-			mapName = StrTools.CString(buffer, charEncoding);
+			if (buf.remaining() < 0xC8)
+				throw new BufferUnderflowException();
+			p = buf.position();
+			tileset = dec.decodeName(buf, p, 0x20);
+			fileName = dec.decodeName(buf, p + 0x20, 0x20);
+			scrollType = buf.getInt(p + 0x40) & 0xFF;
+			bgName = dec.decodeName(buf, p + 0x44, 0x20);
+			npcSheet1 = dec.decodeName(buf, p + 0x64, 0x20);
+			npcSheet2 = dec.decodeName(buf, p + 0x84, 0x20);
+			bossNum = buf.get(p + 0xA4);
+			mapName = dec.decodeName(buf, p + 0xA5, 0x23);
+			buf.position(p + 0xC8);
 			jpName = new byte[0x20];
 			break;
 		case PLUS: // from stage.tbl
@@ -105,23 +106,21 @@ public class Mapdata {
 				   char mapName[32];
 				}nMapData;
 				*/
-			byte[] buf32 = new byte[32];
-			buf.get(buf32);
-			tileset = StrTools.CString(buf32, charEncoding);
-			buf.get(buf32);
-			fileName = StrTools.CString(buf32, charEncoding);
-			scrollType = buf.getInt();
-			buf.get(buf32);
-			bgName = StrTools.CString(buf32, charEncoding);
-			buf.get(buf32);
-			npcSheet1 = StrTools.CString(buf32, charEncoding);
-			buf.get(buf32);
-			npcSheet2 = StrTools.CString(buf32, charEncoding);
-			bossNum = buf.get();
-			buf.get(buf32);
-			jpName = buf32.clone();
-			buf.get(buf32);
-			mapName = StrTools.CString(buf32, charEncoding);
+			if (buf.remaining() < 0xE5)
+				throw new BufferUnderflowException();
+			p = buf.position();
+			tileset = dec.decodeName(buf, p, 0x20);
+			fileName = dec.decodeName(buf, p + 0x20, 0x20);
+			scrollType = buf.getInt(p + 0x40);
+			bgName = dec.decodeName(buf, p + 0x44, 0x20);
+			npcSheet1 = dec.decodeName(buf, p + 0x64, 0x20);
+			npcSheet2 = dec.decodeName(buf, p + 0x84, 0x20);
+			bossNum = buf.get(p + 0xA4);
+			jpName = new byte[0x20];
+			buf.position(p + 0xA5);
+			buf.get(jpName);
+			mapName = dec.decodeName(buf, p + 0xC5, 0x20);
+			buf.position(p + 0xE5);
 			break;
 		default:
 			// unknown/unused
@@ -129,6 +128,45 @@ public class Mapdata {
 		}
 	}
 
+	/**
+	 * Creates a map from previously parsed data.
+	 *
+	 * @param mapNum
+	 *            map ID
+	 * @param tileset
+	 *            tileset
+	 * @param fileName
+	 *            file name
+	 * @param scrollType
+	 *            scroll type
+	 * @param bgName
+	 *            background image
+	 * @param npcSheet1
+	 *            1st NPC sheet
+	 * @param npcSheet2
+	 *            2nd NPC sheet
+	 * @param bossNum
+	 *            special boss ID
+	 * @param mapName
+	 *            display name
+	 * @param jpName
+	 *            name in Japanese
+	 * @see ModCache
+	 */
+	Mapdata(int mapNum, String tileset, String fileName, int scrollType, String bgName, String npcSheet1,
+			String npcSheet2, int bossNum, String mapName, byte[] jpName) {
+		this.mapNum = mapNum;
+		this.tileset = tileset;
+		this.fileName = fileName;
+		this.scrollType = scrollType;
+		this.bgName = bgName;
+		this.npcSheet1 = npcSheet1;
+		this.npcSheet2 = npcSheet2;
+		this.bossNum = bossNum;
+		this.mapName = mapName;
+		this.jpName = jpName;
+	}
+
 	/**
 	 * Creates a new empty map.
 	 *
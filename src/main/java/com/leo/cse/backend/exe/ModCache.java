@@ -0,0 +1,301 @@
+package com.leo.cse.backend.exe;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.leo.cse.backend.BackendLogger;
+
+/**
+ * An on-disk cache of data parsed from a mod's files, so reopening a mod that
+ * hasn't changed doesn't have to parse everything again.<br />
+ * Each entry is keyed by the source file's path, and is only used if the source
+ * file's size and modification time haven't changed since the entry was
+ * written. Entries are stored in the decoded layout {@link ExeData} and
+ * {@link MapInfo} work with, so they can be read straight out of the cache
+ * buffer.<br />
+ * Each mod gets its own cache file. The whole file is read with a single bulk
+ * read when the mod is opened, and written back by {@link #save()} if anything
+ * was added.
+ *
+ * @author Leo
+ *
+ */
+public class ModCache {
+
+	/**
+	 * Directory cache files are stored in.
+	 */
+	public static final File CACHE_DIR = new File("cse_cache", "mod");
+	/**
+	 * Magic number at the start of every cache file ("CSEC").
+	 */
+	private static final int MAGIC = 0x43455343;
+	/**
+	 * Format version. Cache files with a different version are ignored.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Map data. Source is the executable or stage.tbl file.
+	 */
+	public static final byte KIND_MAPDATA = 0;
+	/**
+	 * PXA tile types.
+	 */
+	public static final byte KIND_PXA = 2;
+	/**
+	 * PXM layout: width and height as shorts, followed by the tiles.
+	 */
+	public static final byte KIND_PXM = 3;
+	/**
+	 * PXE entities: entity count as a short, followed by 12 bytes per entity.
+	 */
+	public static final byte KIND_PXE = 4;
+
+	/**
+	 * A cached entry.
+	 *
+	 * @author Leo
+	 *
+	 */
+	private static class Entry {
+		private final long size;
+		private final long modified;
+		private final ByteBuffer data;
+
+		public Entry(long size, long modified, ByteBuffer data) {
+			this.size = size;
+			this.modified = modified;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Cache file.
+	 */
+	private final File file;
+	/**
+	 * Entries, by key.
+	 *
+	 * @see #key(byte, String)
+	 */
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	/**
+	 * <code>true</code> if entries have been added or replaced since the cache
+	 * was read.
+	 */
+	private volatile boolean dirty;
+
+	private ModCache(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Opens the cache of a mod. If the mod doesn't have a cache yet, or its cache
+	 * can't be read, an empty cache is returned.
+	 *
+	 * @param base
+	 *            the mod's executable or stage.tbl file
+	 * @return cache
+	 */
+	public static ModCache open(File base) {
+		ModCache cache = new ModCache(new File(CACHE_DIR, hash(base.getAbsolutePath()) + ".bin"));
+		if (cache.file.exists())
+			try {
+				cache.read();
+			} catch (IOException | RuntimeException e) {
+				BackendLogger.warn("Failed to read mod cache: " + cache.file, e);
+				cache.entries.clear();
+				cache.file.delete();
+			}
+		return cache;
+	}
+
+	/**
+	 * Gets an entry.
+	 *
+	 * @param kind
+	 *            kind of entry
+	 * @param src
+	 *            source file
+	 * @return entry data, or <code>null</code> if there is no entry or the
+	 *         source file has changed since it was written. The returned buffer
+	 *         is read-only and positioned at the start of the data.
+	 */
+	public ByteBuffer get(byte kind, File src) {
+		Entry e = entries.get(key(kind, src.getAbsolutePath()));
+		if (e == null)
+			return null;
+		BasicFileAttributes attrs = stat(src);
+		if (attrs == null || attrs.size() != e.size || attrs.lastModifiedTime().toMillis() != e.modified)
+			return null;
+		return e.data.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Adds or replaces an entry.
+	 *
+	 * @param kind
+	 *            kind of entry
+	 * @param src
+	 *            source file
+	 * @param data
+	 *            entry data
+	 */
+	public void put(byte kind, File src, byte[] data) {
+		BasicFileAttributes attrs = stat(src);
+		if (attrs == null)
+			return;
+		entries.put(key(kind, src.getAbsolutePath()),
+				new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), ByteBuffer.wrap(data)));
+		dirty = true;
+	}
+
+	/**
+	 * Writes the cache to disk, if anything was added to it. Entries whose source
+	 * file has since been changed or deleted are dropped.
+	 */
+	public synchronized void save() {
+		if (!dirty)
+			return;
+		dirty = false;
+		try {
+			write();
+		} catch (IOException e) {
+			BackendLogger.warn("Failed to write mod cache: " + file, e);
+		}
+	}
+
+	private void read() throws IOException {
+		ByteBuffer buf;
+		try (FileInputStream in = new FileInputStream(file)) {
+			FileChannel chan = in.getChannel();
+			long len = chan.size();
+			if (len > Integer.MAX_VALUE)
+				throw new IOException("Cache file is too large");
+			buf = ByteBuffer.allocate((int) len);
+			while (buf.hasRemaining())
+				if (chan.read(buf) < 0)
+					throw new IOException("Unexpected end of file");
+		}
+		buf.flip();
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		if (buf.getInt() != MAGIC || buf.getInt() != VERSION)
+			return;
+		int count = buf.getInt();
+		for (int i = 0; i < count; i++) {
+			byte kind = buf.get();
+			byte[] path = new byte[buf.getShort() & 0xFFFF];
+			buf.get(path);
+			long size = buf.getLong();
+			long modified = buf.getLong();
+			int dataLen = buf.getInt();
+			// entries share the file's buffer
+			ByteBuffer data = buf.duplicate();
+			data.limit(buf.position() + dataLen);
+			buf.position(buf.position() + dataLen);
+			entries.put(key(kind, new String(path, StandardCharsets.UTF_8)), new Entry(size, modified, data.slice()));
+		}
+	}
+
+	private void write() throws IOException {
+		if (!CACHE_DIR.exists() && !CACHE_DIR.mkdirs())
+			throw new IOException("Could not create cache directory: " + CACHE_DIR);
+		// drop stale entries, and work out how big the file will be
+		List<String> keys = new ArrayList<>();
+		List<Entry> live = new ArrayList<>();
+		int len = 12;
+		for (Map.Entry<String, Entry> me : entries.entrySet()) {
+			String key = me.getKey();
+			Entry e = me.getValue();
+			BasicFileAttributes attrs = stat(new File(key.substring(1)));
+			if (attrs == null || attrs.size() != e.size || attrs.lastModifiedTime().toMillis() != e.modified) {
+				entries.remove(key);
+				continue;
+			}
+			keys.add(key);
+			live.add(e);
+			len += 1 + 2 + key.substring(1).getBytes(StandardCharsets.UTF_8).length + 8 + 8 + 4 + e.data.limit();
+		}
+		ByteBuffer buf = ByteBuffer.allocate(len);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(MAGIC);
+		buf.putInt(VERSION);
+		buf.putInt(live.size());
+		for (int i = 0; i < live.size(); i++) {
+			byte[] path = keys.get(i).substring(1).getBytes(StandardCharsets.UTF_8);
+			Entry e = live.get(i);
+			buf.put((byte) keys.get(i).charAt(0));
+			buf.putShort((short) path.length);
+			buf.put(path);
+			buf.putLong(e.size);
+			buf.putLong(e.modified);
+			buf.putInt(e.data.limit());
+			buf.put(e.data.duplicate());
+		}
+		buf.flip();
+		// write to a temporary file first, so a partially written file is never read
+		File tmp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(tmp)) {
+			FileChannel chan = out.getChannel();
+			while (buf.hasRemaining())
+				chan.write(buf);
+		}
+		if (file.exists() && !file.delete() || !tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException("Could not move " + tmp + " to " + file);
+		}
+	}
+
+	/**
+	 * Gets the key of an entry: the kind, followed by the source file's absolute
+	 * path.
+	 */
+	private static String key(byte kind, String path) {
+		return (char) kind + path;
+	}
+
+	private static BasicFileAttributes stat(File src) {
+		try {
+			return Files.readAttributes(src.toPath(), BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Hashes a mod's path to get its cache file name.
+	 *
+	 * @param path
+	 *            absolute path of the mod's executable or stage.tbl file
+	 * @return hash as hexadecimal string
+	 */
+	private static String hash(String path) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 is not supported", e);
+		}
+		byte[] digest = md.digest(path.getBytes(StandardCharsets.UTF_8));
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 16; i++)
+			sb.append(String.format("%02x", digest[i]));
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.leo.cse.backend.exe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.leo.cse.backend.BackendLogger;
+
+/**
+ * Watches a mod's data directory (and all of its subdirectories) for changed
+ * files.<br />
+ * Tools usually write a file in several steps, so changes are collected until
+ * no more have come in for {@link #DEBOUNCE_MS} milliseconds. Each created,
+ * changed or deleted file is then passed to the handler once, on the watcher's
+ * thread.
+ *
+ * @author Leo
+ *
+ */
+public class ModWatcher {
+
+	/**
+	 * How long to wait for more changes before handling them, in milliseconds.
+	 */
+	public static final long DEBOUNCE_MS = 250;
+
+	/**
+	 * Watch service.
+	 */
+	private final WatchService service;
+	/**
+	 * Watched directories, by key.
+	 */
+	private final Map<WatchKey, Path> dirs = new HashMap<>();
+	/**
+	 * Handles changed files.
+	 */
+	private final Consumer<File> handler;
+	/**
+	 * Watcher thread.
+	 */
+	private final Thread thread;
+
+	/**
+	 * Starts watching a directory.
+	 *
+	 * @param dir
+	 *            directory to watch
+	 * @param handler
+	 *            handles changed files
+	 * @throws IOException
+	 *             if the directory can't be watched.
+	 */
+	public ModWatcher(File dir, Consumer<File> handler) throws IOException {
+		this.handler = handler;
+		service = FileSystems.getDefault().newWatchService();
+		try {
+			registerAll(dir.toPath());
+		} catch (IOException e) {
+			service.close();
+			throw e;
+		}
+		thread = new Thread(this::run, "ModWatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching. Changes that haven't been handled yet are dropped.
+	 */
+	public void close() {
+		try {
+			service.close();
+		} catch (IOException e) {
+			BackendLogger.warn("Failed to close watch service", e);
+		}
+	}
+
+	private void registerAll(Path start) throws IOException {
+		Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				synchronized (dirs) {
+					dirs.put(key, dir);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				Set<File> changed = new LinkedHashSet<>();
+				collect(service.take(), changed);
+				// wait for the burst of changes to end
+				WatchKey key;
+				while ((key = service.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null)
+					collect(key, changed);
+				for (File file : changed)
+					try {
+						handler.accept(file);
+					} catch (RuntimeException e) {
+						BackendLogger.error("Failed to handle change to " + file, e);
+					}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// closed
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void collect(WatchKey key, Set<File> changed) {
+		Path dir;
+		synchronized (dirs) {
+			dir = dirs.get(key);
+		}
+		for (WatchEvent<?> event : key.pollEvents()) {
+			// overflowed events don't say which file changed
+			if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW)
+				continue;
+			Path path = dir.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path))
+				try {
+					registerAll(path);
+				} catch (IOException e) {
+					BackendLogger.warn("Failed to watch new directory " + path, e);
+				}
+			else
+				changed.add(path.toFile());
+		}
+		if (!key.reset())
+			synchronized (dirs) {
+				dirs.remove(key);
+			}
+	}
+
+}
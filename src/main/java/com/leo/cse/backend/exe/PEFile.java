@@ -1,8 +1,11 @@
 package com.leo.cse.backend.exe;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.Comparator;
@@ -47,6 +50,13 @@ public class PEFile {
 	public final LinkedList<Section> sections = new LinkedList<>();
 
 	public PEFile(ByteBuffer source, int expectedTex) throws IOException {
+		this(source, expectedTex, false);
+	}
+
+	// If shareSource is true, sections are views into source instead of copies.
+	// They are only copied if they get modified (see Section.getRawData()), so
+	// source must not be modified for as long as this PEFile is in use.
+	public PEFile(ByteBuffer source, int expectedTex, boolean shareSource) throws IOException {
 		source.order(ByteOrder.LITTLE_ENDIAN);
 		source.clear();
 		earlyHeader = new byte[expectedTex];
@@ -80,12 +90,29 @@ public class PEFile {
 		source.position(optHeadPoint + optHeadSize);
 		for (int i = 0; i < sectionCount; i++) {
 			Section s = new Section();
-			s.read(source);
+			s.read(source, shareSource);
 			sections.add(s);
 		}
 		test(true);
 	}
 
+	// Reads a file with a single bulk read, without copying the sections out of
+	// the read buffer. The file isn't memory mapped, so it's closed (and can be
+	// rewritten by other tools) as soon as this returns.
+	public static PEFile read(File file, int expectedTex) throws IOException {
+		ByteBuffer buf;
+		try (FileInputStream inStream = new FileInputStream(file); FileChannel chan = inStream.getChannel()) {
+			long l = chan.size();
+			if (l > 0x7FFFFFFF)
+				throw new IOException("Too big!");
+			buf = ByteBuffer.allocate((int) l);
+			while (buf.hasRemaining())
+				if (chan.read(buf) < 0)
+					throw new IOException("Unexpected end of file");
+		}
+		return new PEFile(buf, expectedTex, true);
+	}
+
 	// Returns file size if justOrderAndOverlap is given
 	private int test(boolean justOrderAndOverlap) throws IOException {
 		// You may be wondering: "Why so many passes?"
@@ -126,12 +153,12 @@ public class PEFile {
 					if (alignForward(s.virtualAddrRelative, fileAlignment) != s.virtualAddrRelative)
 						BackendLogger.warn(
 								"File alignment being broken for linearization. This isn't a critical error, but it's not a good thing.");
-					ok = checkAllocation(map, new AllocationSpan(s.virtualAddrRelative, s.rawData.length));
+					ok = checkAllocation(map, new AllocationSpan(s.virtualAddrRelative, s.getRawDataLength()));
 					s.cachedFutureFileAddress = s.virtualAddrRelative;
 				}
 				if (!ok) {
 					int position = 0;
-					while (!checkAllocation(map, new AllocationSpan(position, s.rawData.length)))
+					while (!checkAllocation(map, new AllocationSpan(position, s.getRawDataLength())))
 						position += fileAlignment;
 					s.cachedFutureFileAddress = position;
 				}
@@ -193,7 +220,7 @@ public class PEFile {
 		for (Section s : sections) {
 			d.clear();
 			d.position(s.cachedFutureFileAddress);
-			d.put(s.rawData, 0, s.rawData.length);
+			d.put(s.getData());
 		}
 		return data;
 	}
@@ -233,13 +260,14 @@ public class PEFile {
 		earlyHeaderBB.putInt(v);
 	}
 
+	// NOTE: The returned buffer is read-only if the section is shared with the
+	// source buffer. Use Section.getRawData() to modify it.
 	public ByteBuffer setupRVAPoint(int rva) {
 		for (Section s : sections) {
 			if (uCompare(rva) >= uCompare(s.virtualAddrRelative)) {
 				int rel = rva - s.virtualAddrRelative;
-				if (uCompare(rel) < Math.max(uCompare(s.rawData.length), uCompare(s.virtualSize))) {
-					ByteBuffer bb = ByteBuffer.wrap(s.rawData);
-					bb.order(ByteOrder.LITTLE_ENDIAN);
+				if (uCompare(rel) < Math.max(uCompare(s.getRawDataLength()), uCompare(s.virtualSize))) {
+					ByteBuffer bb = s.getData();
 					bb.position(rel);
 					return bb;
 				}
@@ -340,24 +368,41 @@ public class PEFile {
 		// File address is implied by linearization or automatic rearranging during
 		// write()
 		// The "Raw Data" - Set position before use.
-		public byte[] rawData = blankRawData;
+		// Only one of these is used at a time: sharedData is a read-only view into
+		// the source buffer, which gets copied into rawData as soon as someone asks to
+		// modify it.
+		private byte[] rawData = blankRawData;
+		private ByteBuffer sharedData;
 		public int characteristics = 0xE0000040;
 
 		public Section() {
 		}
 
 		public void read(ByteBuffer bb) throws IOException {
+			read(bb, false);
+		}
+
+		public void read(ByteBuffer bb, boolean share) throws IOException {
 			// NOTE: This occurs on the actual file in order to extract all the yummy data.
 			bb.get(tag);
 			virtualSize = bb.getInt();
 			virtualAddrRelative = bb.getInt();
-			rawData = new byte[bb.getInt()];
+			int rawDataLength = bb.getInt();
 			int rawDataPointer = bb.getInt();
 			metaLinearize = rawDataPointer == virtualAddrRelative;
 			int saved = bb.position();
 			bb.clear();
 			bb.position(rawDataPointer);
-			bb.get(rawData);
+			if (share) {
+				ByteBuffer view = bb.duplicate();
+				view.limit(rawDataPointer + rawDataLength);
+				sharedData = view.slice().asReadOnlyBuffer();
+				rawData = blankRawData;
+			} else {
+				rawData = new byte[rawDataLength];
+				bb.get(rawData);
+				sharedData = null;
+			}
 			bb.clear();
 			bb.position(saved);
 			bb.getInt();
@@ -369,11 +414,52 @@ public class PEFile {
 			characteristics = bb.getInt();
 		}
 
+		// Is this section still a view into the source file?
+		public boolean isShared() {
+			return sharedData != null;
+		}
+
+		public int getRawDataLength() {
+			if (sharedData != null)
+				return sharedData.capacity();
+			return rawData.length;
+		}
+
+		// Gets a new little-endian buffer over this section's data, positioned at 0.
+		// Never copies - the buffer is read-only if the section is shared.
+		public ByteBuffer getData() {
+			ByteBuffer bb;
+			if (sharedData != null)
+				bb = sharedData.duplicate();
+			else
+				bb = ByteBuffer.wrap(rawData);
+			bb.order(ByteOrder.LITTLE_ENDIAN);
+			return bb;
+		}
+
+		// Gets this section's data for modification. If the section is shared, it
+		// gets copied first (and stays a copy from then on).
+		public byte[] getRawData() {
+			if (sharedData != null) {
+				ByteBuffer src = sharedData.duplicate();
+				src.clear();
+				rawData = new byte[src.capacity()];
+				src.get(rawData);
+				sharedData = null;
+			}
+			return rawData;
+		}
+
+		public void setRawData(byte[] rawData) {
+			this.rawData = rawData == null ? blankRawData : rawData;
+			sharedData = null;
+		}
+
 		public void writeHead(ByteBuffer earlyHeaderBB) {
 			earlyHeaderBB.put(tag);
 			earlyHeaderBB.putInt(virtualSize);
 			earlyHeaderBB.putInt(virtualAddrRelative);
-			earlyHeaderBB.putInt(rawData.length);
+			earlyHeaderBB.putInt(getRawDataLength());
 			earlyHeaderBB.putInt(cachedFutureFileAddress);
 			earlyHeaderBB.putInt(0);
 			earlyHeaderBB.putInt(0);
@@ -403,7 +489,7 @@ public class PEFile {
 
 		public String toString() {
 			return decodeTag() + " : RVA " + Integer.toHexString(virtualAddrRelative) + " VS "
-					+ Integer.toHexString(virtualSize) + " : RDS " + Integer.toHexString(rawData.length) + " : CH "
+					+ Integer.toHexString(virtualSize) + " : RDS " + Integer.toHexString(getRawDataLength()) + " : CH "
 					+ Integer.toHexString(characteristics);
 		}
 
@@ -434,7 +520,7 @@ public class PEFile {
 		}
 
 		public void shiftResourceContents(int amt) {
-			ByteBuffer bb = ByteBuffer.wrap(rawData);
+			ByteBuffer bb = ByteBuffer.wrap(getRawData());
 			bb.order(ByteOrder.LITTLE_ENDIAN);
 			shiftDirTable(bb, amt, 0);
 		}
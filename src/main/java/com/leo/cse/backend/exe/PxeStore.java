@@ -0,0 +1,284 @@
+package com.leo.cse.backend.exe;
+
+import java.awt.Rectangle;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.leo.cse.backend.exe.MapInfo.PxeEntry;
+
+/**
+ * Stores a map's entities, one array per field, along with a grid that finds
+ * the entities in an area without checking every entity.<br />
+ * Each entity's draw area is worked out once when the entities are loaded. The
+ * grid splits the map's area into cells of {@value #CELL_SIZE}x{@value #CELL_SIZE}
+ * pixels, and lists the entities whose draw area overlaps each cell, so a query
+ * only has to look at the cells the queried area covers. Draw areas that stick
+ * out of the map are clamped to the edge cells, and entities that are entirely
+ * outside of the map are kept in an overflow list that every query checks, so
+ * one misplaced entity can't blow up the size of the grid.<br />
+ * Instances never change after they're created, so they can be shared freely -
+ * when a map's entities are reloaded, it gets a new instance instead.
+ *
+ * @author Leo
+ * @see MapInfo#getPxeStore()
+ *
+ */
+public class PxeStore {
+
+	/**
+	 * log<sub>2</sub> of {@link #CELL_SIZE}.
+	 */
+	private static final int CELL_SHIFT = 8;
+	/**
+	 * Width and height of a grid cell, in pixels.
+	 */
+	public static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+	/**
+	 * Number of entities.
+	 */
+	private final int count;
+	final short[] x;
+	final short[] y;
+	final short[] flagID;
+	final short[] event;
+	final short[] type;
+	final short[] flags;
+	/**
+	 * Each entity's npc.tbl entry.
+	 */
+	final EntityData[] info;
+	/**
+	 * Each entity's draw area.
+	 *
+	 * @see PxeEntry#getDrawArea()
+	 */
+	private final int[] areaX, areaY, areaW, areaH;
+	/**
+	 * Views of each entity. Set by {@link MapInfo} before the store is published.
+	 */
+	PxeEntry[] entries;
+
+	/**
+	 * Size of the grid, in cells. The grid's top left corner is at the map's
+	 * origin.
+	 */
+	private int gridW, gridH;
+	/**
+	 * Start of each cell's entity list in {@link #cellItems}. The list of cell
+	 * <code>c</code> ends where the list of cell <code>c + 1</code> starts.
+	 */
+	private int[] cellStart;
+	/**
+	 * Entities in each cell, in ascending order.
+	 */
+	private int[] cellItems;
+	/**
+	 * Entities whose draw area doesn't overlap the grid at all, in ascending
+	 * order.
+	 */
+	private int[] overflow;
+
+	private PxeStore(int count) {
+		this.count = count;
+		x = new short[count];
+		y = new short[count];
+		flagID = new short[count];
+		event = new short[count];
+		type = new short[count];
+		flags = new short[count];
+		info = new EntityData[count];
+		areaX = new int[count];
+		areaY = new int[count];
+		areaW = new int[count];
+		areaH = new int[count];
+	}
+
+	/**
+	 * Reads entities in PXE format.
+	 *
+	 * @param eBuf
+	 *            buffer positioned at the first entity
+	 * @param nEnt
+	 *            number of entities
+	 * @param mapX
+	 *            width of the map, in tiles
+	 * @param mapY
+	 *            height of the map, in tiles
+	 * @return entities
+	 */
+	static PxeStore read(ByteBuffer eBuf, int nEnt, int mapX, int mapY) {
+		PxeStore s = new PxeStore(nEnt);
+		for (int i = 0; i < nEnt; i++) {
+			s.x[i] = eBuf.getShort();
+			s.y[i] = eBuf.getShort();
+			s.flagID[i] = eBuf.getShort();
+			s.event[i] = eBuf.getShort();
+			s.type[i] = eBuf.getShort();
+			s.flags[i] = eBuf.getShort();
+			s.info[i] = ExeData.getEntityInfo(s.type[i]);
+			if (s.info[i] == null)
+				throw new NullPointerException("Entity type " + s.type[i] + " is undefined!");
+			s.calcDrawArea(i);
+		}
+		s.buildGrid(mapX * 32, mapY * 32);
+		return s;
+	}
+
+	private void calcDrawArea(int i) {
+		EntityData inf = info[i];
+		int offL = inf.getDisplayLeft(), offU = inf.getDisplayUp();
+		int offR = inf.getDisplayRight(), offD = inf.getDisplayDown();
+		areaX[i] = x[i] * 32 - offL * 2;
+		areaY[i] = y[i] * 32 - offU * 2;
+		areaW[i] = (offR + offL) * 2;
+		areaH[i] = (offD + offU) * 2;
+	}
+
+	/**
+	 * Builds the grid.
+	 *
+	 * @param width
+	 *            width of the map, in pixels
+	 * @param height
+	 *            height of the map, in pixels
+	 */
+	private void buildGrid(int width, int height) {
+		gridW = Math.max(1, (width + CELL_SIZE - 1) >> CELL_SHIFT);
+		gridH = Math.max(1, (height + CELL_SIZE - 1) >> CELL_SHIFT);
+		// entities that don't overlap the grid go in the overflow list
+		boolean[] outside = new boolean[count];
+		int nOverflow = 0;
+		for (int i = 0; i < count; i++)
+			if (right(i) < 0 || bottom(i) < 0 || areaX[i] >= gridW << CELL_SHIFT || areaY[i] >= gridH << CELL_SHIFT) {
+				outside[i] = true;
+				nOverflow++;
+			}
+		overflow = new int[nOverflow];
+		for (int i = 0, o = 0; i < count; i++)
+			if (outside[i])
+				overflow[o++] = i;
+		// count each cell's entities, then fill in the lists
+		cellStart = new int[gridW * gridH + 1];
+		for (int i = 0; i < count; i++) {
+			if (outside[i])
+				continue;
+			for (int cy = cellY(areaY[i]); cy <= cellY(bottom(i)); cy++)
+				for (int cx = cellX(areaX[i]); cx <= cellX(right(i)); cx++)
+					cellStart[cy * gridW + cx + 1]++;
+		}
+		for (int c = 0; c < gridW * gridH; c++)
+			cellStart[c + 1] += cellStart[c];
+		cellItems = new int[cellStart[gridW * gridH]];
+		int[] fill = Arrays.copyOf(cellStart, gridW * gridH);
+		for (int i = 0; i < count; i++) {
+			if (outside[i])
+				continue;
+			for (int cy = cellY(areaY[i]); cy <= cellY(bottom(i)); cy++)
+				for (int cx = cellX(areaX[i]); cx <= cellX(right(i)); cx++)
+					cellItems[fill[cy * gridW + cx]++] = i;
+		}
+	}
+
+	/**
+	 * Gets the rightmost pixel column of an entity's draw area. Empty areas are
+	 * treated as 1 pixel wide.
+	 */
+	private int right(int i) {
+		return areaX[i] + Math.max(areaW[i], 1) - 1;
+	}
+
+	/**
+	 * Gets the bottom pixel row of an entity's draw area. Empty areas are treated
+	 * as 1 pixel high.
+	 */
+	private int bottom(int i) {
+		return areaY[i] + Math.max(areaH[i], 1) - 1;
+	}
+
+	/**
+	 * Gets the grid column containing a pixel column, clamped to the grid.
+	 */
+	private int cellX(int px) {
+		return Math.max(0, Math.min(gridW - 1, px >> CELL_SHIFT));
+	}
+
+	/**
+	 * Gets the grid row containing a pixel row, clamped to the grid.
+	 */
+	private int cellY(int py) {
+		return Math.max(0, Math.min(gridH - 1, py >> CELL_SHIFT));
+	}
+
+	/**
+	 * Gets the number of entities.
+	 *
+	 * @return number of entities
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets an entity.
+	 *
+	 * @param index
+	 *            entity index, in PXE order
+	 * @return entity
+	 */
+	public PxeEntry getEntry(int index) {
+		return entries[index];
+	}
+
+	/**
+	 * Gets an entity's draw area without allocating.
+	 *
+	 * @param index
+	 *            entity index, in PXE order
+	 * @param dest
+	 *            rectangle to store the draw area in
+	 * @return <code>dest</code>
+	 */
+	public Rectangle getDrawArea(int index, Rectangle dest) {
+		dest.setBounds(areaX[index], areaY[index], areaW[index], areaH[index]);
+		return dest;
+	}
+
+	/**
+	 * Finds the entities whose draw area intersects an area.
+	 *
+	 * @param area
+	 *            area to search, in pixels
+	 * @param dest
+	 *            array to store the indexes of found entities in. Must be at least
+	 *            {@link #getCount()} elements long.
+	 * @return number of entities found. Their indexes are stored at the start of
+	 *         <code>dest</code>, in PXE order.
+	 */
+	public int query(Rectangle area, int[] dest) {
+		if (count == 0 || area.width <= 0 || area.height <= 0)
+			return 0;
+		int qx1 = area.x, qy1 = area.y;
+		int qx2 = area.x + area.width - 1, qy2 = area.y + area.height - 1;
+		int n = 0;
+		for (int cy = cellY(qy1); cy <= cellY(qy2); cy++)
+			for (int cx = cellX(qx1); cx <= cellX(qx2); cx++) {
+				int c = cy * gridW + cx;
+				for (int p = cellStart[c]; p < cellStart[c + 1]; p++) {
+					int i = cellItems[p];
+					if (areaX[i] > qx2 || right(i) < qx1 || areaY[i] > qy2 || bottom(i) < qy1)
+						continue;
+					// entities can be in more than one cell - only report each one from the
+					// cell that holds the top left corner of its overlap with the area
+					if (cellX(Math.max(areaX[i], qx1)) == cx && cellY(Math.max(areaY[i], qy1)) == cy)
+						dest[n++] = i;
+				}
+			}
+		for (int i : overflow)
+			if (areaX[i] <= qx2 && right(i) >= qx1 && areaY[i] <= qy2 && bottom(i) >= qy1)
+				dest[n++] = i;
+		Arrays.sort(dest, 0, n);
+		return n;
+	}
+
+}
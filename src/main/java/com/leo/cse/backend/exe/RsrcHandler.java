@@ -1,7 +1,6 @@
 package com.leo.cse.backend.exe;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.LinkedList;
 
 import com.leo.cse.frontend.Main;
@@ -14,7 +13,7 @@ public class RsrcHandler {
 		public RsrcEntry parent; // if this is null, this entry is the root directory
 		public String name; // each char is short-sized
 		public int id; // if name is null, use this instead
-		public byte[] data; // if null, this is a directory...
+		public ByteBuffer data; // read-only view into the section. if null, this is a directory...
 		public LinkedList<RsrcEntry> entries; // ...which means this contains its entries
 		// for data entries:
 		public int dataCodepage;
@@ -28,6 +27,17 @@ public class RsrcHandler {
 			return data == null;
 		}
 
+		// copies the data out of the section. returns null for directories
+		public byte[] getData() {
+			if (data == null)
+				return null;
+			ByteBuffer src = data.duplicate();
+			src.clear();
+			byte[] ret = new byte[src.remaining()];
+			src.get(ret);
+			return ret;
+		}
+
 		public RsrcEntry getSubEntry(String name) {
 			if (!isDirectory())
 				return null;
@@ -62,14 +72,17 @@ public class RsrcHandler {
 
 	}
 
+	// data entries point to RVAs, so this is subtracted from them to get offsets
+	// into the section. this way the section doesn't have to be shifted (which
+	// would copy it if it's shared with the file's read buffer)
+	private final int sectionRVA;
+
 	public RsrcHandler(PEFile.Section rsrcSec) {
-		rsrcSec.shiftResourceContents(-rsrcSec.virtualAddrRelative);
+		sectionRVA = rsrcSec.virtualAddrRelative;
 		root = new RsrcEntry();
 		root.entries = new LinkedList<>();
-		ByteBuffer data = ByteBuffer.wrap(rsrcSec.rawData);
-		data.order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer data = rsrcSec.getData();
 		readDirectory(data, root);
-		rsrcSec.shiftResourceContents(rsrcSec.virtualAddrRelative);
 	}
 
 	private void readDirectory(ByteBuffer data, RsrcEntry root) {
@@ -120,11 +133,11 @@ public class RsrcHandler {
 			int dataSize = data.getInt();
 			entry.dataCodepage = data.getInt();
 			entry.dataReserved = data.getInt();
-			// start reading data
-			data.position(dataPos);
-			byte[] entryData = new byte[dataSize];
-			data.get(entryData);
-			entry.data = entryData;
+			// don't copy the data, just point to it
+			ByteBuffer entryData = data.duplicate();
+			entryData.position(dataPos - sectionRVA);
+			entryData.limit(dataPos - sectionRVA + dataSize);
+			entry.data = entryData.slice().asReadOnlyBuffer();
 		} else {
 			// subdirectory
 			dataOffset &= 0x7FFFFFFF;
@@ -137,6 +150,20 @@ public class RsrcHandler {
 	}
 
 	public byte[] getBitmapData(String name, int preferredLangId) {
+		RsrcEntry target = getBitmapEntry(name, preferredLangId);
+		if (target == null)
+			return null;
+		return target.getData();
+	}
+
+	public ByteBuffer getBitmapBuffer(String name, int preferredLangId) {
+		RsrcEntry target = getBitmapEntry(name, preferredLangId);
+		if (target == null || target.isDirectory())
+			return null;
+		return target.data.duplicate();
+	}
+
+	private RsrcEntry getBitmapEntry(String name, int preferredLangId) {
 		// get bitmap directory (ID 2)
 		RsrcEntry bmpDir = root.getSubEntry(2);
 		if (bmpDir == null)
@@ -153,15 +180,12 @@ public class RsrcHandler {
 			return null;
 		else if (bmpEntSub.size() == 1 || preferredLangId < 0)
 			// only one entry OR no preferred language ID
-			return bmpEnt.entries.get(0).data;
+			return bmpEnt.entries.get(0);
 		else {
 			// more than one entry
 			// use preferredLangId to grab the correct entry
-			RsrcEntry target = bmpEnt.getSubEntry(preferredLangId);
-			if (target == null)
-				// preferred lang ID not found
-				return null;
-			return target.data;
+			// (null if preferred lang ID not found)
+			return bmpEnt.getSubEntry(preferredLangId);
 		}
 	}
 
@@ -6,13 +6,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Random;
 
-import javax.swing.undo.CannotRedoException;
-import javax.swing.undo.CannotUndoException;
-import javax.swing.undo.UndoManager;
-import javax.swing.undo.UndoableEdit;
-
 import com.leo.cse.backend.BackendLogger;
 import com.leo.cse.backend.ByteUtils;
+import com.leo.cse.backend.UndoJournal;
 
 /**
  * Stores information for a Nikumaru/290 Counter record.
@@ -39,112 +35,35 @@ public class NikuRecord {
 	}
 
 	/**
-	 * Manages undoing and redoing record edits.
+	 * Undo history of {@link #data}.
+	 */
+	private static UndoJournal journal;
+	/**
+	 * Maximum size of the undo history, in bytes.
 	 */
-	private static UndoManager undoMan;
+	private static int undoBudget = UndoJournal.DEFAULT_BUDGET;
 
 	/**
-	 * Represents an edit to the record data.
-	 *
-	 * @author Leo
+	 * Sets the maximum size of the undo history. The oldest edits are dropped
+	 * once it's exceeded.
 	 *
+	 * @param budget
+	 *            new budget, in bytes
 	 */
-	static class NikuEdit implements UndoableEdit {
-
-		/**
-		 * The record's old value.
-		 */
-		private int oldValue;
-		/**
-		 * The record's new value.
-		 */
-		private int newValue;
-		/**
-		 * If <code>true</code>, this edit has been undone and thus can be redone.
-		 */
-		private boolean hasBeenUndone;
-
-		/**
-		 * Constructs a new <code>NikuEdit</code>.
-		 *
-		 * @param oldValue
-		 *            the record's old value
-		 * @param newValue
-		 *            the record's new value
-		 */
-		public NikuEdit(int oldValue, int newValue) {
-			this.oldValue = oldValue;
-			this.newValue = newValue;
-		}
-
-		@Override
-		public void undo() throws CannotUndoException {
-			setValue(oldValue, false);
-			hasBeenUndone = true;
-		}
-
-		@Override
-		public boolean canUndo() {
-			return !hasBeenUndone;
-		}
-
-		@Override
-		public void redo() throws CannotRedoException {
-			setValue(newValue, false);
-			hasBeenUndone = false;
-		}
-
-		@Override
-		public boolean canRedo() {
-			return hasBeenUndone;
-		}
-
-		@Override
-		public void die() {
-			oldValue = 0;
-			newValue = 0;
-		}
-
-		@Override
-		public boolean addEdit(UndoableEdit anEdit) {
-			return false;
-		}
-
-		@Override
-		public boolean replaceEdit(UndoableEdit anEdit) {
-			return false;
-		}
-
-		@Override
-		public boolean isSignificant() {
-			return true;
-		}
-
-		@Override
-		public String getPresentationName() {
-			return "290.rec time";
-		}
-
-		@Override
-		public String getUndoPresentationName() {
-			return "undo " + getPresentationName() + " to " + oldValue;
-		}
-
-		@Override
-		public String getRedoPresentationName() {
-			return "redo " + getPresentationName() + " to " + newValue;
-		}
-
+	public static void setUndoBudget(int budget) {
+		undoBudget = budget;
+		if (journal != null)
+			journal.setBudget(budget);
 	}
 
 	/**
-	 * Checks if the undo manager exists.
+	 * Checks if the undo journal exists.
 	 *
-	 * @return <code>true</code> if undo manager exists, <code>false</code>
+	 * @return <code>true</code> if undo journal exists, <code>false</code>
 	 *         otherwise
 	 */
-	private static boolean undoManExists() {
-		return file != null && undoMan != null;
+	private static boolean journalExists() {
+		return file != null && journal != null;
 	}
 
 	/**
@@ -154,9 +73,9 @@ public class NikuRecord {
 	 *         otherwise
 	 */
 	public static boolean canUndo() {
-		if (!undoManExists())
+		if (!journalExists())
 			return false;
-		return undoMan.canUndo();
+		return journal.canUndo();
 	}
 
 	/**
@@ -165,7 +84,8 @@ public class NikuRecord {
 	public static void undo() {
 		if (!canUndo())
 			return;
-		undoMan.undo();
+		journal.undo(null);
+		modified = true;
 	}
 
 	/**
@@ -175,9 +95,9 @@ public class NikuRecord {
 	 *         otherwise
 	 */
 	public static boolean canRedo() {
-		if (!undoManExists())
+		if (!journalExists())
 			return false;
-		return undoMan.canRedo();
+		return journal.canRedo();
 	}
 
 	/**
@@ -186,13 +106,14 @@ public class NikuRecord {
 	public static void redo() {
 		if (!canRedo())
 			return;
-		undoMan.redo();
+		journal.redo(null);
+		modified = true;
 	}
 
 	/**
-	 * The record's current value.
+	 * The record's current value, as a little-endian <code>int</code>.
 	 */
-	private static int value;
+	private static final byte[] data = new byte[Integer.BYTES];
 	/**
 	 * The currently loaded file.
 	 */
@@ -226,11 +147,11 @@ public class NikuRecord {
 	 * Creates a new record.
 	 */
 	public static void create() {
-		value = 0;
+		ByteUtils.writeInt(data, 0, 0);
 		file = null;
 		loaded = true;
 		modified = false;
-		undoMan = new UndoManager();
+		journal = new UndoJournal(data, undoBudget);
 	}
 
 	/**
@@ -267,11 +188,11 @@ public class NikuRecord {
 		BackendLogger.trace("result[3]=" + result[3]);
 		if (result[0] != result[1] || result[0] != result[2] || result[0] != result[3])
 			throw new IOException("290.rec file is corrupt");
-		value = result[0];
+		ByteUtils.writeInt(data, 0, result[0]);
 		file = src;
 		loaded = true;
 		modified = false;
-		undoMan = new UndoManager();
+		journal = new UndoJournal(data, undoBudget);
 	}
 
 	/**
@@ -286,6 +207,7 @@ public class NikuRecord {
 		if (dest == null)
 			dest = file;
 		byte[] bufByte = new byte[20];
+		int value = getValue();
 		int[] bufInt = new int[4];
 		bufInt[0] = value;
 		bufInt[1] = value;
@@ -318,9 +240,9 @@ public class NikuRecord {
 	public static void unload() {
 		file = null;
 		loaded = false;
-		value = 0;
+		ByteUtils.writeInt(data, 0, 0);
 		modified = false;
-		undoMan = null;
+		journal = null;
 	}
 
 	/**
@@ -329,37 +251,24 @@ public class NikuRecord {
 	 * @return value
 	 */
 	public static int getValue() {
-		return value;
+		return ByteUtils.readInt(data, 0);
 	}
 
 	/**
 	 * Sets the record's value.
-	 * 
-	 * @param value
-	 *            new value
-	 * @param addUndo
-	 *            <code>true</code> to add change to the
-	 *            {@linkplain #undoMan undo manager}, <code>false</code> otherwise
+	 * @param value new value
 	 */
-	private static void setValue(int value, boolean addUndo) {
+	public static void setValue(int value) {
 		if (value < 0)
 			value = 0;
 		if (value > 299999)
 			value = 299999;
-		if (value != NikuRecord.value) {
-			modified = true;
-			if (undoMan != null && addUndo)
-				undoMan.addEdit(new NikuEdit(NikuRecord.value, value));
-		}
-		NikuRecord.value = value;
-	}
-
-	/**
-	 * Sets the record's value.
-	 * @param value new value
-	 */
-	public static void setValue(int value) {
-		setValue(value, true);
+		if (value == getValue())
+			return;
+		modified = true;
+		ByteUtils.writeInt(data, 0, value);
+		if (journal != null)
+			journal.record(0, -1);
 	}
 
 	/**
@@ -367,7 +276,7 @@ public class NikuRecord {
 	 * @return tenths of seconds
 	 */
 	public static int getTenths() {
-		return (value / 5) % 10;
+		return (getValue() / 5) % 10;
 	}
 
 	/**
@@ -375,7 +284,7 @@ public class NikuRecord {
 	 * @return seconds
 	 */
 	public static int getSeconds() {
-		return (value / 50) % 60;
+		return (getValue() / 50) % 60;
 	}
 
 	/**
@@ -383,7 +292,7 @@ public class NikuRecord {
 	 * @return minutes
 	 */
 	public static int getMinutes() {
-		return value / 3000;
+		return getValue() / 3000;
 	}
 
 	/**
@@ -0,0 +1,126 @@
+package com.leo.cse.backend.profile;
+
+import com.leo.cse.backend.profile.Profile.ProfileField;
+import com.leo.cse.backend.profile.ProfileManager.ProfileFieldException;
+
+/**
+ * A field that has been looked up ahead of time, so accessing it skips the
+ * name lookup and type checks of {@link ProfileManager#getField(String, int)}.
+ * <br />
+ * The field object is looked up again whenever the profile implementation
+ * changes. Handles belong to a {@link ProfileSession}, which is the
+ * {@linkplain ProfileManager#getDefaultSession() default session} unless
+ * another one is specified.
+ *
+ * @author Leo
+ *
+ * @param <T>
+ *            type of field object
+ */
+public abstract class FieldHandle<T extends ProfileField> {
+
+	/**
+	 * The name of the field.
+	 */
+	protected final String field;
+	/**
+	 * The session the field belongs to.
+	 */
+	protected final ProfileSession session;
+	/**
+	 * The type of field object to expect.
+	 */
+	private final Class<T> type;
+	/**
+	 * The profile implementation {@link #fieldObj} was looked up from.
+	 */
+	private Profile resolvedImpl;
+	/**
+	 * The field object.
+	 */
+	private T fieldObj;
+
+	/**
+	 * Creates a new field handle.
+	 *
+	 * @param field
+	 *            name of field
+	 * @param type
+	 *            type of field object to expect
+	 */
+	protected FieldHandle(String field, Class<T> type) {
+		this(field, type, ProfileManager.getDefaultSession());
+	}
+
+	/**
+	 * Creates a new field handle.
+	 *
+	 * @param field
+	 *            name of field
+	 * @param type
+	 *            type of field object to expect
+	 * @param session
+	 *            session the field belongs to
+	 */
+	protected FieldHandle(String field, Class<T> type, ProfileSession session) {
+		this.field = field;
+		this.type = type;
+		this.session = session;
+	}
+
+	/**
+	 * Gets the name of the field.
+	 *
+	 * @return field name
+	 */
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * Gets the field object, looking it up if the profile implementation has
+	 * changed.
+	 *
+	 * @return field object, or <code>null</code> if no profile is loaded
+	 */
+	protected T resolve() {
+		Profile impl = session.getImpl();
+		if (impl != resolvedImpl) {
+			resolvedImpl = impl;
+			fieldObj = null;
+			if (impl != null)
+				try {
+					fieldObj = impl.getFieldObject(field, type);
+				} catch (ProfileFieldException e) {
+					resolvedImpl = null;
+					throw new RuntimeException(e);
+				}
+		}
+		if (impl == null || !impl.isLoaded())
+			return null;
+		return fieldObj;
+	}
+
+	/**
+	 * Checks if an index is valid for the field.
+	 *
+	 * @param fieldObj
+	 *            field object
+	 * @param index
+	 *            index to check
+	 */
+	protected void checkIndex(T fieldObj, int index) {
+		if (fieldObj.hasIndexes() && !fieldObj.isValidIndex(index))
+			throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for field " + field + "!");
+	}
+
+	/**
+	 * Checks if the field exists in the current profile implementation.
+	 *
+	 * @return <code>true</code> if it exists, <code>false</code> otherwise
+	 */
+	public boolean isAvailable() {
+		return session.hasField(field);
+	}
+
+}
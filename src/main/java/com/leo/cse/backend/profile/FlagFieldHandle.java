@@ -0,0 +1,81 @@
+package com.leo.cse.backend.profile;
+
+import com.leo.cse.backend.profile.Profile.ProfileFlagField;
+
+/**
+ * A handle to a {@linkplain ProfileFlagField flag field}, which reads and
+ * writes flags without boxing.
+ *
+ * @author Leo
+ *
+ */
+public class FlagFieldHandle extends FieldHandle<ProfileFlagField> {
+
+	/**
+	 * Creates a new handle to a flag field.
+	 *
+	 * @param field
+	 *            name of field
+	 */
+	public FlagFieldHandle(String field) {
+		super(field, ProfileFlagField.class);
+	}
+
+	/**
+	 * Creates a new handle to a flag field in a specific session.
+	 *
+	 * @param field
+	 *            name of field
+	 * @param session
+	 *            session the field belongs to
+	 */
+	public FlagFieldHandle(String field, ProfileSession session) {
+		super(field, ProfileFlagField.class, session);
+	}
+
+	/**
+	 * Gets a flag's value.
+	 *
+	 * @param index
+	 *            index of flag
+	 * @return value of the flag, or <code>false</code> if no profile is loaded
+	 */
+	public boolean get(int index) {
+		ProfileFlagField fieldObj = resolve();
+		if (fieldObj == null)
+			return false;
+		checkIndex(fieldObj, index);
+		return fieldObj.getFlag(index);
+	}
+
+	/**
+	 * Sets a flag's value. If the value changes, listeners are notified and the
+	 * change can be undone.
+	 *
+	 * @param index
+	 *            index of flag
+	 * @param value
+	 *            value to set
+	 */
+	public void set(int index, boolean value) {
+		ProfileFlagField fieldObj = resolve();
+		if (fieldObj == null)
+			return;
+		checkIndex(fieldObj, index);
+		if (fieldObj.getFlag(index) == value)
+			return;
+		fieldObj.setFlag(index, value);
+		session.recordChange(field, index, !value, value);
+	}
+
+	/**
+	 * Toggles a flag.
+	 *
+	 * @param index
+	 *            index of flag
+	 */
+	public void toggle(int index) {
+		set(index, !get(index));
+	}
+
+}
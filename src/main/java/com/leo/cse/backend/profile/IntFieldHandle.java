@@ -0,0 +1,91 @@
+package com.leo.cse.backend.profile;
+
+import com.leo.cse.backend.profile.Profile.ProfileIntField;
+
+/**
+ * A handle to a <code>byte</code>, <code>short</code> or <code>int</code>
+ * field, which reads and writes values as <code>int</code>s without boxing.
+ *
+ * @author Leo
+ *
+ */
+public class IntFieldHandle extends FieldHandle<ProfileIntField> {
+
+	/**
+	 * Creates a new handle to an <code>int</code>-compatible field.
+	 *
+	 * @param field
+	 *            name of field
+	 */
+	public IntFieldHandle(String field) {
+		super(field, ProfileIntField.class);
+	}
+
+	/**
+	 * Creates a new handle to an <code>int</code>-compatible field in a specific session.
+	 *
+	 * @param field
+	 *            name of field
+	 * @param session
+	 *            session the field belongs to
+	 */
+	public IntFieldHandle(String field, ProfileSession session) {
+		super(field, ProfileIntField.class, session);
+	}
+
+	/**
+	 * Gets the field's value.
+	 *
+	 * @param index
+	 *            index to get (or -1 if the field is indexless)
+	 * @return value of the field, or 0 if no profile is loaded
+	 */
+	public int getInt(int index) {
+		ProfileIntField fieldObj = resolve();
+		if (fieldObj == null)
+			return 0;
+		checkIndex(fieldObj, index);
+		return fieldObj.getInt(index);
+	}
+
+	/**
+	 * Gets an indexless field's value.
+	 *
+	 * @return value of the field, or 0 if no profile is loaded
+	 */
+	public int getInt() {
+		return getInt(-1);
+	}
+
+	/**
+	 * Sets the field's value. If the value changes, listeners are notified and
+	 * the change can be undone.
+	 *
+	 * @param index
+	 *            index to set (or -1 if the field is indexless)
+	 * @param value
+	 *            value to set
+	 */
+	public void setInt(int index, int value) {
+		ProfileIntField fieldObj = resolve();
+		if (fieldObj == null)
+			return;
+		checkIndex(fieldObj, index);
+		if (fieldObj.getInt(index) == value)
+			return;
+		Object oldValue = fieldObj.getValue(index);
+		fieldObj.setInt(index, value);
+		session.recordChange(field, index, oldValue, fieldObj.getValue(index));
+	}
+
+	/**
+	 * Sets an indexless field's value.
+	 *
+	 * @param value
+	 *            value to set
+	 */
+	public void setInt(int value) {
+		setInt(-1, value);
+	}
+
+}
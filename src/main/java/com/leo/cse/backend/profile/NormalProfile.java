@@ -4,7 +4,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 
 import com.leo.cse.backend.BackendLogger;
 import com.leo.cse.backend.ByteUtils;
@@ -179,6 +179,48 @@ public class NormalProfile extends Profile {
 	 */
 	protected byte[] data;
 
+	/**
+	 * Start of the range of {@link #data} written to since the last
+	 * {@link #takeWrittenRange()} call (inclusive).
+	 */
+	private int writtenFrom = Integer.MAX_VALUE;
+	/**
+	 * End of the range of {@link #data} written to since the last
+	 * {@link #takeWrittenRange()} call (exclusive).
+	 */
+	private int writtenTo = 0;
+
+	@Override
+	protected byte[] getData() {
+		return data;
+	}
+
+	@Override
+	protected long takeWrittenRange() {
+		if (writtenFrom >= writtenTo)
+			return 0;
+		long ret = (long) writtenFrom << 32 | writtenTo;
+		writtenFrom = Integer.MAX_VALUE;
+		writtenTo = 0;
+		return ret;
+	}
+
+	/**
+	 * Marks a range of {@link #data} as written to. Must be called by everything
+	 * that writes to the data, so changes can be found without comparing all of it.
+	 *
+	 * @param ptr
+	 *            start of the range
+	 * @param length
+	 *            length of the range, in bytes
+	 */
+	protected void markWritten(int ptr, int length) {
+		if (length <= 0)
+			return;
+		writtenFrom = Math.min(writtenFrom, ptr);
+		writtenTo = Math.max(writtenTo, ptr + length);
+	}
+
 	@Override
 	public void create() {
 		// create data
@@ -337,7 +379,7 @@ public class NormalProfile extends Profile {
 				@Override
 				public Object getValue(int index) {
 					boolean[] flags = new boolean[27];
-					ByteUtils.readFlags(data, ptrCorrector.apply(0x600), flags);
+					ByteUtils.readFlags(data, ptrCorrector.applyAsInt(0x600), flags);
 					long ret = 0;
 					for (int i = 0; i < flags.length; i++)
 						if (flags[i])
@@ -351,7 +393,8 @@ public class NormalProfile extends Profile {
 					long v = (Long) value;
 					for (int i = 0; i < flags.length; i++)
 						flags[i] = ((v & (1 << i)) != 0);
-					ByteUtils.writeFlags(data, ptrCorrector.apply(0x600), flags);
+					ByteUtils.writeFlags(data, ptrCorrector.applyAsInt(0x600), flags);
+					markWritten(ptrCorrector.applyAsInt(0x600), 4);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -368,7 +411,7 @@ public class NormalProfile extends Profile {
 	/**
 	 * Function to correct pointers.
 	 */
-	protected Function<Integer, Integer> ptrCorrector = t -> t;
+	protected IntUnaryOperator ptrCorrector = t -> t;
 
 	/**
 	 * Handles a {@link ProfileFieldException} from adding a field.
@@ -400,7 +443,7 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldByte(String name, int ptr) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileIntField() {
 				@Override
 				public Class<?> getType() {
 					return Byte.class;
@@ -413,27 +456,23 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					return data[ptrCorrector.apply(ptr)];
+					return (byte) getInt(index);
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					data[ptrCorrector.apply(ptr)] = (Byte) value;
+					setInt(index, (Byte) value);
 				}
 
 				@Override
-				public boolean hasIndexes() {
-					return false;
-				}
-
-				@Override
-				public int getMinimumIndex() {
-					return -1;
+				public int getInt(int index) {
+					return data[ptrCorrector.applyAsInt(ptr)];
 				}
 
 				@Override
-				public int getMaximumIndex() {
-					return -1;
+				public void setInt(int index, int value) {
+					data[ptrCorrector.applyAsInt(ptr)] = (byte) value;
+					markWritten(ptrCorrector.applyAsInt(ptr), 1);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -455,7 +494,7 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldBytes(String name, int length, int off, int ptr) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileIntField() {
 				@Override
 				public Class<?> getType() {
 					return Byte.class;
@@ -468,18 +507,23 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					byte[] ret = new byte[length];
-					ByteUtils.readBytes(data, ptrCorrector.apply(ptr), off, ret);
-					return ret[index];
+					return (byte) getInt(index);
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					int cptr = ptrCorrector.apply(ptr);
-					byte[] vals = new byte[length];
-					ByteUtils.readBytes(data, cptr, off, vals);
-					vals[index] = (Byte) value;
-					ByteUtils.writeBytes(data, cptr, off, vals);
+					setInt(index, (Byte) value);
+				}
+
+				@Override
+				public int getInt(int index) {
+					return data[ptrCorrector.applyAsInt(ptr) + index * (1 + off)];
+				}
+
+				@Override
+				public void setInt(int index, int value) {
+					data[ptrCorrector.applyAsInt(ptr) + index * (1 + off)] = (byte) value;
+					markWritten(ptrCorrector.applyAsInt(ptr) + index * (1 + off), 1);
 				}
 
 				@Override
@@ -512,7 +556,7 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldShort(String name, int ptr) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileIntField() {
 				@Override
 				public Class<?> getType() {
 					return Short.class;
@@ -525,12 +569,23 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					return ByteUtils.readShort(data, ptrCorrector.apply(ptr));
+					return (short) getInt(index);
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					ByteUtils.writeShort(data, ptrCorrector.apply(ptr), (Short) value);
+					setInt(index, (Short) value);
+				}
+
+				@Override
+				public int getInt(int index) {
+					return ByteUtils.readShort(data, ptrCorrector.applyAsInt(ptr));
+				}
+
+				@Override
+				public void setInt(int index, int value) {
+					ByteUtils.writeShort(data, ptrCorrector.applyAsInt(ptr), (short) value);
+					markWritten(ptrCorrector.applyAsInt(ptr), Short.BYTES);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -552,7 +607,7 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldShorts(String name, int length, int off, int ptr) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileIntField() {
 				@Override
 				public Class<?> getType() {
 					return Short.class;
@@ -565,18 +620,23 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					short[] ret = new short[length];
-					ByteUtils.readShorts(data, ptrCorrector.apply(ptr), off, ret);
-					return ret[index];
+					return (short) getInt(index);
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					int cptr = ptrCorrector.apply(ptr);
-					short[] vals = new short[length];
-					ByteUtils.readShorts(data, cptr, off, vals);
-					vals[index] = (Short) value;
-					ByteUtils.writeShorts(data, cptr, off, vals);
+					setInt(index, (Short) value);
+				}
+
+				@Override
+				public int getInt(int index) {
+					return ByteUtils.readShort(data, ptrCorrector.applyAsInt(ptr) + index * (Short.BYTES + off));
+				}
+
+				@Override
+				public void setInt(int index, int value) {
+					ByteUtils.writeShort(data, ptrCorrector.applyAsInt(ptr) + index * (Short.BYTES + off), (short) value);
+					markWritten(ptrCorrector.applyAsInt(ptr) + index * (Short.BYTES + off), Short.BYTES);
 				}
 
 				@Override
@@ -609,7 +669,7 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldInt(String name, int ptr) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileIntField() {
 				@Override
 				public Class<?> getType() {
 					return Integer.class;
@@ -622,12 +682,23 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					return ByteUtils.readInt(data, ptrCorrector.apply(ptr));
+					return getInt(index);
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					ByteUtils.writeInt(data, ptrCorrector.apply(ptr), (Integer) value);
+					setInt(index, (Integer) value);
+				}
+
+				@Override
+				public int getInt(int index) {
+					return ByteUtils.readInt(data, ptrCorrector.applyAsInt(ptr));
+				}
+
+				@Override
+				public void setInt(int index, int value) {
+					ByteUtils.writeInt(data, ptrCorrector.applyAsInt(ptr), value);
+					markWritten(ptrCorrector.applyAsInt(ptr), Integer.BYTES);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -661,7 +732,7 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					byte flag = data[ptrCorrector.apply(ptr)];
+					byte flag = data[ptrCorrector.applyAsInt(ptr)];
 					if (type)
 						return Byte.toUnsignedInt(flag) > 0x7F;
 					return flag == 0;
@@ -674,7 +745,8 @@ public class NormalProfile extends Profile {
 						flag = (byte) ((Boolean) value ? 0xFF : 0x7F);
 					else
 						flag = (byte) ((Boolean) value ? 1 : 0);
-					data[ptrCorrector.apply(ptr)] = flag;
+					data[ptrCorrector.applyAsInt(ptr)] = flag;
+					markWritten(ptrCorrector.applyAsInt(ptr), 1);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -700,52 +772,26 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldBools(String name, int length, int off, int ptr, boolean type) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileFlagField() {
 				@Override
-				public Class<?> getType() {
-					return Boolean.class;
-				}
-
-				@Override
-				public boolean acceptsValue(int index, Object value) {
-					return value instanceof Boolean;
-				}
-
-				@Override
-				public Object getValue(int index) {
-					byte[] ret = new byte[length];
-					ByteUtils.readBytes(data, ptrCorrector.apply(ptr), off, ret);
-					byte flag = ret[index];
+				public boolean getFlag(int index) {
+					byte flag = data[ptrCorrector.applyAsInt(ptr) + index * (1 + off)];
 					if (type)
 						return Byte.toUnsignedInt(flag) > 0x7F;
 					return flag != 0;
 				}
 
 				@Override
-				public void setValue(int index, Object value) {
-					boolean valBool = (Boolean) value;
+				public void setFlag(int index, boolean value) {
 					byte actualVal = 0;
 					if (type) {
 						actualVal = 0x7F;
-						if (valBool)
+						if (value)
 							actualVal = (byte) 0xFF;
-					} else if (valBool)
+					} else if (value)
 						actualVal = 1;
-					int cptr = ptrCorrector.apply(ptr);
-					byte[] vals = new byte[length];
-					ByteUtils.readBytes(data, cptr, off, vals);
-					vals[index] = actualVal;
-					ByteUtils.writeBytes(data, cptr, off, vals);
-				}
-
-				@Override
-				public boolean hasIndexes() {
-					return true;
-				}
-
-				@Override
-				public int getMinimumIndex() {
-					return 0;
+					data[ptrCorrector.applyAsInt(ptr) + index * (1 + off)] = actualVal;
+					markWritten(ptrCorrector.applyAsInt(ptr) + index * (1 + off), 1);
 				}
 
 				@Override
@@ -772,7 +818,7 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldInts(String name, int length, int off, int ptr) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileIntField() {
 				@Override
 				public Class<?> getType() {
 					return Integer.class;
@@ -785,18 +831,23 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					int[] ret = new int[length];
-					ByteUtils.readInts(data, ptrCorrector.apply(ptr), off, ret);
-					return ret[index];
+					return getInt(index);
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					int cptr = ptrCorrector.apply(ptr);
-					int[] vals = new int[length];
-					ByteUtils.readInts(data, cptr, off, vals);
-					vals[index] = (Integer) value;
-					ByteUtils.writeInts(data, cptr, off, vals);
+					setInt(index, (Integer) value);
+				}
+
+				@Override
+				public int getInt(int index) {
+					return ByteUtils.readInt(data, ptrCorrector.applyAsInt(ptr) + index * (Integer.BYTES + off));
+				}
+
+				@Override
+				public void setInt(int index, int value) {
+					ByteUtils.writeInt(data, ptrCorrector.applyAsInt(ptr) + index * (Integer.BYTES + off), value);
+					markWritten(ptrCorrector.applyAsInt(ptr) + index * (Integer.BYTES + off), Integer.BYTES);
 				}
 
 				@Override
@@ -842,12 +893,13 @@ public class NormalProfile extends Profile {
 
 				@Override
 				public Object getValue(int index) {
-					return ByteUtils.readLong(data, ptrCorrector.apply(ptr));
+					return ByteUtils.readLong(data, ptrCorrector.applyAsInt(ptr));
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					ByteUtils.writeLong(data, ptrCorrector.apply(ptr), (Long) value);
+					ByteUtils.writeLong(data, ptrCorrector.applyAsInt(ptr), (Long) value);
+					markWritten(ptrCorrector.applyAsInt(ptr), Long.BYTES);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -883,17 +935,18 @@ public class NormalProfile extends Profile {
 				@Override
 				public Object getValue(int index) {
 					long[] ret = new long[length];
-					ByteUtils.readLongs(data, ptrCorrector.apply(ptr), off, ret);
+					ByteUtils.readLongs(data, ptrCorrector.applyAsInt(ptr), off, ret);
 					return ret[index];
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
-					int cptr = ptrCorrector.apply(ptr);
+					int cptr = ptrCorrector.applyAsInt(ptr);
 					long[] vals = new long[length];
 					ByteUtils.readLongs(data, cptr, off, vals);
 					vals[index] = (Long) value;
 					ByteUtils.writeLongs(data, cptr, off, vals);
+					markWritten(cptr, length * (Long.BYTES + off));
 				}
 
 				@Override
@@ -917,7 +970,8 @@ public class NormalProfile extends Profile {
 	}
 
 	/**
-	 * Creates a bitflag field. Every 8 bitflags take up one byte.
+	 * Creates a bitflag field. Every 8 bitflags take up one byte, and each bitflag
+	 * is read and written in place.
 	 *
 	 * @param name
 	 *            name of field
@@ -928,41 +982,32 @@ public class NormalProfile extends Profile {
 	 */
 	protected void makeFieldFlags(String name, int length, int ptr) {
 		try {
-			addField(name, new ProfileField() {
+			addField(name, new ProfileFlagField() {
 				@Override
-				public Class<?> getType() {
-					return Boolean.class;
-				}
-
-				@Override
-				public boolean acceptsValue(int index, Object value) {
-					return value instanceof Boolean;
+				public boolean getFlag(int index) {
+					return ByteUtils.readFlag(data, ptrCorrector.applyAsInt(ptr), index);
 				}
 
 				@Override
-				public Object getValue(int index) {
-					boolean[] vals = new boolean[length];
-					ByteUtils.readFlags(data, ptrCorrector.apply(ptr), vals);
-					return vals[index];
+				public void setFlag(int index, boolean value) {
+					ByteUtils.writeFlag(data, ptrCorrector.applyAsInt(ptr), index, value);
+					markWritten(ptrCorrector.applyAsInt(ptr) + (index >> 3), 1);
 				}
 
 				@Override
-				public void setValue(int index, Object value) {
-					int cptr = ptrCorrector.apply(ptr);
-					boolean[] vals = new boolean[length];
-					ByteUtils.readFlags(data, cptr, vals);
-					vals[index] = (Boolean) value;
-					ByteUtils.writeFlags(data, cptr, vals);
+				public void setFlags(int from, int to, boolean value) {
+					ByteUtils.writeFlags(data, ptrCorrector.applyAsInt(ptr), from, to, value);
+					markWritten(ptrCorrector.applyAsInt(ptr) + (from >> 3), ((to + 7) >> 3) - (from >> 3));
 				}
 
 				@Override
-				public boolean hasIndexes() {
-					return true;
+				public int countFlags(int from, int to) {
+					return ByteUtils.countFlags(data, ptrCorrector.applyAsInt(ptr), from, to);
 				}
 
 				@Override
-				public int getMinimumIndex() {
-					return 0;
+				public int nextFlag(int from) {
+					return ByteUtils.nextFlag(data, ptrCorrector.applyAsInt(ptr), Math.max(from, 0), length);
 				}
 
 				@Override
@@ -1004,8 +1049,8 @@ public class NormalProfile extends Profile {
 				public Object getValue(int index) {
 					Integer[] ret = new Integer[3];
 					ret[0] = ByteUtils.readInt(data, mapPtr);
-					ret[1] = (int) ByteUtils.readShort(data, ptrCorrector.apply(xPtr));
-					ret[2] = (int) ByteUtils.readShort(data, ptrCorrector.apply(yPtr));
+					ret[1] = (int) ByteUtils.readShort(data, ptrCorrector.applyAsInt(xPtr));
+					ret[2] = (int) ByteUtils.readShort(data, ptrCorrector.applyAsInt(yPtr));
 					return ret;
 				}
 
@@ -1016,9 +1061,12 @@ public class NormalProfile extends Profile {
 				@Override
 				public void setValue(int index, Object value) {
 					Integer[] vals = (Integer[]) value;
-					ByteUtils.writeInt(data, ptrCorrector.apply(mapPtr), vals[0]);
-					ByteUtils.writeShort(data, ptrCorrector.apply(xPtr), int2Short(vals[1]));
-					ByteUtils.writeShort(data, ptrCorrector.apply(yPtr), int2Short(vals[2]));
+					ByteUtils.writeInt(data, ptrCorrector.applyAsInt(mapPtr), vals[0]);
+					markWritten(ptrCorrector.applyAsInt(mapPtr), Integer.BYTES);
+					ByteUtils.writeShort(data, ptrCorrector.applyAsInt(xPtr), int2Short(vals[1]));
+					markWritten(ptrCorrector.applyAsInt(xPtr), Short.BYTES);
+					ByteUtils.writeShort(data, ptrCorrector.applyAsInt(yPtr), int2Short(vals[2]));
+					markWritten(ptrCorrector.applyAsInt(yPtr), Short.BYTES);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -1052,16 +1100,18 @@ public class NormalProfile extends Profile {
 				@Override
 				public Object getValue(int index) {
 					Short[] ret = new Short[2];
-					ret[0] = ByteUtils.readShort(data, ptrCorrector.apply(xPtr));
-					ret[1] = ByteUtils.readShort(data, ptrCorrector.apply(yPtr));
+					ret[0] = ByteUtils.readShort(data, ptrCorrector.applyAsInt(xPtr));
+					ret[1] = ByteUtils.readShort(data, ptrCorrector.applyAsInt(yPtr));
 					return ret;
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
 					Short[] vals = (Short[]) value;
-					ByteUtils.writeShort(data, ptrCorrector.apply(xPtr), vals[0]);
-					ByteUtils.writeShort(data, ptrCorrector.apply(yPtr), vals[1]);
+					ByteUtils.writeShort(data, ptrCorrector.applyAsInt(xPtr), vals[0]);
+					markWritten(ptrCorrector.applyAsInt(xPtr), Short.BYTES);
+					ByteUtils.writeShort(data, ptrCorrector.applyAsInt(yPtr), vals[1]);
+					markWritten(ptrCorrector.applyAsInt(yPtr), Short.BYTES);
 				}
 			});
 		} catch (ProfileFieldException e) {
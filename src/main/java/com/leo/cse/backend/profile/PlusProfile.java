@@ -23,6 +23,11 @@ public class PlusProfile extends NormalProfile {
 	 * The expected CS+ file length.
 	 */
 	public static final int FILE_LENGTH = 0x20020;
+	/**
+	 * The number of save slots in a CS+ file. Slots 0-2 are normal, 3-5 are Curly
+	 * Story.
+	 */
+	public static final int SLOT_COUNT = 6;
 
 	/**
 	 * "Last modified" date in Unix time.
@@ -168,8 +173,8 @@ public class PlusProfile extends NormalProfile {
 		super(false);
 		ptrCorrector = ptr -> {
 			// there are variables beyond the 6 save files, so if the pointer is higher than
-			// (SECTION_LENGTH * 6), it should be returned as-is
-			if (ptr > SECTION_LENGTH * 6)
+			// (SECTION_LENGTH * SLOT_COUNT), it should be returned as-is
+			if (ptr > SECTION_LENGTH * SLOT_COUNT)
 				return ptr;
 			// make sure pointer is in correct section
 			while (ptr > SECTION_LENGTH)
@@ -198,37 +203,48 @@ public class PlusProfile extends NormalProfile {
 
 				@Override
 				public boolean acceptsValue(int index, Object value) {
-					if (index < 0 || index > 5)
+					if (index < 0 || index >= SLOT_COUNT)
 						return false;
 					if (value instanceof Boolean)
 						return true;
 					return false;
 				}
-				
+
+				@Override
+				public boolean hasIndexes() {
+					return true;
+				}
+
+				@Override
+				public int getMinimumIndex() {
+					return 0;
+				}
+
+				@Override
+				public int getMaximumIndex() {
+					return SLOT_COUNT - 1;
+				}
+
 				private int[] getPointer(int index) {
 					int ptr = 0x1F020; // normal
 					if (index > 2) {
 						index -= 3;
 						ptr = 0x1F021; // curly
 					}
-					return new int[] { ptrCorrector.apply(ptr), index };
+					return new int[] { ptrCorrector.applyAsInt(ptr), index };
 				}
 
 				@Override
 				public Object getValue(int index) {
 					int[] ip = getPointer(index);
-					boolean[] f = new boolean[3];
-					ByteUtils.readFlags(data, ip[0], f);
-					return f[ip[1]];
+					return ByteUtils.readFlag(data, ip[0], ip[1]);
 				}
 
 				@Override
 				public void setValue(int index, Object value) {
 					int[] ip = getPointer(index);
-					boolean[] f = new boolean[3];
-					ByteUtils.readFlags(data, ip[0], f);
-					f[ip[1]] = (Boolean) value;
-					ByteUtils.writeFlags(data, ip[0], f);
+					ByteUtils.writeFlag(data, ip[0], ip[1], (Boolean) value);
+					markWritten(ip[0] + (ip[1] >> 3), 1);
 				}
 			});
 		} catch (ProfileFieldException e) {
@@ -269,6 +285,7 @@ public class PlusProfile extends NormalProfile {
 					int srcSec = (int) args[0];
 					int dstSec = (int) args[1];
 					System.arraycopy(data, srcSec * SECTION_LENGTH, data, dstSec * SECTION_LENGTH, SECTION_LENGTH);
+					markWritten(dstSec * SECTION_LENGTH, SECTION_LENGTH);
 					if (dstSec > 2) {
 						int oldSec = curSection;
 						curSection = dstSec;
@@ -310,6 +327,7 @@ public class PlusProfile extends NormalProfile {
 					ByteUtils.writeString(newData, 0, header);
 					ByteUtils.writeString(newData, 0x218, flagH);
 					System.arraycopy(newData, 0, data, secToReplace * SECTION_LENGTH, SECTION_LENGTH);
+					markWritten(secToReplace * SECTION_LENGTH, SECTION_LENGTH);
 					try {
 						setField(FIELD_USED_SLOTS, secToReplace, true);
 						callMethod(METHOD_PUSH_ACTIVE_FILE, fcr, newSection);
@@ -343,6 +361,7 @@ public class PlusProfile extends NormalProfile {
 					int secToReplace = (int) args[0];
 					byte[] newData = new byte[SECTION_LENGTH];
 					System.arraycopy(newData, 0, data, secToReplace * SECTION_LENGTH, SECTION_LENGTH);
+					markWritten(secToReplace * SECTION_LENGTH, SECTION_LENGTH);
 					try {
 						setField(FIELD_USED_SLOTS, secToReplace, false);
 					} catch (ProfileFieldException e) {
@@ -107,6 +107,159 @@ public abstract class Profile {
 
 	}
 
+	/**
+	 * Represents a <code>byte</code>, <code>short</code> or <code>int</code>
+	 * field whose values can be accessed as <code>int</code>s, without boxing.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public interface ProfileIntField extends ProfileField {
+
+		/**
+		 * Gets the field's value, widened to an <code>int</code>.
+		 *
+		 * @param index
+		 *            index to get value from (or -1 if {@linkplain #hasIndexes() the
+		 *            field is indexless})
+		 * @return value of field
+		 */
+		public int getInt(int index);
+
+		/**
+		 * Sets the field's value, narrowing it to the field's type if needed.
+		 *
+		 * @param index
+		 *            index to set (or -1 if {@linkplain #hasIndexes() the field is
+		 *            indexless})
+		 * @param value
+		 *            value to set to
+		 */
+		public void setInt(int index, int value);
+
+	}
+
+	/**
+	 * Represents an indexed field of <code>boolean</code> flags. Besides the
+	 * regular {@link ProfileField} methods, flags can be accessed without boxing,
+	 * and in bulk.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public interface ProfileFlagField extends ProfileField {
+
+		/**
+		 * Gets a flag's value.
+		 *
+		 * @param index
+		 *            index of flag
+		 * @return value of flag
+		 */
+		public boolean getFlag(int index);
+
+		/**
+		 * Sets a flag's value.
+		 *
+		 * @param index
+		 *            index of flag
+		 * @param value
+		 *            value to set to
+		 */
+		public void setFlag(int index, boolean value);
+
+		/**
+		 * Gets the values of a range of flags.
+		 *
+		 * @param start
+		 *            index of first flag
+		 * @param dest
+		 *            destination array. its length is the number of flags to get
+		 */
+		public default void getFlags(int start, boolean[] dest) {
+			for (int i = 0; i < dest.length; i++)
+				dest[i] = getFlag(start + i);
+		}
+
+		/**
+		 * Sets a range of flags to the same value.
+		 *
+		 * @param from
+		 *            index of first flag (inclusive)
+		 * @param to
+		 *            index of last flag (exclusive)
+		 * @param value
+		 *            value to set to
+		 */
+		public default void setFlags(int from, int to, boolean value) {
+			for (int i = from; i < to; i++)
+				setFlag(i, value);
+		}
+
+		/**
+		 * Counts the flags that are set.
+		 *
+		 * @param from
+		 *            index of first flag (inclusive)
+		 * @param to
+		 *            index of last flag (exclusive)
+		 * @return number of set flags
+		 */
+		public default int countFlags(int from, int to) {
+			int ret = 0;
+			for (int i = from; i < to; i++)
+				if (getFlag(i))
+					ret++;
+			return ret;
+		}
+
+		/**
+		 * Finds the next flag that is set. Iterate over all set flags like so:<br />
+		 * <code>for (int i = f.nextFlag(0); i >= 0; i = f.nextFlag(i + 1))</code>
+		 *
+		 * @param from
+		 *            index to start searching from (inclusive)
+		 * @return index of next set flag, or -1 if there is none
+		 */
+		public default int nextFlag(int from) {
+			for (int i = Math.max(from, 0); i <= getMaximumIndex(); i++)
+				if (getFlag(i))
+					return i;
+			return -1;
+		}
+
+		@Override
+		public default Class<?> getType() {
+			return Boolean.class;
+		}
+
+		@Override
+		public default boolean acceptsValue(int index, Object value) {
+			return value instanceof Boolean;
+		}
+
+		@Override
+		public default Object getValue(int index) {
+			return getFlag(index);
+		}
+
+		@Override
+		public default void setValue(int index, Object value) {
+			setFlag(index, (Boolean) value);
+		}
+
+		@Override
+		public default boolean hasIndexes() {
+			return true;
+		}
+
+		@Override
+		public default int getMinimumIndex() {
+			return 0;
+		}
+
+	}
+
 	/**
 	 * Represents a profile method - basically a function that does whatever to the
 	 * profile. Can also take arguments.
@@ -228,6 +381,30 @@ public abstract class Profile {
 		return loadedFile;
 	}
 
+	/**
+	 * Gets the raw data of the loaded profile, which edits can be undone against.
+	 * Fields must read and write this array in place.
+	 *
+	 * @return profile data, or <code>null</code> if the profile doesn't have a raw
+	 *         byte representation (in which case edits can't be undone)
+	 * @see #takeWrittenRange()
+	 */
+	protected byte[] getData() {
+		return null;
+	}
+
+	/**
+	 * Gets the range of {@linkplain #getData() the data} written to since the last
+	 * call, and resets it.
+	 *
+	 * @return start of the range (inclusive) in the upper 32 bits and end of the
+	 *         range (exclusive) in the lower 32 bits, or -1 if the range isn't
+	 *         known
+	 */
+	protected long takeWrittenRange() {
+		return -1;
+	}
+
 	/**
 	 * Gets the profile header.
 	 *
@@ -511,6 +688,166 @@ public abstract class Profile {
 		fieldObj.setValue(index, value);
 	}
 
+	/**
+	 * Gets a field object, so it can be accessed directly.
+	 *
+	 * @param field
+	 *            field to get
+	 * @param type
+	 *            type of field object to expect, such as {@link ProfileIntField}
+	 *            or {@link ProfileFlagField}
+	 * @return the field object
+	 * @throws ProfileFieldException
+	 *             if the field doesn't exist or isn't of the expected type.
+	 */
+	public <T extends ProfileField> T getFieldObject(String field, Class<T> type) throws ProfileFieldException {
+		assertHasField(field);
+		ProfileField fieldObj = fields.get(field);
+		if (!type.isInstance(fieldObj))
+			throw new ProfileFieldException("Field " + field + " is not a " + type.getSimpleName() + "!");
+		return type.cast(fieldObj);
+	}
+
+	/**
+	 * Checks if a field is a {@linkplain ProfileFlagField flag field}.
+	 *
+	 * @param field
+	 *            field to check
+	 * @return <code>true</code> if it is a flag field, <code>false</code> otherwise
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public boolean isFlagField(String field) throws ProfileFieldException {
+		assertHasField(field);
+		return fields.get(field) instanceof ProfileFlagField;
+	}
+
+	/**
+	 * Gets a {@linkplain ProfileFlagField flag field}.
+	 *
+	 * @param field
+	 *            field to get
+	 * @return the flag field
+	 * @throws ProfileFieldException
+	 *             if the field doesn't exist or isn't a flag field.
+	 */
+	protected ProfileFlagField getFlagField(String field) throws ProfileFieldException {
+		if (!isFlagField(field))
+			throw new ProfileFieldException("Field " + field + " is not a flag field!");
+		return (ProfileFlagField) fields.get(field);
+	}
+
+	/**
+	 * Checks if a range of flags is inside a flag field's bounds.
+	 *
+	 * @param field
+	 *            name of field
+	 * @param fieldObj
+	 *            the field itself
+	 * @param from
+	 *            index of first flag (inclusive)
+	 * @param to
+	 *            index of last flag (exclusive)
+	 * @throws ProfileFieldException
+	 *             if the range is out of bounds.
+	 */
+	private void assertValidRange(String field, ProfileFlagField fieldObj, int from, int to)
+			throws ProfileFieldException {
+		if (from < fieldObj.getMinimumIndex() || to - 1 > fieldObj.getMaximumIndex() || from > to)
+			throw new ProfileFieldException(
+					"Range " + from + " to " + to + " is out of bounds for field " + field + "!");
+	}
+
+	/**
+	 * Gets a flag's value.
+	 *
+	 * @param field
+	 *            flag field to get
+	 * @param index
+	 *            index of flag
+	 * @return value of the flag
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public boolean getFlag(String field, int index) throws ProfileFieldException {
+		ProfileFlagField fieldObj = getFlagField(field);
+		if (!fieldObj.isValidIndex(index))
+			throw new ProfileFieldException("Index " + index + " is invalid for field!");
+		return fieldObj.getFlag(index);
+	}
+
+	/**
+	 * Gets the values of a range of flags.
+	 *
+	 * @param field
+	 *            flag field to get
+	 * @param start
+	 *            index of first flag
+	 * @param dest
+	 *            destination array. its length is the number of flags to get
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public void getFlags(String field, int start, boolean[] dest) throws ProfileFieldException {
+		ProfileFlagField fieldObj = getFlagField(field);
+		assertValidRange(field, fieldObj, start, start + dest.length);
+		fieldObj.getFlags(start, dest);
+	}
+
+	/**
+	 * Sets a range of flags to the same value.
+	 *
+	 * @param field
+	 *            flag field to set
+	 * @param from
+	 *            index of first flag (inclusive)
+	 * @param to
+	 *            index of last flag (exclusive)
+	 * @param value
+	 *            value to set
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public void setFlags(String field, int from, int to, boolean value) throws ProfileFieldException {
+		ProfileFlagField fieldObj = getFlagField(field);
+		assertValidRange(field, fieldObj, from, to);
+		fieldObj.setFlags(from, to, value);
+	}
+
+	/**
+	 * Counts the flags that are set in a range.
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @param from
+	 *            index of first flag (inclusive)
+	 * @param to
+	 *            index of last flag (exclusive)
+	 * @return number of set flags
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public int countFlags(String field, int from, int to) throws ProfileFieldException {
+		ProfileFlagField fieldObj = getFlagField(field);
+		assertValidRange(field, fieldObj, from, to);
+		return fieldObj.countFlags(from, to);
+	}
+
+	/**
+	 * Finds the next flag that is set.
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @param from
+	 *            index to start searching from (inclusive)
+	 * @return index of next set flag, or -1 if there is none
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public int nextFlag(String field, int from) throws ProfileFieldException {
+		return getFlagField(field).nextFlag(from);
+	}
+
 	/**
 	 * Gets all registered method names.
 	 *
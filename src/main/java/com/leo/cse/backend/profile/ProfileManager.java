@@ -2,20 +2,19 @@ package com.leo.cse.backend.profile;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedList;
 import java.util.List;
 
 import javax.swing.JOptionPane;
-import javax.swing.undo.CannotRedoException;
-import javax.swing.undo.CannotUndoException;
-import javax.swing.undo.UndoManager;
-import javax.swing.undo.UndoableEdit;
 
 import com.leo.cse.backend.BackendLogger;
 import com.leo.cse.frontend.Main;
 
 /**
- * Stores information for a profile.
+ * Stores information for a profile.<br />
+ * The static methods of this class operate on the
+ * {@linkplain #getDefaultSession() default session}, which is the one the
+ * editor uses. Additional {@link ProfileSession}s can be created to edit other
+ * profiles independently.
  *
  * @author Leo
  *
@@ -99,9 +98,18 @@ public class ProfileManager {
 	public static final String EVENT_UNLOAD = "event.unload";
 
 	/**
-	 * The current implementation class for profiles.
+	 * The default session, used by all static methods of this class.
 	 */
-	private static Class<? extends Profile> implClass = NormalProfile.class;
+	private static final ProfileSession defaultSession = new ProfileSession();
+
+	/**
+	 * Gets the default session.
+	 *
+	 * @return default session
+	 */
+	public static ProfileSession getDefaultSession() {
+		return defaultSession;
+	}
 
 	/**
 	 * Sets the implementation class for profiles.
@@ -109,73 +117,20 @@ public class ProfileManager {
 	 * @param className
 	 *            name of new implementation class
 	 */
-	@SuppressWarnings("unchecked")
 	public static void setClass(String className) {
-		Class<?> tmpClass;
-		try {
-			tmpClass = Class.forName(className);
-		} catch (ClassNotFoundException e) {
-			BackendLogger.error("Profile class not found: " + className + "\nUsing default NormalProfile class instead", e);
-			tmpClass = NormalProfile.class;
-		}
-		if (!Profile.class.isAssignableFrom(tmpClass)) {
-			BackendLogger.error("Profile class does not implement Profile interface: " + className
-					+ "\nUsing default NormalProfile class instead");
-			tmpClass = NormalProfile.class;
-		}
-		implClass = (Class<? extends Profile>) tmpClass;
-		makeImpl();
+		defaultSession.setClass(className);
 	}
 
-	/**
-	 * The current profile implementation - an instance of {@link #implClass}.
-	 */
-	private static Profile impl;
-
 	/**
 	 * Gets the current profile implementation type.<br>
 	 * Note that if this is <b>not</b>
-	 * equal to {@link #implClass}, something has gone wrong.
+	 * equal to the class set with {@link #setClass(String)}, something has gone
+	 * wrong.
 	 *
 	 * @return type of current profile implementation
 	 */
 	public static Class<? extends Profile> getType() {
-		if (impl == null)
-			return null;
-		return impl.getClass();
-	}
-
-	/**
-	 * A list of {@link ProfileListener}s that will be notified if a field gets
-	 * modified.
-	 */
-	private static List<ProfileListener> listeners;
-	/**
-	 * A list of {@link ProfileListener}s that will be added next update.<br />
-	 * <i>NOTE: These will be notified immediately after being added.</i>
-	 */
-	private static List<ProfileListener> listenersToAdd;
-	/**
-	 * A list of {@link ProfileListener}s that will be removed next update.<br />
-	 * <i>NOTE: These will be removed before being notified.</i>
-	 */
-	private static List<ProfileListener> listenersToRemove;
-	/**
-	 * Modified flag. If <code>true</code>, profile data has been modified since the
-	 * last save.
-	 */
-	private static boolean modified;
-
-	/**
-	 * Initialize listener lists.
-	 */
-	private static void initListenerLists() {
-		if (listeners == null)
-			listeners = new LinkedList<>();
-		if (listenersToAdd == null)
-			listenersToAdd = new LinkedList<>();
-		if (listenersToRemove == null)
-			listenersToRemove = new LinkedList<>();
+		return defaultSession.getType();
 	}
 
 	/**
@@ -185,8 +140,7 @@ public class ProfileManager {
 	 *            listener
 	 */
 	public static void addListener(ProfileListener l) {
-		initListenerLists();
-		listenersToAdd.add(l);
+		defaultSession.addListener(l);
 	}
 
 	/**
@@ -196,186 +150,14 @@ public class ProfileManager {
 	 *            listener
 	 */
 	public static void removeListener(ProfileListener l) {
-		if (listeners == null)
-			return;
-		listenersToRemove.add(l);
+		defaultSession.removeListener(l);
 	}
 
 	/**
 	 * Removes all listeners.
 	 */
 	public static void removeAllListeners() {
-		listeners = null;
-		listenersToAdd = null;
-		listenersToRemove = null;
-	}
-
-	/**
-	 * Notifies all listeners of a field being modified.
-	 *
-	 * @param field
-	 *            field that was modified
-	 * @param id
-	 *            index of field that was modified (if applicable)
-	 * @param oldValue
-	 *            old value of field
-	 * @param newValue
-	 *            new value of field
-	 */
-	private static void notifyListeners(String field, int id, Object oldValue, Object newValue) {
-		if (listeners == null)
-			return;
-		if (listenersToAdd != null) {
-			listeners.addAll(listenersToAdd);
-			listenersToAdd.clear();
-		}
-		if (listenersToRemove != null) {
-			listeners.removeAll(listenersToRemove);
-			listenersToRemove.clear();
-		}
-		for (ProfileListener l : listeners)
-			l.onChange(field, id, oldValue, newValue);
-	}
-
-	/**
-	 * Manages undoing and redoing profile edits.
-	 */
-	private static UndoManager undoMan;
-
-	/**
-	 * Represents an edit to a field in the profile.
-	 *
-	 * @author Leo
-	 *
-	 */
-	public static class ProfileEdit implements UndoableEdit {
-
-		/**
-		 * The name of the field that was modified.
-		 */
-		private String field;
-		/**
-		 * The index of the field that was modified.
-		 */
-		private int index;
-		/**
-		 * The field's old value.
-		 */
-		private Object oldVal;
-		/**
-		 * The field's new value.
-		 */
-		private Object newVal;
-		/**
-		 * If <code>true</code>, this edit has been undone and thus can be redone.
-		 */
-		private boolean hasBeenUndone;
-
-		/**
-		 * Constructs a new <code>ProfileEdit</code>.
-		 *
-		 * @param field
-		 *            the name of the field that was modified
-		 * @param index
-		 *            the index of the field that was modified
-		 * @param oldVal
-		 *            the field's old value
-		 * @param newVal
-		 *            the field's new value
-		 */
-		public ProfileEdit(String field, int index, Object oldVal, Object newVal) {
-			this.field = field;
-			this.index = index;
-			this.oldVal = oldVal;
-			this.newVal = newVal;
-		}
-
-		@Override
-		public void undo() throws CannotUndoException {
-			BackendLogger.trace("Attempting to undo: " + getUndoPresentationName());
-			try {
-				setField(field, index, oldVal, false);
-			} catch (Exception e) {
-				BackendLogger.error("Error while undoing: " + getUndoPresentationName(), e);
-				throw new CannotUndoException();
-			}
-			hasBeenUndone = true;
-		}
-
-		@Override
-		public boolean canUndo() {
-			return !hasBeenUndone;
-		}
-
-		@Override
-		public void redo() throws CannotRedoException {
-			BackendLogger.trace("Attempting to redo: " + getRedoPresentationName());
-			try {
-				setField(field, index, newVal, false);
-			} catch (Exception e) {
-				BackendLogger.error("Error while redoing: " + getRedoPresentationName(), e);
-				throw new CannotRedoException();
-			}
-			hasBeenUndone = false;
-		}
-
-		@Override
-		public boolean canRedo() {
-			return hasBeenUndone;
-		}
-
-		@Override
-		public void die() {
-			field = null;
-			oldVal = null;
-			newVal = null;
-		}
-
-		@Override
-		public boolean addEdit(UndoableEdit anEdit) {
-			return false;
-		}
-
-		@Override
-		public boolean replaceEdit(UndoableEdit anEdit) {
-			return false;
-		}
-
-		@Override
-		public boolean isSignificant() {
-			return true;
-		}
-
-		@Override
-		public String getPresentationName() {
-			String fn = field;
-			if (index > -1)
-				fn += "[" + fn + "]";
-			return fn;
-		}
-
-		@Override
-		public String getUndoPresentationName() {
-			String pn = getPresentationName();
-			return "undo " + pn + " from " + newVal + " to " + oldVal;
-		}
-
-		@Override
-		public String getRedoPresentationName() {
-			String pn = getPresentationName();
-			return "redo " + pn + " from " + oldVal + " to " + newVal;
-		}
-
-	}
-
-	/**
-	 * Checks if the undo manager exists.
-	 *
-	 * @return <code>true</code> if undo manager exists, <code>false</code>
-	 *         otherwise.
-	 */
-	private static boolean undoManExists() {
-		return impl != null && impl.getLoadedFile() != null && undoMan != null;
+		defaultSession.removeAllListeners();
 	}
 
 	/**
@@ -385,18 +167,14 @@ public class ProfileManager {
 	 *         otherwise
 	 */
 	public static boolean canUndo() {
-		if (!undoManExists())
-			return false;
-		return undoMan.canUndo();
+		return defaultSession.canUndo();
 	}
 
 	/**
 	 * Undoes an edit.
 	 */
 	public static void undo() {
-		if (!canUndo())
-			return;
-		undoMan.undo();
+		defaultSession.undo();
 	}
 
 	/**
@@ -406,56 +184,46 @@ public class ProfileManager {
 	 *         otherwise
 	 */
 	public static boolean canRedo() {
-		if (!undoManExists())
-			return false;
-		return undoMan.canRedo();
+		return defaultSession.canRedo();
 	}
 
 	/**
 	 * Redoes an edit.
 	 */
 	public static void redo() {
-		if (!canRedo())
-			return;
-		undoMan.redo();
+		defaultSession.redo();
 	}
 
 	/**
-	 * Creates an instance ({@link #impl}) of the current profile implementation
-	 * ({@link #implClass}).
+	 * Starts a compound edit. All edits made until the matching
+	 * {@link #endCompound()} call are undone and redone together.
 	 */
-	private static void makeImpl() {
-		if (implClass == null)
-			implClass = NormalProfile.class;
-		Object implObj;
-		try {
-			implObj = implClass.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			BackendLogger.error("Profile class could not be initialized: " + implClass.getName()
-					+ "\nUsing default NormalProfile class instead", e);
-			implObj = new NormalProfile();
-		}
-		impl = (Profile) implObj;
+	public static void beginCompound() {
+		defaultSession.beginCompound();
 	}
 
 	/**
-	 * Called after loading a profile.
+	 * Ends a compound edit.
 	 */
-	private static void postLoad() {
-		undoMan = new UndoManager();
-		modified = false;
-		// notify listeners
-		notifyListeners(EVENT_LOAD, -1, null, null);
+	public static void endCompound() {
+		defaultSession.endCompound();
+	}
+
+	/**
+	 * Sets the maximum size of the undo history.
+	 *
+	 * @param budget
+	 *            new budget, in bytes
+	 */
+	public static void setUndoBudget(int budget) {
+		defaultSession.setUndoBudget(budget);
 	}
 
 	/**
 	 * Creates a new blank profile.
 	 */
 	public static void create() {
-		unload();
-		makeImpl();
-		impl.create();
-		postLoad();
+		defaultSession.create();
 	}
 
 	/**
@@ -467,19 +235,13 @@ public class ProfileManager {
 	 *             if an I/O error occurs.
 	 */
 	public static void load(File file) throws IOException {
-		if (impl == null)
-			makeImpl();
-		else
-			unload();
 		try {
-			impl.load(file);
+			defaultSession.load(file);
 		} catch (Exception e) {
 			BackendLogger.error("Profile loading failed.", e);
 			JOptionPane.showMessageDialog(Main.window, "An error occured while loading the profile file:\n" + e,
 					"Could not load profile file!", JOptionPane.ERROR_MESSAGE);
-			return;
 		}
-		postLoad();
 	}
 
 	/**
@@ -516,12 +278,7 @@ public class ProfileManager {
 	 *             if an I/O error occurs.
 	 */
 	public static void save(File file) throws IOException {
-		if (impl == null)
-			return;
-		impl.save(file);
-		modified = false;
-		// notify listeners
-		notifyListeners(EVENT_SAVE, -1, null, null);
+		defaultSession.save(file);
 	}
 
 	/**
@@ -533,7 +290,7 @@ public class ProfileManager {
 	 *             if an I/O error occurs.
 	 */
 	public static void save(String path) throws IOException {
-		save(new File(path));
+		defaultSession.save(path);
 	}
 
 	/**
@@ -543,21 +300,14 @@ public class ProfileManager {
 	 *             if an I/O error occurs.
 	 */
 	public static void save() throws IOException {
-		if (impl == null)
-			return;
-		save(impl.getLoadedFile());
+		defaultSession.save();
 	}
 
 	/**
 	 * Unloads the currently loaded profile.
 	 */
 	public static void unload() {
-		if (!isLoaded())
-			return;
-		impl.unload();
-		modified = false;
-		undoMan = null;
-		notifyListeners(EVENT_UNLOAD, -1, null, null);
+		defaultSession.unload();
 	}
 
 	/**
@@ -566,9 +316,7 @@ public class ProfileManager {
 	 * @return currently loaded file, or <code>null</code> if none is loaded
 	 */
 	public static File getLoadedFile() {
-		if (impl == null)
-			return null;
-		return impl.getLoadedFile();
+		return defaultSession.getLoadedFile();
 	}
 
 	/**
@@ -577,9 +325,7 @@ public class ProfileManager {
 	 * @return <code>true</code> if a file is loaded, <code>false</code> otherwise.
 	 */
 	public static boolean isLoaded() {
-		if (impl == null)
-			return false;
-		return impl.isLoaded();
+		return defaultSession.isLoaded();
 	}
 
 	/**
@@ -589,11 +335,7 @@ public class ProfileManager {
 	 *         otherwise.
 	 */
 	public static boolean isModified() {
-		if (impl == null)
-			return false;
-		if (getLoadedFile() == null)
-			return true;
-		return modified;
+		return defaultSession.isModified();
 	}
 
 	/**
@@ -602,9 +344,7 @@ public class ProfileManager {
 	 * @return profile header
 	 */
 	public static String getHeader() {
-		if (impl == null)
-			return null;
-		return impl.getHeader();
+		return defaultSession.getHeader();
 	}
 
 	/**
@@ -614,9 +354,7 @@ public class ProfileManager {
 	 *            new profile header
 	 */
 	public static void setHeader(String header) {
-		if (impl == null)
-			return;
-		impl.setHeader(header);
+		defaultSession.setHeader(header);
 	}
 
 	/**
@@ -625,9 +363,7 @@ public class ProfileManager {
 	 * @return flag header
 	 */
 	public static String getFlagHeader() {
-		if (impl == null)
-			return null;
-		return impl.getFlagHeader();
+		return defaultSession.getFlagHeader();
 	}
 
 	/**
@@ -637,15 +373,11 @@ public class ProfileManager {
 	 *            new flag header
 	 */
 	public static void setFlagHeader(String flagH) {
-		if (impl == null)
-			return;
-		impl.setFlagHeader(flagH);
+		defaultSession.setFlagHeader(flagH);
 	}
 
 	public static List<String> getAllFields() {
-		if (impl == null)
-			return null;
-		return impl.getAllFields();
+		return defaultSession.getAllFields();
 	}
 
 	/**
@@ -658,15 +390,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static boolean hasField(String field) {
-		if (impl == null)
-			return false;
-		boolean ret = false;
-		try {
-			ret = impl.hasField(field);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.hasField(field);
 	}
 
 	/**
@@ -679,15 +403,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static Class<?> getFieldType(String field) {
-		if (impl == null)
-			return null;
-		Class<?> ret = null;
-		try {
-			ret = impl.getFieldType(field);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.getFieldType(field);
 	}
 
 	/**
@@ -700,15 +416,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static boolean fieldHasIndexes(String field) {
-		if (impl == null)
-			return false;
-		boolean ret = false;
-		try {
-			ret = impl.fieldHasIndexes(field);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.fieldHasIndexes(field);
 	}
 
 	/**
@@ -721,15 +429,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static int getFieldMinimumIndex(String field) {
-		if (impl == null)
-			return -1;
-		int ret = -1;
-		try {
-			ret = impl.getFieldMinimumIndex(field);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.getFieldMinimumIndex(field);
 	}
 
 	/**
@@ -742,15 +442,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static int getFieldMaximumIndex(String field) {
-		if (impl == null)
-			return -1;
-		int ret = -1;
-		try {
-			ret = impl.getFieldMaximumIndex(field);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.getFieldMaximumIndex(field);
 	}
 
 	/**
@@ -768,15 +460,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static boolean fieldAcceptsValue(String field, int index, Object value) {
-		if (impl == null)
-			return false;
-		boolean ret = false;
-		try {
-			ret = impl.fieldAcceptsValue(field, index, value);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.fieldAcceptsValue(field, index, value);
 	}
 
 	/**
@@ -792,7 +476,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static boolean fieldAcceptsValue(String field, Object value) {
-		return fieldAcceptsValue(field, -1, value);
+		return defaultSession.fieldAcceptsValue(field, value);
 	}
 
 	/**
@@ -809,15 +493,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static Object getField(String field, int index) {
-		if (impl == null)
-			return null;
-		Object ret;
-		try {
-			ret = impl.getField(field, index);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.getField(field, index);
 	}
 
 	/**
@@ -830,7 +506,7 @@ public class ProfileManager {
 	 *             if a field-related exception occurs.
 	 */
 	public static Object getField(String field) {
-		return getField(field, -1);
+		return defaultSession.getField(field);
 	}
 
 	/**
@@ -844,60 +520,11 @@ public class ProfileManager {
 	 *            indexes}
 	 * @param value
 	 *            value to set
-	 * @param addUndo
-	 *            <code>true</code> to add change to the {@linkplain #undoMan undo
-	 *            manager}, <code>false</code> otherwise
 	 * @throws ProfileFieldException
 	 *             if a field-related exception occurs.
 	 */
-	private static void setField(String field, int index, Object value, boolean addUndo) {
-		if (impl == null)
-			return;
-		Class<?> type = getFieldType(field);
-		Class<?> compType = type.getComponentType();
-		String fieldStr = field;
-		if (fieldHasIndexes(fieldStr))
-			fieldStr += "[" + index + "]";
-		String valueStr = type.cast(value).toString();
-		if (compType != null) {
-			valueStr = compType.getName() + "[";
-			Object[] valArray = (Object[]) value;
-			for (int i = 0; i < valArray.length; i++) {
-				valueStr += compType.cast(valArray[i]);
-				if (i < valArray.length - 1)
-					valueStr += ",";
-			}
-			valueStr += "]";
-		}
-		BackendLogger.trace("setting field " + fieldStr + " to " + valueStr);
-		Object oldValue = getField(field, index);
-		boolean different = false;
-		if (oldValue == null || value == null)
-			different = true;
-		if (compType == null)
-			different = !type.cast(oldValue).equals(type.cast(value));
-		else {
-			Object[] oldArr = (Object[]) type.cast(oldValue), newArr = (Object[]) type.cast(value);
-			if (oldArr.length != newArr.length)
-				different = true;
-			if (!different)
-				for (int i = 0; i < oldArr.length; i++) {
-					different = !compType.cast(oldArr[i]).equals(compType.cast(newArr[i]));
-					if (different)
-						break;
-				}
-		}
-		if (different) {
-			modified = true;
-			notifyListeners(field, index, oldValue, value);
-			if (addUndo)
-				undoMan.addEdit(new ProfileEdit(field, index, oldValue, value));
-		}
-		try {
-			impl.setField(field, index, value);
-		} catch (ProfileFieldException e) {
-			throw new RuntimeException(e);
-		}
+	public static void setField(String field, int index, Object value) {
+		defaultSession.setField(field, index, value);
 	}
 
 	/**
@@ -905,101 +532,148 @@ public class ProfileManager {
 	 *
 	 * @param field
 	 *            field to set
-	 * @param index
-	 *            index to set. will be ignored if
-	 *            the field {@linkplain #fieldHasIndexes(String) doesn't have
-	 *            indexes}
 	 * @param value
 	 *            value to set
 	 * @throws ProfileFieldException
 	 *             if a field-related exception occurs.
 	 */
-	public static void setField(String field, int index, Object value) {
-		setField(field, index, value, true);
+	public static void setField(String field, Object value) {
+		defaultSession.setField(field, value);
 	}
 
 	/**
-	 * Sets a field's value.
+	 * Checks if a field is a {@linkplain Profile.ProfileFlagField flag field},
+	 * which supports the bulk flag methods.
 	 *
 	 * @param field
-	 *            field to set
+	 *            field to check
+	 * @return <code>true</code> if it is a flag field, <code>false</code> otherwise
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public static boolean isFlagField(String field) {
+		return defaultSession.isFlagField(field);
+	}
+
+	/**
+	 * Gets a flag's value. Unlike {@link #getField(String, int)}, this doesn't box
+	 * the value.
+	 *
+	 * @param field
+	 *            flag field to get
+	 * @param index
+	 *            index of flag
+	 * @return value of the flag
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public static boolean getFlag(String field, int index) {
+		return defaultSession.getFlag(field, index);
+	}
+
+	/**
+	 * Gets the values of a range of flags.
+	 *
+	 * @param field
+	 *            flag field to get
+	 * @param start
+	 *            index of first flag
+	 * @param dest
+	 *            destination array. its length is the number of flags to get
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public static void getFlags(String field, int start, boolean[] dest) {
+		defaultSession.getFlags(field, start, dest);
+	}
+
+	/**
+	 * Sets a range of flags to the same value. All flags that actually change are
+	 * undone and redone together.
+	 *
+	 * @param field
+	 *            flag field to set
+	 * @param from
+	 *            index of first flag (inclusive)
+	 * @param to
+	 *            index of last flag (exclusive)
 	 * @param value
 	 *            value to set
 	 * @throws ProfileFieldException
 	 *             if a field-related exception occurs.
 	 */
-	public static void setField(String field, Object value) {
-		setField(field, -1, value);
+	public static void setFlags(String field, int from, int to, boolean value) {
+		defaultSession.setFlags(field, from, to, value);
+	}
+
+	/**
+	 * Counts the flags that are set in a range.
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @param from
+	 *            index of first flag (inclusive)
+	 * @param to
+	 *            index of last flag (exclusive)
+	 * @return number of set flags
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public static int countFlags(String field, int from, int to) {
+		return defaultSession.countFlags(field, from, to);
+	}
+
+	/**
+	 * Counts all flags that are set.
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @return number of set flags
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public static int countFlags(String field) {
+		return defaultSession.countFlags(field);
+	}
+
+	/**
+	 * Finds the next flag that is set. Iterate over all set flags like so:<br />
+	 * <code>for (int i = nextFlag(field, 0); i >= 0; i = nextFlag(field, i + 1))</code>
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @param from
+	 *            index to start searching from (inclusive)
+	 * @return index of next set flag, or -1 if there is none
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public static int nextFlag(String field, int from) {
+		return defaultSession.nextFlag(field, from);
 	}
 
 	public static List<String> getAllMethods() {
-		if (impl == null)
-			return null;
-		return impl.getAllMethods();
+		return defaultSession.getAllMethods();
 	}
 
 	public static boolean hasMethod(String method) {
-		if (impl == null)
-			return false;
-		boolean ret = false;
-		try {
-			ret = impl.hasMethod(method);
-		} catch (ProfileMethodException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.hasMethod(method);
 	}
 
 	public static int getMethodArgNum(String method) {
-		if (impl == null)
-			return -1;
-		int ret = -1;
-		try {
-			ret = impl.getMethodArgNum(method);
-		} catch (ProfileMethodException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.getMethodArgNum(method);
 	}
 
 	public static Class<?>[] getMethodArgTypes(String method) {
-		if (impl == null)
-			return null;
-		Class<?>[] ret = null;
-		try {
-			ret = impl.getMethodArgTypes(method);
-		} catch (ProfileMethodException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.getMethodArgTypes(method);
 	}
 
 	public static Class<?> getMethodRetType(String method) {
-		if (impl == null)
-			return null;
-		Class<?> ret = null;
-		try {
-			ret = impl.getMethodRetType(method);
-		} catch (ProfileMethodException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.getMethodRetType(method);
 	}
 
 	public static Object callMethod(String method, Object... args) {
-		if (impl == null)
-			return null;
-		Object ret = null;
-		try {
-			ret = impl.callMethod(method, (field, index, oldVal, newVal) -> {
-				notifyListeners(field, index, oldVal, newVal);
-				if (ProfileManager.EVENT_DATA_MODIFIED.equals(field))
-					modified = true;
-			}, args);
-		} catch (ProfileMethodException e) {
-			throw new RuntimeException(e);
-		}
-		return ret;
+		return defaultSession.callMethod(method, args);
 	}
 
 }
@@ -0,0 +1,1282 @@
+package com.leo.cse.backend.profile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.leo.cse.backend.BackendLogger;
+import com.leo.cse.backend.UndoJournal;
+import com.leo.cse.backend.profile.ProfileManager.ProfileFieldException;
+import com.leo.cse.backend.profile.ProfileManager.ProfileMethodException;
+
+/**
+ * A profile editing session. Each session has its own profile, undo history,
+ * modified flag and listeners, so several profiles can be edited at the same
+ * time (for example, by worker threads processing a batch of files).<br />
+ * All methods are synchronized on the session, so a session can be shared
+ * between threads. Independent sessions never block each other. Listeners are
+ * notified after the session's lock has been released, so they can safely wait
+ * on threads that use the session.<br />
+ * The editor itself uses the {@linkplain ProfileManager#getDefaultSession()
+ * default session} through the static methods of {@link ProfileManager}.
+ *
+ * @author Leo
+ *
+ */
+public class ProfileSession {
+
+	/**
+	 * The current implementation class for profiles.
+	 */
+	private Class<? extends Profile> implClass;
+	/**
+	 * The current profile implementation - an instance of {@link #implClass}.
+	 */
+	private Profile impl;
+	/**
+	 * A list of {@link ProfileListener}s that will be notified if a field gets
+	 * modified.
+	 */
+	private List<ProfileListener> listeners;
+	/**
+	 * A list of {@link ProfileListener}s that will be added next update.<br />
+	 * <i>NOTE: These will be notified immediately after being added.</i>
+	 */
+	private List<ProfileListener> listenersToAdd;
+	/**
+	 * A list of {@link ProfileListener}s that will be removed next update.<br />
+	 * <i>NOTE: These will be removed before being notified.</i>
+	 */
+	private List<ProfileListener> listenersToRemove;
+	/**
+	 * Changes that listeners haven't been notified of yet.
+	 *
+	 * @see #fireEvents()
+	 */
+	private final List<ProfileEvent> pendingEvents = new ArrayList<>();
+	/**
+	 * If <code>true</code>, a thread is notifying listeners. Only that thread
+	 * delivers events, so they're delivered one at a time and in order - other
+	 * threads just queue theirs and return.
+	 *
+	 * @see #fireEvents()
+	 */
+	private boolean dispatching;
+	/**
+	 * Modified flag. If <code>true</code>, profile data has been modified since the
+	 * last save.
+	 */
+	private boolean modified;
+	/**
+	 * Undo history of the profile data, or <code>null</code> if the profile
+	 * implementation doesn't {@linkplain Profile#getData() expose its data}.
+	 */
+	private UndoJournal journal;
+	/**
+	 * Maximum size of the undo history, in bytes.
+	 */
+	private int undoBudget = UndoJournal.DEFAULT_BUDGET;
+	/**
+	 * Field names, by journal tag.
+	 */
+	private final List<String> journalFields = new ArrayList<>();
+	/**
+	 * Journal tags, by field name.
+	 */
+	private final Map<String, Integer> journalTags = new HashMap<>();
+	/**
+	 * Notifies listeners of changes that are undone or redone. The notifications
+	 * are queued, and fired once {@link #undo()} or {@link #redo()} releases the
+	 * session's lock.
+	 */
+	private final UndoJournal.Listener journalListener = new UndoJournal.Listener() {
+		private Object oldValue;
+
+		@Override
+		public void beforeApply(int tag, int index) {
+			oldValue = getJournalValue(tag, index);
+		}
+
+		@Override
+		public void afterApply(int tag, int index) {
+			modified = true;
+			notifyListeners(journalFields.get(tag), index, oldValue, getJournalValue(tag, index));
+			oldValue = null;
+		}
+	};
+
+	/**
+	 * Creates a new session that uses the {@link NormalProfile} implementation.
+	 */
+	public ProfileSession() {
+		this(NormalProfile.class);
+	}
+
+	/**
+	 * Creates a new session.
+	 *
+	 * @param implClass
+	 *            profile implementation class
+	 */
+	public ProfileSession(Class<? extends Profile> implClass) {
+		this.implClass = implClass;
+	}
+
+	/**
+	 * Sets the implementation class for profiles.
+	 *
+	 * @param className
+	 *            name of new implementation class
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void setClass(String className) {
+		Class<?> tmpClass;
+		try {
+			tmpClass = Class.forName(className);
+		} catch (ClassNotFoundException e) {
+			BackendLogger.error("Profile class not found: " + className + "\nUsing default NormalProfile class instead", e);
+			tmpClass = NormalProfile.class;
+		}
+		if (!Profile.class.isAssignableFrom(tmpClass)) {
+			BackendLogger.error("Profile class does not implement Profile interface: " + className
+					+ "\nUsing default NormalProfile class instead");
+			tmpClass = NormalProfile.class;
+		}
+		implClass = (Class<? extends Profile>) tmpClass;
+		makeImpl();
+	}
+
+	/**
+	 * Gets the current profile implementation type.<br>
+	 * Note that if this is <b>not</b>
+	 * equal to {@link #implClass}, something has gone wrong.
+	 *
+	 * @return type of current profile implementation
+	 */
+	public synchronized Class<? extends Profile> getType() {
+		if (impl == null)
+			return null;
+		return impl.getClass();
+	}
+
+	/**
+	 * Gets the current profile implementation. Used by {@link FieldHandle}s to
+	 * look up their fields.
+	 *
+	 * @return current profile implementation, or <code>null</code> if there is none
+	 */
+	synchronized Profile getImpl() {
+		return impl;
+	}
+
+	/**
+	 * Initialize listener lists.
+	 */
+	private void initListenerLists() {
+		if (listeners == null)
+			listeners = new LinkedList<>();
+		if (listenersToAdd == null)
+			listenersToAdd = new LinkedList<>();
+		if (listenersToRemove == null)
+			listenersToRemove = new LinkedList<>();
+	}
+
+	/**
+	 * Adds a listener.
+	 *
+	 * @param l
+	 *            listener
+	 */
+	public synchronized void addListener(ProfileListener l) {
+		initListenerLists();
+		listenersToAdd.add(l);
+	}
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param l
+	 *            listener
+	 */
+	public synchronized void removeListener(ProfileListener l) {
+		if (listeners == null)
+			return;
+		listenersToRemove.add(l);
+	}
+
+	/**
+	 * Removes all listeners.
+	 */
+	public synchronized void removeAllListeners() {
+		pendingEvents.clear();
+		listeners = null;
+		listenersToAdd = null;
+		listenersToRemove = null;
+	}
+
+	/**
+	 * A change listeners haven't been notified of yet.
+	 *
+	 * @author Leo
+	 *
+	 */
+	private static class ProfileEvent {
+		private final String field;
+		private final int id;
+		private final Object oldValue, newValue;
+
+		public ProfileEvent(String field, int id, Object oldValue, Object newValue) {
+			this.field = field;
+			this.id = id;
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+	}
+
+	/**
+	 * Queues a notification of a field being modified. Listeners are notified by
+	 * {@link #fireEvents()} once the session's lock is released.
+	 *
+	 * @param field
+	 *            field that was modified
+	 * @param id
+	 *            index of field that was modified (if applicable)
+	 * @param oldValue
+	 *            old value of field
+	 * @param newValue
+	 *            new value of field
+	 */
+	private void notifyListeners(String field, int id, Object oldValue, Object newValue) {
+		if (listeners == null)
+			return;
+		pendingEvents.add(new ProfileEvent(field, id, oldValue, newValue));
+	}
+
+	/**
+	 * Notifies all listeners of the queued changes. Does nothing if the current
+	 * thread holds the session's lock - the outermost method call fires the events
+	 * once the lock has been released.<br />
+	 * No lock is held while listeners run. If another thread is already notifying
+	 * listeners, this returns right away and that thread delivers the queued
+	 * events once it's done with its own.
+	 */
+	private void fireEvents() {
+		if (Thread.holdsLock(this))
+			return;
+		synchronized (this) {
+			if (dispatching)
+				return;
+			dispatching = true;
+		}
+		boolean done = false;
+		try {
+			while (true) {
+				List<ProfileEvent> events;
+				List<ProfileListener> targets;
+				synchronized (this) {
+					if (pendingEvents.isEmpty() || listeners == null) {
+						pendingEvents.clear();
+						dispatching = false;
+						done = true;
+						return;
+					}
+					events = new ArrayList<>(pendingEvents);
+					pendingEvents.clear();
+					if (listenersToAdd != null) {
+						listeners.addAll(listenersToAdd);
+						listenersToAdd.clear();
+					}
+					if (listenersToRemove != null) {
+						listeners.removeAll(listenersToRemove);
+						listenersToRemove.clear();
+					}
+					targets = new ArrayList<>(listeners);
+				}
+				for (ProfileEvent e : events)
+					for (ProfileListener l : targets)
+						l.onChange(e.field, e.id, e.oldValue, e.newValue);
+			}
+		} finally {
+			// a listener threw - let the next call deliver what's left
+			if (!done)
+				synchronized (this) {
+					dispatching = false;
+				}
+		}
+	}
+
+	/**
+	 * Checks if the undo journal exists.
+	 *
+	 * @return <code>true</code> if undo journal exists, <code>false</code>
+	 *         otherwise.
+	 */
+	private boolean journalExists() {
+		return impl != null && impl.getLoadedFile() != null && journal != null;
+	}
+
+	/**
+	 * Gets the journal tag of a field.
+	 *
+	 * @param field
+	 *            field name
+	 * @return tag
+	 */
+	private int getJournalTag(String field) {
+		Integer tag = journalTags.get(field);
+		if (tag == null) {
+			tag = journalFields.size();
+			journalFields.add(field);
+			journalTags.put(field, tag);
+		}
+		return tag;
+	}
+
+	/**
+	 * Gets the value of a field that a journal record refers to.
+	 *
+	 * @param tag
+	 *            journal tag of field
+	 * @param index
+	 *            index of field
+	 * @return value of field, or <code>null</code> if the record covers a range of
+	 *         an indexed field
+	 */
+	private Object getJournalValue(int tag, int index) {
+		String field = journalFields.get(tag);
+		if (index < 0 && fieldHasIndexes(field))
+			return null;
+		return getField(field, index);
+	}
+
+	/**
+	 * Adds the data written to since the last call to the undo journal.
+	 *
+	 * @param field
+	 *            field that was modified
+	 * @param index
+	 *            index of field that was modified, or -1 if a range of it was
+	 *            modified
+	 */
+	private void recordWritten(String field, int index) {
+		long range = impl.takeWrittenRange();
+		if (journal == null)
+			return;
+		if (range == -1)
+			journal.record(getJournalTag(field), index);
+		else
+			journal.record(getJournalTag(field), index, (int) (range >>> 32), (int) range);
+	}
+
+	/**
+	 * Accepts the data written to since the last call, without adding it to the
+	 * undo journal.
+	 */
+	private void syncWritten() {
+		long range = impl.takeWrittenRange();
+		if (journal == null || range == 0)
+			return;
+		if (range == -1)
+			journal.sync(0, Integer.MAX_VALUE);
+		else
+			journal.sync((int) (range >>> 32), (int) range);
+	}
+
+	/**
+	 * Sets the maximum size of the undo history. The oldest edits are dropped
+	 * once it's exceeded.
+	 *
+	 * @param budget
+	 *            new budget, in bytes
+	 */
+	public synchronized void setUndoBudget(int budget) {
+		undoBudget = budget;
+		if (journal != null)
+			journal.setBudget(budget);
+	}
+
+	/**
+	 * Starts a compound edit. All edits made until the matching
+	 * {@link #endCompound()} call are undone and redone together. Compound edits
+	 * can be nested.
+	 */
+	public synchronized void beginCompound() {
+		if (journal != null)
+			journal.beginCompound();
+	}
+
+	/**
+	 * Ends a compound edit.
+	 */
+	public synchronized void endCompound() {
+		if (journal != null)
+			journal.endCompound();
+	}
+
+	/**
+	 * Checks if an edit can be undone.
+	 *
+	 * @return <code>true</code> if an edit can be undone, <code>false</code>
+	 *         otherwise
+	 */
+	public synchronized boolean canUndo() {
+		if (!journalExists())
+			return false;
+		return journal.canUndo();
+	}
+
+	/**
+	 * Undoes an edit.
+	 */
+	public void undo() {
+		try {
+			synchronized (this) {
+				if (!canUndo())
+					return;
+				BackendLogger.trace("undoing profile edit");
+				journal.undo(journalListener);
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Checks if an edit can be redone.
+	 *
+	 * @return <code>true</code> if an edit can be redone, <code>false</code>
+	 *         otherwise
+	 */
+	public synchronized boolean canRedo() {
+		if (!journalExists())
+			return false;
+		return journal.canRedo();
+	}
+
+	/**
+	 * Redoes an edit.
+	 */
+	public void redo() {
+		try {
+			synchronized (this) {
+				if (!canRedo())
+					return;
+				BackendLogger.trace("redoing profile edit");
+				journal.redo(journalListener);
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Creates an instance ({@link #impl}) of the current profile implementation
+	 * ({@link #implClass}).
+	 */
+	private void makeImpl() {
+		if (implClass == null)
+			implClass = NormalProfile.class;
+		Object implObj;
+		try {
+			implObj = implClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			BackendLogger.error("Profile class could not be initialized: " + implClass.getName()
+					+ "\nUsing default NormalProfile class instead", e);
+			implObj = new NormalProfile();
+		}
+		impl = (Profile) implObj;
+	}
+
+	/**
+	 * Called after loading a profile.
+	 */
+	private void postLoad() {
+		impl.takeWrittenRange();
+		byte[] data = impl.getData();
+		journal = data == null ? null : new UndoJournal(data, undoBudget);
+		modified = false;
+		// notify listeners
+		notifyListeners(ProfileManager.EVENT_LOAD, -1, null, null);
+	}
+
+	/**
+	 * Creates a new blank profile.
+	 */
+	public void create() {
+		try {
+			synchronized (this) {
+				unload();
+				makeImpl();
+				impl.create();
+				postLoad();
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Loads a profile.
+	 *
+	 * @param file
+	 *            profile to load
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void load(File file) throws IOException {
+		try {
+			synchronized (this) {
+				if (impl == null)
+					makeImpl();
+				else
+					unload();
+				impl.load(file);
+				postLoad();
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Loads a profile.
+	 *
+	 * @param path
+	 *            path to profile to load
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void load(String path) throws IOException {
+		load(new File(path));
+	}
+
+	/**
+	 * Reloads an already-loaded profile.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void reload() throws IOException {
+		try {
+			synchronized (this) {
+				File loadedFile = getLoadedFile();
+				if (loadedFile == null)
+					return;
+				load(loadedFile);
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Saves a profile.
+	 *
+	 * @param file
+	 *            file to save to
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void save(File file) throws IOException {
+		try {
+			synchronized (this) {
+				if (impl == null)
+					return;
+				impl.save(file);
+				modified = false;
+				// notify listeners
+				notifyListeners(ProfileManager.EVENT_SAVE, -1, null, null);
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Saves a profile.
+	 *
+	 * @param file
+	 *            path to file to save to
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void save(String path) throws IOException {
+		save(new File(path));
+	}
+
+	/**
+	 * Saves a profile to the file it was loaded from.
+	 *
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 */
+	public void save() throws IOException {
+		try {
+			synchronized (this) {
+				if (impl == null)
+					return;
+				save(impl.getLoadedFile());
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Unloads the currently loaded profile.
+	 */
+	public void unload() {
+		try {
+			synchronized (this) {
+				if (!isLoaded())
+					return;
+				impl.unload();
+				modified = false;
+				journal = null;
+				notifyListeners(ProfileManager.EVENT_UNLOAD, -1, null, null);
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Gets the currently loaded file.
+	 *
+	 * @return currently loaded file, or <code>null</code> if none is loaded
+	 */
+	public synchronized File getLoadedFile() {
+		if (impl == null)
+			return null;
+		return impl.getLoadedFile();
+	}
+
+	/**
+	 * Checks if a file is currently loaded.
+	 *
+	 * @return <code>true</code> if a file is loaded, <code>false</code> otherwise.
+	 */
+	public synchronized boolean isLoaded() {
+		if (impl == null)
+			return false;
+		return impl.isLoaded();
+	}
+
+	/**
+	 * Checks if the file has been modified since the last save.
+	 *
+	 * @return <code>true</code> if file has been modified, <code>false</code>
+	 *         otherwise.
+	 */
+	public synchronized boolean isModified() {
+		if (impl == null)
+			return false;
+		if (getLoadedFile() == null)
+			return true;
+		return modified;
+	}
+
+	/**
+	 * Gets the profile header.
+	 *
+	 * @return profile header
+	 */
+	public synchronized String getHeader() {
+		if (impl == null)
+			return null;
+		return impl.getHeader();
+	}
+
+	/**
+	 * Sets the profile header for validating profiles.
+	 *
+	 * @param header
+	 *            new profile header
+	 */
+	public synchronized void setHeader(String header) {
+		if (impl == null)
+			return;
+		impl.setHeader(header);
+	}
+
+	/**
+	 * Gets the flag section header.
+	 *
+	 * @return flag header
+	 */
+	public synchronized String getFlagHeader() {
+		if (impl == null)
+			return null;
+		return impl.getFlagHeader();
+	}
+
+	/**
+	 * Sets the flag section header for validating profiles.
+	 *
+	 * @param flagH
+	 *            new flag header
+	 */
+	public synchronized void setFlagHeader(String flagH) {
+		if (impl == null)
+			return;
+		impl.setFlagHeader(flagH);
+	}
+
+	public synchronized List<String> getAllFields() {
+		if (impl == null)
+			return null;
+		return impl.getAllFields();
+	}
+
+	/**
+	 * Checks if a field exists.
+	 *
+	 * @param field
+	 *            field to check
+	 * @return <code>true</code> if it exists, <code>false</code> otherwise
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized boolean hasField(String field) {
+		if (impl == null)
+			return false;
+		boolean ret = false;
+		try {
+			ret = impl.hasField(field);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets a field's value type.
+	 *
+	 * @param field
+	 *            field to check
+	 * @return the field's type
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized Class<?> getFieldType(String field) {
+		if (impl == null)
+			return null;
+		Class<?> ret = null;
+		try {
+			ret = impl.getFieldType(field);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks if a field has indexes.
+	 *
+	 * @param field
+	 *            field to check
+	 * @return <code>true</code> if it has indexes, <code>false</code> otherwise
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized boolean fieldHasIndexes(String field) {
+		if (impl == null)
+			return false;
+		boolean ret = false;
+		try {
+			ret = impl.fieldHasIndexes(field);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets the minimum index of a field.
+	 *
+	 * @param field
+	 *            field to check
+	 * @return minimum field index
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized int getFieldMinimumIndex(String field) {
+		if (impl == null)
+			return -1;
+		int ret = -1;
+		try {
+			ret = impl.getFieldMinimumIndex(field);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets the maximum index of a field.
+	 *
+	 * @param field
+	 *            field to check
+	 * @return maximum field index
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized int getFieldMaximumIndex(String field) {
+		if (impl == null)
+			return -1;
+		int ret = -1;
+		try {
+			ret = impl.getFieldMaximumIndex(field);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks if a field accepts a value.
+	 *
+	 * @param field
+	 *            field to check against
+	 * @param index
+	 *            index to check against
+	 * @param value
+	 *            value to check
+	 * @return <code>true</code> if the value is acceptable, <code>false</code>
+	 *         otherwise
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized boolean fieldAcceptsValue(String field, int index, Object value) {
+		if (impl == null)
+			return false;
+		boolean ret = false;
+		try {
+			ret = impl.fieldAcceptsValue(field, index, value);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks if a field accepts a value.
+	 *
+	 * @param field
+	 *            field to check against
+	 * @param value
+	 *            value to check
+	 * @return <code>true</code> if the value is acceptable, <code>false</code>
+	 *         otherwise
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized boolean fieldAcceptsValue(String field, Object value) {
+		return fieldAcceptsValue(field, -1, value);
+	}
+
+	/**
+	 * Gets a field's value.
+	 *
+	 * @param field
+	 *            field to get
+	 * @param index
+	 *            index to get. will be ignored if
+	 *            the field {@linkplain #fieldHasIndexes(String) doesn't have
+	 *            indexes}
+	 * @return value of the field
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized Object getField(String field, int index) {
+		if (impl == null)
+			return null;
+		Object ret;
+		try {
+			ret = impl.getField(field, index);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets a field's value.
+	 *
+	 * @param field
+	 *            field to get
+	 * @return value of the field
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized Object getField(String field) {
+		return getField(field, -1);
+	}
+
+	/**
+	 * Sets a field's value.
+	 *
+	 * @param field
+	 *            field to set
+	 * @param index
+	 *            index to set. will be ignored if
+	 *            the field {@linkplain #fieldHasIndexes(String) doesn't have
+	 *            indexes}
+	 * @param value
+	 *            value to set
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public void setField(String field, int index, Object value) {
+		try {
+			synchronized (this) {
+				if (impl == null)
+					return;
+				Class<?> type = getFieldType(field);
+				Class<?> compType = type.getComponentType();
+				String fieldStr = field;
+				if (fieldHasIndexes(fieldStr))
+					fieldStr += "[" + index + "]";
+				String valueStr = type.cast(value).toString();
+				if (compType != null) {
+					valueStr = compType.getName() + "[";
+					Object[] valArray = (Object[]) value;
+					for (int i = 0; i < valArray.length; i++) {
+						valueStr += compType.cast(valArray[i]);
+						if (i < valArray.length - 1)
+							valueStr += ",";
+					}
+					valueStr += "]";
+				}
+				BackendLogger.trace("setting field " + fieldStr + " to " + valueStr);
+				Object oldValue = getField(field, index);
+				boolean different = false;
+				if (oldValue == null || value == null)
+					different = true;
+				if (compType == null)
+					different = !type.cast(oldValue).equals(type.cast(value));
+				else {
+					Object[] oldArr = (Object[]) type.cast(oldValue), newArr = (Object[]) type.cast(value);
+					if (oldArr.length != newArr.length)
+						different = true;
+					if (!different)
+						for (int i = 0; i < oldArr.length; i++) {
+							different = !compType.cast(oldArr[i]).equals(compType.cast(newArr[i]));
+							if (different)
+								break;
+						}
+				}
+				if (different) {
+					modified = true;
+					notifyListeners(field, index, oldValue, value);
+				}
+				try {
+					impl.setField(field, index, value);
+				} catch (ProfileFieldException e) {
+					throw new RuntimeException(e);
+				}
+				recordWritten(field, index);
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Sets a field's value.
+	 *
+	 * @param field
+	 *            field to set
+	 * @param value
+	 *            value to set
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public void setField(String field, Object value) {
+		setField(field, -1, value);
+	}
+
+	/**
+	 * Records a change that was written directly to a field, such as by a
+	 * {@link FieldHandle}. Listeners are notified, and the change is added to the
+	 * {@linkplain #journal undo journal}.
+	 *
+	 * @param field
+	 *            field that was modified
+	 * @param index
+	 *            index of field that was modified (if applicable)
+	 * @param oldValue
+	 *            old value of field
+	 * @param newValue
+	 *            new value of field
+	 */
+	void recordChange(String field, int index, Object oldValue, Object newValue) {
+		try {
+			synchronized (this) {
+				modified = true;
+				notifyListeners(field, index, oldValue, newValue);
+				recordWritten(field, index);
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Checks if a field is a {@linkplain Profile.ProfileFlagField flag field},
+	 * which supports the bulk flag methods.
+	 *
+	 * @param field
+	 *            field to check
+	 * @return <code>true</code> if it is a flag field, <code>false</code> otherwise
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized boolean isFlagField(String field) {
+		if (impl == null)
+			return false;
+		boolean ret = false;
+		try {
+			ret = impl.isFlagField(field);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets a flag's value. Unlike {@link #getField(String, int)}, this doesn't box
+	 * the value.
+	 *
+	 * @param field
+	 *            flag field to get
+	 * @param index
+	 *            index of flag
+	 * @return value of the flag
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized boolean getFlag(String field, int index) {
+		if (impl == null)
+			return false;
+		boolean ret = false;
+		try {
+			ret = impl.getFlag(field, index);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Gets the values of a range of flags.
+	 *
+	 * @param field
+	 *            flag field to get
+	 * @param start
+	 *            index of first flag
+	 * @param dest
+	 *            destination array. its length is the number of flags to get
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized void getFlags(String field, int start, boolean[] dest) {
+		if (impl == null)
+			return;
+		try {
+			impl.getFlags(field, start, dest);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Sets a range of flags to the same value. All flags that actually change are
+	 * undone and redone together, as a single {@linkplain #beginCompound()
+	 * compound edit}.
+	 *
+	 * @param field
+	 *            flag field to set
+	 * @param from
+	 *            index of first flag (inclusive)
+	 * @param to
+	 *            index of last flag (exclusive)
+	 * @param value
+	 *            value to set
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public void setFlags(String field, int from, int to, boolean value) {
+		try {
+			synchronized (this) {
+				if (impl == null)
+					return;
+				BackendLogger.trace("setting flags " + field + "[" + from + "-" + (to - 1) + "] to " + value);
+				boolean[] oldVals = new boolean[Math.max(to - from, 0)];
+				try {
+					impl.getFlags(field, from, oldVals);
+					impl.setFlags(field, from, to, value);
+				} catch (ProfileFieldException e) {
+					throw new RuntimeException(e);
+				}
+				for (int i = 0; i < oldVals.length; i++) {
+					if (oldVals[i] == value)
+						continue;
+					modified = true;
+					notifyListeners(field, from + i, oldVals[i], value);
+				}
+				beginCompound();
+				recordWritten(field, -1);
+				endCompound();
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+	/**
+	 * Counts the flags that are set in a range.
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @param from
+	 *            index of first flag (inclusive)
+	 * @param to
+	 *            index of last flag (exclusive)
+	 * @return number of set flags
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized int countFlags(String field, int from, int to) {
+		if (impl == null)
+			return 0;
+		int ret = 0;
+		try {
+			ret = impl.countFlags(field, from, to);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	/**
+	 * Counts all flags that are set.
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @return number of set flags
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized int countFlags(String field) {
+		return countFlags(field, getFieldMinimumIndex(field), getFieldMaximumIndex(field) + 1);
+	}
+
+	/**
+	 * Finds the next flag that is set. Iterate over all set flags like so:<br />
+	 * <code>for (int i = nextFlag(field, 0); i >= 0; i = nextFlag(field, i + 1))</code>
+	 *
+	 * @param field
+	 *            flag field to check
+	 * @param from
+	 *            index to start searching from (inclusive)
+	 * @return index of next set flag, or -1 if there is none
+	 * @throws ProfileFieldException
+	 *             if a field-related exception occurs.
+	 */
+	public synchronized int nextFlag(String field, int from) {
+		if (impl == null)
+			return -1;
+		int ret = -1;
+		try {
+			ret = impl.nextFlag(field, from);
+		} catch (ProfileFieldException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	public synchronized List<String> getAllMethods() {
+		if (impl == null)
+			return null;
+		return impl.getAllMethods();
+	}
+
+	public synchronized boolean hasMethod(String method) {
+		if (impl == null)
+			return false;
+		boolean ret = false;
+		try {
+			ret = impl.hasMethod(method);
+		} catch (ProfileMethodException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	public synchronized int getMethodArgNum(String method) {
+		if (impl == null)
+			return -1;
+		int ret = -1;
+		try {
+			ret = impl.getMethodArgNum(method);
+		} catch (ProfileMethodException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	public synchronized Class<?>[] getMethodArgTypes(String method) {
+		if (impl == null)
+			return null;
+		Class<?>[] ret = null;
+		try {
+			ret = impl.getMethodArgTypes(method);
+		} catch (ProfileMethodException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	public synchronized Class<?> getMethodRetType(String method) {
+		if (impl == null)
+			return null;
+		Class<?> ret = null;
+		try {
+			ret = impl.getMethodRetType(method);
+		} catch (ProfileMethodException e) {
+			throw new RuntimeException(e);
+		}
+		return ret;
+	}
+
+	public Object callMethod(String method, Object... args) {
+		try {
+			synchronized (this) {
+				if (impl == null)
+					return null;
+				Object ret = null;
+				try {
+					ret = impl.callMethod(method, (field, index, oldVal, newVal) -> {
+						notifyListeners(field, index, oldVal, newVal);
+						if (ProfileManager.EVENT_DATA_MODIFIED.equals(field))
+							modified = true;
+					}, args);
+				} catch (ProfileMethodException e) {
+					throw new RuntimeException(e);
+				}
+				// methods can't be undone, so don't let undoing earlier edits overwrite
+				// what they wrote
+				syncWritten();
+				return ret;
+			}
+		} finally {
+			fireEvents();
+		}
+	}
+
+}
@@ -1,136 +1,318 @@
 package com.leo.cse.backend.tsc;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
-import com.leo.cse.backend.StrTools;
+import com.leo.cse.backend.CStringDecoder;
 import com.leo.cse.backend.exe.ExeData;
 
 /**
- * Stores events loaded from a TSC file.
- * 
+ * A TSC script.<br />
+ * The script is decrypted in a single pass, which also records where each
+ * <code>#NNNN</code> event starts. Only the decrypted bytes and that index are
+ * kept in memory - events are decoded to <code>String</code>s when they're
+ * requested.
+ *
  * @author Leo
  *
  */
 public class TSCFile {
 
 	/**
-	 * Raw script.
+	 * Decrypted script.
+	 */
+	private final byte[] data;
+	/**
+	 * Length of the script. Anything after the first NUL byte is ignored.
+	 */
+	private final int length;
+	/**
+	 * Decoder for the encoding that was active when the script was loaded.
+	 */
+	private final CStringDecoder decoder;
+	/**
+	 * Event numbers, in ascending order.
+	 */
+	private final int[] eventIDs;
+	/**
+	 * Offset of each event's body (the line after its header), in the same order
+	 * as {@link #eventIDs}.
 	 */
-	private String script;
+	private final int[] eventStarts;
 	/**
-	 * Event map.
+	 * Offset of the end of each event's body, in the same order as
+	 * {@link #eventIDs}.
 	 */
-	private Map<Integer, String> events;
+	private final int[] eventEnds;
 
 	/**
-	 * Reads TSC from a file.
-	 * 
+	 * Loads a TSC script. Files with the ".tsc" extension are decrypted, any
+	 * other file is read as plain text.
+	 *
 	 * @param in
-	 *            source file
+	 *            script file
 	 * @throws IOException
 	 *             if an I/O error occurs.
 	 */
 	public TSCFile(File in) throws IOException {
-		FileInputStream fileIn = new FileInputStream(in);
-		FileChannel inChan = fileIn.getChannel();
-		ByteBuffer dataBuf = null;
-		int fileSize = 0;
-		fileSize = (int) inChan.size();
-		dataBuf = ByteBuffer.allocate(fileSize);
-		inChan.read(dataBuf);
-		fileIn.close();
-		byte[] datArray = null;
-		if (fileSize > 0) {
-			int cypher = dataBuf.get(fileSize / 2);
-			datArray = dataBuf.array();
-			if (in.getName().endsWith(".tsc")) {
-				for (int i = 0; i < fileSize; i++) {
-					if (i != fileSize / 2) {
-						datArray[i] -= cypher;
-					}
-				}
+		data = Files.readAllBytes(in.toPath());
+		decoder = ExeData.getDecoder();
+		int fileSize = data.length;
+		int mid = fileSize / 2;
+		byte cypher = fileSize > 0 && in.getName().endsWith(".tsc") ? data[mid] : 0;
+		// decrypt and find candidate event headers ('#' at the start of a line)
+		int[] headers = new int[64];
+		int headerCount = 0;
+		int len = fileSize;
+		boolean lineStart = true;
+		for (int i = 0; i < fileSize; i++) {
+			byte b = data[i];
+			if (i != mid)
+				data[i] = b -= cypher;
+			if (b == 0) {
+				len = i;
+				break;
 			}
-		}
-		// now read the input as text
-		if (datArray != null)
-			script = StrTools.CString(datArray, ExeData.getEncoding());
-		// divide script into events
-		events = new HashMap<>();
-		String[] lines = script.split("\n");
-		int currentEvent = -1;
-		String eventBuf = null;
-		for (String line : lines) {
-			if (line.startsWith("#")) {
-				// new event
-				if (currentEvent > 0)
-					events.put(currentEvent, eventBuf);
-				currentEvent = Integer.parseUnsignedInt(line.substring(1, 5));
-				eventBuf = null;
-			} else {
-				// normal line
-				if (eventBuf == null)
-					eventBuf = line;
-				else
-					eventBuf += line;
+			if (lineStart && b == '#') {
+				if (headerCount == headers.length)
+					headers = Arrays.copyOf(headers, headerCount * 2);
+				headers[headerCount++] = i;
 			}
+			lineStart = b == '\n';
 		}
+		length = len;
+		// parse the event numbers, packed with their order in the file so sorting
+		// keeps duplicates in file order
+		long[] events = new long[headerCount];
+		int eventCount = 0;
+		for (int i = 0; i < headerCount; i++) {
+			int id = parseEventID(headers[i]);
+			if (id >= 0)
+				events[eventCount++] = (long) id << 32 | i;
+		}
+		Arrays.sort(events, 0, eventCount);
+		int[] ids = new int[eventCount], starts = new int[eventCount], ends = new int[eventCount];
+		int n = 0;
+		for (int i = 0; i < eventCount; i++) {
+			int id = (int) (events[i] >>> 32);
+			// like the game, only the first event with a given number is used
+			if (n > 0 && ids[n - 1] == id)
+				continue;
+			int h = (int) events[i];
+			ids[n] = id;
+			starts[n] = skipLine(headers[h]);
+			// an event ends where the next header starts
+			int end = length;
+			for (int j = h + 1; j < headerCount; j++)
+				if (parseEventID(headers[j]) >= 0) {
+					end = headers[j];
+					break;
+				}
+			ends[n] = end;
+			n++;
+		}
+		eventIDs = Arrays.copyOf(ids, n);
+		eventStarts = Arrays.copyOf(starts, n);
+		eventEnds = Arrays.copyOf(ends, n);
 	}
 
-	/**
-	 * Reads TSC from a file.
-	 * 
-	 * @param inName
-	 *            source file name
-	 * @throws IOException
-	 *             if an I/O error occurs.
-	 */
 	public TSCFile(String inName) throws IOException {
 		this(new File(inName));
 	}
 
 	/**
-	 * Gets the raw script.
-	 * 
+	 * Parses the event number of a header.
+	 *
+	 * @param ptr
+	 *            position of the header's '#'
+	 * @return event number, or -1 if the header isn't followed by 4 digits
+	 */
+	private int parseEventID(int ptr) {
+		if (ptr + 5 > length)
+			return -1;
+		int id = 0;
+		for (int i = 1; i <= 4; i++) {
+			int c = data[ptr + i] - '0';
+			if (c < 0 || c > 9)
+				return -1;
+			id = id * 10 + c;
+		}
+		return id;
+	}
+
+	/**
+	 * Finds the start of the next line.
+	 *
+	 * @param ptr
+	 *            position in the current line
+	 * @return position of the next line, or the script length if this is the last
+	 *         line
+	 */
+	private int skipLine(int ptr) {
+		while (ptr < length && data[ptr] != '\n')
+			ptr++;
+		return Math.min(ptr + 1, length);
+	}
+
+	/**
+	 * Gets the index of an event.
+	 *
+	 * @param number
+	 *            event number
+	 * @return index in {@link #eventIDs}, or a negative value if there is no such
+	 *         event
+	 */
+	private int indexOf(int number) {
+		return Arrays.binarySearch(eventIDs, number);
+	}
+
+	/**
+	 * Decodes the entire script.
+	 *
 	 * @return script
 	 */
 	public String getScript() {
-		return script;
+		return decoder.decode(data, 0, length);
 	}
 
 	/**
-	 * Gets all event IDs.
-	 * 
-	 * @return event IDs
+	 * Gets the numbers of all events in this script.
+	 *
+	 * @return event numbers, in ascending order
 	 */
 	public Set<Integer> getEventIDs() {
-		return events.keySet();
+		return new AbstractSet<Integer>() {
+			@Override
+			public Iterator<Integer> iterator() {
+				return new Iterator<Integer>() {
+					private int i;
+
+					@Override
+					public boolean hasNext() {
+						return i < eventIDs.length;
+					}
+
+					@Override
+					public Integer next() {
+						if (i >= eventIDs.length)
+							throw new NoSuchElementException();
+						return eventIDs[i++];
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof Integer && hasEvent((Integer) o);
+			}
+
+			@Override
+			public int size() {
+				return eventIDs.length;
+			}
+		};
 	}
 
 	/**
-	 * Gets the event map.
-	 * 
-	 * @return event map
+	 * Decodes all events in this script.<br />
+	 * Prefer {@link #getEvent(int)} when only some events are needed.
+	 *
+	 * @return map of event numbers to event bodies
 	 */
 	public Map<Integer, String> getEvents() {
+		Map<Integer, String> events = new HashMap<>();
+		for (int i = 0; i < eventIDs.length; i++)
+			events.put(eventIDs[i], decodeEvent(i));
 		return events;
 	}
 
 	/**
-	 * Gets an event.
-	 * 
+	 * Gets the number of events in this script.
+	 *
+	 * @return number of events
+	 */
+	public int getEventCount() {
+		return eventIDs.length;
+	}
+
+	/**
+	 * Checks if an event exists.
+	 *
+	 * @param number
+	 *            event number
+	 * @return <code>true</code> if the event exists, <code>false</code> otherwise
+	 */
+	public boolean hasEvent(int number) {
+		return indexOf(number) >= 0;
+	}
+
+	/**
+	 * Decodes an event. The event's body is everything between its header line
+	 * and the next event's header.
+	 *
 	 * @param number
-	 *            event ID
-	 * @return script in event
+	 *            event number
+	 * @return event body, or <code>null</code> if there is no such event
 	 */
 	public String getEvent(int number) {
-		return events.get(number);
+		int i = indexOf(number);
+		if (i < 0)
+			return null;
+		return decodeEvent(i);
+	}
+
+	/**
+	 * Gets the decrypted script. Used by {@link TSCIndex}.
+	 *
+	 * @return decrypted script
+	 */
+	byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Gets an event's number. Used by {@link TSCIndex}.
+	 *
+	 * @param i
+	 *            index of event (0 to {@link #getEventCount()} - 1)
+	 * @return event number
+	 */
+	int getEventID(int i) {
+		return eventIDs[i];
+	}
+
+	/**
+	 * Gets the offset of an event's body. Used by {@link TSCIndex}.
+	 *
+	 * @param i
+	 *            index of event (0 to {@link #getEventCount()} - 1)
+	 * @return offset of body
+	 */
+	int getEventStart(int i) {
+		return eventStarts[i];
+	}
+
+	/**
+	 * Gets the offset of the end of an event's body. Used by {@link TSCIndex}.
+	 *
+	 * @param i
+	 *            index of event (0 to {@link #getEventCount()} - 1)
+	 * @return offset of end of body
+	 */
+	int getEventEnd(int i) {
+		return eventEnds[i];
+	}
+
+	private String decodeEvent(int i) {
+		return decoder.decode(data, eventStarts[i], eventEnds[i] - eventStarts[i]);
 	}
 
 }
@@ -0,0 +1,329 @@
+package com.leo.cse.backend.tsc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the commands in a set of TSC scripts. Answers questions like
+ * "which scripts set flag 431?" or "which events warp to map 12?" without
+ * scanning every script.<br />
+ * Each map's script is indexed separately, so when one script changes only
+ * that script has to be {@linkplain #update(int, TSCFile) indexed again}.
+ *
+ * @author Leo
+ *
+ */
+public class TSCIndex {
+
+	/**
+	 * Map ID "Head.tsc" is indexed under.
+	 */
+	public static final int MAP_HEAD = -1;
+	/**
+	 * Map ID "ArmsItem.tsc" is indexed under.
+	 */
+	public static final int MAP_ARMS_ITEM = -2;
+
+	/**
+	 * What a command argument refers to.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public enum Kind {
+		/**
+		 * A flag (<code>&lt;FL+</code>, <code>&lt;FL-</code>,
+		 * <code>&lt;FLJ</code>).
+		 */
+		FLAG,
+		/**
+		 * A map flag (<code>&lt;MP+</code>).
+		 */
+		MAP_FLAG,
+		/**
+		 * An event. Since event numbers are only unique within a map, these are
+		 * looked up with {@link TSCIndex#getEventReferences(int, int)}.
+		 */
+		EVENT,
+		/**
+		 * A map that's transferred to (<code>&lt;TRA</code>).
+		 */
+		MAP,
+		/**
+		 * An item (<code>&lt;IT+</code>, <code>&lt;IT-</code>,
+		 * <code>&lt;ITJ</code>).
+		 */
+		ITEM,
+		/**
+		 * A weapon (<code>&lt;AM+</code>, <code>&lt;AM-</code>,
+		 * <code>&lt;AMJ</code>, <code>&lt;TAM</code>).
+		 */
+		WEAPON;
+	}
+
+	/**
+	 * Indexed commands, and what each of their arguments refers to
+	 * (<code>null</code> for arguments that aren't indexed). Commands are keyed by
+	 * their 3 name characters, packed into an <code>int</code>.
+	 */
+	private static final Map<Integer, Kind[]> COMMANDS = new HashMap<>();
+
+	private static void addCommand(String name, Kind... args) {
+		COMMANDS.put(name.charAt(0) << 16 | name.charAt(1) << 8 | name.charAt(2), args);
+	}
+
+	static {
+		addCommand("FL+", Kind.FLAG);
+		addCommand("FL-", Kind.FLAG);
+		addCommand("FLJ", Kind.FLAG, Kind.EVENT);
+		addCommand("MP+", Kind.MAP_FLAG);
+		addCommand("IT+", Kind.ITEM);
+		addCommand("IT-", Kind.ITEM);
+		addCommand("ITJ", Kind.ITEM, Kind.EVENT);
+		addCommand("AM+", Kind.WEAPON, null);
+		addCommand("AM-", Kind.WEAPON);
+		addCommand("AMJ", Kind.WEAPON, Kind.EVENT);
+		addCommand("TAM", Kind.WEAPON, Kind.WEAPON, null);
+		addCommand("TRA", Kind.MAP, Kind.EVENT, null, null);
+		addCommand("EVE", Kind.EVENT);
+		addCommand("YNJ", Kind.EVENT);
+		addCommand("MPJ", Kind.EVENT);
+		addCommand("SKJ", null, Kind.EVENT);
+		addCommand("NCJ", null, Kind.EVENT);
+		addCommand("ECJ", null, Kind.EVENT);
+	}
+
+	/**
+	 * A location in a script that references something.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public static class Reference {
+		private final int map;
+		private final int event;
+		private final String command;
+
+		public Reference(int map, int event, String command) {
+			this.map = map;
+			this.event = event;
+			this.command = command;
+		}
+
+		/**
+		 * Gets the map whose script contains the reference.
+		 *
+		 * @return map ID, or {@link TSCIndex#MAP_HEAD} or
+		 *         {@link TSCIndex#MAP_ARMS_ITEM} for the scripts that aren't tied to
+		 *         a map
+		 */
+		public int getMap() {
+			return map;
+		}
+
+		/**
+		 * Gets the event that contains the reference.
+		 *
+		 * @return event number
+		 */
+		public int getEvent() {
+			return event;
+		}
+
+		/**
+		 * Gets the command that contains the reference, including the leading
+		 * <code>&lt;</code>.
+		 *
+		 * @return command
+		 */
+		public String getCommand() {
+			return command;
+		}
+
+		@Override
+		public String toString() {
+			String script;
+			if (map == MAP_HEAD)
+				script = "Head.tsc";
+			else if (map == MAP_ARMS_ITEM)
+				script = "ArmsItem.tsc";
+			else
+				script = "map " + map;
+			return script + ", event " + String.format("%04d", event) + " (" + command + ")";
+		}
+	}
+
+	/**
+	 * References by key.
+	 *
+	 * @see #key(Kind, int)
+	 */
+	private final Map<Long, List<Reference>> references = new HashMap<>();
+	/**
+	 * Keys each map's script has added references to.
+	 */
+	private final Map<Integer, List<Long>> mapKeys = new HashMap<>();
+	/**
+	 * Number of times the index has changed.
+	 *
+	 * @see #getModCount()
+	 */
+	private int modCount;
+
+	private static long key(Kind kind, int id) {
+		return (long) kind.ordinal() << 32 | (id & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Gets the ID events are indexed by.
+	 */
+	private static int eventID(int map, int event) {
+		return map * 10000 + event;
+	}
+
+	/**
+	 * Indexes a map's script, replacing anything previously indexed for that map.
+	 *
+	 * @param map
+	 *            map ID, or {@link #MAP_HEAD} or {@link #MAP_ARMS_ITEM}
+	 * @param tsc
+	 *            map's script, or <code>null</code> to remove the map from the
+	 *            index
+	 */
+	public synchronized void update(int map, TSCFile tsc) {
+		remove(map);
+		if (tsc == null)
+			return;
+		modCount++;
+		List<Long> keys = new ArrayList<>();
+		byte[] data = tsc.getData();
+		for (int i = 0; i < tsc.getEventCount(); i++) {
+			int event = tsc.getEventID(i);
+			int end = tsc.getEventEnd(i);
+			for (int p = tsc.getEventStart(i); p + 4 <= end; p++) {
+				if (data[p] != '<')
+					continue;
+				Kind[] args = COMMANDS
+						.get((data[p + 1] & 0xFF) << 16 | (data[p + 2] & 0xFF) << 8 | (data[p + 3] & 0xFF));
+				if (args == null)
+					continue;
+				String command = new String(data, p, 4, StandardCharsets.US_ASCII);
+				int traMap = -1;
+				for (int a = 0; a < args.length; a++) {
+					int ap = p + 4 + a * 5;
+					if (ap + 4 > end)
+						break;
+					if (args[a] == null)
+						continue;
+					int value = parseArgument(data, ap);
+					int id = value;
+					if (args[a] == Kind.MAP)
+						traMap = value;
+					else if (args[a] == Kind.EVENT)
+						id = eventID(traMap >= 0 ? traMap : map, value);
+					Long key = key(args[a], id);
+					references.computeIfAbsent(key, k -> new ArrayList<>()).add(new Reference(map, event, command));
+					keys.add(key);
+				}
+				p += 3;
+			}
+		}
+		mapKeys.put(map, keys);
+	}
+
+	/**
+	 * Removes a map's script from the index.
+	 *
+	 * @param map
+	 *            map ID
+	 */
+	public synchronized void remove(int map) {
+		List<Long> keys = mapKeys.remove(map);
+		if (keys == null)
+			return;
+		modCount++;
+		for (Long key : keys) {
+			List<Reference> refs = references.get(key);
+			if (refs == null)
+				continue;
+			refs.removeIf(r -> r.map == map);
+			if (refs.isEmpty())
+				references.remove(key);
+		}
+	}
+
+	/**
+	 * Removes everything from the index.
+	 */
+	public synchronized void clear() {
+		references.clear();
+		mapKeys.clear();
+		modCount++;
+	}
+
+	/**
+	 * Gets the number of times the index has changed. Used to tell if reloading a
+	 * file changed the index.
+	 *
+	 * @return modification count
+	 */
+	public synchronized int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * Gets all references to something.
+	 *
+	 * @param kind
+	 *            kind of thing referenced
+	 * @param id
+	 *            ID of thing referenced
+	 * @return references, in no particular order
+	 * @see #getEventReferences(int, int)
+	 */
+	public synchronized List<Reference> getReferences(Kind kind, int id) {
+		List<Reference> refs = references.get(key(kind, id));
+		if (refs == null)
+			return Collections.emptyList();
+		return new ArrayList<>(refs);
+	}
+
+	/**
+	 * Gets the number of references to something.
+	 *
+	 * @param kind
+	 *            kind of thing referenced
+	 * @param id
+	 *            ID of thing referenced
+	 * @return number of references
+	 */
+	public synchronized int getReferenceCount(Kind kind, int id) {
+		List<Reference> refs = references.get(key(kind, id));
+		return refs == null ? 0 : refs.size();
+	}
+
+	/**
+	 * Gets all references to an event.
+	 *
+	 * @param map
+	 *            map the event is on
+	 * @param event
+	 *            event number
+	 * @return references, in no particular order
+	 */
+	public List<Reference> getEventReferences(int map, int event) {
+		return getReferences(Kind.EVENT, eventID(map, event));
+	}
+
+	/**
+	 * Parses a 4 character argument the same way the game does.
+	 */
+	private static int parseArgument(byte[] data, int p) {
+		return (data[p] - '0') * 1000 + (data[p + 1] - '0') * 100 + (data[p + 2] - '0') * 10 + (data[p + 3] - '0');
+	}
+
+}
@@ -0,0 +1,460 @@
+package com.leo.cse.frontend;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.leo.cse.backend.profile.NormalProfile;
+import com.leo.cse.backend.profile.PlusProfile;
+import com.leo.cse.backend.profile.Profile;
+import com.leo.cse.backend.profile.ProfileListener;
+import com.leo.cse.backend.profile.ProfileManager;
+import com.leo.cse.backend.profile.ProfileSession;
+
+/**
+ * Headless batch editor. Applies a set of edits to every profile in a
+ * directory tree, using a separate {@link ProfileSession} for each file so
+ * files are processed in parallel.<br />
+ * Usage: <code>BatchEdit [options] &lt;edit file&gt; &lt;directory&gt;</code>
+ * <br />
+ * Options:
+ * <ul>
+ * <li><code>--threads &lt;n&gt;</code> - number of worker threads (default: one
+ * per processor)</li>
+ * <li><code>--dry-run</code> - apply edits, but don't save the files</li>
+ * </ul>
+ * Each line of the edit file is one edit. Empty lines and lines starting with
+ * <code>#</code> are ignored.
+ * <ul>
+ * <li><code>&lt;field&gt; = &lt;value&gt;</code> or
+ * <code>&lt;field&gt;[&lt;index&gt;] = &lt;value&gt;</code> - sets a field,
+ * using the field names from {@link NormalProfile} and {@link PlusProfile}</li>
+ * <li><code>set &lt;field&gt; &lt;from&gt;[-&lt;to&gt;]</code> - sets a range of
+ * flags (inclusive)</li>
+ * <li><code>clear &lt;field&gt; &lt;from&gt;[-&lt;to&gt;]</code> - clears a
+ * range of flags (inclusive)</li>
+ * <li><code>give weapon &lt;id&gt; [&lt;max ammo&gt;]</code> - adds a weapon to
+ * the first empty slot, unless the player already has it</li>
+ * <li><code>give item &lt;id&gt;</code> - adds an item to the first empty slot,
+ * unless the player already has it</li>
+ * </ul>
+ * CS+ profiles are detected by their size. Edits are applied to every used
+ * save slot.
+ *
+ * @author Leo
+ *
+ */
+public class BatchEdit {
+
+	private BatchEdit() {
+	}
+
+	/**
+	 * Exception from parsing an edit file.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public static class EditParseException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		public EditParseException(int line, String message) {
+			super("line " + line + ": " + message);
+		}
+
+	}
+
+	/**
+	 * An edit to apply to a profile.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public interface Edit {
+		/**
+		 * Applies the edit.
+		 *
+		 * @param session
+		 *            session containing the profile to edit
+		 */
+		public void apply(ProfileSession session);
+	}
+
+	/**
+	 * Sets a field to a value.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public static class FieldEdit implements Edit {
+
+		private final String field;
+		private final int index;
+		private final String value;
+
+		public FieldEdit(String field, int index, String value) {
+			this.field = field;
+			this.index = index;
+			this.value = value;
+		}
+
+		@Override
+		public void apply(ProfileSession session) {
+			Class<?> type = session.getFieldType(field);
+			Object obj;
+			if (type == Integer.class || type == Integer.TYPE)
+				obj = Integer.decode(value);
+			else if (type == Short.class || type == Short.TYPE)
+				obj = Short.decode(value);
+			else if (type == Byte.class || type == Byte.TYPE)
+				obj = Byte.decode(value);
+			else if (type == Long.class || type == Long.TYPE)
+				obj = Long.decode(value);
+			else if (type == Boolean.class || type == Boolean.TYPE)
+				obj = Boolean.parseBoolean(value);
+			else if (type == String.class)
+				obj = value;
+			else
+				throw new IllegalArgumentException("Field " + field + " has unsupported type " + type.getName());
+			session.setField(field, index, obj);
+		}
+
+	}
+
+	/**
+	 * Sets or clears a range of flags.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public static class FlagEdit implements Edit {
+
+		private final String field;
+		private final int from, to;
+		private final boolean value;
+
+		public FlagEdit(String field, int from, int to, boolean value) {
+			this.field = field;
+			this.from = from;
+			this.to = to;
+			this.value = value;
+		}
+
+		@Override
+		public void apply(ProfileSession session) {
+			session.setFlags(field, from, to + 1, value);
+		}
+
+	}
+
+	/**
+	 * Gives the player a weapon or item.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public static class GiveEdit implements Edit {
+
+		private final boolean weapon;
+		private final int id;
+		private final int ammo;
+
+		public GiveEdit(boolean weapon, int id, int ammo) {
+			this.weapon = weapon;
+			this.id = id;
+			this.ammo = ammo;
+		}
+
+		@Override
+		public void apply(ProfileSession session) {
+			String field = (weapon ? NormalProfile.FIELD_WEAPON_ID : NormalProfile.FIELD_ITEMS);
+			int slot = -1;
+			for (int i = session.getFieldMinimumIndex(field); i <= session.getFieldMaximumIndex(field); i++) {
+				int cur = (Integer) session.getField(field, i);
+				if (cur == id)
+					return;
+				if (cur == 0 && slot < 0)
+					slot = i;
+			}
+			if (slot < 0)
+				throw new IllegalStateException("No empty " + (weapon ? "weapon" : "item") + " slot for " + id);
+			session.setField(field, slot, id);
+			if (weapon) {
+				session.setField(NormalProfile.FIELD_WEAPON_LEVEL, slot, 1);
+				session.setField(NormalProfile.FIELD_WEAPON_EXP, slot, 0);
+				session.setField(NormalProfile.FIELD_WEAPON_MAXIMUM_AMMO, slot, ammo);
+				session.setField(NormalProfile.FIELD_WEAPON_CURRENT_AMMO, slot, ammo);
+			}
+		}
+
+	}
+
+	/**
+	 * Parses an edit file.
+	 *
+	 * @param file
+	 *            edit file
+	 * @return list of edits
+	 * @throws IOException
+	 *             if an I/O error occurs.
+	 * @throws EditParseException
+	 *             if the file contains an invalid edit.
+	 */
+	public static List<Edit> parseEdits(File file) throws IOException, EditParseException {
+		List<Edit> ret = new ArrayList<>();
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			try {
+				ret.add(parseEdit(line));
+			} catch (NumberFormatException e) {
+				throw new EditParseException(i + 1, "invalid number: " + e.getMessage());
+			} catch (IllegalArgumentException e) {
+				throw new EditParseException(i + 1, e.getMessage());
+			}
+		}
+		return ret;
+	}
+
+	private static Edit parseEdit(String line) {
+		int eq = line.indexOf('=');
+		if (eq >= 0) {
+			String field = line.substring(0, eq).trim();
+			String value = line.substring(eq + 1).trim();
+			int index = -1;
+			int br = field.indexOf('[');
+			if (br >= 0) {
+				if (!field.endsWith("]"))
+					throw new IllegalArgumentException("missing ] in field: " + field);
+				index = Integer.parseInt(field.substring(br + 1, field.length() - 1).trim());
+				field = field.substring(0, br).trim();
+			}
+			return new FieldEdit(field, index, value);
+		}
+		String[] parts = line.split("\\s+");
+		switch (parts[0]) {
+		case "set":
+		case "clear":
+			if (parts.length != 3)
+				throw new IllegalArgumentException("expected: " + parts[0] + " <field> <from>[-<to>]");
+			String[] range = parts[2].split("-", 2);
+			int from = Integer.parseInt(range[0]);
+			int to = (range.length > 1 ? Integer.parseInt(range[1]) : from);
+			if (to < from)
+				throw new IllegalArgumentException("invalid range: " + parts[2]);
+			return new FlagEdit(parts[1], from, to, "set".equals(parts[0]));
+		case "give":
+			if (parts.length >= 3 && "weapon".equals(parts[1]) && parts.length <= 4)
+				return new GiveEdit(true, Integer.parseInt(parts[2]),
+						(parts.length > 3 ? Integer.parseInt(parts[3]) : 0));
+			if (parts.length == 3 && "item".equals(parts[1]))
+				return new GiveEdit(false, Integer.parseInt(parts[2]), 0);
+			throw new IllegalArgumentException("expected: give weapon <id> [<max ammo>] or give item <id>");
+		default:
+			throw new IllegalArgumentException("unknown edit: " + line);
+		}
+	}
+
+	/**
+	 * The result of editing a single file.
+	 *
+	 * @author Leo
+	 *
+	 */
+	public static class Result {
+
+		private final Path file;
+		private final int changes;
+		private final String error;
+
+		public Result(Path file, int changes, String error) {
+			this.file = file;
+			this.changes = changes;
+			this.error = error;
+		}
+
+		public Path getFile() {
+			return file;
+		}
+
+		public int getChanges() {
+			return changes;
+		}
+
+		public String getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+	}
+
+	/**
+	 * Checks if a file is a profile, by name.
+	 *
+	 * @param file
+	 *            file to check
+	 * @return <code>true</code> if it's a profile, <code>false</code> otherwise
+	 */
+	private static boolean isProfile(Path file) {
+		return Files.isRegularFile(file) && "profile.dat".equalsIgnoreCase(file.getFileName().toString());
+	}
+
+	/**
+	 * Applies edits to a single file.
+	 *
+	 * @param file
+	 *            file to edit
+	 * @param edits
+	 *            edits to apply
+	 * @param save
+	 *            <code>true</code> to save the file afterwards, <code>false</code>
+	 *            otherwise
+	 * @return result
+	 */
+	public static Result editFile(Path file, List<Edit> edits, boolean save) {
+		final AtomicInteger changes = new AtomicInteger();
+		try {
+			Class<? extends Profile> implClass = NormalProfile.class;
+			if (Files.size(file) >= PlusProfile.FILE_LENGTH)
+				implClass = PlusProfile.class;
+			ProfileSession session = new ProfileSession(implClass);
+			session.load(file.toFile());
+			session.addListener(new ProfileListener() {
+				@Override
+				public void onChange(String field, int id, Object oldValue, Object newValue) {
+					if (field.equals(ProfileManager.EVENT_LOAD) || field.equals(ProfileManager.EVENT_SAVE)
+							|| field.equals(ProfileManager.EVENT_UNLOAD))
+						return;
+					changes.incrementAndGet();
+				}
+			});
+			if (implClass == PlusProfile.class) {
+				for (int slot = 0; slot < PlusProfile.SLOT_COUNT; slot++) {
+					if (!(Boolean) session.callMethod(PlusProfile.METHOD_FILE_EXISTS, slot))
+						continue;
+					session.callMethod(PlusProfile.METHOD_SET_ACTIVE_FILE, slot);
+					for (Edit edit : edits)
+						edit.apply(session);
+				}
+			} else
+				for (Edit edit : edits)
+					edit.apply(session);
+			if (save && session.isModified())
+				session.save();
+			session.unload();
+		} catch (Exception e) {
+			return new Result(file, changes.get(), e.toString());
+		}
+		return new Result(file, changes.get(), null);
+	}
+
+	/**
+	 * Applies edits to every profile in a directory tree.
+	 *
+	 * @param dir
+	 *            directory to search for profiles
+	 * @param edits
+	 *            edits to apply
+	 * @param save
+	 *            <code>true</code> to save files afterwards, <code>false</code>
+	 *            otherwise
+	 * @param pool
+	 *            pool to run edits on
+	 * @return results, in file order
+	 * @throws IOException
+	 *             if an I/O error occurs while searching the directory.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the edits to finish.
+	 */
+	public static List<Result> editAll(Path dir, List<Edit> edits, boolean save, ForkJoinPool pool)
+			throws IOException, InterruptedException {
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(dir)) {
+			files = stream.filter(BatchEdit::isProfile).sorted().collect(Collectors.toList());
+		}
+		try {
+			return pool.submit(() -> files.parallelStream().map(file -> editFile(file, edits, save))
+					.collect(Collectors.toList())).get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static void usage() {
+		System.err.println("Usage: BatchEdit [--threads <n>] [--dry-run] <edit file> <directory>");
+		System.exit(2);
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean save = true;
+		List<String> rest = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if ("--threads".equals(args[i]) && i + 1 < args.length)
+				try {
+					threads = Integer.parseInt(args[++i]);
+				} catch (NumberFormatException e) {
+					usage();
+				}
+			else if ("--dry-run".equals(args[i]))
+				save = false;
+			else
+				rest.add(args[i]);
+		}
+		if (rest.size() != 2 || threads <= 0)
+			usage();
+		List<Edit> edits;
+		try {
+			edits = parseEdits(new File(rest.get(0)));
+		} catch (IOException | EditParseException e) {
+			System.err.println("Could not read edit file: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		Path dir = Paths.get(rest.get(1));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		List<Result> results;
+		try {
+			results = editAll(dir, edits, save, pool);
+		} catch (IOException | InterruptedException e) {
+			System.err.println("Could not process directory: " + e);
+			System.exit(1);
+			return;
+		} finally {
+			pool.shutdown();
+		}
+		double secs = (System.nanoTime() - start) / 1e9;
+		int failed = 0;
+		for (Result r : results) {
+			if (r.isSuccess())
+				System.out.println("OK    " + r.getFile() + " (" + r.getChanges() + " changes)");
+			else {
+				failed++;
+				System.out.println("FAIL  " + r.getFile() + ": " + r.getError());
+			}
+		}
+		System.out.println(String.format("%d files, %d failed, %.3f s (%.1f files/s) on %d threads%s",
+				results.size(), failed, secs, results.size() / Math.max(secs, 1e-9), threads,
+				(save ? "" : ", dry run")));
+		System.exit(failed == 0 ? 0 : 1);
+	}
+
+}
@@ -22,11 +22,18 @@ public class Config {
 	public static final String KEY_SHOW_MAP_GRID = "show_map_grid";
 	public static final String KEY_LINE_COLOR = "line_color";
 	public static final String KEY_LOAD_NPCS = "load_npcs";
+	public static final String KEY_LAZY_LOAD_MAPS = "lazy_load_maps";
+	public static final String KEY_CACHE_MOD_DATA = "cache_mod_data";
+	public static final String KEY_WATCH_MOD_FILES = "watch_mod_files";
+	public static final String KEY_LOAD_THREADS = "load_threads";
 	public static final String KEY_ENCODING = "encoding";
 	public static final String KEY_SKIP_UPDATE_CHECK = "skip_update_check";
 	public static final String KEY_AUTOLOAD_EXE = "autoload_exe";
 	public static final String KEY_AUTOLOAD_PROFILE = "autoload_profile";
 	public static final String KEY_SHOW_PLAYER_ABOVE_FG = "show_player_above_fg";
+	public static final String KEY_FRAME_CAP = "frame_cap";
+	public static final String KEY_UNDO_BUDGET = "undo_budget";
+	public static final String KEY_IMAGE_CACHE_BUDGET = "image_cache_budget";
 
 	private static Preferences config;
 
@@ -61,6 +68,22 @@ public class Config {
 		config.putBoolean(key, value);
 	}
 
+	public static int getInt(String key, int def) {
+		return config.getInt(key, def);
+	}
+
+	public static void setInt(String key, int value) {
+		config.putInt(key, value);
+	}
+
+	public static long getLong(String key, long def) {
+		return config.getLong(key, def);
+	}
+
+	public static void setLong(String key, long value) {
+		config.putLong(key, value);
+	}
+
 	public static Color getColor(String key, Color def) {
 		String nm = get(key, null);
 		if (nm == null)
@@ -3,10 +3,10 @@ package com.leo.cse.frontend;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
@@ -18,7 +18,9 @@ import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
 import com.leo.cse.backend.exe.ExeData;
 import com.leo.cse.backend.exe.MapInfo.PxeEntry;
@@ -39,6 +41,16 @@ public class MCI {
 
 	private static Hashtable<String, Object> mci = new Hashtable<>();
 	private static boolean plus = false;
+	/**
+	 * Cached results of <code>getEntityFrame</code> and
+	 * <code>getEntityOffset</code>, keyed by {@link #entityKey(PxeEntry)}.
+	 */
+	private static Map<Long, EntityExtras> entityExtrasCache = new HashMap<>();
+	/**
+	 * Cached results of <code>getPlayerFrame</code> and
+	 * <code>getPlayerOffset</code>, keyed by costume and direction.
+	 */
+	private static Map<Long, EntityExtras> playerExtrasCache = new HashMap<>();
 
 	private static void readList(Hashtable<String, Object> p, String group, Object obj) {
 		if (obj instanceof NativeArray) {
@@ -74,61 +86,110 @@ public class MCI {
 			p.put(group + "." + entry.getKey(), entry.getValue());
 	}
 
-	private static Object invokeFunction(Context cx, Scriptable scope, String name, Object... args)
+	/**
+	 * Context factory for running MCI scripts. Contexts are bound to a thread, so
+	 * one is entered for every call instead of sharing a single context between
+	 * threads.
+	 */
+	private static final ContextFactory CONTEXT_FACTORY = new ContextFactory() {
+		@Override
+		protected Context makeContext() {
+			Context cx = super.makeContext();
+			cx.setOptimizationLevel(MCICompiler.OPTIMIZATION_LEVEL);
+			return cx;
+		}
+	};
+
+	/**
+	 * Sealed scope containing the standard objects, shared by all MCI scripts.
+	 */
+	private static ScriptableObject sharedScope;
+
+	private static synchronized ScriptableObject getSharedScope(Context cx) {
+		if (sharedScope == null) {
+			sharedScope = cx.initStandardObjects(null, true);
+			sharedScope.sealObject();
+		}
+		return sharedScope;
+	}
+
+	private static Object invokeFunction(Scriptable scope, String name, Object... args)
 			throws NoSuchMethodException {
 		Object fObj = scope.get(name, scope);
 		if (!(fObj instanceof Function)) {
-			if (cx == defaultCx && scope == defaultScope)
+			if (defaultScope == null || scope == defaultScope)
 				throw new NoSuchMethodException("Could not find method " + name + "!");
-			try {
-				return invokeFunction(defaultCx, defaultScope, name, args);
-			} catch (NoSuchMethodException e) {
-				throw e;
-			}
+			return invokeFunction(defaultScope, name, args);
 		}
 		Function f = (Function) fObj;
-		ContextFactory.getGlobal().enterContext(cx);
-		Object result = f.call(cx, scope, scope, args);
-		Context.exit();
-		return result;
+		Context cx = CONTEXT_FACTORY.enterContext();
+		try {
+			return f.call(cx, scope, scope, args);
+		} finally {
+			Context.exit();
+		}
 	}
 
-	private static Context defaultCx;
-	private static Scriptable defaultScope;
-	private static Context cx;
-	private static Scriptable scope;
+	private static volatile Scriptable defaultScope;
+	private static volatile Scriptable scope;
 
 	private static Object invokeFunction(String name, Object... args) throws NoSuchMethodException {
-		return invokeFunction(cx, scope, name, args);
+		return invokeFunction(scope, name, args);
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int len;
+		while ((len = is.read(buf)) != -1)
+			baos.write(buf, 0, len);
+		return baos.toByteArray();
 	}
 
 	private static void read0(InputStream is, File src) throws Exception {
 		plus = false;
-		Context tcx = Context.enter();
-		Scriptable tscope = tcx.initStandardObjects();
-		try (InputStreamReader isr = new InputStreamReader(is);) {
-			tcx.evaluateReader(tscope, isr, src.getName(), 0, null);
+		byte[] source;
+		try {
+			source = readAll(is);
 		} catch (IOException e) {
 			Main.LOGGER.error("MCI: Error while parsing script!", e);
 			JOptionPane.showMessageDialog(Main.window, "An exception occured while parsing the MCI file:\n" + e,
 					"Error while parsing MCI file", JOptionPane.ERROR_MESSAGE);
 			throw e;
+		} finally {
+			is.close();
+		}
+		// scripts are compiled to bytecode and run in their own scope, on top of the
+		// shared standard objects. the script's scope is sealed after it runs, so
+		// functions can safely be called from any thread
+		ScriptableObject tscope;
+		Context tcx = CONTEXT_FACTORY.enterContext();
+		try {
+			Script script = MCICompiler.compile(tcx, source, src.getName());
+			ScriptableObject shared = getSharedScope(tcx);
+			tscope = (ScriptableObject) tcx.newObject(shared);
+			tscope.setPrototype(shared);
+			tscope.setParentScope(null);
+			script.exec(tcx, tscope);
+			tscope.sealObject();
+		} finally {
+			Context.exit();
 		}
 		Hashtable<String, Object> tmp = new Hashtable<>();
 		try {
 			// Metadata
-			tmp.put("Meta.Name", invokeFunction(tcx, tscope, "getName"));
-			tmp.put("Meta.Author", invokeFunction(tcx, tscope, "getAuthor"));
+			tmp.put("Meta.Name", invokeFunction(tscope, "getName"));
+			tmp.put("Meta.Author", invokeFunction(tscope, "getAuthor"));
 			// Game information
-			tmp.put("Game.ExeName", invokeFunction(tcx, tscope, "getExeName"));
-			tmp.put("Game.ArmsImageYStart", invokeFunction(tcx, tscope, "getArmsImageYStart"));
-			tmp.put("Game.ArmsImageSize", invokeFunction(tcx, tscope, "getArmsImageSize"));
-			tmp.put("Game.FPS", invokeFunction(tcx, tscope, "getFPS"));
-			tmp.put("Game.GraphicsResolution", invokeFunction(tcx, tscope, "getGraphicsResolution"));
-			tmp.put("Game.ProfileClass", invokeFunction(tcx, tscope, "getProfileClass"));
-			tmp.put("Game.SaveEvent", invokeFunction(tcx, tscope, "getSaveEvent"));
+			tmp.put("Game.ExeName", invokeFunction(tscope, "getExeName"));
+			tmp.put("Game.ArmsImageYStart", invokeFunction(tscope, "getArmsImageYStart"));
+			tmp.put("Game.ArmsImageSize", invokeFunction(tscope, "getArmsImageSize"));
+			tmp.put("Game.FPS", invokeFunction(tscope, "getFPS"));
+			tmp.put("Game.GraphicsResolution", invokeFunction(tscope, "getGraphicsResolution"));
+			tmp.put("Game.ProfileClass", invokeFunction(tscope, "getProfileClass"));
+			tmp.put("Game.SaveEvent", invokeFunction(tscope, "getSaveEvent"));
 			// Special support
-			Object oss = invokeFunction(tcx, tscope, "getSpecials");
+			Object oss = invokeFunction(tscope, "getSpecials");
 			if (oss instanceof NativeArray) {
 				NativeArray specials = (NativeArray) oss;
 				if (specials.contains("MimHack"))
@@ -143,22 +204,32 @@ public class MCI {
 					tmp.put("Special.EquipPlusHack", true);
 			}
 			// Map names
-			readList(tmp, "Map", invokeFunction(tcx, tscope, "getMapNames"));
+			readList(tmp, "Map", invokeFunction(tscope, "getMapNames"));
 			// Song names
-			readList(tmp, "Song", invokeFunction(tcx, tscope, "getSongNames"));
+			readList(tmp, "Song", invokeFunction(tscope, "getSongNames"));
 			// Equip names
-			readList(tmp, "Equip", invokeFunction(tcx, tscope, "getEquipNames"));
+			readList(tmp, "Equip", invokeFunction(tscope, "getEquipNames"));
 			// Weapon names
-			readList(tmp, "Weapon", invokeFunction(tcx, tscope, "getWeaponNames"));
+			readList(tmp, "Weapon", invokeFunction(tscope, "getWeaponNames"));
 			// Item names
-			readList(tmp, "Item", invokeFunction(tcx, tscope, "getItemNames"));
+			readList(tmp, "Item", invokeFunction(tscope, "getItemNames"));
 			// Warp menu names
-			readList(tmp, "Warp", invokeFunction(tcx, tscope, "getWarpNames"));
+			readList(tmp, "Warp", invokeFunction(tscope, "getWarpNames"));
 			// Warp location names
-			readList(tmp, "WarpLoc", invokeFunction(tcx, tscope, "getWarpLocNames"));
+			readList(tmp, "WarpLoc", invokeFunction(tscope, "getWarpLocNames"));
 			// Flag descriptions
-			tmp.put("Flag.SaveID", invokeFunction(tcx, tscope, "getSaveFlagID"));
-			readList(tmp, "Flag", invokeFunction(tcx, tscope, "getFlagDescriptions"));
+			tmp.put("Flag.SaveID", invokeFunction(tscope, "getSaveFlagID"));
+			readList(tmp, "Flag", invokeFunction(tscope, "getFlagDescriptions"));
+			// Pure functions (optional, never inherited from the default MCI)
+			if (tscope.get("getPureFunctions", tscope) instanceof Function) {
+				Object ops = invokeFunction(tscope, "getPureFunctions");
+				if (ops instanceof NativeArray) {
+					NativeArray pures = (NativeArray) ops;
+					for (Object pure : pures)
+						if (pure != null)
+							tmp.put("Pure." + pure, true);
+				}
+			}
 		} catch (NoSuchMethodException e) {
 			Main.LOGGER.error("MCI: Exception while assigning script results to properties object!", e);
 			JOptionPane.showMessageDialog(Main.window,
@@ -171,18 +242,16 @@ public class MCI {
 					"Something went wrong", JOptionPane.ERROR_MESSAGE);
 			throw e;
 		} finally {
-			Context.exit();
-			cx = tcx;
 			scope = tscope;
 			mci.clear();
 			mci.putAll(tmp);
+			clearExtrasCache();
 		}
 	}
 
 	public static void readDefault() throws Exception {
 		read0(MCI.class.getResourceAsStream("/default.mci"), new File("default.mci"));
 		validate();
-		defaultCx = cx;
 		defaultScope = scope;
 	}
 
@@ -341,6 +410,27 @@ public class MCI {
 		return ret;
 	}
 
+	/**
+	 * Checks if an MCI function has been declared as pure by
+	 * <code>getPureFunctions</code>, meaning its result depends only on the
+	 * parameters it's documented to depend on and can be reused.
+	 *
+	 * @param name
+	 *            name of function
+	 * @return <code>true</code> if function is pure, <code>false</code> otherwise
+	 */
+	public static boolean isPure(String name) {
+		return Boolean.parseBoolean(getNullable("Pure." + name));
+	}
+
+	/**
+	 * Clears the cached results of the player and entity extras functions.
+	 */
+	public static synchronized void clearExtrasCache() {
+		entityExtrasCache.clear();
+		playerExtrasCache.clear();
+	}
+
 	public static class EntityExtras {
 		private Rectangle frameRect;
 		private Point offset;
@@ -359,11 +449,46 @@ public class MCI {
 		}
 	}
 
-	public static EntityExtras getPlayerExtras(int x, int y, boolean leftright, long costume)
+	/**
+	 * Gets the player's extras. If both <code>getPlayerFrame</code> and
+	 * <code>getPlayerOffset</code> are {@linkplain #isPure(String) pure}, the
+	 * result only depends on <code>leftright</code> and <code>costume</code> and
+	 * is cached.<br />
+	 * The returned object may be shared, and must not be modified.
+	 *
+	 * @param x
+	 *            X position of player in pixels
+	 * @param y
+	 *            Y position of player in pixels
+	 * @param leftright
+	 *            <code>false</code> if facing left, <code>true</code> if facing
+	 *            right
+	 * @param costume
+	 *            costume ID
+	 * @return player extras, or <code>null</code> if the script returned
+	 *         something invalid
+	 * @throws NoSuchMethodException
+	 *             if the functions aren't defined
+	 */
+	public static synchronized EntityExtras getPlayerExtras(int x, int y, boolean leftright, long costume)
+			throws NoSuchMethodException {
+		if (!isPure("getPlayerFrame") || !isPure("getPlayerOffset"))
+			return getPlayerExtras0(x, y, leftright, costume);
+		Long key = costume << 1 | (leftright ? 1 : 0);
+		EntityExtras ret = playerExtrasCache.get(key);
+		if (ret == null) {
+			ret = getPlayerExtras0(x, y, leftright, costume);
+			if (ret != null)
+				playerExtrasCache.put(key, ret);
+		}
+		return ret;
+	}
+
+	private static EntityExtras getPlayerExtras0(int x, int y, boolean leftright, long costume)
 			throws NoSuchMethodException {
 		Object oe1 = Context.jsToJava(invokeFunction("getPlayerFrame", x, y, leftright, costume), Rectangle.class);
 		if (oe1 == null)
-			oe1 = Context.jsToJava(invokeFunction(defaultCx, defaultScope, "getPlayerFrame", x, y, leftright, costume),
+			oe1 = Context.jsToJava(invokeFunction(defaultScope, "getPlayerFrame", x, y, leftright, costume),
 					Rectangle.class);
 		if (!(oe1 instanceof Rectangle)) {
 			Main.LOGGER.error("oe1 is not Rectangle: " + oe1.getClass().getName());
@@ -372,7 +497,7 @@ public class MCI {
 		Rectangle frameRect = (Rectangle) oe1;
 		Object oe2 = Context.jsToJava(invokeFunction("getPlayerOffset", x, y, leftright, costume), Point.class);
 		if (oe2 == null)
-			oe2 = Context.jsToJava(invokeFunction(defaultCx, defaultScope, "getPlayerOffset", x, y, leftright, costume),
+			oe2 = Context.jsToJava(invokeFunction(defaultScope, "getPlayerOffset", x, y, leftright, costume),
 					Point.class);
 		if (!(oe2 instanceof Point)) {
 			Main.LOGGER.error("oe2 is not Point: " + oe1.getClass().getName());
@@ -404,11 +529,53 @@ public class MCI {
 		}
 	}
 
-	public static EntityExtras getEntityExtras(PxeEntry e) throws NoSuchMethodException {
+	/**
+	 * Gets the key used to cache an entity's extras. Packs the entity's type,
+	 * combined flags, flag ID and event number into one <code>long</code>.
+	 *
+	 * @param e
+	 *            entity
+	 * @return cache key
+	 */
+	private static long entityKey(PxeEntry e) {
+		long flags = (e.getFlags() | e.getInfo().getFlags()) & 0xFFFF;
+		return (e.getType() & 0xFFFFL) << 48 | flags << 32 | (e.getFlagID() & 0xFFFFL) << 16
+				| (e.getEvent() & 0xFFFFL);
+	}
+
+	/**
+	 * Gets an entity's extras. If both <code>getEntityFrame</code> and
+	 * <code>getEntityOffset</code> are {@linkplain #isPure(String) pure}, the
+	 * result only depends on the entity's type, flags, flag ID and event number,
+	 * and is cached and shared between all entities (on any map) that have the
+	 * same values.<br />
+	 * The returned object may be shared, and must not be modified.
+	 *
+	 * @param e
+	 *            entity
+	 * @return entity extras, or <code>null</code> if the script returned
+	 *         something invalid
+	 * @throws NoSuchMethodException
+	 *             if the functions aren't defined
+	 */
+	public static synchronized EntityExtras getEntityExtras(PxeEntry e) throws NoSuchMethodException {
+		if (!isPure("getEntityFrame") || !isPure("getEntityOffset"))
+			return getEntityExtras0(e);
+		Long key = entityKey(e);
+		EntityExtras ret = entityExtrasCache.get(key);
+		if (ret == null) {
+			ret = getEntityExtras0(e);
+			if (ret != null)
+				entityExtrasCache.put(key, ret);
+		}
+		return ret;
+	}
+
+	private static EntityExtras getEntityExtras0(PxeEntry e) throws NoSuchMethodException {
 		WrappedPxeEntry we = new WrappedPxeEntry(e);
 		Object oe1 = Context.jsToJava(invokeFunction("getEntityFrame", we), Rectangle.class);
 		if (oe1 == null)
-			oe1 = Context.jsToJava(invokeFunction(defaultCx, defaultScope, "getEntityFrame", we), Rectangle.class);
+			oe1 = Context.jsToJava(invokeFunction(defaultScope, "getEntityFrame", we), Rectangle.class);
 		if (!(oe1 instanceof Rectangle)) {
 			Main.LOGGER.error("oe1 is not Rectangle: " + oe1.getClass().getName());
 			return null;
@@ -416,7 +583,7 @@ public class MCI {
 		Rectangle frameRect = (Rectangle) oe1;
 		Object oe2 = Context.jsToJava(invokeFunction("getEntityOffset", we), Point.class);
 		if (oe2 == null)
-			oe2 = Context.jsToJava(invokeFunction(defaultCx, defaultScope, "getEntityOffset", we), Point.class);
+			oe2 = Context.jsToJava(invokeFunction(defaultScope, "getEntityOffset", we), Point.class);
 		if (!(oe2 instanceof Point)) {
 			Main.LOGGER.error("oe2 is not Point: " + oe1.getClass().getName());
 			return null;
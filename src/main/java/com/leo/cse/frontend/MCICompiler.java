@@ -0,0 +1,185 @@
+package com.leo.cse.frontend;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.mozilla.classfile.ClassFileWriter.ClassFileFormatException;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.GeneratedClassLoader;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.optimizer.ClassCompiler;
+
+/**
+ * Compiles MCI scripts to Java bytecode. Compiled classes are cached on disk,
+ * keyed by a hash of the script's source, so scripts that haven't changed don't
+ * have to be parsed and compiled again on later launches.
+ *
+ * @author Leo
+ *
+ */
+public class MCICompiler {
+
+	private MCICompiler() {
+	}
+
+	/**
+	 * Rhino optimization level used to compile scripts.
+	 */
+	public static final int OPTIMIZATION_LEVEL = 9;
+	/**
+	 * Directory compiled scripts are cached in.
+	 */
+	private static final File CACHE_DIR = new File("cse_cache", "mci");
+	/**
+	 * Package compiled script classes are placed in.
+	 */
+	private static final String CLASS_PREFIX = "com.leo.cse.frontend.mci.Script_";
+
+	/**
+	 * Compiles a script. If the script has been compiled before, the compiled
+	 * classes are loaded from the cache instead.<br />
+	 * If the script is too large to be compiled, it's compiled for the
+	 * interpreter instead and isn't cached.
+	 *
+	 * @param cx
+	 *            current context
+	 * @param source
+	 *            script source
+	 * @param name
+	 *            script name, used in error messages
+	 * @return compiled script
+	 */
+	public static Script compile(Context cx, byte[] source, String name) {
+		String src = new String(source, Charset.defaultCharset());
+		String hash = hash(cx, source);
+		File cacheFile = new File(CACHE_DIR, hash + ".bin");
+		Object[] classes;
+		if (cacheFile.exists())
+			try {
+				return loadScript(cx, readClasses(cacheFile));
+			} catch (IOException | LinkageError e) {
+				Main.LOGGER.warn("MCI: Failed to load compiled script from cache: " + cacheFile, e);
+				cacheFile.delete();
+			}
+		CompilerEnvirons env = new CompilerEnvirons();
+		env.initFromContext(cx);
+		env.setOptimizationLevel(OPTIMIZATION_LEVEL);
+		try {
+			classes = new ClassCompiler(env).compileToClassFiles(src, name, 1, CLASS_PREFIX + hash);
+		} catch (ClassFileFormatException e) {
+			Main.LOGGER.warn("MCI: Script " + name + " is too large to be compiled, using interpreter", e);
+			int oldLevel = cx.getOptimizationLevel();
+			cx.setOptimizationLevel(-1);
+			try {
+				return cx.compileString(src, name, 1, null);
+			} finally {
+				cx.setOptimizationLevel(oldLevel);
+			}
+		}
+		try {
+			writeClasses(cacheFile, classes);
+		} catch (IOException e) {
+			Main.LOGGER.warn("MCI: Failed to write compiled script to cache: " + cacheFile, e);
+		}
+		return loadScript(cx, classes);
+	}
+
+	/**
+	 * Loads compiled script classes.
+	 *
+	 * @param cx
+	 *            current context
+	 * @param classes
+	 *            array of class names and class bytes, main class first
+	 * @return script instance
+	 */
+	private static Script loadScript(Context cx, Object[] classes) {
+		GeneratedClassLoader loader = cx.createClassLoader(MCICompiler.class.getClassLoader());
+		Class<?> mainClass = null;
+		for (int i = 0; i < classes.length; i += 2) {
+			Class<?> c = loader.defineClass((String) classes[i], (byte[]) classes[i + 1]);
+			loader.linkClass(c);
+			if (mainClass == null)
+				mainClass = c;
+		}
+		try {
+			return (Script) mainClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Could not instantiate compiled script " + mainClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Hashes a script's source, along with the Rhino version and optimization
+	 * level, since compiled classes aren't compatible between them.
+	 *
+	 * @param cx
+	 *            current context
+	 * @param source
+	 *            script source
+	 * @return hash as hexadecimal string
+	 */
+	private static String hash(Context cx, byte[] source) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 is not supported", e);
+		}
+		md.update(source);
+		md.update((cx.getImplementationVersion() + "/" + OPTIMIZATION_LEVEL).getBytes(StandardCharsets.UTF_8));
+		byte[] digest = md.digest();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 16; i++)
+			sb.append(String.format("%02x", digest[i]));
+		return sb.toString();
+	}
+
+	private static Object[] readClasses(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			int count = in.readInt();
+			if (count <= 0)
+				throw new IOException("Invalid class count: " + count);
+			Object[] classes = new Object[count * 2];
+			for (int i = 0; i < count; i++) {
+				classes[i * 2] = in.readUTF();
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				classes[i * 2 + 1] = bytes;
+			}
+			return classes;
+		}
+	}
+
+	private static void writeClasses(File file, Object[] classes) throws IOException {
+		if (!CACHE_DIR.exists() && !CACHE_DIR.mkdirs())
+			throw new IOException("Could not create cache directory: " + CACHE_DIR);
+		// write to a temporary file first, so a partially written file is never read
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(classes.length / 2);
+			for (int i = 0; i < classes.length; i += 2) {
+				out.writeUTF((String) classes[i]);
+				byte[] bytes = (byte[]) classes[i + 1];
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+		if (!tmp.renameTo(file)) {
+			tmp.delete();
+			throw new IOException("Could not move " + tmp + " to " + file);
+		}
+	}
+
+}
@@ -17,7 +17,6 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
 import javax.swing.BoxLayout;
@@ -36,8 +35,11 @@ import org.apache.logging.log4j.Logger;
 
 import com.leo.cse.backend.BackendLogger;
 import com.leo.cse.backend.StrTools;
+import com.leo.cse.backend.UndoJournal;
 import com.leo.cse.backend.exe.ExeData;
 import com.leo.cse.backend.exe.ExeLoadListener;
+import com.leo.cse.backend.exe.ImageCache;
+import com.leo.cse.backend.niku.NikuRecord;
 import com.leo.cse.backend.profile.ProfileListener;
 import com.leo.cse.backend.profile.ProfileManager;
 import com.leo.cse.frontend.ui.SaveEditorPanel;
@@ -62,9 +64,6 @@ public class Main extends JFrame implements ExeLoadListener, ProfileListener {
 	public static Main window;
 	public static Color lineColor;
 
-	private static Thread repaintThread;
-	private static AtomicBoolean keepRepainting;
-
 	private static class ProfileLoadInstruction {
 		public File file;
 		public boolean record;
@@ -102,12 +101,6 @@ public class Main extends JFrame implements ExeLoadListener, ProfileListener {
 			if (sel != JOptionPane.YES_OPTION)
 				return;
 		}
-		keepRepainting.set(false);
-		try {
-			repaintThread.join();
-		} catch (InterruptedException e) {
-			LOGGER.error("Repaint thread kill interrupted", e);
-		}
 		if (reboot) {
 			window.dispose();
 			ProfileManager.removeAllListeners();
@@ -122,6 +115,9 @@ public class Main extends JFrame implements ExeLoadListener, ProfileListener {
 			Config.setColor(Config.KEY_LINE_COLOR, lineColor);
 			Config.set(Config.KEY_ENCODING, ExeData.getEncoding());
 			SaveEditorPanel.panel.saveSettings();
+			// maps loaded on demand are only cached when the mod is unloaded
+			if (ExeData.getModCache() != null)
+				ExeData.getModCache().save();
 			System.exit(0);
 		}
 	}
@@ -489,6 +485,14 @@ public class Main extends JFrame implements ExeLoadListener, ProfileListener {
 		lineColor = Config.getColor(Config.KEY_LINE_COLOR, Color.white);
 		ExeData.setEncoding(Config.get(Config.KEY_ENCODING, StrTools.DEFAULT_ENCODING));
 		ExeData.setLoadNpc(Config.getBoolean(Config.KEY_LOAD_NPCS, true));
+		ExeData.setLazyLoad(Config.getBoolean(Config.KEY_LAZY_LOAD_MAPS, false));
+		ExeData.setUseModCache(Config.getBoolean(Config.KEY_CACHE_MOD_DATA, true));
+		ExeData.setWatchFiles(Config.getBoolean(Config.KEY_WATCH_MOD_FILES, true));
+		ExeData.setLoadThreads(Config.getInt(Config.KEY_LOAD_THREADS, 0));
+		final int undoBudget = Config.getInt(Config.KEY_UNDO_BUDGET, UndoJournal.DEFAULT_BUDGET);
+		ProfileManager.setUndoBudget(undoBudget);
+		NikuRecord.setUndoBudget(undoBudget);
+		ExeData.setImageCacheBudget(Config.getLong(Config.KEY_IMAGE_CACHE_BUDGET, ImageCache.DEFAULT_BUDGET));
 		// Profile.setNoUndo(false);
 		try {
 			Resources.loadUI();
@@ -509,18 +513,6 @@ public class Main extends JFrame implements ExeLoadListener, ProfileListener {
 					if (p.exists())
 						loadProfile(p, false);
 				});
-			keepRepainting = new AtomicBoolean(true);
-			repaintThread = new Thread(() -> {
-				while (keepRepainting.get()) {
-					window.repaint();
-					try {
-						Thread.sleep(10);
-					} catch (InterruptedException e) {
-						LOGGER.error("Repaint thread sleep interrupted", e);
-					}
-				}
-			}, "repaint");
-			repaintThread.start();
 		});
 	}
 
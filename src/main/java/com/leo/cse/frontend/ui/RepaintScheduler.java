@@ -0,0 +1,138 @@
+package com.leo.cse.frontend.ui;
+
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Collects dirty regions of a component and repaints them together. Nothing is
+ * repainted unless something has been marked dirty, so an idle window doesn't
+ * use any CPU.<br />
+ * If a frame cap is set, repaints are delayed so they happen at most that many
+ * times per second.
+ *
+ * @author Leo
+ *
+ */
+public class RepaintScheduler {
+
+	/**
+	 * Component to repaint.
+	 */
+	private final JComponent target;
+	/**
+	 * Fires delayed repaints when the frame cap is in effect.
+	 */
+	private final Timer timer;
+	/**
+	 * Union of all regions marked dirty since the last repaint, or
+	 * <code>null</code> if nothing is dirty.
+	 */
+	private Rectangle dirty;
+	/**
+	 * <code>true</code> if a repaint has already been scheduled.
+	 */
+	private boolean scheduled;
+	/**
+	 * Maximum repaints per second, or 0 for no limit.
+	 */
+	private int frameCap;
+	/**
+	 * Time of the last repaint, in milliseconds.
+	 */
+	private long lastFlush;
+
+	/**
+	 * Creates a new repaint scheduler.
+	 *
+	 * @param target
+	 *            component to repaint
+	 * @param frameCap
+	 *            maximum repaints per second, or 0 for no limit
+	 */
+	public RepaintScheduler(JComponent target, int frameCap) {
+		this.target = target;
+		this.frameCap = Math.max(0, frameCap);
+		timer = new Timer(0, e -> flush());
+		timer.setRepeats(false);
+	}
+
+	public synchronized int getFrameCap() {
+		return frameCap;
+	}
+
+	public synchronized void setFrameCap(int frameCap) {
+		this.frameCap = Math.max(0, frameCap);
+	}
+
+	/**
+	 * Marks a region as dirty. Can be called from any thread.
+	 *
+	 * @param x
+	 *            X position of region
+	 * @param y
+	 *            Y position of region
+	 * @param width
+	 *            width of region
+	 * @param height
+	 *            height of region
+	 */
+	public void markDirty(int x, int y, int width, int height) {
+		if (width <= 0 || height <= 0)
+			return;
+		int delay;
+		synchronized (this) {
+			if (dirty == null)
+				dirty = new Rectangle(x, y, width, height);
+			else
+				dirty.add(new Rectangle(x, y, width, height));
+			if (scheduled)
+				return;
+			scheduled = true;
+			delay = 0;
+			if (frameCap > 0)
+				delay = (int) Math.max(0, lastFlush + 1000 / frameCap - System.currentTimeMillis());
+		}
+		if (delay == 0)
+			SwingUtilities.invokeLater(this::flush);
+		else {
+			timer.setInitialDelay(delay);
+			timer.restart();
+		}
+	}
+
+	/**
+	 * Marks a region as dirty. Can be called from any thread.
+	 *
+	 * @param r
+	 *            region
+	 */
+	public void markDirty(Rectangle r) {
+		markDirty(r.x, r.y, r.width, r.height);
+	}
+
+	/**
+	 * Marks the entire component as dirty. Can be called from any thread.
+	 */
+	public void markAllDirty() {
+		markDirty(0, 0, Math.max(1, target.getWidth()), Math.max(1, target.getHeight()));
+	}
+
+	/**
+	 * Repaints all dirty regions.
+	 */
+	private void flush() {
+		Rectangle r;
+		synchronized (this) {
+			r = dirty;
+			dirty = null;
+			scheduled = false;
+			lastFlush = System.currentTimeMillis();
+		}
+		if (r != null)
+			target.repaint(r);
+	}
+
+}
@@ -273,6 +273,7 @@ public class SaveEditorPanel extends JPanel
 		this.gotProfile = gotProfile;
 		if (gotProfile)
 			addComponents();
+		markDirty();
 	}
 
 	public static boolean sortMapsAlphabetically = Config.getBoolean(Config.KEY_SORT_MAPS_ALPHABETICALLY, false);
@@ -291,6 +292,47 @@ public class SaveEditorPanel extends JPanel
 
 	public void setLoading(boolean loading) {
 		this.loading = loading;
+		markDirty();
+	}
+
+	private final RepaintScheduler repaintScheduler;
+
+	public RepaintScheduler getRepaintScheduler() {
+		return repaintScheduler;
+	}
+
+	/**
+	 * Marks the entire panel as needing to be repainted.
+	 */
+	public void markDirty() {
+		repaintScheduler.markAllDirty();
+	}
+
+	/**
+	 * Marks a region as needing to be repainted.
+	 *
+	 * @param x
+	 *            X position of region
+	 * @param y
+	 *            Y position of region, with 0 being the top of the menu bar
+	 * @param width
+	 *            width of region
+	 * @param height
+	 *            height of region
+	 */
+	public void markDirty(int x, int y, int width, int height) {
+		repaintScheduler.markDirty(x + OFFSET_X, y + OFFSET_Y, width, height);
+	}
+
+	/**
+	 * Marks a component as needing to be repainted.
+	 *
+	 * @param comp
+	 *            component
+	 */
+	public void markDirty(Component comp) {
+		// components draw their focus outline & hover highlight just outside their bounds
+		markDirty(comp.getX() - 2, comp.getY() + 17 - 2, comp.getWidth() + 4, comp.getHeight() + 4);
 	}
 
 	private String profileExt = "dat";
@@ -305,6 +347,7 @@ public class SaveEditorPanel extends JPanel
 
 	public SaveEditorPanel() {
 		panel = this;
+		repaintScheduler = new RepaintScheduler(this, Config.getInt(Config.KEY_FRAME_CAP, 60));
 		currentTab = 0;
 		dBoxes = new ArrayList<>();
 		addComponents();
@@ -360,7 +403,7 @@ public class SaveEditorPanel extends JPanel
 		mbiFile.add(new MenuBarItem("Unload Game/Mod", Resources.icons[12], () -> {
 			ExeData.unload();
 			loading = true;
-			repaint();
+			markDirty();
 			addComponents();
 			loading = false;
 		}, () -> {
@@ -441,6 +484,7 @@ public class SaveEditorPanel extends JPanel
 
 	public void addDialogBox(Dialog dBox) {
 		dBoxes.add(0, dBox);
+		markDirty();
 	}
 
 	private BufferedImage surf;
@@ -456,8 +500,12 @@ public class SaveEditorPanel extends JPanel
 		final Rectangle compViewport = new Rectangle(0, 0, winSize2.width, winSize2.height);
 		if (surf == null)
 			surf = new BufferedImage(winSize2.width, winSize2.height, BufferedImage.TYPE_4BYTE_ABGR);
+		// only the dirty region needs to be redrawn, the rest of surf is still valid
+		final Rectangle clip = g.getClipBounds();
 		Graphics og = g;
 		g = surf.getGraphics();
+		if (clip != null)
+			g.setClip(clip.x - OFFSET_X, clip.y - OFFSET_Y, clip.width, clip.height);
 		g2d = (Graphics2D) g;
 		// START RENDER CODE
 		g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
@@ -529,6 +577,7 @@ public class SaveEditorPanel extends JPanel
 			}
 		} else {
 			if (gotProfile) {
+				// components outside of the dirty region are clipped away
 				for (Component comp : tabs[currentTab].getPanel().getComponents())
 					comp.render(g2d, compViewport);
 			} else {
@@ -848,12 +897,12 @@ public class SaveEditorPanel extends JPanel
 				if ((entityFlags & 0x0800) != 0)
 					// Appear once flagID set
 					// if entity isn't supposed to appear, continue
-					if (!(boolean) ProfileManager.getField(NormalProfile.FIELD_FLAGS, flagID))
+					if (!ProfileManager.getFlag(NormalProfile.FIELD_FLAGS, flagID))
 						continue;
 				if ((entityFlags & 0x4000) != 0)
 					// No Appear if flagID set
 					// if entity isn't supposed to appear, continue
-					if ((boolean) ProfileManager.getField(NormalProfile.FIELD_FLAGS, flagID))
+					if (ProfileManager.getFlag(NormalProfile.FIELD_FLAGS, flagID))
 						continue;
 				if ((entityFlags & 0x2000) == 0)
 					// if entity cannot be interacted with, continue
@@ -1003,7 +1052,7 @@ public class SaveEditorPanel extends JPanel
 			}
 			lastFocus = newFocus;
 		}
-		repaint();
+		markDirty();
 	}
 
 	@Override
@@ -1031,7 +1080,7 @@ public class SaveEditorPanel extends JPanel
 						((IScrollable) comp).onScroll(e.getWheelRotation(), shift, ctrl);
 				}
 		}
-		repaint();
+		markDirty();
 	}
 
 	private Map<IDraggable, Boolean> lastDragged;
@@ -1081,7 +1130,7 @@ public class SaveEditorPanel extends JPanel
 			}
 		}
 		lastFocus = newFocus;
-		repaint();
+		markDirty();
 	}
 
 	@Override
@@ -1100,12 +1149,20 @@ public class SaveEditorPanel extends JPanel
 		final Dimension winSize2 = Main.window.getActualSize(false);
 		final boolean shift = (mod & InputEvent.SHIFT_DOWN_MASK) == InputEvent.SHIFT_DOWN_MASK,
 				ctrl = (mod & InputEvent.CTRL_DOWN_MASK) == InputEvent.CTRL_DOWN_MASK;
+		final int oldMenubarHover = menubarHover, oldTabHover = tabHover, oldMenubar = currentMenubar;
 		menubarHover = -1;
 		tabHover = -1;
 		boolean somethingInFront = false;
 		if (!dBoxes.isEmpty()) {
 			somethingInFront = true;
-			dBoxes.get(0).updateHover(px, py, shift, ctrl);
+			Dialog dBox = dBoxes.get(0);
+			dBox.updateHover(px, py, shift, ctrl);
+			// only the dialog reacts to the cursor
+			Rectangle dBounds = dBox.getBounds();
+			if (dBounds == null)
+				markDirty();
+			else
+				markDirty(dBounds.x, dBounds.y, dBounds.width, dBounds.height);
 		}
 		if (py <= 17) {
 			// menu bar
@@ -1123,6 +1180,8 @@ public class SaveEditorPanel extends JPanel
 				nextX += width;
 			}
 		}
+		boolean itemHoverChanged = false;
+		int menuHeight = 0;
 		if (currentMenubar != -1) {
 			// menu bar items
 			somethingInFront = true;
@@ -1140,12 +1199,13 @@ public class SaveEditorPanel extends JPanel
 			final int mWidth = 280;
 			int mY = 17;
 			for (MenuBarItem item : items) {
-				if (FrontUtils.pointInRectangle(px, py, mX, mY, mWidth, 21))
-					item.setHover(true);
-				else
-					item.setHover(false);
+				boolean hover = FrontUtils.pointInRectangle(px, py, mX, mY, mWidth, 21);
+				if (item.isHover() != hover)
+					itemHoverChanged = true;
+				item.setHover(hover);
 				mY += 22;
 			}
+			menuHeight = items.size() * 22;
 		}
 		if (!somethingInFront) {
 			if (py >= winSize2.height - 18 && ProfileManager.isLoaded()) {
@@ -1166,12 +1226,24 @@ public class SaveEditorPanel extends JPanel
 					if (FrontUtils.pointInRectangle(px, py, rx, ry, rw, rh)) {
 						hover = true;
 					}
+					final boolean oldHover = comp.isHover();
 					comp.updateHover(px, py, hover, shift, ctrl);
+					// hovered components might track the cursor, so they need to be redrawn too
+					if (hover || oldHover)
+						markDirty(comp);
 				}
 			}
 		}
-		repaint();
-
+		if (currentMenubar != oldMenubar)
+			markDirty();
+		else if (currentMenubar != -1) {
+			// only the menu bar and the open menu react to the cursor
+			if (itemHoverChanged || menubarHover != oldMenubarHover)
+				markDirty(0, 0, winSize2.width, 17 + menuHeight + 2);
+		} else if (menubarHover != oldMenubarHover)
+			markDirty(0, 0, winSize2.width, 18);
+		if (tabHover != oldTabHover)
+			markDirty(0, winSize2.height - 18, winSize2.width, 18);
 	}
 
 	@Override
@@ -1189,7 +1261,7 @@ public class SaveEditorPanel extends JPanel
 			ScrollBar scroll = tabs[currentTab].getPanel().getGlobalScrollbar();
 			if (scroll != null && (code == KeyEvent.VK_HOME || code == KeyEvent.VK_END)) {
 				scroll.onKey(code, shift, ctrl);
-				repaint();
+				markDirty();
 			} else if (lastFocus == null) {
 				switch (code) {
 				case KeyEvent.VK_O:
@@ -1232,11 +1304,12 @@ public class SaveEditorPanel extends JPanel
 			} else
 				lastFocus.onKey(code, shift, ctrl);
 		}
-		repaint();
+		markDirty();
 	}
 
 	@Override
 	public void onChange(String field, int id, Object oldValue, Object newValue) {
+		markDirty();
 		if (ProfileManager.EVENT_LOAD.equals(field)) {
 			if (ProfileManager.getType() == PlusProfile.class) {
 				setGotProfile(false);
@@ -1252,6 +1325,10 @@ public class SaveEditorPanel extends JPanel
 
 	@Override
 	public void onEvent(String event, String loadName, int loadId, int loadIdMax) {
+		// components that show reloaded assets & script uses repaint themselves
+		if (ExeData.EVENT_ASSET_RELOAD.equals(event) || ExeData.EVENT_TSC_INDEX.equals(event))
+			return;
+		markDirty();
 		progLoad.name = loadName;
 		progLoad.id = loadId;
 		progLoad.idMax = loadIdMax;
@@ -1290,6 +1367,7 @@ public class SaveEditorPanel extends JPanel
 
 	@Override
 	public void onSubevent(String event, String loadName, int loadId, int loadIdMax) {
+		markDirty();
 		progSubload.name = loadName;
 		progSubload.id = loadId;
 		progSubload.idMax = loadIdMax;
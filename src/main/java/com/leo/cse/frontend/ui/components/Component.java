@@ -38,6 +38,10 @@ public abstract class Component {
 	public void onKey(int code, boolean shiftDown, boolean ctrlDown) {
 	}
 
+	public boolean isHover() {
+		return hover;
+	}
+
 	public int getX() {
 		return x;
 	}
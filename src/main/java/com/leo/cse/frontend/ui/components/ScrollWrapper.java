@@ -60,6 +60,9 @@ public class ScrollWrapper extends Component implements IScrollable, IDraggable
 
 	@Override
 	public void render(Graphics g, Rectangle viewport) {
+		// skip redrawing the wrapped component if it isn't in the dirty region
+		if (!g.hitClip(x, y, width, height + 2))
+			return;
 		final int wsWidth = wrapped.getWidth(), wsHeight = wrapped.getHeight();
 		final int scrollOff = (int) ((height - wsHeight) * scrollbar.getValue());
 		final Rectangle wViewport = new Rectangle(wrapped.getX(), wrapped.getY() - scrollOff,
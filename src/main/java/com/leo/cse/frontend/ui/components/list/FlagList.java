@@ -8,8 +8,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
 
+import com.leo.cse.backend.exe.ExeData;
+import com.leo.cse.backend.profile.FlagFieldHandle;
 import com.leo.cse.backend.profile.NormalProfile;
-import com.leo.cse.backend.profile.ProfileManager;
+import com.leo.cse.backend.tsc.TSCIndex;
 import com.leo.cse.frontend.FrontUtils;
 import com.leo.cse.frontend.MCI;
 import com.leo.cse.frontend.Main;
@@ -19,6 +21,8 @@ import com.leo.cse.frontend.ui.components.Component;
 public class FlagList extends Component {
 
 	public static final String DESC_NONE = "(no description)";
+
+	private static final FlagFieldHandle FLAGS = new FlagFieldHandle(NormalProfile.FIELD_FLAGS);
 	public static final String DESC_ENGINE = "(engine flag)";
 	public static final String DESC_MIM = "(<MIM data)";
 	public static final String DESC_VAR = "(<VAR data)";
@@ -130,6 +134,12 @@ public class FlagList extends Component {
 		FrontUtils.drawString(g, "ID", x + 24, 2);
 		g.drawLine(x + 50, 0, x + 50, height);
 		FrontUtils.drawString(g, "Description", x + 54, 2);
+		final boolean showUses = ExeData.isLoaded() && ExeData.doLoadTSC();
+		final int ux = viewport.width - 48;
+		if (showUses) {
+			g.drawLine(ux - 4, 0, ux - 4, height);
+			FrontUtils.drawString(g, "Uses", ux, 2);
+		}
 		int y = 28;
 		g.drawLine(0, y - 4, viewport.width, y - 4);
 		for (Flag flag : shownFlags) {
@@ -145,12 +155,15 @@ public class FlagList extends Component {
 			g.fillRect(x, y, 16, 16);
 			BufferedImage chkImage = Resources.checkboxDisabled;
 			if (isFlagValid(id))
-				chkImage = ((boolean) ProfileManager.getField(NormalProfile.FIELD_FLAGS, id) ? Resources.checkboxOn
+				chkImage = (FLAGS.get(id) ? Resources.checkboxOn
 						: Resources.checkboxOff);
 			g.drawImage(chkImage, x, y, null);
 			g.setColor(Main.lineColor);
 			FrontUtils.drawString(g, FrontUtils.padLeft(Integer.toUnsignedString(id), "0", 4), x + 24, y - 2);
 			FrontUtils.drawString(g, getFlagDesc(id), x + 54, y - 2);
+			if (showUses)
+				FrontUtils.drawString(g,
+						Integer.toString(ExeData.getTSCIndex().getReferenceCount(TSCIndex.Kind.FLAG, id)), ux, y - 2);
 			y += 24;
 			if (y > viewport.getY() + viewport.getHeight())
 				break;
@@ -171,8 +184,7 @@ public class FlagList extends Component {
 				continue;
 			}
 			if (FrontUtils.pointInRectangle(x, y, fx, fy, 16, 16)) {
-				boolean value = (boolean) ProfileManager.getField(NormalProfile.FIELD_FLAGS, id);
-				ProfileManager.setField(NormalProfile.FIELD_FLAGS, id, !value);
+				FLAGS.toggle(id);
 				break;
 			}
 			fy += 24;
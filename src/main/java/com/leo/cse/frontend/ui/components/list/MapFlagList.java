@@ -9,8 +9,9 @@ import java.util.List;
 
 import com.leo.cse.backend.exe.ExeData;
 import com.leo.cse.backend.exe.MapInfo;
+import com.leo.cse.backend.profile.FlagFieldHandle;
 import com.leo.cse.backend.profile.NormalProfile;
-import com.leo.cse.backend.profile.ProfileManager;
+import com.leo.cse.backend.tsc.TSCIndex;
 import com.leo.cse.frontend.FrontUtils;
 import com.leo.cse.frontend.MCI;
 import com.leo.cse.frontend.Main;
@@ -21,6 +22,8 @@ public class MapFlagList extends Component {
 
 	public static final String DESC_NONE = "(unknown map)";
 
+	private static final FlagFieldHandle MAP_FLAGS = new FlagFieldHandle(NormalProfile.FIELD_MAP_FLAGS);
+
 	public static String getMapFlagName(int id) {
 		String mapName = null;
 		if (ExeData.isLoaded()) {
@@ -110,6 +113,12 @@ public class MapFlagList extends Component {
 		FrontUtils.drawString(g, "ID", x + 24, 2);
 		g.drawLine(x + 44, 0, x + 44, height);
 		FrontUtils.drawString(g, "Map Name", x + 48, 2);
+		final boolean showUses = ExeData.isLoaded() && ExeData.doLoadTSC();
+		final int ux = viewport.width - 48;
+		if (showUses) {
+			g.drawLine(ux - 4, 0, ux - 4, height);
+			FrontUtils.drawString(g, "Uses", ux, 2);
+		}
 		int y = 28;
 		g.drawLine(0, y - 4, viewport.width, y - 4);
 		for (MapFlag flag : shownFlags) {
@@ -125,12 +134,15 @@ public class MapFlagList extends Component {
 			g.fillRect(x, y, 16, 16);
 			BufferedImage chkImage = Resources.checkboxDisabled;
 			if (isMapFlagValid(id))
-				chkImage = ((boolean) ProfileManager.getField(NormalProfile.FIELD_MAP_FLAGS, id) ? Resources.checkboxOn
+				chkImage = (MAP_FLAGS.get(id) ? Resources.checkboxOn
 						: Resources.checkboxOff);
 			g.drawImage(chkImage, x, y, null);
 			g.setColor(Main.lineColor);
 			FrontUtils.drawString(g, FrontUtils.padLeft(Integer.toUnsignedString(id), "0", 3), x + 24, y - 2);
 			FrontUtils.drawString(g, getMapFlagName(id), x + 48, y - 2);
+			if (showUses)
+				FrontUtils.drawString(g,
+						Integer.toString(ExeData.getTSCIndex().getReferenceCount(TSCIndex.Kind.MAP_FLAG, id)), ux, y - 2);
 			y += 24;
 			if (y > viewport.getY() + viewport.getHeight())
 				break;
@@ -151,8 +163,7 @@ public class MapFlagList extends Component {
 				continue;
 			}
 			if (FrontUtils.pointInRectangle(x, y, fx, fy, 16, 16)) {
-				boolean value = (boolean) ProfileManager.getField(NormalProfile.FIELD_MAP_FLAGS, id);
-				ProfileManager.setField(NormalProfile.FIELD_MAP_FLAGS, id, !value);
+				MAP_FLAGS.toggle(id);
 				break;
 			}
 			fy += 24;
@@ -7,15 +7,20 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.Transparency;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.Iterator;
 import java.util.function.Supplier;
 
 import com.leo.cse.backend.exe.ExeData;
+import com.leo.cse.backend.exe.ExeLoadListener;
 import com.leo.cse.backend.exe.MapInfo;
 import com.leo.cse.backend.exe.MapInfo.PxeEntry;
+import com.leo.cse.backend.exe.MapTiles;
+import com.leo.cse.backend.exe.PxeStore;
+import com.leo.cse.backend.profile.FlagFieldHandle;
+import com.leo.cse.backend.profile.IntFieldHandle;
 import com.leo.cse.backend.profile.NormalProfile;
 import com.leo.cse.backend.profile.PlusProfile;
 import com.leo.cse.backend.profile.ProfileListener;
@@ -29,12 +34,19 @@ import com.leo.cse.frontend.ui.SaveEditorPanel;
 import com.leo.cse.frontend.ui.components.Component;
 import com.leo.cse.frontend.ui.components.IDraggable;
 
-public class MapView extends Component implements IDraggable, ProfileListener {
+public class MapView extends Component implements IDraggable, ProfileListener, ExeLoadListener {
 
 	private static final Color COLOR_NULL = new Color(0, 0, 16);
 
+	private static final IntFieldHandle MAP = new IntFieldHandle(NormalProfile.FIELD_MAP);
+	private static final IntFieldHandle DIRECTION = new IntFieldHandle(NormalProfile.FIELD_DIRECTION);
+	private static final IntFieldHandle VARIABLES = new IntFieldHandle(NormalProfile.FIELD_VARIABLES);
+	private static final IntFieldHandle DIFFICULTY = new IntFieldHandle(PlusProfile.FIELD_DIFFICULTY);
+	private static final FlagFieldHandle FLAGS = new FlagFieldHandle(NormalProfile.FIELD_FLAGS);
+	private static final FlagFieldHandle EQUIPS = new FlagFieldHandle(NormalProfile.FIELD_EQUIPS);
+
 	private MapInfo mapInfo;
-	private int[][][] map;
+	private MapTiles map;
 	private BufferedImage tileset;
 	private int setWidth;
 	private int camX = 0, camY = 0;
@@ -44,13 +56,51 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 	private Short[] playerPos;
 	private short playerHoverX, playerHoverY;
 
+	/**
+	 * Maximum amount of pixels a pre-rendered tile layer can have. Maps bigger
+	 * than this have their tiles drawn directly every frame instead.
+	 */
+	private static final long MAX_LAYER_PIXELS = 16L * 1024 * 1024;
+
+	/**
+	 * Surface that each frame is drawn to before being drawn to the screen.
+	 */
+	private BufferedImage surf;
+	/**
+	 * Pre-rendered background, the size of the view.
+	 */
+	private BufferedImage bgSurf;
+	/**
+	 * Pre-rendered tile layers, the size of the whole map. <code>null</code> if
+	 * the map is too big to pre-render.
+	 */
+	private BufferedImage[] layerSurfs;
+	// the assets the surfaces above were rendered from
+	private MapInfo cachedMapInfo;
+	private MapTiles cachedMapData;
+	private BufferedImage cachedTileset, cachedBg, cachedNpcSym;
+	private byte[] cachedPxa;
+	/**
+	 * Reused for each entity's draw area, so drawing entities doesn't allocate.
+	 */
+	private final Rectangle drawArea = new Rectangle();
+	/**
+	 * How far outside of the view entities are still drawn, in pixels.
+	 */
+	private static final int ENTITY_CULL_MARGIN = 64;
+	/**
+	 * The area entities are drawn in, reused for each frame.
+	 */
+	private final Rectangle viewArea = new Rectangle();
+	/**
+	 * Indexes of the entities in {@link #viewArea}, reused for each frame.
+	 */
+	private int[] visibleEntities = new int[0];
+
 	private int getMap() {
-		Object obj = null;
-		if (ProfileManager.isLoaded())
-			obj = ProfileManager.getField(NormalProfile.FIELD_MAP);
-		if (obj == null)
+		if (!ProfileManager.isLoaded())
 			return -1;
-		return (Integer) obj;
+		return MAP.getInt();
 	}
 
 	public MapView(int x, int y, Supplier<Boolean> gSup) {
@@ -80,6 +130,9 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 		FrontUtils.drawString(g, camCoords + "\n\n" + instruct + "\n" + mod, x + 642, y);
 		if (notLoaded)
 			return;
+		// skip redrawing the map if it isn't in the dirty region
+		if (!g.hitClip(x - 1, y - 1, width + 2, height + 2))
+			return;
 		if (SaveEditorPanel.panel.getLastFocus() == this) {
 			g.setColor(Main.lineColor);
 			g.drawRect(x - 1, y - 1, width + 1, height + 1);
@@ -96,33 +149,102 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 					x + width / 2, y + height / 2 + 30, true, false);
 			return;
 		}
-		map = mapInfo.getMap();
+		map = mapInfo.getTiles();
 		tileset = ExeData.getImage(mapInfo.getTileset());
 		setWidth = tileset.getWidth() / 32;
 		if (playerPos == null)
 			updatePlayerPos();
-		BufferedImage surf = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		validateLayerCache();
+		if (surf == null)
+			surf = FrontUtils.createCompatibleImage(width, height, Transparency.OPAQUE);
 		Graphics2D sg = (Graphics2D) surf.getGraphics();
-		sg.setColor(COLOR_NULL);
-		sg.fillRect(0, 0, width, height);
 		if (getMap() != lastMap || ignoreClick == 0)
 			updateCamCoords();
 		lastMap = getMap();
-		drawBackground(sg);
+		sg.drawImage(bgSurf, 0, 0, null);
 		sg.translate(-camX, -camY);
-		drawTiles(sg, 0);
+		drawLayer(sg, 0);
 		drawEntities(sg);
 		drawMyChar(sg, DRAWTYPE_NORMAL);
-		drawTiles(sg, 1);
+		drawLayer(sg, 1);
 		drawMyChar(sg, DRAWTYPE_TRANS);
 		if (hover && ignoreClick != 2)
 			drawMyChar(sg, DRAWTYPE_HOVER);
 		if (gSup.get())
 			drawGrid(sg);
-		sg.translate(camX, camY);
+		sg.dispose();
 		g.drawImage(surf, x, y, null);
 	}
 
+	/**
+	 * Re-renders the background and tile layer surfaces if the map, its tileset,
+	 * its background or its PXA data has changed since they were last rendered.
+	 */
+	private void validateLayerCache() {
+		BufferedImage bg = null;
+		if (mapInfo.getScrollType() != 3 && mapInfo.getScrollType() != 4)
+			bg = ExeData.getImage(mapInfo.getBgImage());
+		BufferedImage npcSym = ExeData.getImage(ExeData.getNpcSym());
+		byte[] pxa = ExeData.getPxa(mapInfo.getPxaFile());
+		if (bgSurf != null && mapInfo == cachedMapInfo && map == cachedMapData && tileset == cachedTileset
+				&& bg == cachedBg && npcSym == cachedNpcSym && pxa == cachedPxa)
+			return;
+		cachedMapInfo = mapInfo;
+		cachedMapData = map;
+		cachedTileset = tileset;
+		cachedBg = bg;
+		cachedNpcSym = npcSym;
+		cachedPxa = pxa;
+		// background
+		if (bgSurf == null)
+			bgSurf = FrontUtils.createCompatibleImage(width, height, Transparency.OPAQUE);
+		Graphics2D g = bgSurf.createGraphics();
+		g.setColor(COLOR_NULL);
+		g.fillRect(0, 0, width, height);
+		drawBackground(g);
+		g.dispose();
+		// tile layers
+		if (layerSurfs != null) {
+			for (BufferedImage layerSurf : layerSurfs)
+				layerSurf.flush();
+			layerSurfs = null;
+		}
+		int lw = map.getWidth() * 32, lh = map.getHeight() * 32;
+		if (lw <= 0 || lh <= 0 || (long) lw * lh > MAX_LAYER_PIXELS)
+			return;
+		layerSurfs = new BufferedImage[2];
+		for (int l = 0; l < layerSurfs.length; l++) {
+			layerSurfs[l] = FrontUtils.createCompatibleImage(lw, lh, Transparency.TRANSLUCENT);
+			g = layerSurfs[l].createGraphics();
+			// tiles are drawn centered on their position
+			g.translate(16, 16);
+			drawTiles(g, l);
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Draws the part of a tile layer that's inside the camera's view.
+	 *
+	 * @param g
+	 *            graphics, translated by the camera position
+	 * @param l
+	 *            layer to draw
+	 */
+	private void drawLayer(Graphics g, int l) {
+		if (layerSurfs == null) {
+			drawTiles(g, l);
+			return;
+		}
+		BufferedImage layerSurf = layerSurfs[l];
+		int sx1 = Math.max(camX + 16, 0), sy1 = Math.max(camY + 16, 0);
+		int sx2 = Math.min(camX + 16 + width, layerSurf.getWidth());
+		int sy2 = Math.min(camY + 16 + height, layerSurf.getHeight());
+		if (sx2 <= sx1 || sy2 <= sy1)
+			return;
+		g.drawImage(layerSurf, sx1 - 16, sy1 - 16, sx2 - 16, sy2 - 16, sx1, sy1, sx2, sy2, null);
+	}
+
 	private void drawBackground(Graphics g) {
 		int scrollType = mapInfo.getScrollType();
 		if (scrollType == 3 || scrollType == 4)
@@ -130,8 +252,8 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 		BufferedImage bg = ExeData.getImage(mapInfo.getBgImage());
 		int iw = bg.getWidth(null);
 		int ih = bg.getHeight(null);
-		for (int x = 0; x < map[0][0].length * 32; x += iw) {
-			for (int y = 0; y < map[0].length * 32; y += ih) {
+		for (int x = 0; x < map.getWidth() * 32; x += iw) {
+			for (int y = 0; y < map.getHeight() * 32; y += ih) {
 				g.drawImage(bg, x, y, iw, ih, null);
 			}
 		}
@@ -140,12 +262,12 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 	private void drawTiles(Graphics g, int l) {
 		int xx = 0;
 		int yy = 0;
-		for (int i = 0; i < map[l].length; i++) {
-			for (int j = 0; j < map[l][i].length; j++) {
+		for (int i = 0; i < map.getHeight(); i++) {
+			for (int j = 0; j < map.getWidth(); j++) {
 				int xPixel = xx * 32 - 16;
 				int yPixel = yy * 32 - 16;
-				int tile = map[l][i][j];
-				int pxa = mapInfo.calcPxa(tile);
+				int tile = map.getTile(l, j, i);
+				int pxa = map.getType(l, j, i);
 				if (pxa >= 0x20 && pxa <= 0x3F || pxa >= 0x81 && pxa <= 0xFF) {
 					// no draw
 					continue;
@@ -168,22 +290,28 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 	}
 
 	private void drawEntities(Graphics2D g) {
-		Iterator<PxeEntry> it = mapInfo.getPxeIterator();
-		if (it == null)
+		PxeStore store = mapInfo.getPxeStore();
+		if (store == null)
 			return;
-		while (it.hasNext()) {
-			PxeEntry e = it.next();
+		if (visibleEntities.length < store.getCount())
+			visibleEntities = new int[store.getCount()];
+		// offsets from the MCI can move entities a bit outside of their draw area
+		viewArea.setBounds(camX - ENTITY_CULL_MARGIN, camY - ENTITY_CULL_MARGIN, width + ENTITY_CULL_MARGIN * 2,
+				height + ENTITY_CULL_MARGIN * 2);
+		int visibleCount = store.query(viewArea, visibleEntities);
+		for (int v = 0; v < visibleCount; v++) {
+			PxeEntry e = store.getEntry(visibleEntities[v]);
 			short flags = e.getFlags();
 			short flagID = e.getFlagID();
 			if ((flags & 0x0800) != 0) {
 				// Appear once flagID set
-				if (!(boolean) ProfileManager.getField(NormalProfile.FIELD_FLAGS, flagID))
-					return;
+				if (!FLAGS.get(flagID))
+					continue;
 			}
 			if ((flags & 0x4000) != 0) {
 				// No Appear if flagID set
-				if ((boolean) ProfileManager.getField(NormalProfile.FIELD_FLAGS, flagID))
-					return;
+				if (FLAGS.get(flagID))
+					continue;
 			}
 			BufferedImage srcImg;
 			int tilesetNum = e.getInfo().getTileset();
@@ -249,7 +377,7 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 				int srcY = frameRect.y;
 				int srcX2 = frameRect.width;
 				int srcY2 = frameRect.height;
-				Rectangle dest = e.getDrawArea();
+				Rectangle dest = e.getDrawArea(drawArea);
 				int dstX = dest.x + offset.x;
 				int dstY = dest.y + offset.y;
 				g.drawImage(srcImg, dstX, dstY, dstX + dest.width, dstY + dest.height, srcX, srcY, srcX2, srcY2, null);
@@ -265,18 +393,18 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 		double snap = Math.max(1, 2 / (double) MCI.getInteger("Game.GraphicsResolution", 1));
 		int dir = 0;
 		long costume = 0;
-		dir = ((Integer) ProfileManager.getField(NormalProfile.FIELD_DIRECTION) == 2 ? 1 : 0);
+		dir = (DIRECTION.getInt() == 2 ? 1 : 0);
 		if (MCI.getSpecial("VarHack"))
-			costume = (Integer) ProfileManager.getField(NormalProfile.FIELD_VARIABLES, 6);
+			costume = VARIABLES.getInt(6);
 		else if (MCI.getSpecial("MimHack"))
-			costume = (Integer) ProfileManager.getField(NormalProfile.FIELD_MIM_COSTUME);
+			costume = (Long) ProfileManager.getField(NormalProfile.FIELD_MIM_COSTUME);
 		else {
-			costume = ((Boolean) ProfileManager.getField(NormalProfile.FIELD_EQUIPS, 6) ? 1 : 0);
+			costume = (EQUIPS.get(6) ? 1 : 0);
 			if (ProfileManager.getType() == PlusProfile.class) {
 				int curSec = (Integer) ProfileManager.callMethod(PlusProfile.METHOD_GET_ACTIVE_FILE);
 				if (curSec > 2)
 					costume += 10;
-				int diff = (Short) ProfileManager.getField(PlusProfile.FIELD_DIFFICULTY);
+				int diff = DIFFICULTY.getInt();
 				while (diff > 5)
 					diff -= 5;
 				if (diff % 2 == 1)
@@ -338,18 +466,18 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 		Composite oc = g.getComposite();
 		AlphaComposite ac = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f);
 		g.setComposite(ac);
-		int w = map[0][0].length * 32, h = map[0].length * 32;
+		int w = map.getWidth() * 32, h = map.getHeight() * 32;
 		int k;
-		for (k = 0; k < map[0].length; k++)
+		for (k = 0; k < map.getHeight(); k++)
 			g.drawLine(0, k * 32 + 16, w, k * 32 + 16);
-		for (k = 0; k < map[0][0].length; k++)
+		for (k = 0; k < map.getWidth(); k++)
 			g.drawLine(k * 32 + 16, 0, k * 32 + 16, h);
 		g.setComposite(oc);
 	}
 
 	public void updateCamCoords() {
-		camX = Math.max(0, Math.min((map[0][0].length - 21) * 32, playerPos[0] - width / 2));
-		camY = Math.max(0, Math.min((map[0].length - 16) * 32, playerPos[1] - height / 2));
+		camX = Math.max(0, Math.min((map.getWidth() - 21) * 32, playerPos[0] - width / 2));
+		camY = Math.max(0, Math.min((map.getHeight() - 16) * 32, playerPos[1] - height / 2));
 	}
 
 	public void updatePlayerPos() {
@@ -412,8 +540,8 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 			px += amount;
 		else
 			return;
-		px = Math.max(0, Math.min(map[0][0].length * 32, px));
-		py = Math.max(0, Math.min(map[0].length * 32, py));
+		px = Math.max(0, Math.min(map.getWidth() * 32, px));
+		py = Math.max(0, Math.min(map.getHeight() * 32, py));
 		Short[] pos = new Short[2];
 		pos[0] = (short) px;
 		pos[1] = (short) py;
@@ -431,9 +559,9 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 		if (mapInfo.hasMissingAssets())
 			return;
 		playerPos[0] = (short) (x - this.x + camX);
-		playerPos[0] = (short) Math.max(0, Math.min(map[0][0].length * 32, playerPos[0]));
+		playerPos[0] = (short) Math.max(0, Math.min(map.getWidth() * 32, playerPos[0]));
 		playerPos[1] = (short) (y - 16 - this.y + camY);
-		playerPos[1] = (short) Math.max(0, Math.min(map[0].length * 32, playerPos[1]));
+		playerPos[1] = (short) Math.max(0, Math.min(map.getHeight() * 32, playerPos[1]));
 		if (shiftDown) {
 			playerPos[0] = (short) (((playerPos[0] + 16) / 32) * 32);
 			playerPos[1] = (short) (((playerPos[1] + 16) / 32) * 32);
@@ -501,4 +629,19 @@ public class MapView extends Component implements IDraggable, ProfileListener {
 		}
 	}
 
+	@Override
+	public void onEvent(String event, String loadName, int loadId, int loadIdMax) {
+		if (!ExeData.EVENT_ASSET_RELOAD.equals(event) || SaveEditorPanel.panel == null)
+			return;
+		// the layer cache notices the new assets by itself, this just makes sure the
+		// view is repainted if they're being shown. images aren't tied to a map, so
+		// they always cause a repaint
+		if (loadId == -1 || loadId == getMap())
+			SaveEditorPanel.panel.markDirty(this);
+	}
+
+	@Override
+	public void onSubevent(String event, String loadName, int loadId, int loadIdMax) {
+	}
+
 }
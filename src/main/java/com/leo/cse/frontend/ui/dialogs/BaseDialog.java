@@ -135,6 +135,12 @@ public class BaseDialog extends Dialog {
 	public void onKey(int code, boolean shift, boolean ctrl) {
 	}
 
+	@Override
+	public Rectangle getBounds() {
+		// the outline is drawn 1 pixel past the size
+		return new Rectangle(getWindowX(), getWindowY(false), width + 1, height + 1);
+	}
+
 	@Override
 	public void onScroll(int rotations, boolean shift, boolean ctrl) {
 		if (scrollable != null)
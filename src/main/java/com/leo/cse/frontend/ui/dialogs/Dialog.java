@@ -1,6 +1,7 @@
 package com.leo.cse.frontend.ui.dialogs;
 
 import java.awt.Graphics;
+import java.awt.Rectangle;
 
 public abstract class Dialog {
 
@@ -16,4 +17,13 @@ public abstract class Dialog {
 
 	public abstract void onScroll(int rotations, boolean shift, boolean ctrl);
 
+	/**
+	 * Gets the area that changes when the dialog's hover state changes.
+	 *
+	 * @return area, or <code>null</code> if the whole window should be redrawn
+	 */
+	public Rectangle getBounds() {
+		return null;
+	}
+
 }
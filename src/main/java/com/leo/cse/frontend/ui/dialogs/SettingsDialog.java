@@ -15,6 +15,7 @@ import com.leo.cse.frontend.Resources;
 import com.leo.cse.frontend.ui.SaveEditorPanel;
 import com.leo.cse.frontend.ui.components.box.BooleanBox;
 import com.leo.cse.frontend.ui.components.box.Button;
+import com.leo.cse.frontend.ui.components.box.IntegerBox;
 import com.leo.cse.frontend.ui.components.box.StringBox;
 import com.leo.cse.frontend.ui.components.visual.Label;
 
@@ -23,7 +24,7 @@ public class SettingsDialog extends BaseDialog {
 	private static final byte[] TEST_STRING = new byte[] { (byte) 'T', (byte) 'e', (byte) 's', (byte) 't' };
 
 	public SettingsDialog() {
-		super("Settings", 300, 144);
+		super("Settings", 300, 264);
 		addComponent(new Button("MCI Settings", Resources.icons[9], 4, 4, 292, 17, () -> {
 			SaveEditorPanel.panel.addDialogBox(new MCIDialog());
 		}));
@@ -51,20 +52,70 @@ public class SettingsDialog extends BaseDialog {
 			});
 			return newVal;
 		}));
-		addComponent(new BooleanBox("Autoload game/mod next to profile?", false, 4, 63, () -> {
+		addComponent(new BooleanBox("Load maps on demand?", false, 4, 63, () -> {
+			return ExeData.doLazyLoad();
+		}, (Boolean newVal) -> {
+			ExeData.setLazyLoad(newVal);
+			Config.setBoolean(Config.KEY_LAZY_LOAD_MAPS, newVal);
+			return newVal;
+		}));
+		addComponent(new BooleanBox("Cache parsed mod data?", false, 4, 83, () -> {
+			return ExeData.doUseModCache();
+		}, (Boolean newVal) -> {
+			ExeData.setUseModCache(newVal);
+			Config.setBoolean(Config.KEY_CACHE_MOD_DATA, newVal);
+			return newVal;
+		}));
+		addComponent(new BooleanBox("Reload changed mod files?", false, 4, 103, () -> {
+			return ExeData.doWatchFiles();
+		}, (Boolean newVal) -> {
+			ExeData.setWatchFiles(newVal);
+			Config.setBoolean(Config.KEY_WATCH_MOD_FILES, newVal);
+			return newVal;
+		}));
+		addComponent(new BooleanBox("Autoload game/mod next to profile?", false, 4, 123, () -> {
 			return Config.getBoolean(Config.KEY_AUTOLOAD_EXE, true);
 		}, (Boolean newVal) -> {
 			Config.setBoolean(Config.KEY_AUTOLOAD_EXE, newVal);
 			return newVal;
 		}));
-		addComponent(new BooleanBox("Autoload profile on start?", false, 4, 83, () -> {
+		addComponent(new BooleanBox("Autoload profile on start?", false, 4, 143, () -> {
 			return Config.getBoolean(Config.KEY_AUTOLOAD_PROFILE, true);
 		}, (Boolean newVal) -> {
 			Config.setBoolean(Config.KEY_AUTOLOAD_PROFILE, newVal);
 			return newVal;
 		}));
-		addComponent(new Label("Encoding:", 4, 102));
-		addComponent(new StringBox(54, 103, 242, 17, () -> {
+		addComponent(new Label("Frame cap (0 = none):", 4, 162));
+		addComponent(new IntegerBox(120, 163, 176, 17, () -> {
+			return SaveEditorPanel.panel.getRepaintScheduler().getFrameCap();
+		}, (Integer newVal) -> {
+			SaveEditorPanel.panel.getRepaintScheduler().setFrameCap(newVal);
+			Config.setInt(Config.KEY_FRAME_CAP, newVal);
+			return newVal;
+		}, "frame cap"));
+		addComponent(new Label("Image cache (MiB):", 4, 182));
+		addComponent(new IntegerBox(120, 183, 176, 17, () -> {
+			return (int) (ExeData.getImageCacheBudget() >> 20);
+		}, (Integer newVal) -> {
+			if (newVal < 1)
+				newVal = 1;
+			final long budget = (long) newVal << 20;
+			ExeData.setImageCacheBudget(budget);
+			Config.setLong(Config.KEY_IMAGE_CACHE_BUDGET, budget);
+			return newVal;
+		}, "image cache budget"));
+		addComponent(new Label("Threads (0 = auto):", 4, 202));
+		addComponent(new IntegerBox(120, 203, 176, 17, () -> {
+			return ExeData.getLoadThreads();
+		}, (Integer newVal) -> {
+			if (newVal < 0)
+				newVal = 0;
+			ExeData.setLoadThreads(newVal);
+			Config.setInt(Config.KEY_LOAD_THREADS, newVal);
+			return newVal;
+		}, "load threads"));
+		addComponent(new Label("Encoding:", 4, 222));
+		addComponent(new StringBox(54, 223, 242, 17, () -> {
 			return ExeData.getEncoding();
 		}, (String newVal) -> {
 			try {
@@ -81,7 +132,7 @@ public class SettingsDialog extends BaseDialog {
 			}
 			return newVal;
 		}, "encoding"));
-		addComponent(new Button("Wipe Settings", 4, 123, 292, 17, () -> {
+		addComponent(new Button("Wipe Settings", 4, 243, 292, 17, () -> {
 			int sel = JOptionPane.showConfirmDialog(Main.window,
 					"Are you sure you want to wipe all settings?\nThis will restart the editor WITHOUT saving changes!",
 					"Wipe Settings?", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
@@ -3,6 +3,8 @@ package com.leo.cse.frontend.ui.panels;
 import java.awt.Dimension;
 import java.util.function.Supplier;
 
+import com.leo.cse.backend.exe.ExeData;
+import com.leo.cse.backend.exe.ExeLoadListener;
 import com.leo.cse.frontend.Main;
 import com.leo.cse.frontend.ui.SaveEditorPanel;
 import com.leo.cse.frontend.ui.components.ScrollBar;
@@ -14,7 +16,7 @@ import com.leo.cse.frontend.ui.components.visual.Label;
 import com.leo.cse.frontend.ui.components.visual.Line;
 import com.leo.cse.frontend.ui.dialogs.FlagDialog;
 
-public class FlagsPanel extends Panel {
+public class FlagsPanel extends Panel implements ExeLoadListener {
 
 	private FlagList flagList;
 	private ScrollWrapper flagListWrap;
@@ -27,6 +29,7 @@ public class FlagsPanel extends Panel {
 		flagList = new FlagList(huSup, hsSup);
 		flagListWrap = new ScrollWrapper(flagList, 0, 0, winSize.width - 27, winSize.height - 86);
 		compList.add(flagListWrap);
+		ExeData.addListener(this);
 		compList.add(new Line(0, winSize.height - 85, winSize.width - 21, 0));
 		compList.add(new BooleanBox("Hide undefined flags?", false, 4, winSize.height - 82, huSup, t -> {
 			SaveEditorPanel.hideUndefinedFlags = t;
@@ -50,4 +53,15 @@ public class FlagsPanel extends Panel {
 		return flagListWrap.getScrollbar();
 	}
 
+	@Override
+	public void onEvent(String event, String loadName, int loadId, int loadIdMax) {
+		// the "Uses" column changes whenever scripts are (re)indexed
+		if (ExeData.EVENT_TSC_INDEX.equals(event) && SaveEditorPanel.panel != null)
+			SaveEditorPanel.panel.markDirty(flagListWrap);
+	}
+
+	@Override
+	public void onSubevent(String event, String loadName, int loadId, int loadIdMax) {
+	}
+
 }
@@ -229,6 +229,7 @@ public class GeneralPanel extends Panel {
 		}
 		compList.add(mp = new MapView(winSize.width / 2 - 320, 164, () -> SaveEditorPanel.showMapGrid));
 		ProfileManager.addListener(mp);
+		ExeData.addListener(mp);
 		compList.add(new BooleanBox("Show Grid?", false, 758, 386, () -> SaveEditorPanel.showMapGrid, t -> {
 			SaveEditorPanel.showMapGrid = t;
 			return t;
@@ -2,6 +2,8 @@ package com.leo.cse.frontend.ui.panels;
 
 import java.awt.Dimension;
 
+import com.leo.cse.backend.profile.FlagFieldHandle;
+import com.leo.cse.backend.profile.IntFieldHandle;
 import com.leo.cse.backend.profile.NormalProfile;
 import com.leo.cse.backend.profile.ProfileManager;
 import com.leo.cse.frontend.MCI;
@@ -17,15 +19,23 @@ import com.leo.cse.frontend.ui.components.visual.Label;
 
 public class InventoryPanel extends Panel {
 
+	private static final IntFieldHandle CURRENT_WEAPON = new IntFieldHandle(NormalProfile.FIELD_CURRENT_WEAPON);
+	private static final IntFieldHandle WEAPON_LEVEL = new IntFieldHandle(NormalProfile.FIELD_WEAPON_LEVEL);
+	private static final IntFieldHandle WEAPON_EXP = new IntFieldHandle(NormalProfile.FIELD_WEAPON_EXP);
+	private static final IntFieldHandle WEAPON_CURRENT_AMMO = new IntFieldHandle(NormalProfile.FIELD_WEAPON_CURRENT_AMMO);
+	private static final IntFieldHandle WEAPON_MAXIMUM_AMMO = new IntFieldHandle(NormalProfile.FIELD_WEAPON_MAXIMUM_AMMO);
+	private static final IntFieldHandle STAR_COUNT = new IntFieldHandle(NormalProfile.FIELD_STAR_COUNT);
+	private static final FlagFieldHandle EQUIPS = new FlagFieldHandle(NormalProfile.FIELD_EQUIPS);
+
 	public InventoryPanel() {
 		super();
 		final Dimension winSize = Main.WINDOW_SIZE;
 		final String l = "Selected";
 		int xx = 4;
 		compList.add(new RadioBoxes(xx + 32, 8, xx + (122 * 7), 7, new String[] { l, l, l, l, l, l, l }, () -> {
-			return (Integer) ProfileManager.getField(NormalProfile.FIELD_CURRENT_WEAPON);
+			return CURRENT_WEAPON.getInt();
 		}, t -> {
-			ProfileManager.setField(NormalProfile.FIELD_CURRENT_WEAPON, t);
+			CURRENT_WEAPON.setInt(t);
 			return t;
 		}, true, (Integer index) -> {
 			return true;
@@ -35,30 +45,30 @@ public class InventoryPanel extends Panel {
 			compList.add(new WeaponBox(xx, 22, i));
 			compList.add(new Label("Level:", xx, 72));
 			compList.add(new IntegerBox(xx, 90, 120, 16, () -> {
-				return (Integer) ProfileManager.getField(NormalProfile.FIELD_WEAPON_LEVEL, i2);
+				return WEAPON_LEVEL.getInt(i2);
 			}, t -> {
-				ProfileManager.setField(NormalProfile.FIELD_WEAPON_LEVEL, i2, t);
+				WEAPON_LEVEL.setInt(i2, t);
 				return t;
 			}, "weapon " + (i + 1) + " level"));
 			compList.add(new Label("Extra EXP:", xx, 108));
 			compList.add(new IntegerBox(xx, 126, 120, 16, () -> {
-				return (Integer) ProfileManager.getField(NormalProfile.FIELD_WEAPON_EXP, i2);
+				return WEAPON_EXP.getInt(i2);
 			}, t -> {
-				ProfileManager.setField(NormalProfile.FIELD_WEAPON_EXP, i2, t);
+				WEAPON_EXP.setInt(i2, t);
 				return t;
 			}, "weapon " + (i + 1) + " extra EXP"));
 			compList.add(new Label("Ammo:", xx + 10, 144));
 			compList.add(new IntegerBox(xx + 10, 162, 110, 16, () -> {
-				return (Integer) ProfileManager.getField(NormalProfile.FIELD_WEAPON_CURRENT_AMMO, i2);
+				return WEAPON_CURRENT_AMMO.getInt(i2);
 			}, t -> {
-				ProfileManager.setField(NormalProfile.FIELD_WEAPON_CURRENT_AMMO, i2, t);
+				WEAPON_CURRENT_AMMO.setInt(i2, t);
 				return t;
 			}, "weapon " + (i + 1) + " current ammo"));
 			compList.add(new Label("/", xx + 2, 180));
 			compList.add(new IntegerBox(xx + 10, 180, 110, 16, () -> {
-				return (Integer) ProfileManager.getField(NormalProfile.FIELD_WEAPON_MAXIMUM_AMMO, i2);
+				return WEAPON_MAXIMUM_AMMO.getInt(i2);
 			}, t -> {
-				ProfileManager.setField(NormalProfile.FIELD_WEAPON_MAXIMUM_AMMO, i2, t);
+				WEAPON_MAXIMUM_AMMO.setInt(i2, t);
 				return t;
 			}, "weapon " + (i + 1) + " maximum ammo"));
 			xx += 122;
@@ -75,9 +85,9 @@ public class InventoryPanel extends Panel {
 			for (int j = 0; j < 8; j++) {
 				final int i2 = equipId;
 				compList.add(new BooleanBox("Equip." + equipId, true, 4 + (winSize.width / 3) * i, 506 + 18 * j, () -> {
-					return (Boolean) ProfileManager.getField(NormalProfile.FIELD_EQUIPS, i2);
+					return EQUIPS.get(i2);
 				}, t -> {
-					ProfileManager.setField(NormalProfile.FIELD_EQUIPS, i2, t);
+					EQUIPS.set(i2, t);
 					return t;
 				}));
 				equipId++;
@@ -85,9 +95,9 @@ public class InventoryPanel extends Panel {
 		}
 		compList.add(new Label("Whimsical Star Count:", 4 + (winSize.width / 3) * 2, 505));
 		compList.add(new ShortBox(4 + (winSize.width / 3) * 2, 521, 120, 16, () -> {
-			return (Short) ProfileManager.getField(NormalProfile.FIELD_STAR_COUNT);
+			return (short) STAR_COUNT.getInt();
 		}, t -> {
-			ProfileManager.setField(NormalProfile.FIELD_STAR_COUNT, t);
+			STAR_COUNT.setInt(t);
 			return t;
 		}, "Whimsical Star count"));
 		if (!MCI.getSpecial("VarHack") && MCI.getSpecial("MimHack")) {
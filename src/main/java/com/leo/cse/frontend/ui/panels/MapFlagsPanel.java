@@ -2,6 +2,8 @@ package com.leo.cse.frontend.ui.panels;
 
 import java.awt.Dimension;
 
+import com.leo.cse.backend.exe.ExeData;
+import com.leo.cse.backend.exe.ExeLoadListener;
 import com.leo.cse.frontend.Main;
 import com.leo.cse.frontend.ui.SaveEditorPanel;
 import com.leo.cse.frontend.ui.components.ScrollBar;
@@ -12,7 +14,7 @@ import com.leo.cse.frontend.ui.components.visual.Label;
 import com.leo.cse.frontend.ui.components.visual.Line;
 import com.leo.cse.frontend.ui.dialogs.MapFlagDialog;
 
-public class MapFlagsPanel extends Panel {
+public class MapFlagsPanel extends Panel implements ExeLoadListener {
 
 	private MapFlagList flagList;
 	private ScrollWrapper flagListWrap;
@@ -23,6 +25,7 @@ public class MapFlagsPanel extends Panel {
 		flagList = new MapFlagList();
 		flagListWrap = new ScrollWrapper(flagList, 0, 0, winSize.width - 27, winSize.height - 86);
 		compList.add(flagListWrap);
+		ExeData.addListener(this);
 		compList.add(new Line(0, winSize.height - 85, winSize.width - 21, 0));
 		compList.add(new Button("Set map flag...", 4, winSize.height - 82, 130, 16, () -> {
 			SaveEditorPanel.panel.addDialogBox(new MapFlagDialog());
@@ -36,4 +39,15 @@ public class MapFlagsPanel extends Panel {
 		return flagListWrap.getScrollbar();
 	}
 
+	@Override
+	public void onEvent(String event, String loadName, int loadId, int loadIdMax) {
+		// the "Uses" column changes whenever scripts are (re)indexed
+		if (ExeData.EVENT_TSC_INDEX.equals(event) && SaveEditorPanel.panel != null)
+			SaveEditorPanel.panel.markDirty(flagListWrap);
+	}
+
+	@Override
+	public void onSubevent(String event, String loadName, int loadId, int loadIdMax) {
+	}
+
 }